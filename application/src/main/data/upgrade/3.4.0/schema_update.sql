@@ -232,3 +232,59 @@ $$;
 UPDATE tb_user
     SET additional_info = REPLACE(additional_info, '"lang":"ja_JA"', '"lang":"ja_JP"')
     WHERE additional_info LIKE '%"lang":"ja_JA"%';
+
+-- Cloud events are partitioned by created_time, so expired events are removed by dropping the whole partition;
+DO
+$$
+    BEGIN
+        IF EXISTS(SELECT 1 FROM pg_class WHERE relname = 'cloud_event' AND relkind = 'r') THEN
+            ALTER TABLE cloud_event RENAME TO old_cloud_event;
+            ALTER INDEX IF EXISTS cloud_event_pkey RENAME TO old_cloud_event_pkey;
+        END IF;
+    END;
+$$;
+
+CREATE TABLE IF NOT EXISTS cloud_event (
+    id uuid NOT NULL,
+    created_time bigint NOT NULL,
+    cloud_event_type varchar(255),
+    entity_id uuid,
+    cloud_event_action varchar(255),
+    entity_body varchar(10000000),
+    tenant_id uuid,
+    ts bigint NOT NULL
+) PARTITION BY RANGE (created_time);
+
+CREATE INDEX IF NOT EXISTS idx_cloud_event_id ON cloud_event(id);
+
+CREATE INDEX IF NOT EXISTS idx_cloud_event_tenant_id_and_created_time ON cloud_event(tenant_id, created_time DESC);
+
+CREATE INDEX IF NOT EXISTS idx_cloud_event_tenant_id_type_action_created_time ON cloud_event(tenant_id, cloud_event_type, cloud_event_action, created_time);
+
+DROP PROCEDURE IF EXISTS cleanup_cloud_events_by_ttl(bigint, bigint);
+
+-- Useful to migrate not yet pushed cloud events to the partitioned table;
+CREATE OR REPLACE PROCEDURE migrate_cloud_events(IN partition_size_in_hours int)
+    LANGUAGE plpgsql AS
+$$
+DECLARE
+    partition_size_in_ms bigint;
+    p record;
+BEGIN
+    partition_size_in_ms = partition_size_in_hours::bigint * 3600 * 1000;
+
+    IF EXISTS(SELECT 1 FROM pg_tables WHERE schemaname = 'public' AND tablename = 'old_cloud_event') THEN
+        FOR p IN SELECT DISTINCT (created_time - created_time % partition_size_in_ms) as partition_ts FROM old_cloud_event
+        LOOP
+            RAISE NOTICE '[cloud_event] Partition to create : [%-%]', p.partition_ts, (p.partition_ts + partition_size_in_ms);
+            EXECUTE format('CREATE TABLE IF NOT EXISTS cloud_event_%s PARTITION OF cloud_event FOR VALUES FROM ( %s ) TO ( %s )', p.partition_ts, p.partition_ts, (p.partition_ts + partition_size_in_ms));
+        END LOOP;
+
+        INSERT INTO cloud_event (id, created_time, cloud_event_type, entity_id, cloud_event_action, entity_body, tenant_id, ts)
+        SELECT id, created_time, cloud_event_type, entity_id, cloud_event_action, entity_body, tenant_id, ts
+        FROM old_cloud_event;
+
+        DROP TABLE old_cloud_event;
+    END IF;
+END
+$$;
@@ -0,0 +1,45 @@
+--
+-- Copyright © 2016-2022 The Thingsboard Authors
+--
+-- Licensed under the Apache License, Version 2.0 (the "License");
+-- you may not use this file except in compliance with the License.
+-- You may obtain a copy of the License at
+--
+--     http://www.apache.org/licenses/LICENSE-2.0
+--
+-- Unless required by applicable law or agreed to in writing, software
+-- distributed under the License is distributed on an "AS IS" BASIS,
+-- WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+-- See the License for the specific language governing permissions and
+-- limitations under the License.
+--
+
+CREATE TABLE IF NOT EXISTS ts_kv_rollup
+(
+    entity_id  uuid   NOT NULL,
+    key        int    NOT NULL,
+    resolution bigint NOT NULL,
+    ts         bigint NOT NULL,
+    bool_count bigint NOT NULL,
+    str_count  bigint NOT NULL,
+    long_count bigint NOT NULL,
+    dbl_count  bigint NOT NULL,
+    json_count bigint NOT NULL,
+    long_sum   numeric,
+    dbl_sum    double precision,
+    long_min   bigint,
+    long_max   bigint,
+    dbl_min    double precision,
+    dbl_max    double precision,
+    str_min    varchar(10000000),
+    str_max    varchar(10000000),
+    CONSTRAINT ts_kv_rollup_pkey PRIMARY KEY (entity_id, key, resolution, ts)
+);
+
+CREATE INDEX IF NOT EXISTS idx_ts_kv_rollup_resolution_ts ON ts_kv_rollup(resolution, ts);
+
+CREATE TABLE IF NOT EXISTS ts_kv_rollup_state
+(
+    id       int    NOT NULL CONSTRAINT ts_kv_rollup_state_pkey PRIMARY KEY,
+    start_ts bigint NOT NULL
+);
@@ -31,6 +31,7 @@ import org.springframework.context.annotation.Lazy;
 import org.springframework.data.redis.core.RedisTemplate;
 import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Component;
+import org.thingsboard.common.util.BlockingCallExecutor;
 import org.thingsboard.rule.engine.api.MailService;
 import org.thingsboard.rule.engine.api.SmsService;
 import org.thingsboard.rule.engine.api.sms.SmsSenderFactory;
@@ -49,6 +50,7 @@ import org.thingsboard.server.common.msg.TbMsg;
 import org.thingsboard.server.common.msg.queue.ServiceType;
 import org.thingsboard.server.common.msg.queue.TopicPartitionInfo;
 import org.thingsboard.server.common.msg.tools.TbRateLimits;
+import org.thingsboard.server.common.stats.StatsFactory;
 import org.thingsboard.server.dao.asset.AssetService;
 import org.thingsboard.server.dao.attributes.AttributesService;
 import org.thingsboard.server.dao.audit.AuditLogService;
@@ -96,6 +98,7 @@ import org.thingsboard.server.service.session.DeviceSessionCacheService;
 import org.thingsboard.server.service.sms.SmsExecutorService;
 import org.thingsboard.server.service.state.DeviceStateService;
 import org.thingsboard.server.service.telemetry.AlarmSubscriptionService;
+import org.thingsboard.server.service.telemetry.TbRecentTelemetryCache;
 import org.thingsboard.server.service.telemetry.TelemetrySubscriptionService;
 import org.thingsboard.server.service.transport.TbCoreToTransportService;
 
@@ -183,6 +186,10 @@ public class ActorSystemContext {
     @Getter
     private TbDeviceProfileCache deviceProfileCache;
 
+    @Autowired
+    @Getter
+    private TbRecentTelemetryCache recentTelemetryCache;
+
     @Autowired
     @Getter
     private AssetService assetService;
@@ -279,6 +286,10 @@ public class ActorSystemContext {
     @Getter
     private DbCallbackExecutorService dbCallbackExecutor;
 
+    @Autowired
+    @Getter
+    private BlockingCallExecutor blockingCallExecutor;
+
     @Autowired
     @Getter
     private ExternalCallExecutorService externalCallExecutorService;
@@ -308,6 +319,10 @@ public class ActorSystemContext {
     @Getter
     private JsInvokeStats jsInvokeStats;
 
+    @Autowired
+    @Getter
+    private StatsFactory statsFactory;
+
     //TODO: separate context for TbCore and TbRuleEngine
     @Autowired(required = false)
     @Getter
@@ -388,6 +403,14 @@ public class ActorSystemContext {
     @Getter
     private long ruleNodeErrorPersistFrequency;
 
+    @Value("${actors.rule.node.stats.enabled:true}")
+    @Getter
+    private boolean ruleNodeStatsEnabled;
+
+    @Value("${actors.rule.chain.fused_execution_enabled:false}")
+    @Getter
+    private boolean ruleChainFusedExecutionEnabled;
+
     @Value("${actors.statistics.enabled:true}")
     @Getter
     private boolean statisticsEnabled;
@@ -19,10 +19,12 @@ import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import io.netty.channel.EventLoopGroup;
 import lombok.extern.slf4j.Slf4j;
+import org.thingsboard.common.util.BlockingCallExecutor;
 import org.thingsboard.common.util.ListeningExecutor;
 import org.thingsboard.rule.engine.api.MailService;
 import org.thingsboard.rule.engine.api.RuleEngineAlarmService;
 import org.thingsboard.rule.engine.api.RuleEngineDeviceProfileCache;
+import org.thingsboard.rule.engine.api.RuleEngineRecentTelemetryCache;
 import org.thingsboard.rule.engine.api.RuleEngineRpcService;
 import org.thingsboard.rule.engine.api.RuleEngineTelemetryService;
 import org.thingsboard.rule.engine.api.ScriptEngine;
@@ -59,6 +61,7 @@ import org.thingsboard.server.common.msg.TbMsgMetaData;
 import org.thingsboard.server.common.msg.TbMsgProcessingStackItem;
 import org.thingsboard.server.common.msg.queue.ServiceType;
 import org.thingsboard.server.common.msg.queue.TopicPartitionInfo;
+import org.thingsboard.server.common.stats.StatsFactory;
 import org.thingsboard.server.dao.asset.AssetService;
 import org.thingsboard.server.dao.attributes.AttributesService;
 import org.thingsboard.server.dao.cassandra.CassandraCluster;
@@ -107,6 +110,11 @@ class DefaultTbContext implements TbContext {
         this.nodeCtx = nodeCtx;
     }
 
+    private void onProcessingEnd(TbMsg msg) {
+        // only the first of the calls that pass the message on ends the processing
+        TbRuleNodeStatsCallback.end(msg);
+    }
+
     @Override
     public void tellSuccess(TbMsg msg) {
         tellNext(msg, Collections.singleton(TbRelationTypes.SUCCESS), null);
@@ -126,6 +134,7 @@ class DefaultTbContext implements TbContext {
         if (nodeCtx.getSelf().isDebugMode()) {
             relationTypes.forEach(relationType -> mainCtx.persistDebugOutput(nodeCtx.getTenantId(), nodeCtx.getSelf().getId(), msg, relationType, th));
         }
+        onProcessingEnd(msg);
         msg.getCallback().onProcessingEnd(nodeCtx.getSelf().getId());
         nodeCtx.getChainActor().tell(new RuleNodeToRuleChainTellNextMsg(nodeCtx.getSelf().getRuleChainId(), nodeCtx.getSelf().getId(), relationTypes, msg, th != null ? th.getMessage() : null));
     }
@@ -133,6 +142,7 @@ class DefaultTbContext implements TbContext {
     @Override
     public void tellSelf(TbMsg msg, long delayMs) {
         //TODO: add persistence layer
+        onProcessingEnd(msg);
         scheduleMsgWithDelay(new RuleNodeToSelfMsg(this, msg), delayMs, nodeCtx.getSelfActor());
     }
 
@@ -148,6 +158,7 @@ class DefaultTbContext implements TbContext {
         if (item == null) {
             ack(msg);
         } else {
+            onProcessingEnd(msg);
             if (nodeCtx.getSelf().isDebugMode()) {
                 mainCtx.persistDebugOutput(nodeCtx.getTenantId(), nodeCtx.getSelf().getId(), msg, relationType);
             }
@@ -175,14 +186,13 @@ class DefaultTbContext implements TbContext {
             }
             return;
         }
-        TransportProtos.ToRuleEngineMsg msg = TransportProtos.ToRuleEngineMsg.newBuilder()
+        TransportProtos.ToRuleEngineMsg.Builder msg = TransportProtos.ToRuleEngineMsg.newBuilder()
                 .setTenantIdMSB(getTenantId().getId().getMostSignificantBits())
-                .setTenantIdLSB(getTenantId().getId().getLeastSignificantBits())
-                .setTbMsg(TbMsg.toByteString(tbMsg)).build();
+                .setTenantIdLSB(getTenantId().getId().getLeastSignificantBits());
         if (nodeCtx.getSelf().isDebugMode()) {
             mainCtx.persistDebugOutput(nodeCtx.getTenantId(), nodeCtx.getSelf().getId(), tbMsg, "To Root Rule Chain");
         }
-        mainCtx.getClusterService().pushMsgToRuleEngine(tpi, tbMsg.getId(), msg, new SimpleTbQueueCallback(onSuccess, onFailure));
+        mainCtx.getClusterService().pushMsgToRuleEngine(tpi, tbMsg, msg, new SimpleTbQueueCallback(onSuccess, onFailure));
     }
 
     @Override
@@ -247,13 +257,13 @@ class DefaultTbContext implements TbContext {
             }
             return;
         }
+        onProcessingEnd(source);
         RuleChainId ruleChainId = nodeCtx.getSelf().getRuleChainId();
         RuleNodeId ruleNodeId = nodeCtx.getSelf().getId();
         TbMsg tbMsg = TbMsg.newMsg(source, queueName, ruleChainId, ruleNodeId);
         TransportProtos.ToRuleEngineMsg.Builder msg = TransportProtos.ToRuleEngineMsg.newBuilder()
                 .setTenantIdMSB(getTenantId().getId().getMostSignificantBits())
                 .setTenantIdLSB(getTenantId().getId().getLeastSignificantBits())
-                .setTbMsg(TbMsg.toByteString(tbMsg))
                 .addAllRelationTypes(relationTypes);
         if (failureMessage != null) {
             msg.setFailureMessage(failureMessage);
@@ -262,7 +272,7 @@ class DefaultTbContext implements TbContext {
             relationTypes.forEach(relationType ->
                     mainCtx.persistDebugOutput(nodeCtx.getTenantId(), nodeCtx.getSelf().getId(), tbMsg, relationType, null, failureMessage));
         }
-        mainCtx.getClusterService().pushMsgToRuleEngine(tpi, tbMsg.getId(), msg.build(), new SimpleTbQueueCallback(onSuccess, onFailure));
+        mainCtx.getClusterService().pushMsgToRuleEngine(tpi, tbMsg, msg, new SimpleTbQueueCallback(onSuccess, onFailure));
     }
 
     @Override
@@ -270,6 +280,7 @@ class DefaultTbContext implements TbContext {
         if (nodeCtx.getSelf().isDebugMode()) {
             mainCtx.persistDebugOutput(nodeCtx.getTenantId(), nodeCtx.getSelf().getId(), tbMsg, "ACK", null);
         }
+        onProcessingEnd(tbMsg);
         tbMsg.getCallback().onProcessingEnd(nodeCtx.getSelf().getId());
         tbMsg.getCallback().onSuccess();
     }
@@ -298,6 +309,7 @@ class DefaultTbContext implements TbContext {
         } else {
             failureMessage = null;
         }
+        onProcessingEnd(msg);
         nodeCtx.getChainActor().tell(new RuleNodeToRuleChainTellNextMsg(nodeCtx.getSelf().getRuleChainId(),
                 nodeCtx.getSelf().getId(), Collections.singleton(TbRelationTypes.FAILURE),
                 msg, failureMessage));
@@ -418,6 +430,11 @@ class DefaultTbContext implements TbContext {
         return mainCtx.getExternalCallExecutorService();
     }
 
+    @Override
+    public BlockingCallExecutor getBlockingCallExecutor() {
+        return mainCtx.getBlockingCallExecutor();
+    }
+
     @Override
     public ScriptEngine createJsScriptEngine(String script, String... argNames) {
         return new RuleNodeJsScriptEngine(getTenantId(), mainCtx.getJsSandbox(), nodeCtx.getSelf().getId(), script, argNames);
@@ -534,6 +551,11 @@ class DefaultTbContext implements TbContext {
         return mainCtx.getDeviceProfileCache();
     }
 
+    @Override
+    public RuleEngineRecentTelemetryCache getRecentTelemetryCache() {
+        return mainCtx.getRecentTelemetryCache();
+    }
+
     @Override
     public EdgeService getEdgeService() {
         return mainCtx.getEdgeService();
@@ -559,6 +581,11 @@ class DefaultTbContext implements TbContext {
         return mainCtx.getSharedEventLoopGroupService().getSharedEventLoopGroup();
     }
 
+    @Override
+    public StatsFactory getStatsFactory() {
+        return mainCtx.getStatsFactory();
+    }
+
     @Override
     public MailService getMailService(boolean isSystem) {
         if (!isSystem || mainCtx.isAllowSystemMailService()) {
@@ -0,0 +1,93 @@
+/**
+ * Copyright © 2016-2022 The Thingsboard Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.thingsboard.server.actors.ruleChain;
+
+import lombok.extern.slf4j.Slf4j;
+import org.thingsboard.rule.engine.api.TbNode;
+import org.thingsboard.rule.engine.api.TbNodeConfiguration;
+import org.thingsboard.server.actors.ActorSystemContext;
+import org.thingsboard.server.common.data.plugin.ComponentLifecycleState;
+import org.thingsboard.server.common.data.rule.RuleNode;
+import org.thingsboard.server.common.msg.TbMsg;
+import org.thingsboard.server.common.msg.queue.RuleNodeInfo;
+
+/**
+ * Rule node run inline by its rule chain actor instead of through the mailbox of the rule node actor.
+ * Only nodes annotated as fusible qualify: they keep no state between messages, so the chain owns a separate instance
+ * and processes messages the same way the rule node actor does, including debug events, api usage and the stats it shares
+ * with the rule node actor.
+ */
+@Slf4j
+final class FusedRuleNode {
+
+    private final ActorSystemContext systemContext;
+    private final String ruleChainName;
+    private final RuleNodeCtx nodeCtx;
+    private final RuleNodeInfo info;
+    private final TbNode tbNode;
+    private final TbRuleNodeStats stats;
+    private ComponentLifecycleState state;
+
+    FusedRuleNode(ActorSystemContext systemContext, String ruleChainName, RuleNodeCtx nodeCtx) throws Exception {
+        this.systemContext = systemContext;
+        this.ruleChainName = ruleChainName;
+        this.nodeCtx = nodeCtx;
+        RuleNode ruleNode = nodeCtx.getSelf();
+        this.info = new RuleNodeInfo(ruleNode.getId(), ruleChainName, ruleNode.getName());
+        this.tbNode = (TbNode) Class.forName(ruleNode.getType()).getDeclaredConstructor().newInstance();
+        this.tbNode.init(new DefaultTbContext(systemContext, ruleChainName, nodeCtx), new TbNodeConfiguration(ruleNode.getConfiguration()));
+        this.stats = systemContext.isRuleNodeStatsEnabled() ? TbRuleNodeStats.acquire(systemContext.getStatsFactory(), ruleNode) : null;
+        this.state = ComponentLifecycleState.ACTIVE;
+    }
+
+    static boolean isFusible(ActorSystemContext systemContext, RuleNode ruleNode) {
+        if (!systemContext.isRuleChainFusedExecutionEnabled() || ruleNode == null) {
+            return false;
+        }
+        try {
+            org.thingsboard.rule.engine.api.RuleNode annotation =
+                    Class.forName(ruleNode.getType()).getAnnotation(org.thingsboard.rule.engine.api.RuleNode.class);
+            return annotation != null && annotation.fusible();
+        } catch (ClassNotFoundException e) {
+            return false;
+        }
+    }
+
+    void process(TbMsg msg, String fromRelationType, int maxRuleNodeExecutionsPerMessage) {
+        long startNanos = System.nanoTime();
+        RuleNode ruleNode = nodeCtx.getSelf();
+        msg.getCallback().onProcessingStart(info);
+        if (state != ComponentLifecycleState.ACTIVE) {
+            log.debug("[{}] Fused rule node is not active. Current state [{}]", ruleNode.getId(), state);
+            msg.getCallback().onFailure(RuleNodeActorMessageProcessor.newInactiveException(ruleChainName, ruleNode));
+            return;
+        }
+        RuleNodeActorMessageProcessor.process(systemContext, nodeCtx.getTenantId(), ruleChainName, ruleNode, tbNode, stats,
+                new DefaultTbContext(systemContext, ruleChainName, nodeCtx), msg, fromRelationType, maxRuleNodeExecutionsPerMessage, startNanos);
+    }
+
+    void destroy() {
+        state = ComponentLifecycleState.SUSPENDED;
+        try {
+            tbNode.destroy();
+        } catch (Exception e) {
+            log.warn("[{}] Failed to destroy fused rule node", nodeCtx.getSelf().getId(), e);
+        }
+        if (stats != null) {
+            stats.release();
+        }
+    }
+}
@@ -20,10 +20,10 @@ import org.thingsboard.rule.engine.api.TbRelationTypes;
 import org.thingsboard.server.actors.ActorSystemContext;
 import org.thingsboard.server.actors.TbActorCtx;
 import org.thingsboard.server.actors.TbActorRef;
+import org.thingsboard.server.actors.TbActorId;
 import org.thingsboard.server.actors.TbEntityActorId;
 import org.thingsboard.server.actors.service.DefaultActorService;
 import org.thingsboard.server.actors.shared.ComponentMsgProcessor;
-import org.thingsboard.server.common.data.EntityType;
 import org.thingsboard.server.common.data.id.EntityId;
 import org.thingsboard.server.common.data.id.RuleChainId;
 import org.thingsboard.server.common.data.id.RuleNodeId;
@@ -34,6 +34,7 @@ import org.thingsboard.server.common.data.relation.EntityRelation;
 import org.thingsboard.server.common.data.rule.RuleChain;
 import org.thingsboard.server.common.data.rule.RuleChainType;
 import org.thingsboard.server.common.data.rule.RuleNode;
+import org.thingsboard.server.common.msg.TbActorMsg;
 import org.thingsboard.server.common.msg.TbMsg;
 import org.thingsboard.server.common.msg.plugin.ComponentLifecycleMsg;
 import org.thingsboard.server.common.msg.plugin.RuleNodeUpdatedMsg;
@@ -51,8 +52,11 @@ import org.thingsboard.server.queue.common.TbQueueTbMsgCallbackWrapper;
 import org.thingsboard.server.queue.usagestats.TbApiUsageClient;
 import org.thingsboard.server.cluster.TbClusterService;
 
+import java.util.ArrayDeque;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
+import java.util.Deque;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -67,10 +71,17 @@ import java.util.stream.Collectors;
 public class RuleChainActorMessageProcessor extends ComponentMsgProcessor<RuleChainId> {
 
     private static final String NA_RELATION_TYPE = "";
+    // bounds the work done inline in a single actor turn, further messages go through the mailbox of the rule nodes
+    private static final int MAX_FUSED_STEPS_PER_TURN = 1000;
     private final TbActorRef parent;
     private final TbActorRef self;
     private final Map<RuleNodeId, RuleNodeCtx> nodeActors;
-    private final Map<RuleNodeId, List<RuleNodeRelation>> nodeRoutes;
+    private final Map<RuleNodeId, RuleNodeRoutes> nodeRoutes;
+    private final Map<RuleNodeId, FusedRuleNode> fusedNodes;
+    private final TbActorRef fusedChainActor;
+    private final Deque<Runnable> fusedTasks;
+    private volatile Thread fusedThread;
+    private int fusedSteps;
     private final RuleChainService service;
     private final TbClusterService clusterService;
     private final TbApiUsageClient apiUsageClient;
@@ -88,6 +99,9 @@ public class RuleChainActorMessageProcessor extends ComponentMsgProcessor<RuleCh
         this.self = self;
         this.nodeActors = new HashMap<>();
         this.nodeRoutes = new HashMap<>();
+        this.fusedNodes = new HashMap<>();
+        this.fusedChainActor = new FusedChainActorRef();
+        this.fusedTasks = new ArrayDeque<>();
         this.service = systemContext.getRuleChainService();
         this.clusterService = systemContext.getClusterService();
     }
@@ -111,6 +125,7 @@ public class RuleChainActorMessageProcessor extends ComponentMsgProcessor<RuleCh
                     nodeActors.put(ruleNode.getId(), new RuleNodeCtx(tenantId, self, ruleNodeActor, ruleNode));
                 }
                 initRoutes(ruleChain, ruleNodeList);
+                initFusedNodes(ruleNodeList);
                 started = true;
             }
         } else {
@@ -147,6 +162,7 @@ public class RuleChainActorMessageProcessor extends ComponentMsgProcessor<RuleCh
             });
 
             initRoutes(ruleChain, ruleNodeList);
+            initFusedNodes(ruleNodeList);
         }
     }
 
@@ -156,6 +172,10 @@ public class RuleChainActorMessageProcessor extends ComponentMsgProcessor<RuleCh
         nodeActors.values().stream().map(RuleNodeCtx::getSelfActor).map(TbActorRef::getActorId).forEach(ctx::stop);
         nodeActors.clear();
         nodeRoutes.clear();
+        destroyFusedNodes();
+        if (systemContext.isRuleNodeStatsEnabled()) {
+            TbRuleNodeStats.removeChainMeters(systemContext.getStatsFactory(), entityId.toString());
+        }
         started = false;
     }
 
@@ -177,19 +197,14 @@ public class RuleChainActorMessageProcessor extends ComponentMsgProcessor<RuleCh
             List<EntityRelation> relations = service.getRuleNodeRelations(TenantId.SYS_TENANT_ID, ruleNode.getId());
             log.trace("[{}][{}][{}] Processing rule node relations [{}]", tenantId, entityId, ruleNode.getId(), relations.size());
             if (relations.size() == 0) {
-                nodeRoutes.put(ruleNode.getId(), Collections.emptyList());
+                nodeRoutes.put(ruleNode.getId(), RuleNodeRoutes.EMPTY);
             } else {
+                List<RuleNodeRelation> ruleNodeRelations = new ArrayList<>(relations.size());
                 for (EntityRelation relation : relations) {
                     log.trace("[{}][{}][{}] Processing rule node relation [{}]", tenantId, entityId, ruleNode.getId(), relation.getTo());
-                    if (relation.getTo().getEntityType() == EntityType.RULE_NODE) {
-                        RuleNodeCtx ruleNodeCtx = nodeActors.get(new RuleNodeId(relation.getTo().getId()));
-                        if (ruleNodeCtx == null) {
-                            throw new IllegalArgumentException("Rule Node [" + relation.getFrom() + "] has invalid relation to Rule node [" + relation.getTo() + "]");
-                        }
-                    }
-                    nodeRoutes.computeIfAbsent(ruleNode.getId(), k -> new ArrayList<>())
-                            .add(new RuleNodeRelation(ruleNode.getId(), relation.getTo(), relation.getType()));
+                    ruleNodeRelations.add(new RuleNodeRelation(ruleNode.getId(), toRouteTarget(relation), relation.getType()));
                 }
+                nodeRoutes.put(ruleNode.getId(), new RuleNodeRoutes(ruleNodeRelations));
             }
         }
 
@@ -198,6 +213,45 @@ public class RuleChainActorMessageProcessor extends ComponentMsgProcessor<RuleCh
         state = ComponentLifecycleState.ACTIVE;
     }
 
+    private void initFusedNodes(List<RuleNode> ruleNodeList) {
+        destroyFusedNodes();
+        for (RuleNode ruleNode : ruleNodeList) {
+            if (FusedRuleNode.isFusible(systemContext, ruleNode)) {
+                TbActorRef ruleNodeActor = nodeActors.get(ruleNode.getId()).getSelfActor();
+                try {
+                    fusedNodes.put(ruleNode.getId(), new FusedRuleNode(systemContext, ruleChainName, new RuleNodeCtx(tenantId, fusedChainActor, ruleNodeActor, ruleNode)));
+                } catch (Exception e) {
+                    log.warn("[{}][{}] Failed to init fused rule node [{}], messages go through the rule node actor", tenantId, entityId, ruleNode.getId(), e);
+                }
+            }
+        }
+        log.trace("[{}][{}] Running {} rule nodes inline", tenantId, entityId, fusedNodes.size());
+    }
+
+    private void destroyFusedNodes() {
+        fusedNodes.values().forEach(FusedRuleNode::destroy);
+        fusedNodes.clear();
+    }
+
+    /**
+     * Creates the typed id of the relation target once, so routing a message can look up the target without allocating.
+     */
+    private EntityId toRouteTarget(EntityRelation relation) {
+        EntityId to = relation.getTo();
+        switch (to.getEntityType()) {
+            case RULE_NODE:
+                RuleNodeId ruleNodeId = new RuleNodeId(to.getId());
+                if (nodeActors.get(ruleNodeId) == null) {
+                    throw new IllegalArgumentException("Rule Node [" + relation.getFrom() + "] has invalid relation to Rule node [" + relation.getTo() + "]");
+                }
+                return ruleNodeId;
+            case RULE_CHAIN:
+                return new RuleChainId(to.getId());
+            default:
+                return to;
+        }
+    }
+
     void onQueueToRuleEngineMsg(QueueToRuleEngineMsg envelope) {
         TbMsg msg = envelope.getMsg();
         if (!checkMsgValid(msg)) {
@@ -295,18 +349,18 @@ public class RuleChainActorMessageProcessor extends ComponentMsgProcessor<RuleCh
             EntityId entityId = msg.getOriginator();
             TopicPartitionInfo tpi = systemContext.resolve(ServiceType.TB_RULE_ENGINE, msg.getQueueName(), tenantId, entityId);
 
-            List<RuleNodeRelation> ruleNodeRelations = nodeRoutes.get(originatorNodeId);
-            if (ruleNodeRelations == null) { // When unchecked, this will cause NullPointerException when rule node doesn't exist anymore
+            RuleNodeRoutes routes = nodeRoutes.get(originatorNodeId);
+            if (routes == null) { // When unchecked, this will cause NullPointerException when rule node doesn't exist anymore
                 log.warn("[{}][{}][{}] No outbound relations (null). Probably rule node does not exist. Probably old message.", tenantId, entityId, msg.getId());
-                ruleNodeRelations = Collections.emptyList();
+                routes = RuleNodeRoutes.EMPTY;
             }
 
-            List<RuleNodeRelation> relationsByTypes = ruleNodeRelations.stream()
-                    .filter(r -> contains(relationTypes, r.getType()))
-                    .collect(Collectors.toList());
-            int relationsCount = relationsByTypes.size();
+            RuleNodeRelation[] relationsByTypes = routes.get(relationTypes);
+            int relationsCount = relationsByTypes.length;
             if (relationsCount == 0) {
-                log.trace("[{}][{}][{}] No outbound relations to process", tenantId, entityId, msg.getId());
+                if (log.isTraceEnabled()) {
+                    log.trace("[{}][{}][{}] No outbound relations to process", tenantId, entityId, msg.getId());
+                }
                 if (relationTypes.contains(TbRelationTypes.FAILURE)) {
                     RuleNodeCtx ruleNodeCtx = nodeActors.get(originatorNodeId);
                     if (ruleNodeCtx != null) {
@@ -319,13 +373,16 @@ public class RuleChainActorMessageProcessor extends ComponentMsgProcessor<RuleCh
                     msg.getCallback().onSuccess();
                 }
             } else if (relationsCount == 1) {
-                for (RuleNodeRelation relation : relationsByTypes) {
+                RuleNodeRelation relation = relationsByTypes[0];
+                if (log.isTraceEnabled()) {
                     log.trace("[{}][{}][{}] Pushing message to single target: [{}]", tenantId, entityId, msg.getId(), relation.getOut());
-                    pushToTarget(tpi, msg, relation.getOut(), relation.getType());
                 }
+                pushToTarget(tpi, msg, relation.getOut(), relation.getType());
             } else {
                 MultipleTbQueueTbMsgCallbackWrapper callbackWrapper = new MultipleTbQueueTbMsgCallbackWrapper(relationsCount, msg.getCallback());
-                log.trace("[{}][{}][{}] Pushing message to multiple targets: [{}]", tenantId, entityId, msg.getId(), relationsByTypes);
+                if (log.isTraceEnabled()) {
+                    log.trace("[{}][{}][{}] Pushing message to multiple targets: [{}]", tenantId, entityId, msg.getId(), Arrays.toString(relationsByTypes));
+                }
                 for (RuleNodeRelation relation : relationsByTypes) {
                     EntityId target = relation.getOut();
                     putToQueue(tpi, msg, callbackWrapper, target);
@@ -342,10 +399,10 @@ public class RuleChainActorMessageProcessor extends ComponentMsgProcessor<RuleCh
     private void putToQueue(TopicPartitionInfo tpi, TbMsg msg, TbQueueCallback callbackWrapper, EntityId target) {
         switch (target.getEntityType()) {
             case RULE_NODE:
-                putToQueue(tpi, msg.copyWithRuleNodeId(entityId, new RuleNodeId(target.getId()), UUID.randomUUID()), callbackWrapper);
+                putToQueue(tpi, msg.copyWithRuleNodeId(entityId, (RuleNodeId) target, UUID.randomUUID()), callbackWrapper);
                 break;
             case RULE_CHAIN:
-                putToQueue(tpi, msg.copyWithRuleChainId(new RuleChainId(target.getId()), UUID.randomUUID()), callbackWrapper);
+                putToQueue(tpi, msg.copyWithRuleChainId((RuleChainId) target, UUID.randomUUID()), callbackWrapper);
                 break;
         }
     }
@@ -354,10 +411,10 @@ public class RuleChainActorMessageProcessor extends ComponentMsgProcessor<RuleCh
         if (tpi.isMyPartition()) {
             switch (target.getEntityType()) {
                 case RULE_NODE:
-                    pushMsgToNode(nodeActors.get(new RuleNodeId(target.getId())), msg, fromRelationType);
+                    pushMsgToNode(nodeActors.get((RuleNodeId) target), msg, fromRelationType);
                     break;
                 case RULE_CHAIN:
-                    parent.tell(new RuleChainToRuleChainMsg(new RuleChainId(target.getId()), entityId, msg, fromRelationType));
+                    parent.tell(new RuleChainToRuleChainMsg((RuleChainId) target, entityId, msg, fromRelationType));
                     break;
             }
         } else {
@@ -366,35 +423,89 @@ public class RuleChainActorMessageProcessor extends ComponentMsgProcessor<RuleCh
     }
 
     private void putToQueue(TopicPartitionInfo tpi, TbMsg newMsg, TbQueueCallback callbackWrapper) {
-        ToRuleEngineMsg toQueueMsg = ToRuleEngineMsg.newBuilder()
+        ToRuleEngineMsg.Builder toQueueMsg = ToRuleEngineMsg.newBuilder()
                 .setTenantIdMSB(tenantId.getId().getMostSignificantBits())
-                .setTenantIdLSB(tenantId.getId().getLeastSignificantBits())
-                .setTbMsg(TbMsg.toByteString(newMsg))
-                .build();
-        clusterService.pushMsgToRuleEngine(tpi, newMsg.getId(), toQueueMsg, callbackWrapper);
-    }
-
-    private boolean contains(Set<String> relationTypes, String type) {
-        if (relationTypes == null) {
-            return true;
-        }
-        for (String relationType : relationTypes) {
-            if (relationType.equalsIgnoreCase(type)) {
-                return true;
-            }
-        }
-        return false;
+                .setTenantIdLSB(tenantId.getId().getLeastSignificantBits());
+        clusterService.pushMsgToRuleEngine(tpi, newMsg, toQueueMsg, callbackWrapper);
     }
 
     private void pushMsgToNode(RuleNodeCtx nodeCtx, TbMsg msg, String fromRelationType) {
         if (nodeCtx != null) {
-            nodeCtx.getSelfActor().tell(new RuleChainToRuleNodeMsg(new DefaultTbContext(systemContext, ruleChainName, nodeCtx), msg, fromRelationType));
+            FusedRuleNode fusedNode = fusedNodes.get(nodeCtx.getSelf().getId());
+            if (fusedNode != null && fusedSteps < MAX_FUSED_STEPS_PER_TURN) {
+                runFused(fusedTask(msg, () -> fusedNode.process(msg, fromRelationType, getTenantProfileConfiguration().getMaxRuleNodeExecsPerMessage())));
+            } else {
+                nodeCtx.getSelfActor().tell(new RuleChainToRuleNodeMsg(new DefaultTbContext(systemContext, ruleChainName, nodeCtx), msg, fromRelationType));
+            }
         } else {
             log.error("[{}][{}] RuleNodeCtx is empty", entityId, ruleChainName);
             msg.getCallback().onFailure(new RuleEngineException("Rule Node CTX is empty"));
         }
     }
 
+    /**
+     * Runs the task in the current actor turn. Messages the fused nodes pass on while running are queued
+     * and routed in the same turn, so a sequence of fused nodes is processed as a loop instead of a chain of mailbox hops.
+     */
+    private void runFused(Runnable task) {
+        fusedTasks.add(task);
+        if (fusedThread == Thread.currentThread()) {
+            return;
+        }
+        fusedThread = Thread.currentThread();
+        try {
+            Runnable next;
+            while ((next = fusedTasks.poll()) != null) {
+                fusedSteps++;
+                next.run();
+            }
+        } finally {
+            fusedSteps = 0;
+            fusedThread = null;
+        }
+    }
+
+    /**
+     * Wraps the inline step of the message, so a failure fails the message callback instead of being lost in the loop of {@link #runFused}.
+     */
+    private Runnable fusedTask(TbMsg msg, Runnable action) {
+        return () -> {
+            try {
+                action.run();
+            } catch (RuntimeException e) {
+                log.warn("[{}][{}] Failed to process message by fused rule node", tenantId, entityId, e);
+                msg.getCallback().onFailure(new RuleEngineException("Failed to process message by fused rule node: " + e.getMessage()));
+            }
+        };
+    }
+
+    /**
+     * Chain actor as seen by the fused nodes: the results they pass on from within {@link #runFused} are routed inline,
+     * the ones passed on later from other threads go through the mailbox as usual.
+     */
+    private class FusedChainActorRef implements TbActorRef {
+
+        @Override
+        public TbActorId getActorId() {
+            return self.getActorId();
+        }
+
+        @Override
+        public void tell(TbActorMsg actorMsg) {
+            if (actorMsg instanceof RuleNodeToRuleChainTellNextMsg && fusedThread == Thread.currentThread()) {
+                RuleNodeToRuleChainTellNextMsg tellNext = (RuleNodeToRuleChainTellNextMsg) actorMsg;
+                fusedTasks.add(fusedTask(tellNext.getMsg(), () -> onTellNext(tellNext)));
+            } else {
+                self.tell(actorMsg);
+            }
+        }
+
+        @Override
+        public void tellWithHighPriority(TbActorMsg actorMsg) {
+            self.tellWithHighPriority(actorMsg);
+        }
+    }
+
     @Override
     protected RuleNodeException getInactiveException() {
         RuleNode firstRuleNode = firstNode != null ? firstNode.getSelf() : null;
@@ -31,10 +31,14 @@ final class RuleChainToRuleNodeMsg extends TbToRuleNodeActorMsg {
 
     @Getter
     private final String fromRelationType;
+    @Getter
+    @EqualsAndHashCode.Exclude
+    private final long enqueuedNanos;
 
     public RuleChainToRuleNodeMsg(TbContext ctx, TbMsg tbMsg, String fromRelationType) {
         super(ctx, tbMsg);
         this.fromRelationType = fromRelationType;
+        this.enqueuedNanos = System.nanoTime();
     }
 
     @Override
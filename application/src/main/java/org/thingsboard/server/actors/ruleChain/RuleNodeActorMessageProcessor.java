@@ -15,6 +15,7 @@
  */
 package org.thingsboard.server.actors.ruleChain;
 
+import org.thingsboard.rule.engine.api.TbContext;
 import org.thingsboard.rule.engine.api.TbNode;
 import org.thingsboard.rule.engine.api.TbNodeConfiguration;
 import org.thingsboard.server.actors.ActorSystemContext;
@@ -45,6 +46,7 @@ public class RuleNodeActorMessageProcessor extends ComponentMsgProcessor<RuleNod
     private TbNode tbNode;
     private DefaultTbContext defaultCtx;
     private RuleNodeInfo info;
+    private TbRuleNodeStats stats;
 
     RuleNodeActorMessageProcessor(TenantId tenantId, String ruleChainName, RuleNodeId ruleNodeId, ActorSystemContext systemContext
             , TbActorRef parent, TbActorRef self) {
@@ -62,6 +64,9 @@ public class RuleNodeActorMessageProcessor extends ComponentMsgProcessor<RuleNod
         tbNode = initComponent(ruleNode);
         if (tbNode != null) {
             state = ComponentLifecycleState.ACTIVE;
+            if (stats == null && systemContext.isRuleNodeStatsEnabled()) {
+                stats = TbRuleNodeStats.acquire(systemContext.getStatsFactory(), ruleNode);
+            }
         }
     }
 
@@ -77,6 +82,7 @@ public class RuleNodeActorMessageProcessor extends ComponentMsgProcessor<RuleNod
             if (tbNode != null) {
                 tbNode.destroy();
             }
+            destroyStats();
             try {
                 start(context);
             } catch (Exception e) {
@@ -91,6 +97,14 @@ public class RuleNodeActorMessageProcessor extends ComponentMsgProcessor<RuleNod
             tbNode.destroy();
             state = ComponentLifecycleState.SUSPENDED;
         }
+        destroyStats();
+    }
+
+    private void destroyStats() {
+        if (stats != null) {
+            stats.release();
+            stats = null;
+        }
     }
 
     @Override
@@ -110,10 +124,13 @@ public class RuleNodeActorMessageProcessor extends ComponentMsgProcessor<RuleNod
             if (ruleNode.isDebugMode()) {
                 systemContext.persistDebugInput(tenantId, entityId, msg.getMsg(), "Self");
             }
+            long startNanos = System.nanoTime();
             try {
                 tbNode.onMsg(defaultCtx, msg.getMsg());
             } catch (Exception e) {
                 defaultCtx.tellFailure(msg.getMsg(), e);
+            } finally {
+                onExecuted(startNanos);
             }
         } else {
             tbMsg.getCallback().onFailure(new RuleNodeException("Message is processed by more then " + maxRuleNodeExecutionsPerMessage + " rule nodes!", ruleChainName, ruleNode));
@@ -121,26 +138,50 @@ public class RuleNodeActorMessageProcessor extends ComponentMsgProcessor<RuleNod
     }
 
     void onRuleChainToRuleNodeMsg(RuleChainToRuleNodeMsg msg) throws Exception {
+        long startNanos = System.nanoTime();
+        if (stats != null) {
+            stats.onQueueWait(startNanos - msg.getEnqueuedNanos());
+        }
         msg.getMsg().getCallback().onProcessingStart(info);
         checkComponentStateActive(msg.getMsg());
-        TbMsg tbMsg = msg.getMsg();
+        process(systemContext, tenantId, ruleChainName, ruleNode, tbNode, stats, msg.getCtx(), msg.getMsg(), msg.getFromRelationType(),
+                getTenantProfileConfiguration().getMaxRuleNodeExecsPerMessage(), startNanos);
+    }
+
+    /**
+     * Processing of a message passed on by the rule chain, shared with the fused rule nodes the rule chain actor runs inline.
+     */
+    static void process(ActorSystemContext systemContext, TenantId tenantId, String ruleChainName, RuleNode ruleNode, TbNode tbNode, TbRuleNodeStats stats,
+                        TbContext ctx, TbMsg tbMsg, String fromRelationType, int maxRuleNodeExecutionsPerMessage, long startNanos) {
         int ruleNodeCount = tbMsg.getAndIncrementRuleNodeCounter();
-        int maxRuleNodeExecutionsPerMessage = getTenantProfileConfiguration().getMaxRuleNodeExecsPerMessage();
         if (maxRuleNodeExecutionsPerMessage == 0 || ruleNodeCount < maxRuleNodeExecutionsPerMessage) {
-            apiUsageClient.report(tenantId, tbMsg.getCustomerId(), ApiUsageRecordKey.RE_EXEC_COUNT);
+            systemContext.getApiUsageClient().report(tenantId, tbMsg.getCustomerId(), ApiUsageRecordKey.RE_EXEC_COUNT);
             if (ruleNode.isDebugMode()) {
-                systemContext.persistDebugInput(tenantId, entityId, msg.getMsg(), msg.getFromRelationType());
+                systemContext.persistDebugInput(tenantId, ruleNode.getId(), tbMsg, fromRelationType);
+            }
+            if (stats != null) {
+                tbMsg = TbRuleNodeStatsCallback.wrap(tbMsg, stats, startNanos);
             }
             try {
-                tbNode.onMsg(msg.getCtx(), msg.getMsg());
+                tbNode.onMsg(ctx, tbMsg);
             } catch (Exception e) {
-                msg.getCtx().tellFailure(msg.getMsg(), e);
+                ctx.tellFailure(tbMsg, e);
+            } finally {
+                if (stats != null) {
+                    stats.onExecuted(System.nanoTime() - startNanos);
+                }
             }
         } else {
             tbMsg.getCallback().onFailure(new RuleNodeException("Message is processed by more then " + maxRuleNodeExecutionsPerMessage + " rule nodes!", ruleChainName, ruleNode));
         }
     }
 
+    private void onExecuted(long startNanos) {
+        if (stats != null) {
+            stats.onExecuted(System.nanoTime() - startNanos);
+        }
+    }
+
     @Override
     public String getComponentName() {
         return ruleNode.getName();
@@ -158,6 +199,10 @@ public class RuleNodeActorMessageProcessor extends ComponentMsgProcessor<RuleNod
 
     @Override
     protected RuleNodeException getInactiveException() {
+        return newInactiveException(ruleChainName, ruleNode);
+    }
+
+    static RuleNodeException newInactiveException(String ruleChainName, RuleNode ruleNode) {
         return new RuleNodeException("Rule Node is not active! Failed to initialize.", ruleChainName, ruleNode);
     }
 }
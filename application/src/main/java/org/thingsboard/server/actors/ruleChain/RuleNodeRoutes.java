@@ -0,0 +1,99 @@
+/**
+ * Copyright © 2016-2022 The Thingsboard Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.thingsboard.server.actors.ruleChain;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Set;
+import java.util.TreeMap;
+
+/**
+ * Outbound relations of a rule node compiled when the rule chain starts. The relations of every type are kept
+ * in a preallocated array, so routing a message to the next nodes neither filters the relations nor allocates.
+ * Relation types match ignoring case.
+ */
+final class RuleNodeRoutes {
+
+    private static final RuleNodeRelation[] NO_RELATIONS = new RuleNodeRelation[0];
+
+    static final RuleNodeRoutes EMPTY = new RuleNodeRoutes(Collections.emptyList());
+
+    private final RuleNodeRelation[] all;
+    private final Map<String, RuleNodeRelation[]> byType;
+    private final NavigableMap<String, RuleNodeRelation[]> byTypeIgnoreCase;
+
+    RuleNodeRoutes(List<RuleNodeRelation> relations) {
+        this.all = relations.toArray(NO_RELATIONS);
+        TreeMap<String, List<RuleNodeRelation>> grouped = new TreeMap<>(String.CASE_INSENSITIVE_ORDER);
+        for (RuleNodeRelation relation : relations) {
+            grouped.computeIfAbsent(relation.getType(), type -> new ArrayList<>()).add(relation);
+        }
+        TreeMap<String, RuleNodeRelation[]> ignoreCase = new TreeMap<>(String.CASE_INSENSITIVE_ORDER);
+        grouped.forEach((type, list) -> ignoreCase.put(type, list.toArray(NO_RELATIONS)));
+        Map<String, RuleNodeRelation[]> exact = new HashMap<>();
+        for (RuleNodeRelation relation : relations) {
+            exact.putIfAbsent(relation.getType(), ignoreCase.get(relation.getType()));
+        }
+        this.byType = Map.copyOf(exact);
+        this.byTypeIgnoreCase = Collections.unmodifiableNavigableMap(ignoreCase);
+    }
+
+    /**
+     * Returns the relations of any of the given types in their original order, or all relations when the types are null.
+     * The returned array is shared and must not be modified.
+     */
+    RuleNodeRelation[] get(Set<String> relationTypes) {
+        if (relationTypes == null) {
+            return all;
+        }
+        if (relationTypes.size() == 1) {
+            return get(relationTypes.iterator().next());
+        }
+        // several relation types at once are rare (e.g. switch nodes), so these are still collected per message
+        List<RuleNodeRelation> result = new ArrayList<>();
+        for (RuleNodeRelation relation : all) {
+            if (contains(relationTypes, relation.getType())) {
+                result.add(relation);
+            }
+        }
+        return result.isEmpty() ? NO_RELATIONS : result.toArray(NO_RELATIONS);
+    }
+
+    RuleNodeRelation[] get(String relationType) {
+        if (relationType == null) {
+            return NO_RELATIONS;
+        }
+        // nodes normally pass the same relation type constants the relations are created with
+        RuleNodeRelation[] relations = byType.get(relationType);
+        if (relations == null) {
+            relations = byTypeIgnoreCase.getOrDefault(relationType, NO_RELATIONS);
+        }
+        return relations;
+    }
+
+    private static boolean contains(Set<String> relationTypes, String type) {
+        for (String relationType : relationTypes) {
+            if (type.equalsIgnoreCase(relationType)) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
@@ -0,0 +1,133 @@
+/**
+ * Copyright © 2016-2022 The Thingsboard Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.thingsboard.server.actors.ruleChain;
+
+import io.micrometer.core.instrument.Timer;
+import org.thingsboard.server.common.data.rule.RuleNode;
+import org.thingsboard.server.common.stats.StatsFactory;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Always-on latency histograms of a single rule node, exported through the meter registry.
+ * Queue wait is the time a message spends in the mailbox of the node, execution is the synchronous onMsg call
+ * and latency lasts until the node passes the message on, so it also covers the asynchronous part of the processing.
+ * The in flight gauge counts the messages the node has started but not passed on yet.
+ * Execution is additionally recorded per rule chain, which together with the per node timers gives the share
+ * of every node in the time spent by the chain.
+ * A fused node is run both by its rule node actor and inline by the rule chain actor, so both acquire the same instance
+ * and the meters of the node are removed when the last of them releases it.
+ */
+final class TbRuleNodeStats {
+
+    static final String QUEUE_WAIT = "ruleNode.queueWait";
+    static final String EXECUTION = "ruleNode.execution";
+    static final String LATENCY = "ruleNode.latency";
+    static final String IN_FLIGHT = "ruleNode.inFlight";
+    static final String CHAIN_EXECUTION = "ruleChain.execution";
+
+    private static final String RULE_CHAIN_ID_TAG = "ruleChainId";
+    private static final String RULE_NODE_ID_TAG = "ruleNodeId";
+    private static final String RULE_NODE_TYPE_TAG = "ruleNodeType";
+
+    private static final ConcurrentMap<String, TbRuleNodeStats> acquired = new ConcurrentHashMap<>();
+
+    private final StatsFactory statsFactory;
+    private final String ruleNodeId;
+    private final String type;
+    private final Timer queueWait;
+    private final Timer execution;
+    private final Timer latency;
+    private final Timer chainExecution;
+    private final AtomicInteger inFlight;
+    private int holders;
+
+    TbRuleNodeStats(StatsFactory statsFactory, RuleNode ruleNode) {
+        this.statsFactory = statsFactory;
+        this.ruleNodeId = ruleNode.getId().toString();
+        String ruleChainId = ruleNode.getRuleChainId().toString();
+        this.type = toType(ruleNode);
+        String[] tags = {RULE_CHAIN_ID_TAG, ruleChainId, RULE_NODE_ID_TAG, ruleNodeId, RULE_NODE_TYPE_TAG, type};
+        this.queueWait = statsFactory.createTimer(QUEUE_WAIT, tags);
+        this.execution = statsFactory.createTimer(EXECUTION, tags);
+        this.latency = statsFactory.createTimer(LATENCY, tags);
+        this.chainExecution = statsFactory.createTimer(CHAIN_EXECUTION, RULE_CHAIN_ID_TAG, ruleChainId);
+        this.inFlight = statsFactory.createGauge(IN_FLIGHT, new AtomicInteger(), tags);
+    }
+
+    static TbRuleNodeStats acquire(StatsFactory statsFactory, RuleNode ruleNode) {
+        return acquired.compute(toKey(ruleNode.getId().toString(), toType(ruleNode)), (key, stats) -> {
+            if (stats == null) {
+                stats = new TbRuleNodeStats(statsFactory, ruleNode);
+            }
+            stats.holders++;
+            return stats;
+        });
+    }
+
+    void release() {
+        acquired.computeIfPresent(toKey(ruleNodeId, type), (key, stats) -> {
+            if (stats != this || --holders > 0) {
+                return stats;
+            }
+            destroy();
+            return null;
+        });
+    }
+
+    void onQueueWait(long nanos) {
+        queueWait.record(nanos, TimeUnit.NANOSECONDS);
+    }
+
+    void onExecuted(long nanos) {
+        execution.record(nanos, TimeUnit.NANOSECONDS);
+        chainExecution.record(nanos, TimeUnit.NANOSECONDS);
+    }
+
+    void onProcessingStart() {
+        inFlight.incrementAndGet();
+    }
+
+    void onProcessingEnd(long startNanos) {
+        inFlight.decrementAndGet();
+        latency.record(System.nanoTime() - startNanos, TimeUnit.NANOSECONDS);
+    }
+
+    int getInFlight() {
+        return inFlight.get();
+    }
+
+    void destroy() {
+        for (String key : new String[]{QUEUE_WAIT, EXECUTION, LATENCY, IN_FLIGHT}) {
+            statsFactory.removeMeters(key, RULE_NODE_ID_TAG, ruleNodeId, RULE_NODE_TYPE_TAG, type);
+        }
+    }
+
+    static void removeChainMeters(StatsFactory statsFactory, String ruleChainId) {
+        statsFactory.removeMeters(CHAIN_EXECUTION, RULE_CHAIN_ID_TAG, ruleChainId);
+    }
+
+    private static String toType(RuleNode ruleNode) {
+        return ruleNode.getType().substring(ruleNode.getType().lastIndexOf('.') + 1);
+    }
+
+    private static String toKey(String ruleNodeId, String type) {
+        return ruleNodeId + ":" + type;
+    }
+}
@@ -0,0 +1,101 @@
+/**
+ * Copyright © 2016-2022 The Thingsboard Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.thingsboard.server.actors.ruleChain;
+
+import org.thingsboard.server.common.data.id.RuleNodeId;
+import org.thingsboard.server.common.msg.TbMsg;
+import org.thingsboard.server.common.msg.queue.RuleEngineException;
+import org.thingsboard.server.common.msg.queue.RuleNodeInfo;
+import org.thingsboard.server.common.msg.queue.TbMsgCallback;
+
+import java.util.concurrent.atomic.AtomicIntegerFieldUpdater;
+
+/**
+ * Callback of a message while a rule node processes it. The processing of the node ends with the first completion
+ * of the message: the node passing it on, acking or failing it through the context, or completing its callback directly.
+ */
+final class TbRuleNodeStatsCallback implements TbMsgCallback {
+
+    private static final AtomicIntegerFieldUpdater<TbRuleNodeStatsCallback> ENDED_UPDATER =
+            AtomicIntegerFieldUpdater.newUpdater(TbRuleNodeStatsCallback.class, "ended");
+
+    private final TbMsgCallback delegate;
+    private final TbRuleNodeStats stats;
+    private final long startNanos;
+    private volatile int ended;
+
+    private TbRuleNodeStatsCallback(TbMsgCallback delegate, TbRuleNodeStats stats, long startNanos) {
+        this.delegate = delegate;
+        this.stats = stats;
+        this.startNanos = startNanos;
+    }
+
+    /**
+     * Starts the processing of the message by a rule node and returns the message to pass to the node.
+     * The callback of the previous node is replaced, so the callbacks do not nest along the rule chain.
+     */
+    static TbMsg wrap(TbMsg msg, TbRuleNodeStats stats, long startNanos) {
+        TbMsgCallback callback = msg.getCallback();
+        if (callback instanceof TbRuleNodeStatsCallback) {
+            TbRuleNodeStatsCallback previous = (TbRuleNodeStatsCallback) callback;
+            previous.end();
+            callback = previous.delegate;
+        }
+        stats.onProcessingStart();
+        return msg.copyWithCallback(new TbRuleNodeStatsCallback(callback, stats, startNanos));
+    }
+
+    static void end(TbMsg msg) {
+        TbMsgCallback callback = msg.getCallback();
+        if (callback instanceof TbRuleNodeStatsCallback) {
+            ((TbRuleNodeStatsCallback) callback).end();
+        }
+    }
+
+    private void end() {
+        if (ENDED_UPDATER.compareAndSet(this, 0, 1)) {
+            stats.onProcessingEnd(startNanos);
+        }
+    }
+
+    @Override
+    public void onSuccess() {
+        end();
+        delegate.onSuccess();
+    }
+
+    @Override
+    public void onFailure(RuleEngineException e) {
+        end();
+        delegate.onFailure(e);
+    }
+
+    @Override
+    public boolean isMsgValid() {
+        return delegate.isMsgValid();
+    }
+
+    @Override
+    public void onProcessingStart(RuleNodeInfo ruleNodeInfo) {
+        delegate.onProcessingStart(ruleNodeInfo);
+    }
+
+    @Override
+    public void onProcessingEnd(RuleNodeId ruleNodeId) {
+        end();
+        delegate.onProcessingEnd(ruleNodeId);
+    }
+}
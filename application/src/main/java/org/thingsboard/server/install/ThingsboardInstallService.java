@@ -226,6 +226,9 @@ public class ThingsboardInstallService {
                             dataUpdateService.updateData("3.3.4");
                         case "3.4.0":
                             log.info("Upgrading ThingsBoard from version 3.4.0 to 3.4.1 ...");
+                            if (databaseTsUpgradeService != null) {
+                                databaseTsUpgradeService.upgradeDatabase("3.4.0");
+                            }
                             databaseEntitiesUpgradeService.upgradeDatabase("3.4.0");
 
                             // reset full sync required - to upload latest widgets from cloud
@@ -0,0 +1,107 @@
+/**
+ * Copyright © 2016-2022 The Thingsboard Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.thingsboard.server.service.cloud;
+
+import lombok.Getter;
+import org.thingsboard.server.common.data.cloud.CloudEvent;
+import org.thingsboard.server.common.data.cloud.CloudEventType;
+import org.thingsboard.server.common.data.edge.EdgeEventActionType;
+
+import java.util.Arrays;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.stream.Collectors;
+
+/**
+ * Uplink lanes of the cloud event queue, declared in priority order. Every lane is drained from its own queue offset,
+ * so requests, RPC responses and alarms are not stuck behind buffered telemetry after a long disconnect.
+ * Lanes do not reorder the events of one entity: a lane holds an event back while an earlier event of the same entity
+ * (of the originator, for alarms) is pending in a lower priority lane, and never sends events queued after the first
+ * pending event of a higher priority lane.
+ */
+@Getter
+public enum CloudEventLane {
+
+    CONTROL("queueStartTs_control", EnumSet.allOf(CloudEventType.class), Actions.CONTROL),
+    ALARM("queueStartTs_alarm", EnumSet.of(CloudEventType.ALARM), EnumSet.complementOf(Actions.CONTROL)),
+    // keeps the attribute key of the single queue, so its offset is reused after the upgrade
+    DEFAULT("queueStartTs", EnumSet.complementOf(EnumSet.of(CloudEventType.ALARM)), EnumSet.complementOf(Actions.CONTROL));
+
+    private final String queueStartTsAttrKey;
+    private final Set<CloudEventType> cloudEventTypes;
+    private final List<String> cloudEventActions;
+
+    CloudEventLane(String queueStartTsAttrKey, Set<CloudEventType> cloudEventTypes, Set<EdgeEventActionType> cloudEventActions) {
+        this.queueStartTsAttrKey = queueStartTsAttrKey;
+        this.cloudEventTypes = cloudEventTypes;
+        this.cloudEventActions = cloudEventActions.stream().map(Enum::name).collect(Collectors.toList());
+    }
+
+    List<CloudEventLane> getLowerPriorityLanes() {
+        CloudEventLane[] lanes = values();
+        return Arrays.asList(lanes).subList(ordinal() + 1, lanes.length);
+    }
+
+    /**
+     * Counts the leading events of a lane batch that can be sent without breaking the per-entity order.
+     *
+     * @param events the batch, ordered by created time
+     * @param orderingKeys the ordering key of every event of the batch, may contain nulls
+     * @param firstPendingTs created time of the first event pending in the lower priority lanes, by ordering key
+     * @param fenceTs events created at or after this time are held back
+     */
+    static int countInOrder(List<CloudEvent> events, List<UUID> orderingKeys, Map<UUID, Long> firstPendingTs, long fenceTs) {
+        for (int i = 0; i < events.size(); i++) {
+            long createdTime = events.get(i).getCreatedTime();
+            if (createdTime >= fenceTs) {
+                return i;
+            }
+            UUID orderingKey = orderingKeys.get(i);
+            Long pendingTs = orderingKey != null ? firstPendingTs.get(orderingKey) : null;
+            if (pendingTs != null && pendingTs < createdTime) {
+                return firstOfMillisecond(events, i);
+            }
+        }
+        return events.size();
+    }
+
+    /**
+     * The lane offset is the created time of the last sent event and the next read starts after it, so the events
+     * created in the same millisecond as a held event are held back as well. Otherwise the held event would be skipped.
+     */
+    private static int firstOfMillisecond(List<CloudEvent> events, int index) {
+        long createdTime = events.get(index).getCreatedTime();
+        while (index > 0 && events.get(index - 1).getCreatedTime() == createdTime) {
+            index--;
+        }
+        return index;
+    }
+
+    private static class Actions {
+        private static final Set<EdgeEventActionType> CONTROL = EnumSet.of(
+                EdgeEventActionType.RPC_CALL,
+                EdgeEventActionType.ATTRIBUTES_REQUEST,
+                EdgeEventActionType.RELATION_REQUEST,
+                EdgeEventActionType.RULE_CHAIN_METADATA_REQUEST,
+                EdgeEventActionType.CREDENTIALS_REQUEST,
+                EdgeEventActionType.DEVICE_PROFILE_DEVICES_REQUEST,
+                EdgeEventActionType.WIDGET_BUNDLE_TYPES_REQUEST,
+                EdgeEventActionType.ENTITY_VIEW_REQUEST);
+    }
+}
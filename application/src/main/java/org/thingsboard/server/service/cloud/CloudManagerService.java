@@ -16,6 +16,7 @@
 package org.thingsboard.server.service.cloud;
 
 import com.datastax.oss.driver.api.core.uuid.Uuids;
+import com.fasterxml.jackson.databind.JsonNode;
 import com.google.common.util.concurrent.FutureCallback;
 import com.google.common.util.concurrent.Futures;
 import com.google.common.util.concurrent.ListenableFuture;
@@ -34,7 +35,10 @@ import org.thingsboard.common.util.JacksonUtil;
 import org.thingsboard.common.util.ThingsBoardThreadFactory;
 import org.thingsboard.edge.rpc.EdgeRpcClient;
 import org.thingsboard.server.cluster.TbClusterService;
+import org.thingsboard.server.common.data.DashboardInfo;
 import org.thingsboard.server.common.data.DataConstants;
+import org.thingsboard.server.common.data.EntityType;
+import org.thingsboard.server.common.data.asset.Asset;
 import org.thingsboard.server.common.data.cloud.CloudEvent;
 import org.thingsboard.server.common.data.cloud.CloudEventType;
 import org.thingsboard.server.common.data.edge.Edge;
@@ -48,12 +52,17 @@ import org.thingsboard.server.common.data.kv.AttributeKvEntry;
 import org.thingsboard.server.common.data.kv.BaseAttributeKvEntry;
 import org.thingsboard.server.common.data.kv.LongDataEntry;
 import org.thingsboard.server.common.data.page.PageData;
+import org.thingsboard.server.common.data.page.PageDataIterable;
 import org.thingsboard.server.common.data.page.TimePageLink;
+import org.thingsboard.server.common.stats.StatsFactory;
+import org.thingsboard.server.dao.asset.AssetService;
 import org.thingsboard.server.dao.attributes.AttributesService;
+import org.thingsboard.server.dao.dashboard.DashboardService;
 import org.thingsboard.server.dao.edge.EdgeService;
 import org.thingsboard.server.gen.edge.v1.DownlinkMsg;
 import org.thingsboard.server.gen.edge.v1.DownlinkResponseMsg;
 import org.thingsboard.server.gen.edge.v1.EdgeConfiguration;
+import org.thingsboard.server.gen.edge.v1.EntityTypeSyncDigestProto;
 import org.thingsboard.server.gen.edge.v1.UpdateMsgType;
 import org.thingsboard.server.gen.edge.v1.UplinkMsg;
 import org.thingsboard.server.gen.edge.v1.UplinkResponseMsg;
@@ -69,6 +78,7 @@ import org.thingsboard.server.service.cloud.rpc.processor.RuleChainCloudProcesso
 import org.thingsboard.server.service.cloud.rpc.processor.TelemetryCloudProcessor;
 import org.thingsboard.server.service.cloud.rpc.processor.TenantCloudProcessor;
 import org.thingsboard.server.service.cloud.rpc.processor.WidgetBundleCloudProcessor;
+import org.thingsboard.server.service.edge.rpc.EdgeSyncDigest;
 import org.thingsboard.server.service.executors.DbCallbackExecutorService;
 import org.thingsboard.server.service.install.InstallScripts;
 import org.thingsboard.server.service.state.DefaultDeviceStateService;
@@ -76,20 +86,25 @@ import org.thingsboard.server.service.telemetry.TelemetrySubscriptionService;
 
 import javax.annotation.PreDestroy;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
+import java.util.EnumMap;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Objects;
 import java.util.Optional;
+import java.util.Set;
 import java.util.UUID;
 import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.ExecutionException;
-import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.ScheduledFuture;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.concurrent.locks.ReentrantLock;
+import java.util.stream.Collectors;
 
 @Service
 @Slf4j
@@ -98,7 +113,7 @@ public class CloudManagerService extends BaseCloudEventService {
     private static final ReentrantLock uplinkMsgsPackLock = new ReentrantLock();
     private static final ReentrantLock pendingMsgsMapLock = new ReentrantLock();
 
-    private static final String QUEUE_START_TS_ATTR_KEY = "queueStartTs";
+    private static final int SYNC_DIGEST_PAGE_SIZE = 1000;
 
     @Value("${cloud.routingKey}")
     private String routingKey;
@@ -115,6 +130,12 @@ public class CloudManagerService extends BaseCloudEventService {
     @Autowired
     private AttributesService attributesService;
 
+    @Autowired
+    private AssetService assetService;
+
+    @Autowired
+    private DashboardService dashboardService;
+
     @Autowired
     protected TelemetrySubscriptionService tsSubService;
 
@@ -169,13 +190,20 @@ public class CloudManagerService extends BaseCloudEventService {
     @Autowired
     private ConfigurableApplicationContext context;
 
+    @Autowired
+    private StatsFactory statsFactory;
+
     private CountDownLatch latch;
 
     private EdgeSettings currentEdgeSettings;
 
+    // offset of the control lane, that holds the requests checked by the downlink processors
     private Long queueStartTs;
 
-    private ExecutorService executor;
+    private final Map<CloudEventLane, AtomicLong> laneBacklogs = new EnumMap<>(CloudEventLane.class);
+    private final Map<CloudEventLane, AtomicLong> laneLagsMs = new EnumMap<>(CloudEventLane.class);
+
+    private ScheduledExecutorService executor;
     private ScheduledExecutorService reconnectScheduler;
     private ScheduledFuture<?> scheduledFuture;
     private ScheduledExecutorService shutdownExecutor;
@@ -194,7 +222,11 @@ public class CloudManagerService extends BaseCloudEventService {
                     this::onEdgeUpdate,
                     this::onDownlink,
                     this::scheduleReconnect);
-            executor = Executors.newSingleThreadExecutor(ThingsBoardThreadFactory.forName("cloud-manager"));
+            for (CloudEventLane lane : CloudEventLane.values()) {
+                laneBacklogs.put(lane, statsFactory.createGauge("cloudUplink.backlog", new AtomicLong(), "lane", lane.name()));
+                laneLagsMs.put(lane, statsFactory.createGauge("cloudUplink.lagMs", new AtomicLong(), "lane", lane.name()));
+            }
+            executor = Executors.newSingleThreadScheduledExecutor(ThingsBoardThreadFactory.forName("cloud-manager"));
             reconnectScheduler = Executors.newSingleThreadScheduledExecutor(ThingsBoardThreadFactory.forName("cloud-manager-reconnect"));
             processHandleMessages();
         }
@@ -238,50 +270,162 @@ public class CloudManagerService extends BaseCloudEventService {
     }
 
     private void processHandleMessages() {
-        executor.submit(() -> {
-            while (!Thread.interrupted()) {
+        executor.execute(this::processRound);
+    }
+
+    /**
+     * Runs one round over all lanes and schedules the next one. The lane offsets are read asynchronously,
+     * the round goes on on the cloud manager thread once they are loaded.
+     */
+    private void processRound() {
+        if (!initialized) {
+            scheduleNextRound(TimeUnit.SECONDS.toMillis(1));
+            return;
+        }
+        Futures.addCallback(getQueueStartTs(), new FutureCallback<>() {
+            @Override
+            public void onSuccess(Map<CloudEventLane, Long> laneStartTs) {
+                boolean hasPendingEvents = false;
                 try {
-                    if (initialized) {
-                        queueStartTs = getQueueStartTs().get();
-                        TimePageLink pageLink =
-                                CloudEventUtils.createCloudEventTimePageLink(cloudEventStorageSettings.getMaxReadRecordsCount(), queueStartTs);
-                        PageData<CloudEvent> pageData;
-                        UUID ifOffset = null;
-                        boolean success = true;
-                        do {
-                            pageData = cloudEventService.findCloudEvents(tenantId, pageLink);
-                            if (initialized && !pageData.getData().isEmpty()) {
-                                log.trace("[{}] event(s) are going to be converted.", pageData.getData().size());
-                                List<UplinkMsg> uplinkMsgsPack = convertToUplinkMsgsPack(pageData.getData());
-                                success = sendUplinkMsgsPack(uplinkMsgsPack);
-                                ifOffset = pageData.getData().get(pageData.getData().size() - 1).getUuidId();
-                                if (success) {
-                                    pageLink = pageLink.nextPageLink();
-                                }
-                            }
-                        } while (initialized && (!success || pageData.hasNext()));
-                        if (ifOffset != null) {
-                            Long newStartTs = Uuids.unixTimestamp(ifOffset);
-                            try {
-                                updateQueueStartTs(newStartTs);
-                                log.debug("Queue offset was updated [{}][{}]", ifOffset, newStartTs);
-                            } catch (Exception e) {
-                                log.error("[{}] Failed to update queue offset [{}]", ifOffset, e);
-                            }
-                        }
-                        try {
-                            Thread.sleep(cloudEventStorageSettings.getNoRecordsSleepInterval());
-                        } catch (InterruptedException e) {
-                            log.error("Error during sleep", e);
-                        }
-                    } else {
-                        Thread.sleep(TimeUnit.SECONDS.toMillis(1));
-                    }
+                    hasPendingEvents = processLanes(laneStartTs);
                 } catch (Exception e) {
                     log.warn("Failed to process messages handling!", e);
                 }
+                scheduleNextRound(hasPendingEvents ? 0 : cloudEventStorageSettings.getNoRecordsSleepInterval());
+            }
+
+            @Override
+            public void onFailure(Throwable t) {
+                log.warn("Failed to read the queue offsets", t);
+                scheduleNextRound(cloudEventStorageSettings.getNoRecordsSleepInterval());
+            }
+        }, executor);
+    }
+
+    private void scheduleNextRound(long delayMs) {
+        if (!executor.isShutdown()) {
+            executor.schedule(this::processRound, delayMs, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    private boolean processLanes(Map<CloudEventLane, Long> laneStartTs) throws Exception {
+        boolean hasPendingEvents = false;
+        long fenceTs = Long.MAX_VALUE;
+        for (CloudEventLane lane : CloudEventLane.values()) {
+            if (!initialized) {
+                break;
+            }
+            LaneProgress progress = processLane(lane, cloudEventStorageSettings.getLaneWeight(lane), fenceTs, laneStartTs);
+            hasPendingEvents |= progress.hasPendingEvents;
+            fenceTs = Math.min(fenceTs, progress.pendingFromTs);
+        }
+        return hasPendingEvents;
+    }
+
+    /**
+     * Sends at most {@code maxBatches} batches of the lane and moves the lane offset forward.
+     * Stops at the first event that would overtake an earlier event of the same entity pending in a lower priority lane,
+     * or that was queued at or after {@code fenceTs}, the first pending event of the higher priority lanes.
+     * The new offset of the lane is put to {@code queueStartTs}, which holds the offsets of all lanes.
+     */
+    private LaneProgress processLane(CloudEventLane lane, int maxBatches, long fenceTs, Map<CloudEventLane, Long> queueStartTs) throws Exception {
+        Long laneStartTs = queueStartTs.get(lane);
+        if (CloudEventLane.CONTROL.equals(lane)) {
+            this.queueStartTs = laneStartTs;
+        }
+        Map<CloudEventLane, Long> lowerLaneStartTs = new EnumMap<>(CloudEventLane.class);
+        for (CloudEventLane lowerLane : lane.getLowerPriorityLanes()) {
+            lowerLaneStartTs.put(lowerLane, queueStartTs.get(lowerLane));
+        }
+        TimePageLink pageLink =
+                CloudEventUtils.createCloudEventTimePageLink(cloudEventStorageSettings.getMaxReadRecordsCount(), laneStartTs);
+        PageData<CloudEvent> pageData;
+        UUID ifOffset = null;
+        Long heldFromTs = null;
+        boolean success = true;
+        int batches = 0;
+        do {
+            pageData = cloudEventService.findCloudEvents(tenantId, lane.getCloudEventTypes(), lane.getCloudEventActions(), pageLink);
+            if (batches == 0) {
+                updateLaneStats(lane, pageData.getTotalElements(), laneStartTs);
+            }
+            if (initialized && !pageData.getData().isEmpty()) {
+                List<CloudEvent> cloudEvents = pageData.getData();
+                int inOrder = countInOrder(lane, cloudEvents, lowerLaneStartTs, fenceTs);
+                heldFromTs = inOrder < cloudEvents.size() ? cloudEvents.get(inOrder).getCreatedTime() : null;
+                if (inOrder > 0) {
+                    cloudEvents = cloudEvents.subList(0, inOrder);
+                    log.trace("[{}] [{}] event(s) are going to be converted.", lane, cloudEvents.size());
+                    List<UplinkMsg> uplinkMsgsPack = convertToUplinkMsgsPack(cloudEvents);
+                    success = sendUplinkMsgsPack(uplinkMsgsPack);
+                    ifOffset = cloudEvents.get(cloudEvents.size() - 1).getUuidId();
+                    if (success) {
+                        pageLink = pageLink.nextPageLink();
+                        batches++;
+                    }
+                } else {
+                    success = true;
+                }
+                if (heldFromTs != null) {
+                    log.trace("[{}] Lane is held back at [{}] to keep the order of events", lane, heldFromTs);
+                }
+            }
+        } while (initialized && (!success || (heldFromTs == null && pageData.hasNext() && batches < maxBatches)));
+        Long newStartTs = laneStartTs;
+        if (ifOffset != null) {
+            newStartTs = Uuids.unixTimestamp(ifOffset);
+            try {
+                updateQueueStartTs(lane, newStartTs);
+                queueStartTs.put(lane, newStartTs);
+                if (CloudEventLane.CONTROL.equals(lane)) {
+                    this.queueStartTs = newStartTs;
+                }
+                log.debug("[{}] Queue offset was updated [{}][{}]", lane, ifOffset, newStartTs);
+            } catch (Exception e) {
+                log.error("[{}][{}] Failed to update queue offset [{}]", lane, ifOffset, e);
             }
-        });
+        }
+        if (heldFromTs != null) {
+            return new LaneProgress(true, heldFromTs);
+        } else if (pageData.hasNext()) {
+            return new LaneProgress(true, newStartTs + 1);
+        } else {
+            return new LaneProgress(false, pageLink.getEndTime() + 1);
+        }
+    }
+
+    private int countInOrder(CloudEventLane lane, List<CloudEvent> cloudEvents, Map<CloudEventLane, Long> lowerLaneStartTs, long fenceTs) throws Exception {
+        List<UUID> orderingKeys = cloudEvents.stream().map(this::getOrderingKey).collect(Collectors.toList());
+        Map<UUID, Long> firstPendingTs = new HashMap<>();
+        Set<UUID> entityIds = orderingKeys.stream().filter(Objects::nonNull).collect(Collectors.toSet());
+        long endTs = cloudEvents.get(cloudEvents.size() - 1).getCreatedTime();
+        for (Map.Entry<CloudEventLane, Long> lowerLane : lowerLaneStartTs.entrySet()) {
+            cloudEventService.findFirstCloudEventTimes(tenantId, entityIds,
+                            lowerLane.getKey().getCloudEventTypes(), lowerLane.getKey().getCloudEventActions(), lowerLane.getValue(), endTs)
+                    .forEach((entityId, ts) -> firstPendingTs.merge(entityId, ts, Math::min));
+        }
+        return CloudEventLane.countInOrder(cloudEvents, orderingKeys, firstPendingTs, fenceTs);
+    }
+
+    private UUID getOrderingKey(CloudEvent cloudEvent) {
+        if (!CloudEventType.ALARM.equals(cloudEvent.getCloudEventType()) || cloudEvent.getEntityId() == null) {
+            return cloudEvent.getEntityId();
+        }
+        // alarms are ordered after the events of their originator, that is stored in the event body when the event is saved
+        JsonNode entityBody = cloudEvent.getEntityBody();
+        if (entityBody != null && entityBody.has("originator") && entityBody.get("originator").has("id")) {
+            return UUID.fromString(entityBody.get("originator").get("id").asText());
+        }
+        // events saved before the originator was stored are ordered by the alarm itself
+        return cloudEvent.getEntityId();
+    }
+
+    private void updateLaneStats(CloudEventLane lane, long backlog, Long laneStartTs) {
+        laneBacklogs.get(lane).set(backlog);
+        laneLagsMs.get(lane).set(backlog > 0 && laneStartTs != null && laneStartTs > 0 ? System.currentTimeMillis() - laneStartTs : 0L);
+        if (backlog > 0) {
+            log.debug("[{}] Uplink lane backlog: [{}] event(s)", lane, backlog);
+        }
     }
 
     private boolean sendUplinkMsgsPack(List<UplinkMsg> uplinkMsgsPack) throws InterruptedException {
@@ -416,24 +560,38 @@ public class CloudManagerService extends BaseCloudEventService {
         }
     }
 
-    private ListenableFuture<Long> getQueueStartTs() {
+    private ListenableFuture<Map<CloudEventLane, Long>> getQueueStartTs() {
+        List<ListenableFuture<Long>> futures = Arrays.stream(CloudEventLane.values()).map(this::getQueueStartTs).collect(Collectors.toList());
+        return Futures.transform(Futures.allAsList(futures), startTs -> {
+            Map<CloudEventLane, Long> queueStartTs = new EnumMap<>(CloudEventLane.class);
+            for (CloudEventLane lane : CloudEventLane.values()) {
+                queueStartTs.put(lane, startTs.get(lane.ordinal()));
+            }
+            return queueStartTs;
+        }, MoreExecutors.directExecutor());
+    }
+
+    private ListenableFuture<Long> getQueueStartTs(CloudEventLane lane) {
         ListenableFuture<Optional<AttributeKvEntry>> future =
-                attributesService.find(tenantId, tenantId, DataConstants.SERVER_SCOPE, QUEUE_START_TS_ATTR_KEY);
-        return Futures.transform(future, attributeKvEntryOpt -> {
+                attributesService.find(tenantId, tenantId, DataConstants.SERVER_SCOPE, lane.getQueueStartTsAttrKey());
+        return Futures.transformAsync(future, attributeKvEntryOpt -> {
             if (attributeKvEntryOpt != null && attributeKvEntryOpt.isPresent()) {
                 AttributeKvEntry attributeKvEntry = attributeKvEntryOpt.get();
-                return attributeKvEntry.getLongValue().isPresent() ? attributeKvEntry.getLongValue().get() : 0L;
+                return Futures.immediateFuture(attributeKvEntry.getLongValue().isPresent() ? attributeKvEntry.getLongValue().get() : 0L);
+            } else if (!CloudEventLane.DEFAULT.equals(lane)) {
+                // events before the offset of the former single queue are already delivered
+                return getQueueStartTs(CloudEventLane.DEFAULT);
             } else {
-                return 0L;
+                return Futures.immediateFuture(0L);
             }
         }, dbCallbackExecutorService);
     }
 
-    private void updateQueueStartTs(Long newStartTs) throws ExecutionException, InterruptedException {
-        log.trace("updating QueueStartTs [{}]", newStartTs);
+    private void updateQueueStartTs(CloudEventLane lane, Long newStartTs) throws ExecutionException, InterruptedException {
+        log.trace("[{}] updating QueueStartTs [{}]", lane, newStartTs);
         List<AttributeKvEntry> attributes = Collections.singletonList(
                 new BaseAttributeKvEntry(
-                        new LongDataEntry(QUEUE_START_TS_ATTR_KEY, newStartTs),
+                        new LongDataEntry(lane.getQueueStartTsAttrKey(), newStartTs),
                         System.currentTimeMillis()));
         attributesService.save(tenantId, tenantId, DataConstants.SERVER_SCOPE, attributes).get();
     }
@@ -504,8 +662,9 @@ public class CloudManagerService extends BaseCloudEventService {
         }
 
         // TODO: voba - should sync be executed in some other cases ???
-        log.trace("Sending sync request, fullSyncRequired {}", this.currentEdgeSettings.isFullSyncRequired());
-        edgeRpcClient.sendSyncRequestMsg(this.currentEdgeSettings.isFullSyncRequired());
+        boolean fullSyncRequired = this.currentEdgeSettings.isFullSyncRequired();
+        log.trace("Sending sync request, fullSyncRequired {}", fullSyncRequired);
+        edgeRpcClient.sendSyncRequestMsg(fullSyncRequired, fullSyncRequired ? computeSyncDigests() : Collections.emptyList());
 
         cloudEventService.saveEdgeSettings(tenantId, this.currentEdgeSettings);
 
@@ -517,6 +676,26 @@ public class CloudManagerService extends BaseCloudEventService {
         initialized = true;
     }
 
+    private List<EntityTypeSyncDigestProto> computeSyncDigests() {
+        List<EntityTypeSyncDigestProto> result = new ArrayList<>();
+        try {
+            EdgeSyncDigest assetsDigest = new EdgeSyncDigest();
+            for (Asset asset : new PageDataIterable<>(pageLink -> assetService.findAssetsByTenantId(tenantId, pageLink), SYNC_DIGEST_PAGE_SIZE)) {
+                assetsDigest.add(asset.getUuidId(), asset);
+            }
+            result.add(assetsDigest.toProto(EntityType.ASSET));
+            EdgeSyncDigest dashboardsDigest = new EdgeSyncDigest();
+            for (DashboardInfo dashboardInfo : new PageDataIterable<>(pageLink -> dashboardService.findDashboardsByTenantId(tenantId, pageLink), SYNC_DIGEST_PAGE_SIZE)) {
+                dashboardsDigest.add(dashboardInfo.getUuidId(), dashboardInfo);
+            }
+            result.add(dashboardsDigest.toProto(EntityType.DASHBOARD));
+        } catch (Exception e) {
+            log.warn("Failed to compute sync digests, full sync will be requested", e);
+            return Collections.emptyList();
+        }
+        return result;
+    }
+
     private void saveEdge(EdgeConfiguration edgeConfiguration) throws ExecutionException, InterruptedException {
         Edge edge = new Edge();
         UUID edgeUUID = new UUID(edgeConfiguration.getEdgeIdMSB(), edgeConfiguration.getEdgeIdLSB());
@@ -638,5 +817,16 @@ public class CloudManagerService extends BaseCloudEventService {
             log.warn("Failed to update attribute [{}] with value [{}]", key, value, t);
         }
     }
-}
 
+    private static class LaneProgress {
+
+        private final boolean hasPendingEvents;
+        // events of the lane queued before this time are already delivered
+        private final long pendingFromTs;
+
+        private LaneProgress(boolean hasPendingEvents, long pendingFromTs) {
+            this.hasPendingEvents = hasPendingEvents;
+            this.pendingFromTs = pendingFromTs;
+        }
+    }
+}
@@ -171,7 +171,7 @@ public class DefaultCloudNotificationService implements CloudNotificationService
                                 CloudEventType.ALARM,
                                 EdgeEventActionType.valueOf(cloudNotificationMsg.getCloudEventAction()),
                                 alarmId,
-                                null);
+                                mapper.createObjectNode().set("originator", mapper.valueToTree(alarm.getOriginator())));
                     }
                 }
         }
@@ -19,6 +19,7 @@ package org.thingsboard.server.service.cloud.rpc;
 import lombok.Data;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Component;
+import org.thingsboard.server.service.cloud.CloudEventLane;
 
 @Component
 @Data
@@ -29,4 +30,21 @@ public class CloudEventStorageSettings {
     private long noRecordsSleepInterval;
     @Value("${cloud.rpc.storage.sleep_between_batches}")
     private long sleepIntervalBetweenBatches;
+    @Value("${cloud.rpc.storage.lanes.control_weight:4}")
+    private int controlLaneWeight;
+    @Value("${cloud.rpc.storage.lanes.alarm_weight:2}")
+    private int alarmLaneWeight;
+    @Value("${cloud.rpc.storage.lanes.default_weight:1}")
+    private int defaultLaneWeight;
+
+    public int getLaneWeight(CloudEventLane lane) {
+        switch (lane) {
+            case CONTROL:
+                return Math.max(1, controlLaneWeight);
+            case ALARM:
+                return Math.max(1, alarmLaneWeight);
+            default:
+                return Math.max(1, defaultLaneWeight);
+        }
+    }
 }
@@ -58,8 +58,10 @@ import org.thingsboard.server.gen.transport.TransportProtos.ToRuleEngineMsg;
 import org.thingsboard.server.queue.TbQueueCallback;
 import org.thingsboard.server.queue.TbQueueProducer;
 import org.thingsboard.server.queue.common.TbProtoQueueMsg;
+import org.thingsboard.server.queue.common.TbRuleEngineProtoQueueMsg;
 import org.thingsboard.server.queue.discovery.PartitionService;
 import org.thingsboard.server.queue.provider.TbQueueProducerProvider;
+import org.thingsboard.server.queue.settings.TbMsgWireFormatSettings;
 import org.thingsboard.server.queue.util.TbCoreComponent;
 import org.thingsboard.server.service.state.DeviceStateService;
 
@@ -109,6 +111,9 @@ public class DeviceProvisionServiceImpl implements DeviceProvisionService {
     @Autowired
     protected TbClusterService tbClusterService;
 
+    @Autowired
+    TbMsgWireFormatSettings wireFormatSettings;
+
     public DeviceProvisionServiceImpl(TbQueueProducerProvider producerProvider) {
         ruleEngineMsgProducer = producerProvider.getRuleEngineMsgProducer();
     }
@@ -248,10 +253,10 @@ public class DeviceProvisionServiceImpl implements DeviceProvisionService {
 
     protected void sendToRuleEngine(TenantId tenantId, TbMsg tbMsg, TbQueueCallback callback) {
         TopicPartitionInfo tpi = partitionService.resolve(ServiceType.TB_RULE_ENGINE, tenantId, tbMsg.getOriginator());
-        TransportProtos.ToRuleEngineMsg msg = TransportProtos.ToRuleEngineMsg.newBuilder().setTbMsg(TbMsg.toByteString(tbMsg))
+        TransportProtos.ToRuleEngineMsg.Builder msg = TransportProtos.ToRuleEngineMsg.newBuilder()
                 .setTenantIdMSB(tenantId.getId().getMostSignificantBits())
-                .setTenantIdLSB(tenantId.getId().getLeastSignificantBits()).build();
-        ruleEngineMsgProducer.send(tpi, new TbProtoQueueMsg<>(tbMsg.getId(), msg), callback);
+                .setTenantIdLSB(tenantId.getId().getLeastSignificantBits());
+        ruleEngineMsgProducer.send(tpi, TbRuleEngineProtoQueueMsg.create(ruleEngineMsgProducer, tbMsg, msg, wireFormatSettings.getWireFormat()), callback);
     }
 
     private TbMsgMetaData createTbMsgMetaData(Device device) {
@@ -19,6 +19,7 @@ import com.google.common.util.concurrent.FutureCallback;
 import com.google.common.util.concurrent.Futures;
 import io.grpc.Server;
 import io.grpc.netty.shaded.io.grpc.netty.NettyServerBuilder;
+import io.grpc.stub.ServerCallStreamObserver;
 import io.grpc.stub.StreamObserver;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -26,6 +27,7 @@ import org.springframework.beans.factory.annotation.Value;
 import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.stereotype.Service;
 import org.thingsboard.common.util.ThingsBoardThreadFactory;
+import org.thingsboard.edge.rpc.compression.EdgeRpcCompression;
 import org.thingsboard.server.common.data.DataConstants;
 import org.thingsboard.server.common.data.ResourceUtils;
 import org.thingsboard.server.common.data.edge.Edge;
@@ -85,6 +87,8 @@ public class EdgeGrpcService extends EdgeRpcServiceGrpc.EdgeRpcServiceImplBase i
     private int clientMaxKeepAliveTimeSec;
     @Value("${edges.rpc.max_inbound_message_size:4194304}")
     private int maxInboundMessageSize;
+    @Value("${edges.rpc.compression:gzip}")
+    private String compression;
 
     @Value("${edges.scheduler_pool_size}")
     private int schedulerPoolSize;
@@ -98,6 +102,9 @@ public class EdgeGrpcService extends EdgeRpcServiceGrpc.EdgeRpcServiceImplBase i
     @Autowired
     private TelemetrySubscriptionService tsSubService;
 
+    @Autowired
+    private EdgeRpcCompressionStats compressionStats;
+
     private Server server;
 
     private ScheduledExecutorService edgeEventProcessingExecutorService;
@@ -110,7 +117,14 @@ public class EdgeGrpcService extends EdgeRpcServiceGrpc.EdgeRpcServiceImplBase i
         NettyServerBuilder builder = NettyServerBuilder.forPort(rpcPort)
                 .permitKeepAliveTime(clientMaxKeepAliveTimeSec, TimeUnit.SECONDS)
                 .maxInboundMessageSize(maxInboundMessageSize)
+                .compressorRegistry(EdgeRpcCompression.compressorRegistry(compressionStats))
+                .decompressorRegistry(EdgeRpcCompression.decompressorRegistry())
+                .addStreamTracerFactory(EdgeRpcCompression.serverStreamTracerFactory(compressionStats))
                 .addService(this);
+        if (!EdgeRpcCompression.isSupported(compression)) {
+            log.warn("Unsupported compression [{}], using [{}] instead", compression, EdgeRpcCompression.GZIP);
+            compression = EdgeRpcCompression.GZIP;
+        }
         if (sslEnabled) {
             try {
                 InputStream certFileIs = ResourceUtils.getInputStream(this, certFileResource);
@@ -157,6 +171,10 @@ public class EdgeGrpcService extends EdgeRpcServiceGrpc.EdgeRpcServiceImplBase i
 
     @Override
     public StreamObserver<RequestMsg> handleMsgs(StreamObserver<ResponseMsg> outputStream) {
+        if (outputStream instanceof ServerCallStreamObserver) {
+            // falls back to 'identity' if the edge does not accept the configured encoding
+            ((ServerCallStreamObserver<ResponseMsg>) outputStream).setCompression(compression);
+        }
         return new EdgeGrpcSession(ctx, outputStream, this::onEdgeConnect, this::onEdgeDisconnect, sendDownlinkExecutorService).getInputStream();
     }
 
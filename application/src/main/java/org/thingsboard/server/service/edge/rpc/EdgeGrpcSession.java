@@ -53,6 +53,7 @@ import org.thingsboard.server.gen.edge.v1.EdgeConfiguration;
 import org.thingsboard.server.gen.edge.v1.EdgeUpdateMsg;
 import org.thingsboard.server.gen.edge.v1.EdgeVersion;
 import org.thingsboard.server.gen.edge.v1.EntityDataProto;
+import org.thingsboard.server.gen.edge.v1.EntityTypeSyncDigestProto;
 import org.thingsboard.server.gen.edge.v1.EntityViewsRequestMsg;
 import org.thingsboard.server.gen.edge.v1.RelationRequestMsg;
 import org.thingsboard.server.gen.edge.v1.RelationUpdateMsg;
@@ -67,6 +68,7 @@ import org.thingsboard.server.gen.edge.v1.UplinkResponseMsg;
 import org.thingsboard.server.gen.edge.v1.UserCredentialsRequestMsg;
 import org.thingsboard.server.gen.edge.v1.WidgetBundleTypesRequestMsg;
 import org.thingsboard.server.service.edge.EdgeContextComponent;
+import org.thingsboard.server.service.edge.rpc.fetch.BaseDigestAwareEdgeEventFetcher;
 import org.thingsboard.server.service.edge.rpc.fetch.EdgeEventFetcher;
 import org.thingsboard.server.service.edge.rpc.fetch.GeneralEdgeEventFetcher;
 
@@ -138,7 +140,7 @@ public final class EdgeGrpcSession implements Closeable {
                 if (connected) {
                     if (requestMsg.getMsgType().equals(RequestMsgType.SYNC_REQUEST_RPC_MESSAGE)) {
                         if (requestMsg.hasSyncRequestMsg() && requestMsg.getSyncRequestMsg().getSyncRequired()) {
-                            startSyncProcess(edge.getTenantId(), edge.getId());
+                            startSyncProcess(edge.getTenantId(), edge.getId(), requestMsg.getSyncRequestMsg().getEntityTypeDigestsList());
                         } else {
                             syncCompleted = true;
                         }
@@ -182,15 +184,21 @@ public final class EdgeGrpcSession implements Closeable {
     }
 
     public void startSyncProcess(TenantId tenantId, EdgeId edgeId) {
-        log.trace("[{}][{}] Staring edge sync process", tenantId, edgeId);
+        startSyncProcess(tenantId, edgeId, Collections.emptyList());
+    }
+
+    private void startSyncProcess(TenantId tenantId, EdgeId edgeId, List<EntityTypeSyncDigestProto> edgeDigests) {
+        log.trace("[{}][{}] Staring edge sync process, edge digests provided for {} entity type(s)", tenantId, edgeId, edgeDigests.size());
         syncCompleted = false;
-        doSync(new EdgeSyncCursor(ctx, edge));
+        doSync(new EdgeSyncCursor(ctx, edge, edgeDigests));
     }
 
     private void doSync(EdgeSyncCursor cursor) {
         if (cursor.hasNext()) {
             log.info("[{}][{}] starting sync process, cursor current idx = {}", edge.getTenantId(), edge.getId(), cursor.getCurrentIdx());
-            ListenableFuture<UUID> uuidListenableFuture = startProcessingEdgeEvents(cursor.getNext());
+            EdgeEventFetcher fetcher = cursor.getNext();
+            ListenableFuture<UUID> uuidListenableFuture = Futures.transformAsync(applyEdgeDigest(cursor, fetcher),
+                    digestApplied -> startProcessingEdgeEvents(fetcher), ctx.getGrpcCallbackExecutorService());
             Futures.addCallback(uuidListenableFuture, new FutureCallback<>() {
                 @Override
                 public void onSuccess(@Nullable UUID result) {
@@ -222,6 +230,28 @@ public final class EdgeGrpcSession implements Closeable {
         }
     }
 
+    /**
+     * Compares the digests sent by the edge with the local entities on the DB callback executor,
+     * since it walks all entities of the type and must not hold the gRPC thread.
+     */
+    private ListenableFuture<?> applyEdgeDigest(EdgeSyncCursor cursor, EdgeEventFetcher fetcher) {
+        if (!(fetcher instanceof BaseDigestAwareEdgeEventFetcher)) {
+            return Futures.immediateFuture(null);
+        }
+        BaseDigestAwareEdgeEventFetcher<?> digestAwareFetcher = (BaseDigestAwareEdgeEventFetcher<?>) fetcher;
+        List<Long> edgeBucketDigests = cursor.getEdgeBucketDigests(digestAwareFetcher.getEntityType());
+        if (edgeBucketDigests == null) {
+            return Futures.immediateFuture(null);
+        }
+        return ctx.getDbCallbackExecutor().executeAsync(() -> {
+            try {
+                digestAwareFetcher.applyEdgeDigest(edge.getTenantId(), edge, edgeBucketDigests, ctx.getEdgeEventStorageSettings().getMaxReadRecordsCount());
+            } catch (Exception e) {
+                log.warn("[{}][{}] Failed to compare {} digests, all entities will be synced", edge.getTenantId(), edge.getId(), digestAwareFetcher.getEntityType(), e);
+            }
+        });
+    }
+
     private void onUplinkMsg(UplinkMsg uplinkMsg) {
         ListenableFuture<List<Void>> future = processUplinkMsg(uplinkMsg);
         Futures.addCallback(future, new FutureCallback<>() {
@@ -373,6 +403,9 @@ public final class EdgeGrpcSession implements Closeable {
                         result.setException(t);
                     }
                 }, ctx.getGrpcCallbackExecutorService());
+            } else if (isConnected() && pageData.hasNext()) {
+                log.trace("[{}] no event(s) require sync on the current page. Fetching next page", this.sessionId);
+                processEdgeEvents(fetcher, pageLink.nextPageLink(), result);
             } else {
                 log.trace("[{}] no event(s) found. Stop processing edge events", this.sessionId);
                 result.set(null);
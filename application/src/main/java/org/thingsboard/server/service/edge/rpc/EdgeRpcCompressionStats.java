@@ -0,0 +1,85 @@
+/**
+ * Copyright © 2016-2022 The Thingsboard Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.thingsboard.server.service.edge.rpc;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.Timer;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Component;
+import org.thingsboard.edge.rpc.compression.EdgeRpcCompressionListener;
+import org.thingsboard.server.common.stats.StatsFactory;
+
+import javax.annotation.PostConstruct;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Wire and uncompressed byte totals per direction of the edge gRPC stream, the distribution of the
+ * compression ratio (uncompressed/wire bytes) of single messages per direction, and the time spent
+ * compressing every outbound message per encoding.
+ */
+@Component
+@RequiredArgsConstructor
+public class EdgeRpcCompressionStats implements EdgeRpcCompressionListener {
+
+    private static final String STATS_KEY = "edgeRpc";
+
+    private final StatsFactory statsFactory;
+
+    private final ConcurrentMap<String, Timer> compressionTimers = new ConcurrentHashMap<>();
+
+    private AtomicLong outboundWireBytes;
+    private AtomicLong outboundUncompressedBytes;
+    private AtomicLong inboundWireBytes;
+    private AtomicLong inboundUncompressedBytes;
+    private DistributionSummary outboundCompressionRatio;
+    private DistributionSummary inboundCompressionRatio;
+
+    @PostConstruct
+    public void init() {
+        outboundWireBytes = statsFactory.createGauge(STATS_KEY + ".wireBytes", new AtomicLong(), "direction", "outbound");
+        outboundUncompressedBytes = statsFactory.createGauge(STATS_KEY + ".uncompressedBytes", new AtomicLong(), "direction", "outbound");
+        inboundWireBytes = statsFactory.createGauge(STATS_KEY + ".wireBytes", new AtomicLong(), "direction", "inbound");
+        inboundUncompressedBytes = statsFactory.createGauge(STATS_KEY + ".uncompressedBytes", new AtomicLong(), "direction", "inbound");
+        outboundCompressionRatio = statsFactory.createDistributionSummary(STATS_KEY + ".compressionRatio", "direction", "outbound");
+        inboundCompressionRatio = statsFactory.createDistributionSummary(STATS_KEY + ".compressionRatio", "direction", "inbound");
+    }
+
+    @Override
+    public void onWireBytes(boolean outbound, long bytes) {
+        (outbound ? outboundWireBytes : inboundWireBytes).addAndGet(bytes);
+    }
+
+    @Override
+    public void onUncompressedBytes(boolean outbound, long bytes) {
+        (outbound ? outboundUncompressedBytes : inboundUncompressedBytes).addAndGet(bytes);
+    }
+
+    @Override
+    public void onMessageCompressed(String encoding, long durationNanos) {
+        compressionTimers.computeIfAbsent(encoding, e -> statsFactory.createTimer(STATS_KEY + ".compression", "encoding", e))
+                .record(durationNanos, TimeUnit.NANOSECONDS);
+    }
+
+    @Override
+    public void onMessage(boolean outbound, long wireBytes, long uncompressedBytes) {
+        if (wireBytes > 0 && uncompressedBytes > 0) {
+            (outbound ? outboundCompressionRatio : inboundCompressionRatio).record((double) uncompressedBytes / wireBytes);
+        }
+    }
+}
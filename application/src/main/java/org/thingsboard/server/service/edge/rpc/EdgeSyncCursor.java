@@ -15,8 +15,10 @@
  */
 package org.thingsboard.server.service.edge.rpc;
 
+import org.thingsboard.server.common.data.EntityType;
 import org.thingsboard.server.common.data.edge.Edge;
 import org.thingsboard.server.common.data.id.EntityId;
+import org.thingsboard.server.gen.edge.v1.EntityTypeSyncDigestProto;
 import org.thingsboard.server.service.edge.EdgeContextComponent;
 import org.thingsboard.server.service.edge.rpc.fetch.AdminSettingsEdgeEventFetcher;
 import org.thingsboard.server.service.edge.rpc.fetch.AssetsEdgeEventFetcher;
@@ -32,8 +34,10 @@ import org.thingsboard.server.service.edge.rpc.fetch.SystemWidgetsBundlesEdgeEve
 import org.thingsboard.server.service.edge.rpc.fetch.TenantAdminUsersEdgeEventFetcher;
 import org.thingsboard.server.service.edge.rpc.fetch.TenantWidgetsBundlesEdgeEventFetcher;
 
+import java.util.EnumMap;
 import java.util.LinkedList;
 import java.util.List;
+import java.util.Map;
 import java.util.NoSuchElementException;
 
 public class EdgeSyncCursor {
@@ -42,7 +46,15 @@ public class EdgeSyncCursor {
 
     int currentIdx = 0;
 
-    public EdgeSyncCursor(EdgeContextComponent ctx, Edge edge) {
+    private final Map<EntityType, List<Long>> edgeBucketDigests = new EnumMap<>(EntityType.class);
+
+    public EdgeSyncCursor(EdgeContextComponent ctx, Edge edge, List<EntityTypeSyncDigestProto> edgeDigests) {
+        for (EntityTypeSyncDigestProto edgeDigest : edgeDigests) {
+            try {
+                edgeBucketDigests.put(EntityType.valueOf(edgeDigest.getEntityType()), edgeDigest.getBucketDigestsList());
+            } catch (IllegalArgumentException ignored) {
+            }
+        }
         fetchers.add(new QueuesEdgeEventFetcher(ctx.getQueueService()));
         fetchers.add(new RuleChainsEdgeEventFetcher(ctx.getRuleChainService()));
         fetchers.add(new AdminSettingsEdgeEventFetcher(ctx.getAdminSettingsService(), ctx.getFreemarkerConfig()));
@@ -72,6 +84,10 @@ public class EdgeSyncCursor {
         return edgeEventFetcher;
     }
 
+    public List<Long> getEdgeBucketDigests(EntityType entityType) {
+        return edgeBucketDigests.get(entityType);
+    }
+
     public int getCurrentIdx() {
         return currentIdx;
     }
@@ -0,0 +1,84 @@
+/**
+ * Copyright © 2016-2022 The Thingsboard Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.thingsboard.server.service.edge.rpc;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.google.common.hash.HashFunction;
+import com.google.common.hash.Hashing;
+import org.thingsboard.common.util.JacksonUtil;
+import org.thingsboard.server.common.data.EntityType;
+import org.thingsboard.server.gen.edge.v1.EntityTypeSyncDigestProto;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+
+/**
+ * Order independent digest of the entities of one type, split into buckets by entity id.
+ * Edge and cloud compute it over their own copies of the entities; only the buckets with different digests
+ * have to be sent again during the sync process.
+ */
+public class EdgeSyncDigest {
+
+    public static final int BUCKETS_COUNT = 64;
+
+    private static final HashFunction HASH_FUNCTION = Hashing.murmur3_128();
+    private static final Set<String> IGNORED_FIELDS = Set.of("createdTime", "assignedCustomers", "externalId");
+
+    private final long[] bucketDigests = new long[BUCKETS_COUNT];
+
+    public void add(UUID entityId, Object entity) {
+        bucketDigests[getBucket(entityId)] ^= hash(entity);
+    }
+
+    public Set<Integer> getMismatchedBuckets(List<Long> otherBucketDigests) {
+        Set<Integer> result = new HashSet<>();
+        boolean comparable = otherBucketDigests != null && otherBucketDigests.size() == BUCKETS_COUNT;
+        for (int bucket = 0; bucket < BUCKETS_COUNT; bucket++) {
+            if (!comparable || bucketDigests[bucket] != otherBucketDigests.get(bucket)) {
+                result.add(bucket);
+            }
+        }
+        return result;
+    }
+
+    public EntityTypeSyncDigestProto toProto(EntityType entityType) {
+        List<Long> digests = new ArrayList<>(BUCKETS_COUNT);
+        for (long digest : bucketDigests) {
+            digests.add(digest);
+        }
+        return EntityTypeSyncDigestProto.newBuilder()
+                .setEntityType(entityType.name())
+                .addAllBucketDigests(digests)
+                .build();
+    }
+
+    public static int getBucket(UUID entityId) {
+        return (int) ((entityId.getLeastSignificantBits() & Long.MAX_VALUE) % BUCKETS_COUNT);
+    }
+
+    private static long hash(Object entity) {
+        JsonNode json = JacksonUtil.valueToTree(entity);
+        if (json.isObject()) {
+            ((ObjectNode) json).remove(IGNORED_FIELDS);
+        }
+        return HASH_FUNCTION.hashString(json.toString(), StandardCharsets.UTF_8).asLong();
+    }
+}
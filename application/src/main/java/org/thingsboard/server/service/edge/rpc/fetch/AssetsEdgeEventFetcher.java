@@ -18,6 +18,7 @@ package org.thingsboard.server.service.edge.rpc.fetch;
 import lombok.AllArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.thingsboard.server.common.data.EdgeUtils;
+import org.thingsboard.server.common.data.EntityType;
 import org.thingsboard.server.common.data.asset.Asset;
 import org.thingsboard.server.common.data.edge.Edge;
 import org.thingsboard.server.common.data.edge.EdgeEvent;
@@ -30,10 +31,15 @@ import org.thingsboard.server.dao.asset.AssetService;
 
 @AllArgsConstructor
 @Slf4j
-public class AssetsEdgeEventFetcher extends BasePageableEdgeEventFetcher<Asset> {
+public class AssetsEdgeEventFetcher extends BaseDigestAwareEdgeEventFetcher<Asset> {
 
     private final AssetService assetService;
 
+    @Override
+    public EntityType getEntityType() {
+        return EntityType.ASSET;
+    }
+
     @Override
     PageData<Asset> fetchPageData(TenantId tenantId, Edge edge, PageLink pageLink) {
         return assetService.findAssetsByTenantIdAndEdgeId(tenantId, edge.getId(), pageLink);
@@ -0,0 +1,58 @@
+/**
+ * Copyright © 2016-2022 The Thingsboard Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.thingsboard.server.service.edge.rpc.fetch;
+
+import lombok.extern.slf4j.Slf4j;
+import org.thingsboard.server.common.data.EntityType;
+import org.thingsboard.server.common.data.edge.Edge;
+import org.thingsboard.server.common.data.id.EntityId;
+import org.thingsboard.server.common.data.id.HasId;
+import org.thingsboard.server.common.data.id.TenantId;
+import org.thingsboard.server.common.data.page.PageData;
+import org.thingsboard.server.common.data.page.PageLink;
+import org.thingsboard.server.service.edge.rpc.EdgeSyncDigest;
+
+import java.util.List;
+import java.util.Set;
+
+@Slf4j
+public abstract class BaseDigestAwareEdgeEventFetcher<T extends HasId<? extends EntityId>> extends BasePageableEdgeEventFetcher<T> {
+
+    private Set<Integer> bucketsToSync;
+
+    public abstract EntityType getEntityType();
+
+    public void applyEdgeDigest(TenantId tenantId, Edge edge, List<Long> edgeBucketDigests, int pageSize) {
+        EdgeSyncDigest digest = new EdgeSyncDigest();
+        PageLink pageLink = getPageLink(pageSize);
+        PageData<T> pageData;
+        do {
+            pageData = fetchPageData(tenantId, edge, pageLink);
+            for (T entity : pageData.getData()) {
+                digest.add(entity.getId().getId(), entity);
+            }
+            pageLink = pageLink.nextPageLink();
+        } while (pageData.hasNext());
+        bucketsToSync = digest.getMismatchedBuckets(edgeBucketDigests);
+        log.debug("[{}][{}] {} of {} digest buckets of {} require sync", tenantId, edge.getId(),
+                bucketsToSync.size(), EdgeSyncDigest.BUCKETS_COUNT, getEntityType());
+    }
+
+    @Override
+    boolean isSyncRequired(T entity) {
+        return bucketsToSync == null || bucketsToSync.contains(EdgeSyncDigest.getBucket(entity.getId().getId()));
+    }
+}
@@ -40,12 +40,18 @@ public abstract class BasePageableEdgeEventFetcher<T> implements EdgeEventFetche
         List<EdgeEvent> result = new ArrayList<>();
         if (!pageData.getData().isEmpty()) {
             for (T entity : pageData.getData()) {
-                result.add(constructEdgeEvent(tenantId, edge, entity));
+                if (isSyncRequired(entity)) {
+                    result.add(constructEdgeEvent(tenantId, edge, entity));
+                }
             }
         }
         return new PageData<>(result, pageData.getTotalPages(), pageData.getTotalElements(), pageData.hasNext());
     }
 
+    boolean isSyncRequired(T entity) {
+        return true;
+    }
+
     abstract PageData<T> fetchPageData(TenantId tenantId, Edge edge, PageLink pageLink);
 
     abstract EdgeEvent constructEdgeEvent(TenantId tenantId, Edge edge, T entity);
@@ -19,6 +19,7 @@ import lombok.AllArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.thingsboard.server.common.data.DashboardInfo;
 import org.thingsboard.server.common.data.EdgeUtils;
+import org.thingsboard.server.common.data.EntityType;
 import org.thingsboard.server.common.data.edge.Edge;
 import org.thingsboard.server.common.data.edge.EdgeEvent;
 import org.thingsboard.server.common.data.edge.EdgeEventActionType;
@@ -30,10 +31,15 @@ import org.thingsboard.server.dao.dashboard.DashboardService;
 
 @AllArgsConstructor
 @Slf4j
-public class DashboardsEdgeEventFetcher extends BasePageableEdgeEventFetcher<DashboardInfo> {
+public class DashboardsEdgeEventFetcher extends BaseDigestAwareEdgeEventFetcher<DashboardInfo> {
 
     private final DashboardService dashboardService;
 
+    @Override
+    public EntityType getEntityType() {
+        return EntityType.DASHBOARD;
+    }
+
     @Override
     PageData<DashboardInfo> fetchPageData(TenantId tenantId, Edge edge, PageLink pageLink) {
         return dashboardService.findDashboardsByTenantIdAndEdgeId(tenantId, edge.getId(), pageLink);
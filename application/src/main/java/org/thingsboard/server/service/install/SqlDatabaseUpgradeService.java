@@ -102,6 +102,9 @@ public class SqlDatabaseUpgradeService implements DatabaseEntitiesUpgradeService
     @Value("${spring.datasource.password}")
     private String dbPassword;
 
+    @Value("${sql.cloud_events.partition_size:24}")
+    private int cloudEventsPartitionSizeInHours;
+
     @Autowired
     private DashboardService dashboardService;
 
@@ -606,6 +609,9 @@ public class SqlDatabaseUpgradeService implements DatabaseEntitiesUpgradeService
                     log.info("Updating schema ...");
                     Path schemaUpdateFile = Paths.get(installScripts.getDataDir(), "upgrade", "3.4.0", SCHEMA_UPDATE_SQL);
                     loadSql(schemaUpdateFile, conn);
+                    log.info("Migrating cloud events to the partitioned table...");
+                    conn.createStatement().execute("call migrate_cloud_events(" + cloudEventsPartitionSizeInHours + ")");
+                    conn.createStatement().execute("DROP PROCEDURE IF EXISTS migrate_cloud_events(int)");
                     log.info("Updating schema settings...");
                     conn.createStatement().execute("UPDATE tb_schema_settings SET schema_version = 3004001;");
                     log.info("Schema updated.");
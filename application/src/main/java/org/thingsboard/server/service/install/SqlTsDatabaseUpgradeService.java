@@ -44,6 +44,7 @@ public class SqlTsDatabaseUpgradeService extends AbstractSqlTsDatabaseUpgradeSer
     private static final String LOAD_FUNCTIONS_SQL = "schema_update_psql_ts.sql";
     private static final String LOAD_TTL_FUNCTIONS_SQL = "schema_update_ttl.sql";
     private static final String LOAD_DROP_PARTITIONS_FUNCTIONS_SQL = "schema_update_psql_drop_partitions.sql";
+    private static final String CREATE_ROLLUP_TABLES_SQL = "schema_update_ts_rollup.sql";
 
     private static final String TS_KV_OLD = "ts_kv_old;";
     private static final String TS_KV_LATEST_OLD = "ts_kv_latest_old;";
@@ -213,6 +214,12 @@ public class SqlTsDatabaseUpgradeService extends AbstractSqlTsDatabaseUpgradeSer
                     loadSql(conn, LOAD_DROP_PARTITIONS_FUNCTIONS_SQL, "2.4.3");
                 }
                 break;
+            case "3.4.0":
+                try (Connection conn = DriverManager.getConnection(dbUrl, dbUserName, dbPassword)) {
+                    log.info("Creating timeseries rollup tables ...");
+                    loadFunctions(Paths.get(installScripts.getDataDir(), "upgrade", "3.4.0", CREATE_ROLLUP_TABLES_SQL), conn);
+                }
+                break;
             default:
                 throw new RuntimeException("Unable to upgrade SQL database, unsupported fromVersion: " + fromVersion);
         }
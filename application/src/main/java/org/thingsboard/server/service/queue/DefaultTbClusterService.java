@@ -70,9 +70,11 @@ import org.thingsboard.server.queue.TbQueueCallback;
 import org.thingsboard.server.queue.TbQueueProducer;
 import org.thingsboard.server.queue.common.MultipleTbQueueCallbackWrapper;
 import org.thingsboard.server.queue.common.TbProtoQueueMsg;
+import org.thingsboard.server.queue.common.TbRuleEngineProtoQueueMsg;
 import org.thingsboard.server.queue.discovery.NotificationsTopicService;
 import org.thingsboard.server.queue.discovery.PartitionService;
 import org.thingsboard.server.queue.provider.TbQueueProducerProvider;
+import org.thingsboard.server.queue.settings.TbMsgWireFormatSettings;
 import org.thingsboard.server.service.gateway_device.GatewayNotificationsService;
 import org.thingsboard.server.service.ota.OtaPackageStateService;
 import org.thingsboard.server.service.profile.TbDeviceProfileCache;
@@ -112,6 +114,10 @@ public class DefaultTbClusterService implements TbClusterService {
     @Lazy
     private OtaPackageStateService otaPackageStateService;
 
+    @Autowired
+    @Lazy
+    private TbMsgWireFormatSettings wireFormatSettings;
+
     private final NotificationsTopicService notificationsTopicService;
     private final DataDecodingEncodingService encodingService;
     private final TbDeviceProfileCache deviceProfileCache;
@@ -187,12 +193,17 @@ public class DefaultTbClusterService implements TbClusterService {
             }
         }
         TopicPartitionInfo tpi = partitionService.resolve(ServiceType.TB_RULE_ENGINE, tbMsg.getQueueName(), tenantId, entityId);
-        log.trace("PUSHING msg: {} to:{}", tbMsg, tpi);
-        ToRuleEngineMsg msg = ToRuleEngineMsg.newBuilder()
+        ToRuleEngineMsg.Builder msg = ToRuleEngineMsg.newBuilder()
                 .setTenantIdMSB(tenantId.getId().getMostSignificantBits())
-                .setTenantIdLSB(tenantId.getId().getLeastSignificantBits())
-                .setTbMsg(TbMsg.toByteString(tbMsg)).build();
-        producerProvider.getRuleEngineMsgProducer().send(tpi, new TbProtoQueueMsg<>(tbMsg.getId(), msg), callback);
+                .setTenantIdLSB(tenantId.getId().getLeastSignificantBits());
+        pushMsgToRuleEngine(tpi, tbMsg, msg, callback);
+    }
+
+    @Override
+    public void pushMsgToRuleEngine(TopicPartitionInfo tpi, TbMsg tbMsg, ToRuleEngineMsg.Builder msg, TbQueueCallback callback) {
+        log.trace("PUSHING msg: {} to:{}", tbMsg, tpi);
+        TbQueueProducer<TbProtoQueueMsg<ToRuleEngineMsg>> producer = producerProvider.getRuleEngineMsgProducer();
+        producer.send(tpi, TbRuleEngineProtoQueueMsg.create(producer, tbMsg, msg, wireFormatSettings.getWireFormat()), callback);
         toRuleEngineMsgs.incrementAndGet();
     }
 
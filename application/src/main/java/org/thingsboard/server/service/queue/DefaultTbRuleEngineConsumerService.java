@@ -44,6 +44,7 @@ import org.thingsboard.server.gen.transport.TransportProtos.ToRuleEngineMsg;
 import org.thingsboard.server.gen.transport.TransportProtos.ToRuleEngineNotificationMsg;
 import org.thingsboard.server.queue.TbQueueConsumer;
 import org.thingsboard.server.queue.common.TbProtoQueueMsg;
+import org.thingsboard.server.queue.common.TbRuleEngineProtoQueueMsg;
 import org.thingsboard.server.queue.discovery.PartitionService;
 import org.thingsboard.server.queue.discovery.QueueKey;
 import org.thingsboard.server.queue.discovery.TbServiceInfoProvider;
@@ -338,8 +339,8 @@ public class DefaultTbRuleEngineConsumerService extends AbstractConsumerService<
                 new TbMsgPackCallback(id, tenantId, ctx, stats.getTimer(tenantId, SUCCESSFUL_STATUS), stats.getTimer(tenantId, FAILED_STATUS)) :
                 new TbMsgPackCallback(id, tenantId, ctx);
         try {
-            if (toRuleEngineMsg.getTbMsg() != null && !toRuleEngineMsg.getTbMsg().isEmpty()) {
-                forwardToRuleEngineActor(configuration.getName(), tenantId, toRuleEngineMsg, callback);
+            if (TbRuleEngineProtoQueueMsg.hasTbMsg(msg)) {
+                forwardToRuleEngineActor(configuration.getName(), tenantId, msg, callback);
             } else {
                 callback.onSuccess();
             }
@@ -353,7 +354,7 @@ public class DefaultTbRuleEngineConsumerService extends AbstractConsumerService<
         log.info("{} to process [{}] messages", prefix, map.size());
         for (Map.Entry<UUID, TbProtoQueueMsg<ToRuleEngineMsg>> pending : map.entrySet()) {
             ToRuleEngineMsg tmp = pending.getValue().getValue();
-            TbMsg tmpMsg = TbMsg.fromBytes(configuration.getName(), tmp.getTbMsg().toByteArray(), TbMsgCallback.EMPTY);
+            TbMsg tmpMsg = TbRuleEngineProtoQueueMsg.getTbMsg(configuration.getName(), pending.getValue(), TbMsgCallback.EMPTY);
             RuleNodeInfo ruleNodeInfo = ctx.getLastVisitedRuleNode(pending.getKey());
             if (printAll) {
                 log.trace("[{}] {} to process message: {}, Last Rule Node: {}", TenantId.fromUUID(new UUID(tmp.getTenantIdMSB(), tmp.getTenantIdLSB())), prefix, tmpMsg, ruleNodeInfo);
@@ -461,8 +462,9 @@ public class DefaultTbRuleEngineConsumerService extends AbstractConsumerService<
         partitionService.removeQueue(queueDeleteMsg);
     }
 
-    private void forwardToRuleEngineActor(String queueName, TenantId tenantId, ToRuleEngineMsg toRuleEngineMsg, TbMsgCallback callback) {
-        TbMsg tbMsg = TbMsg.fromBytes(queueName, toRuleEngineMsg.getTbMsg().toByteArray(), callback);
+    private void forwardToRuleEngineActor(String queueName, TenantId tenantId, TbProtoQueueMsg<ToRuleEngineMsg> queueMsg, TbMsgCallback callback) {
+        ToRuleEngineMsg toRuleEngineMsg = queueMsg.getValue();
+        TbMsg tbMsg = TbRuleEngineProtoQueueMsg.getTbMsg(queueName, queueMsg, callback);
         QueueToRuleEngineMsg msg;
         ProtocolStringList relationTypesList = toRuleEngineMsg.getRelationTypesList();
         Set<String> relationTypes = null;
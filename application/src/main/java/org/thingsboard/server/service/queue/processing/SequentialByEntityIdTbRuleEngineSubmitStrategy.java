@@ -87,7 +87,7 @@ public abstract class SequentialByEntityIdTbRuleEngineSubmitStrategy extends Abs
         msgToEntityIdMap.clear();
         entityIdToListMap.clear();
         for (IdMsgPair<TransportProtos.ToRuleEngineMsg> pair : orderedMsgList) {
-            EntityId entityId = getEntityId(pair.msg.getValue());
+            EntityId entityId = getEntityId(pair.msg);
             if (entityId != null) {
                 msgToEntityIdMap.put(pair.uuid, entityId);
                 entityIdToListMap.computeIfAbsent(entityId, id -> new LinkedList<>()).add(pair);
@@ -95,6 +95,6 @@ public abstract class SequentialByEntityIdTbRuleEngineSubmitStrategy extends Abs
         }
     }
 
-    protected abstract EntityId getEntityId(TransportProtos.ToRuleEngineMsg msg);
+    protected abstract EntityId getEntityId(TbProtoQueueMsg<TransportProtos.ToRuleEngineMsg> msg);
 
 }
@@ -18,6 +18,7 @@ package org.thingsboard.server.service.queue.processing;
 import org.thingsboard.server.common.data.id.EntityId;
 import org.thingsboard.server.common.data.id.TenantId;
 import org.thingsboard.server.gen.transport.TransportProtos;
+import org.thingsboard.server.queue.common.TbProtoQueueMsg;
 
 import java.util.UUID;
 
@@ -28,7 +29,7 @@ public class SequentialByTenantIdTbRuleEngineSubmitStrategy extends SequentialBy
     }
 
     @Override
-    protected EntityId getEntityId(TransportProtos.ToRuleEngineMsg msg) {
-        return TenantId.fromUUID(new UUID(msg.getTenantIdMSB(), msg.getTenantIdLSB()));
+    protected EntityId getEntityId(TbProtoQueueMsg<TransportProtos.ToRuleEngineMsg> msg) {
+        return TenantId.fromUUID(new UUID(msg.getValue().getTenantIdMSB(), msg.getValue().getTenantIdLSB()));
     }
 }
@@ -149,6 +149,7 @@ public class DefaultDeviceStateService extends AbstractPartitionBasedService<Dev
     private final DbTypeInfoComponent dbTypeInfoComponent;
 
     private TelemetrySubscriptionService tsSubService;
+    private DeviceStateWarmUpService warmUpService;
 
     @Value("${state.defaultInactivityTimeoutInSec}")
     @Getter
@@ -192,6 +193,11 @@ public class DefaultDeviceStateService extends AbstractPartitionBasedService<Dev
         this.tsSubService = tsSubService;
     }
 
+    @Autowired
+    public void setWarmUpService(DeviceStateWarmUpService warmUpService) {
+        this.warmUpService = warmUpService;
+    }
+
     @PostConstruct
     public void init() {
         super.init();
@@ -342,6 +348,7 @@ public class DefaultDeviceStateService extends AbstractPartitionBasedService<Dev
     @Override
     protected Map<TopicPartitionInfo, List<ListenableFuture<?>>> onAddedPartitions(Set<TopicPartitionInfo> addedPartitions) {
         var result = new HashMap<TopicPartitionInfo, List<ListenableFuture<?>>>();
+        warmUpService.onPartitionsAdded();
         PageDataIterable<DeviceIdInfo> deviceIdInfos = new PageDataIterable<>(deviceService::findDeviceIdInfos, initFetchPackSize);
         Map<TopicPartitionInfo, List<DeviceIdInfo>> tpiDeviceMap = new HashMap<>();
 
@@ -381,6 +388,7 @@ public class DefaultDeviceStateService extends AbstractPartitionBasedService<Dev
                                 checkAndUpdateState(state.getDeviceId(), state);
                             }
                             log.info("[{}] Initialized {} out of {} device states", entry.getKey().getPartition().orElse(0), counter.addAndGet(states.size()), entry.getValue().size());
+                            warmUpService.onStatesLoaded(states, deviceStateExecutor);
                         }
                     } catch (Throwable t) {
                         log.error("Unexpected exception while device pack fetching", t);
@@ -391,6 +399,9 @@ public class DefaultDeviceStateService extends AbstractPartitionBasedService<Dev
                 result.computeIfAbsent(entry.getKey(), tmp -> new ArrayList<>()).add(devicePackFuture);
             }
         }
+        List<ListenableFuture<?>> warmUpFutures = new ArrayList<>();
+        result.values().forEach(warmUpFutures::addAll);
+        Futures.whenAllComplete(warmUpFutures).run(warmUpService::complete, MoreExecutors.directExecutor());
         return result;
     }
 
@@ -0,0 +1,188 @@
+/**
+ * Copyright © 2016-2022 The Thingsboard Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.thingsboard.server.service.state;
+
+import com.google.common.collect.Lists;
+import com.google.common.util.concurrent.FutureCallback;
+import com.google.common.util.concurrent.Futures;
+import com.google.common.util.concurrent.ListenableFuture;
+import com.google.common.util.concurrent.MoreExecutors;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.stereotype.Service;
+import org.thingsboard.server.common.data.DataConstants;
+import org.thingsboard.server.common.data.security.DeviceCredentials;
+import org.thingsboard.server.common.stats.StatsFactory;
+import org.thingsboard.server.common.transport.WarmUpCompletedEvent;
+import org.thingsboard.server.dao.attributes.AttributesService;
+import org.thingsboard.server.dao.device.DeviceCredentialsService;
+import org.thingsboard.server.queue.util.TbCoreComponent;
+import org.thingsboard.server.service.profile.TbDeviceProfileCache;
+
+import javax.annotation.PostConstruct;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Warm-up of the device state service: tracks the device states loaded for the owned partitions and
+ * fetches the device, device profile, credentials and state attributes of the active devices into the caches,
+ * so the first messages after a restart or a repartition do not hit the database. The caches are warmed up for
+ * the partitions owned on startup and for the partitions added by every later partition change.
+ * Completion of the startup warm-up is published as {@link WarmUpCompletedEvent}.
+ */
+@Service
+@TbCoreComponent
+@Slf4j
+@RequiredArgsConstructor
+public class DeviceStateWarmUpService {
+
+    private static final String STATS_KEY = "deviceStateWarmUp";
+
+    private final TbDeviceProfileCache deviceProfileCache;
+    private final DeviceCredentialsService deviceCredentialsService;
+    private final AttributesService attributesService;
+    private final StatsFactory statsFactory;
+    private final ApplicationEventPublisher eventPublisher;
+
+    @Value("${state.warm_up.cache_enabled:true}")
+    private boolean cacheEnabled;
+    @Value("${state.warm_up.max_cached_devices:10000}")
+    private int maxCachedDevices;
+    @Value("${state.warm_up.batch_size:100}")
+    private int batchSize;
+    @Value("${state.persistToTelemetry:false}")
+    private boolean persistToTelemetry;
+
+    private final AtomicBoolean completed = new AtomicBoolean();
+    private final AtomicInteger cacheBudget = new AtomicInteger();
+    private final Queue<ListenableFuture<?>> pendingWarmUps = new ConcurrentLinkedQueue<>();
+    private AtomicInteger loadedStates;
+    private AtomicInteger cachedDevices;
+    private AtomicLong durationMs;
+    private long startTs;
+
+    @PostConstruct
+    public void init() {
+        loadedStates = statsFactory.createGauge(STATS_KEY + ".loadedStates", new AtomicInteger());
+        cachedDevices = statsFactory.createGauge(STATS_KEY + ".cachedDevices", new AtomicInteger());
+        durationMs = statsFactory.createGauge(STATS_KEY + ".durationMs", new AtomicLong());
+        cacheBudget.set(maxCachedDevices);
+        startTs = System.currentTimeMillis();
+    }
+
+    public boolean isCompleted() {
+        return completed.get();
+    }
+
+    /**
+     * Called when the device states of added partitions are about to be loaded; every partition change gets its own
+     * budget of cached devices.
+     */
+    void onPartitionsAdded() {
+        cacheBudget.set(maxCachedDevices);
+    }
+
+    /**
+     * Called from the device state executor for every loaded pack. The lookups of up to batch_size devices are issued
+     * in parallel on the given executor, the next batch once the previous one is done, so a pack never blocks a thread.
+     */
+    ListenableFuture<?> onStatesLoaded(List<DeviceStateData> states, Executor executor) {
+        loadedStates.addAndGet(states.size());
+        if (!cacheEnabled) {
+            return Futures.immediateFuture(null);
+        }
+        List<DeviceStateData> activeStates = new ArrayList<>();
+        for (DeviceStateData state : states) {
+            if (state.getState().isActive()) {
+                if (cacheBudget.getAndDecrement() <= 0) {
+                    break;
+                }
+                activeStates.add(state);
+            }
+        }
+        ListenableFuture<?> future = warmUp(Lists.partition(activeStates, Math.max(1, batchSize)).iterator(), executor);
+        pendingWarmUps.add(future);
+        return future;
+    }
+
+    private ListenableFuture<?> warmUp(Iterator<List<DeviceStateData>> batches, Executor executor) {
+        if (!batches.hasNext()) {
+            return Futures.immediateFuture(null);
+        }
+        List<ListenableFuture<?>> lookups = new ArrayList<>();
+        for (DeviceStateData state : batches.next()) {
+            lookups.add(warmUp(state, executor));
+        }
+        return Futures.whenAllComplete(lookups).callAsync(() -> warmUp(batches, executor), MoreExecutors.directExecutor());
+    }
+
+    private ListenableFuture<?> warmUp(DeviceStateData state, Executor executor) {
+        List<ListenableFuture<?>> lookups = new ArrayList<>();
+        lookups.add(Futures.submit(() -> {
+            deviceProfileCache.get(state.getTenantId(), state.getDeviceId());
+            DeviceCredentials credentials = deviceCredentialsService.findDeviceCredentialsByDeviceId(state.getTenantId(), state.getDeviceId());
+            if (credentials != null) {
+                deviceCredentialsService.findDeviceCredentialsByCredentialsId(credentials.getCredentialsId());
+            }
+        }, executor));
+        if (!persistToTelemetry) {
+            lookups.add(attributesService.find(state.getTenantId(), state.getDeviceId(), DataConstants.SERVER_SCOPE,
+                    DefaultDeviceStateService.PERSISTENT_ATTRIBUTES));
+        }
+        ListenableFuture<?> future = Futures.allAsList(lookups);
+        Futures.addCallback(future, new FutureCallback<Object>() {
+            @Override
+            public void onSuccess(Object result) {
+                cachedDevices.incrementAndGet();
+            }
+
+            @Override
+            public void onFailure(Throwable t) {
+                log.debug("[{}] Failed to warm up the caches", state.getDeviceId(), t);
+            }
+        }, MoreExecutors.directExecutor());
+        return future;
+    }
+
+    /**
+     * Called once the device state packs of the added partitions are loaded; completes when their cache lookups are done.
+     * The first completion ends the startup warm-up.
+     */
+    void complete() {
+        List<ListenableFuture<?>> warmUps = new ArrayList<>(pendingWarmUps);
+        Futures.whenAllComplete(warmUps).run(() -> {
+            pendingWarmUps.removeAll(warmUps);
+            if (completed.compareAndSet(false, true)) {
+                durationMs.set(System.currentTimeMillis() - startTs);
+                log.info("Device state warm-up completed in {} ms: {} device states loaded, {} devices cached",
+                        durationMs.get(), loadedStates.get(), cachedDevices.get());
+                eventPublisher.publishEvent(new WarmUpCompletedEvent());
+            } else {
+                log.info("Device cache warm-up of added partitions completed: {} device states loaded, {} devices cached in total",
+                        loadedStates.get(), cachedDevices.get());
+            }
+        }, MoreExecutors.directExecutor());
+    }
+}
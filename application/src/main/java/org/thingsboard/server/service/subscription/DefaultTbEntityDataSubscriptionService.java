@@ -20,6 +20,7 @@ import com.google.common.util.concurrent.Futures;
 import com.google.common.util.concurrent.ListenableFuture;
 import com.google.common.util.concurrent.MoreExecutors;
 import lombok.Getter;
+import lombok.Setter;
 import lombok.extern.slf4j.Slf4j;
 import org.checkerframework.checker.nullness.qual.Nullable;
 import org.jetbrains.annotations.NotNull;
@@ -29,6 +30,7 @@ import org.springframework.context.annotation.Lazy;
 import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
 import org.springframework.web.socket.CloseStatus;
+import org.thingsboard.common.util.JacksonUtil;
 import org.thingsboard.common.util.ThingsBoardThreadFactory;
 import org.thingsboard.server.common.data.id.CustomerId;
 import org.thingsboard.server.common.data.id.TenantId;
@@ -90,6 +92,7 @@ public class DefaultTbEntityDataSubscriptionService implements TbEntityDataSubsc
 
     private static final int DEFAULT_LIMIT = 100;
     private final Map<String, Map<Integer, TbAbstractSubCtx>> subscriptionsBySessionId = new ConcurrentHashMap<>();
+    private final Map<DynamicQueryKey, SharedDynamicQuery> sharedDynamicQueries = new ConcurrentHashMap<>();
 
     @Autowired
     private TelemetryWebSocketService wsService;
@@ -196,19 +199,11 @@ public class DefaultTbEntityDataSubscriptionService implements TbEntityDataSubsc
                     }
                 });
             }
-            long start = System.currentTimeMillis();
-            ctx.fetchData();
-            long end = System.currentTimeMillis();
-            stats.getRegularQueryInvocationCnt().incrementAndGet();
-            stats.getRegularQueryTimeSpent().addAndGet(end - start);
+            fetchData(ctx);
             ctx.cancelTasks();
             if (ctx.getQuery().getPageLink().isDynamic()) {
                 //TODO: validate number of dynamic page links against rate limits. Ignore dynamic flag if limit is reached.
-                TbEntityDataSubCtx finalCtx = ctx;
-                ScheduledFuture<?> task = scheduler.scheduleWithFixedDelay(
-                        () -> refreshDynamicQuery(finalCtx),
-                        dynamicPageLinkRefreshInterval, dynamicPageLinkRefreshInterval, TimeUnit.SECONDS);
-                finalCtx.setRefreshTask(task);
+                scheduleDynamicQueryRefresh(ctx);
             }
         }
         ListenableFuture<TbEntityDataSubCtx> historyFuture;
@@ -261,16 +256,8 @@ public class DefaultTbEntityDataSubscriptionService implements TbEntityDataSubsc
         TbEntityCountSubCtx ctx = getSubCtx(session.getSessionId(), cmd.getCmdId());
         if (ctx == null) {
             ctx = createSubCtx(session, cmd);
-            long start = System.currentTimeMillis();
-            ctx.fetchData();
-            long end = System.currentTimeMillis();
-            stats.getRegularQueryInvocationCnt().incrementAndGet();
-            stats.getRegularQueryTimeSpent().addAndGet(end - start);
-            TbEntityCountSubCtx finalCtx = ctx;
-            ScheduledFuture<?> task = scheduler.scheduleWithFixedDelay(
-                    () -> refreshDynamicQuery(finalCtx),
-                    dynamicPageLinkRefreshInterval, dynamicPageLinkRefreshInterval, TimeUnit.SECONDS);
-            finalCtx.setRefreshTask(task);
+            fetchData(ctx);
+            scheduleDynamicQueryRefresh(ctx);
         } else {
             log.debug("[{}][{}] Received duplicate command: {}", session.getSessionId(), cmd.getCmdId(), cmd);
         }
@@ -324,6 +311,114 @@ public class DefaultTbEntityDataSubscriptionService implements TbEntityDataSubsc
         return true;
     }
 
+    /**
+     * Serves the initial data of a dynamic subscription from the latest result of an equal shared query, if there is one.
+     */
+    private void fetchData(TbAbstractSubCtx<?> ctx) {
+        SharedDynamicQuery sharedQuery = ctx.isDynamic() && ctx.getDynamicValues().isEmpty() ? sharedDynamicQueries.get(toDynamicQueryKey(ctx)) : null;
+        if (sharedQuery != null) {
+            PageData<EntityData> lastData = sharedQuery.getLastData();
+            Long lastCount = sharedQuery.getLastCount();
+            if (lastData != null && ctx instanceof TbAbstractDataSubCtx) {
+                log.trace("[{}][{}] Using the latest result of the shared query", ctx.getSessionId(), ctx.getCmdId());
+                ((TbAbstractDataSubCtx<?>) ctx).fetchData(lastData);
+                return;
+            } else if (lastCount != null && ctx instanceof TbEntityCountSubCtx) {
+                log.trace("[{}][{}] Using the latest result of the shared query", ctx.getSessionId(), ctx.getCmdId());
+                ((TbEntityCountSubCtx) ctx).fetchData(lastCount);
+                return;
+            }
+        }
+        long start = System.currentTimeMillis();
+        ctx.fetchData();
+        long end = System.currentTimeMillis();
+        stats.getRegularQueryInvocationCnt().incrementAndGet();
+        stats.getRegularQueryTimeSpent().addAndGet(end - start);
+    }
+
+    /**
+     * Subscriptions with the same query in the same tenant and customer scope share one refresh task, so each distinct
+     * query is executed once per refresh interval and the result is fanned out to all of its subscriptions.
+     * The latest result is kept until the next refresh starts, so new subscriptions to the query get it without a query.
+     * Queries with dynamic values are resolved per user and keep a refresh task of their own.
+     */
+    void scheduleDynamicQueryRefresh(TbAbstractSubCtx<?> ctx) {
+        if (!ctx.getDynamicValues().isEmpty()) {
+            ScheduledFuture<?> task = scheduler.scheduleWithFixedDelay(
+                    () -> refreshDynamicQuery(ctx),
+                    dynamicPageLinkRefreshInterval, dynamicPageLinkRefreshInterval, TimeUnit.SECONDS);
+            ctx.setRefreshTask(task);
+            return;
+        }
+        DynamicQueryKey key = toDynamicQueryKey(ctx);
+        ctx.setSharedQueryKey(key);
+        sharedDynamicQueries.compute(key, (k, sharedQuery) -> {
+            if (sharedQuery == null) {
+                sharedQuery = new SharedDynamicQuery();
+                sharedQuery.setRefreshTask(scheduler.scheduleWithFixedDelay(
+                        () -> refreshSharedDynamicQuery(k),
+                        dynamicPageLinkRefreshInterval, dynamicPageLinkRefreshInterval, TimeUnit.SECONDS));
+            }
+            sharedQuery.getSubscriptions().add(ctx);
+            return sharedQuery;
+        });
+    }
+
+    void refreshSharedDynamicQuery(DynamicQueryKey key) {
+        SharedDynamicQuery sharedQuery = sharedDynamicQueries.get(key);
+        if (sharedQuery == null) {
+            return;
+        }
+        // The previous result is stale from now on; it is replaced once the query succeeds.
+        sharedQuery.setLastData(null);
+        sharedQuery.setLastCount(null);
+        List<TbAbstractSubCtx<?>> subscriptions = new ArrayList<>(sharedQuery.getSubscriptions().size());
+        for (TbAbstractSubCtx<?> ctx : sharedQuery.getSubscriptions()) {
+            if (!key.equals(ctx.getSharedQueryKey())) {
+                sharedQuery.getSubscriptions().remove(ctx);
+            } else if (!validate(ctx)) {
+                sharedQuery.getSubscriptions().remove(ctx);
+                ctx.stop();
+            } else {
+                subscriptions.add(ctx);
+            }
+        }
+        if (subscriptions.isEmpty()) {
+            sharedDynamicQueries.computeIfPresent(key, (k, q) -> {
+                if (q.getSubscriptions().isEmpty()) {
+                    q.getRefreshTask().cancel(false);
+                    return null;
+                }
+                return q;
+            });
+            return;
+        }
+        TbAbstractSubCtx<?> firstCtx = subscriptions.get(0);
+        try {
+            long start = System.currentTimeMillis();
+            if (firstCtx instanceof TbAbstractDataSubCtx) {
+                PageData<EntityData> data = ((TbAbstractDataSubCtx<?>) firstCtx).findEntityData();
+                // The cached result must stay unchanged, so every subscription stores a copy of it.
+                subscriptions.forEach(ctx -> ((TbAbstractDataSubCtx<?>) ctx).update(data, true));
+                sharedQuery.setLastData(data);
+            } else if (firstCtx instanceof TbEntityCountSubCtx) {
+                long count = ((TbEntityCountSubCtx) firstCtx).countEntities();
+                subscriptions.forEach(ctx -> ((TbEntityCountSubCtx) ctx).update(count));
+                sharedQuery.setLastCount(count);
+            }
+            long end = System.currentTimeMillis();
+            log.trace("[{}] Executed query shared by {} subscriptions: {}", firstCtx.getTenantId(), subscriptions.size(), firstCtx.getQuery());
+            stats.getDynamicQueryInvocationCnt().incrementAndGet();
+            stats.getDynamicQueryTimeSpent().addAndGet(end - start);
+        } catch (Exception e) {
+            log.warn("[{}][{}] Failed to refresh shared query", firstCtx.getSessionId(), firstCtx.getCmdId(), e);
+        }
+    }
+
+    private static DynamicQueryKey toDynamicQueryKey(TbAbstractSubCtx<?> ctx) {
+        return new DynamicQueryKey(ctx.getTenantId(), ctx.getCustomerId(), ctx.getClass(), JacksonUtil.toString(ctx.getQuery()));
+    }
+
     private void refreshDynamicQuery(TbAbstractSubCtx<?> finalCtx) {
         try {
             if (validate(finalCtx)) {
@@ -360,10 +455,10 @@ public class DefaultTbEntityDataSubscriptionService implements TbEntityDataSubsc
         long dynamicQueryCnt = subscriptionsBySessionId.values().stream().mapToLong(m -> m.values().stream().filter(TbAbstractSubCtx::isDynamic).count()).sum();
         if (regularQueryInvocationCntValue > 0 || dynamicQueryInvocationCntValue > 0 || dynamicQueryCnt > 0 || alarmQueryInvocationCntValue > 0) {
             log.info("Stats: regularQueryInvocationCnt = [{}], regularQueryInvocationTime = [{}], " +
-                            "dynamicQueryCnt = [{}] dynamicQueryInvocationCnt = [{}], dynamicQueryInvocationTime = [{}], " +
+                            "dynamicQueryCnt = [{}] sharedDynamicQueryCnt = [{}] dynamicQueryInvocationCnt = [{}], dynamicQueryInvocationTime = [{}], " +
                             "alarmQueryInvocationCnt = [{}], alarmQueryInvocationTime = [{}]",
                     regularQueryInvocationCntValue, regularQueryInvocationTimeValue,
-                    dynamicQueryCnt, dynamicQueryInvocationCntValue, dynamicQueryInvocationTimeValue,
+                    dynamicQueryCnt, sharedDynamicQueries.size(), dynamicQueryInvocationCntValue, dynamicQueryInvocationTimeValue,
                     alarmQueryInvocationCntValue, alarmQueryInvocationTimeValue);
         }
     }
@@ -584,4 +679,12 @@ public class DefaultTbEntityDataSubscriptionService implements TbEntityDataSubsc
         return limit == 0 ? DEFAULT_LIMIT : limit;
     }
 
+    @Getter
+    @Setter
+    static class SharedDynamicQuery {
+        private final Set<TbAbstractSubCtx<?>> subscriptions = ConcurrentHashMap.newKeySet();
+        private volatile ScheduledFuture<?> refreshTask;
+        private volatile PageData<EntityData> lastData;
+        private volatile Long lastCount;
+    }
 }
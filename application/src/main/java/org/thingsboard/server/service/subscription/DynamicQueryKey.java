@@ -0,0 +1,34 @@
+/**
+ * Copyright © 2016-2022 The Thingsboard Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.thingsboard.server.service.subscription;
+
+import lombok.Data;
+import org.thingsboard.server.common.data.id.CustomerId;
+import org.thingsboard.server.common.data.id.TenantId;
+
+/**
+ * Fingerprint of a dynamic query: the scope the query is executed in, the kind of subscription and the query itself
+ * serialized to JSON. Subscriptions with equal keys get the same results and share a single refresh task.
+ */
+@Data
+public class DynamicQueryKey {
+
+    private final TenantId tenantId;
+    private final CustomerId customerId;
+    private final Class<?> subscriptionType;
+    private final String query;
+
+}
@@ -62,6 +62,13 @@ public abstract class TbAbstractDataSubCtx<T extends AbstractDataQuery<? extends
         this.data = findEntityData();
     }
 
+    /**
+     * Uses the latest result of a query shared with other subscriptions instead of executing the query.
+     */
+    synchronized void fetchData(PageData<EntityData> sharedData) {
+        this.data = copyOf(sharedData);
+    }
+
     protected PageData<EntityData> findEntityData() {
         PageData<EntityData> result = entityService.findEntityDataByQuery(getTenantId(), getCustomerId(), buildEntityDataQuery());
         if (log.isTraceEnabled()) {
@@ -78,8 +85,15 @@ public abstract class TbAbstractDataSubCtx<T extends AbstractDataQuery<? extends
     }
 
     @Override
-    protected synchronized void update() {
-        PageData<EntityData> newData = findEntityData();
+    protected void update() {
+        update(findEntityData(), false);
+    }
+
+    /**
+     * Applies the refreshed data. Data shared with other subscriptions is copied before it is stored,
+     * because the latest values of the stored data are updated in place by this subscription.
+     */
+    synchronized void update(PageData<EntityData> newData, boolean shared) {
         Map<EntityId, EntityData> oldDataMap;
         if (data != null && !data.getData().isEmpty()) {
             oldDataMap = data.getData().stream().collect(Collectors.toMap(EntityData::getEntityId, Function.identity(), (a, b) -> a));
@@ -90,11 +104,31 @@ public abstract class TbAbstractDataSubCtx<T extends AbstractDataQuery<? extends
         if (oldDataMap.size() == newDataMap.size() && oldDataMap.keySet().equals(newDataMap.keySet())) {
             log.trace("[{}][{}] No updates to entity data found", sessionRef.getSessionId(), cmdId);
         } else {
+            if (shared) {
+                newData = copyOf(newData);
+                newDataMap = newData.getData().stream().collect(Collectors.toMap(EntityData::getEntityId, Function.identity(), (a, b) -> a));
+            }
             this.data = newData;
             doUpdate(newDataMap);
         }
     }
 
+    private static PageData<EntityData> copyOf(PageData<EntityData> data) {
+        List<EntityData> entities = new ArrayList<>(data.getData().size());
+        for (EntityData entityData : data.getData()) {
+            Map<EntityKeyType, Map<String, TsValue>> latest = null;
+            if (entityData.getLatest() != null) {
+                latest = new HashMap<>();
+                for (Map.Entry<EntityKeyType, Map<String, TsValue>> entry : entityData.getLatest().entrySet()) {
+                    latest.put(entry.getKey(), new HashMap<>(entry.getValue()));
+                }
+            }
+            Map<String, TsValue[]> timeseries = entityData.getTimeseries() != null ? new HashMap<>(entityData.getTimeseries()) : null;
+            entities.add(new EntityData(entityData.getEntityId(), latest, timeseries));
+        }
+        return new PageData<>(entities, data.getTotalPages(), data.getTotalElements(), data.hasNext());
+    }
+
     protected abstract void doUpdate(Map<EntityId, EntityData> newDataMap);
 
     protected abstract EntityDataQuery buildEntityDataQuery();
@@ -78,6 +78,9 @@ public abstract class TbAbstractSubCtx<T extends EntityCountQuery> {
     protected T query;
     @Setter
     protected volatile ScheduledFuture<?> refreshTask;
+    @Getter
+    @Setter
+    protected volatile DynamicQueryKey sharedQueryKey;
     protected volatile boolean stopped;
 
     public TbAbstractSubCtx(String serviceId, TelemetryWebSocketService wsService,
@@ -314,6 +317,7 @@ public abstract class TbAbstractSubCtx<T extends EntityCountQuery> {
     }
 
     public void cancelTasks() {
+        this.sharedQueryKey = null;
         if (this.refreshTask != null) {
             log.trace("[{}][{}] Canceling old refresh task", sessionRef.getSessionId(), cmdId);
             this.refreshTask.cancel(true);
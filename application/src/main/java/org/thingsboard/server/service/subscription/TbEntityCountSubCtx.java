@@ -36,13 +36,25 @@ public class TbEntityCountSubCtx extends TbAbstractSubCtx<EntityCountQuery> {
 
     @Override
     public void fetchData() {
-        result = (int) entityService.countEntitiesByQuery(getTenantId(), getCustomerId(), query);
+        fetchData(countEntities());
+    }
+
+    void fetchData(long count) {
+        result = (int) count;
         sendWsMsg(new EntityCountUpdate(cmdId, result));
     }
 
+    long countEntities() {
+        return entityService.countEntitiesByQuery(getTenantId(), getCustomerId(), query);
+    }
+
     @Override
     protected void update() {
-        int newCount = (int) entityService.countEntitiesByQuery(getTenantId(), getCustomerId(), query);
+        update(countEntities());
+    }
+
+    void update(long count) {
+        int newCount = (int) count;
         if (newCount != result) {
             result = newCount;
             sendWsMsg(new EntityCountUpdate(cmdId, result));
@@ -88,11 +88,21 @@ public class DefaultAlarmSubscriptionService extends AbstractSubscriptionService
     @Override
     public Alarm createOrUpdateAlarm(Alarm alarm) {
         AlarmOperationResult result = alarmService.createOrUpdateAlarm(alarm, apiUsageStateService.getApiUsageState(alarm.getTenantId()).isAlarmCreationEnabled());
+        return onAlarmCreatedOrUpdated(alarm.getTenantId(), result);
+    }
+
+    @Override
+    public ListenableFuture<Alarm> createOrUpdateAlarmAsync(Alarm alarm) {
+        ListenableFuture<AlarmOperationResult> result = alarmService.createOrUpdateAlarmAsync(alarm, apiUsageStateService.getApiUsageState(alarm.getTenantId()).isAlarmCreationEnabled());
+        return Futures.transform(result, r -> onAlarmCreatedOrUpdated(alarm.getTenantId(), r), wsCallBackExecutor);
+    }
+
+    private Alarm onAlarmCreatedOrUpdated(TenantId tenantId, AlarmOperationResult result) {
         if (result.isSuccessful()) {
             onAlarmUpdated(result);
         }
         if (result.isCreated()) {
-            apiUsageClient.report(alarm.getTenantId(), null, ApiUsageRecordKey.CREATED_ALARMS_COUNT);
+            apiUsageClient.report(tenantId, null, ApiUsageRecordKey.CREATED_ALARMS_COUNT);
         }
         return result.getAlarm();
     }
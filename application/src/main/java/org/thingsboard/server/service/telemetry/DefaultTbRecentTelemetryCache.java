@@ -0,0 +1,194 @@
+/**
+ * Copyright © 2016-2022 The Thingsboard Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.thingsboard.server.service.telemetry;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.google.common.util.concurrent.FutureCallback;
+import com.google.common.util.concurrent.Futures;
+import com.google.common.util.concurrent.MoreExecutors;
+import lombok.Data;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.thingsboard.server.common.data.id.EntityId;
+import org.thingsboard.server.common.data.id.TenantId;
+import org.thingsboard.server.common.data.kv.ReadTsKvQuery;
+import org.thingsboard.server.common.data.kv.TsKvEntry;
+import org.thingsboard.server.common.stats.DefaultCounter;
+import org.thingsboard.server.common.stats.StatsFactory;
+import org.thingsboard.server.dao.timeseries.TimeseriesService;
+
+import javax.annotation.Nullable;
+import javax.annotation.PostConstruct;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.stream.Collectors;
+
+/**
+ * Keeps a ring of the most recent samples per entity and key, fed by the telemetry service once the samples are saved.
+ * A new buffer answers reads only after the latest saved value of its key is loaded from the database: samples newer
+ * than that value, or at least as new as the batch that created the buffer, are known to be complete.
+ * Least recently used keys are evicted when the estimated size of all buffers exceeds the memory budget.
+ */
+@Service
+@Slf4j
+public class DefaultTbRecentTelemetryCache implements TbRecentTelemetryCache {
+
+    private static final String STATS_NAME = "recentTelemetry.cache";
+
+    @Value("${cache.recentTelemetry.enabled:true}")
+    private boolean enabled;
+
+    @Value("${cache.recentTelemetry.maxSamplesPerKey:1000}")
+    private int maxSamplesPerKey;
+
+    @Value("${cache.recentTelemetry.maxSizeInBytes:67108864}")
+    private long maxSizeInBytes;
+
+    private final TimeseriesService tsService;
+    private final DefaultCounter hitCounter;
+    private final DefaultCounter missCounter;
+    private Cache<RecentTelemetryKey, RecentTelemetryBuffer> buffers;
+
+    public DefaultTbRecentTelemetryCache(TimeseriesService tsService, StatsFactory statsFactory) {
+        this.tsService = tsService;
+        this.hitCounter = statsFactory.createDefaultCounter(STATS_NAME, "result", "hit");
+        this.missCounter = statsFactory.createDefaultCounter(STATS_NAME, "result", "miss");
+    }
+
+    @PostConstruct
+    public void init() {
+        buffers = Caffeine.newBuilder()
+                .maximumWeight(maxSizeInBytes)
+                .weigher((RecentTelemetryKey key, RecentTelemetryBuffer buffer) -> (int) Math.min(Integer.MAX_VALUE, buffer.getSizeInBytes()))
+                .build();
+        if (enabled) {
+            log.info("Recent telemetry cache keeps up to {} samples per key within {} bytes", maxSamplesPerKey, maxSizeInBytes);
+        }
+    }
+
+    @Override
+    public void put(TenantId tenantId, EntityId entityId, List<TsKvEntry> ts) {
+        if (!enabled || ts == null || ts.isEmpty()) {
+            return;
+        }
+        Map<String, List<TsKvEntry>> samplesByKey = new HashMap<>();
+        for (TsKvEntry entry : ts) {
+            samplesByKey.computeIfAbsent(entry.getKey(), key -> new ArrayList<>()).add(entry);
+        }
+        Map<String, RecentTelemetryBuffer> created = new HashMap<>();
+        samplesByKey.forEach((key, samples) ->
+                // Recomputing the entry makes the cache take the new size of the buffer into account.
+                buffers.asMap().compute(new RecentTelemetryKey(entityId, key), (cacheKey, buffer) -> {
+                    if (buffer == null) {
+                        buffer = new RecentTelemetryBuffer(maxSamplesPerKey);
+                        created.put(key, buffer);
+                    }
+                    for (TsKvEntry sample : samples) {
+                        buffer.add(sample);
+                    }
+                    return buffer;
+                }));
+        if (!created.isEmpty()) {
+            Map<String, Long> batchMaxTs = created.keySet().stream().collect(Collectors.toMap(key -> key,
+                    key -> samplesByKey.get(key).stream().mapToLong(TsKvEntry::getTs).max().orElse(Long.MAX_VALUE)));
+            seed(tenantId, entityId, created, batchMaxTs);
+        }
+    }
+
+    private void seed(TenantId tenantId, EntityId entityId, Map<String, RecentTelemetryBuffer> created, Map<String, Long> batchMaxTs) {
+        Futures.addCallback(tsService.findLatest(tenantId, entityId, created.keySet()), new FutureCallback<List<TsKvEntry>>() {
+            @Override
+            public void onSuccess(@Nullable List<TsKvEntry> latest) {
+                Map<String, Long> latestTs = new HashMap<>();
+                if (latest != null) {
+                    // Keys without a saved value come back as a null string stamped with the current time.
+                    latest.stream().filter(entry -> entry.getValue() != null)
+                            .forEach(entry -> latestTs.put(entry.getKey(), entry.getTs()));
+                }
+                created.forEach((key, buffer) -> {
+                    long maxTs = batchMaxTs.get(key);
+                    Long savedTs = latestTs.get(key);
+                    // Older samples saved before the buffer was created are only in the database.
+                    long coveredSinceTs = savedTs != null && savedTs > maxTs ? savedTs + 1 : maxTs;
+                    buffers.asMap().computeIfPresent(new RecentTelemetryKey(entityId, key), (cacheKey, current) -> {
+                        if (current == buffer) {
+                            current.seed(coveredSinceTs);
+                        }
+                        return current;
+                    });
+                });
+            }
+
+            @Override
+            public void onFailure(Throwable t) {
+                log.debug("[{}] Failed to load the latest telemetry of keys {}", entityId, created.keySet(), t);
+                created.forEach((key, buffer) -> buffers.asMap().remove(new RecentTelemetryKey(entityId, key), buffer));
+            }
+        }, MoreExecutors.directExecutor());
+    }
+
+    @Override
+    public void evict(EntityId entityId, List<String> keys) {
+        if (keys != null) {
+            keys.forEach(key -> buffers.invalidate(new RecentTelemetryKey(entityId, key)));
+        }
+    }
+
+    @Override
+    public Optional<List<TsKvEntry>> findAll(EntityId entityId, List<ReadTsKvQuery> queries) {
+        if (!enabled) {
+            return Optional.empty();
+        }
+        List<TsKvEntry> result = new ArrayList<>();
+        for (ReadTsKvQuery query : queries) {
+            RecentTelemetryBuffer buffer = buffers.getIfPresent(new RecentTelemetryKey(entityId, query.getKey()));
+            List<TsKvEntry> samples = buffer != null ? buffer.find(query) : null;
+            if (samples == null) {
+                missCounter.increment();
+                return Optional.empty();
+            }
+            result.addAll(samples);
+        }
+        hitCounter.increment();
+        return Optional.of(result);
+    }
+
+    @Override
+    public Optional<TsKvEntry> findLatest(EntityId entityId, String key) {
+        if (!enabled) {
+            return Optional.empty();
+        }
+        RecentTelemetryBuffer buffer = buffers.getIfPresent(new RecentTelemetryKey(entityId, key));
+        TsKvEntry latest = buffer != null ? buffer.getLatest() : null;
+        if (latest == null) {
+            missCounter.increment();
+            return Optional.empty();
+        }
+        hitCounter.increment();
+        return Optional.of(latest);
+    }
+
+    @Data
+    private static class RecentTelemetryKey {
+        private final EntityId entityId;
+        private final String key;
+    }
+}
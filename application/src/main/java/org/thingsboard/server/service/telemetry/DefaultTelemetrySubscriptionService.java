@@ -65,6 +65,7 @@ import java.util.Objects;
 import java.util.Optional;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
+import java.util.stream.Collectors;
 
 /**
  * Created by ashvayka on 27.03.18.
@@ -78,6 +79,7 @@ public class DefaultTelemetrySubscriptionService extends AbstractSubscriptionSer
     private final TbEntityViewService tbEntityViewService;
     private final TbApiUsageClient apiUsageClient;
     private final TbApiUsageStateService apiUsageStateService;
+    private final TbRecentTelemetryCache recentTelemetryCache;
 
     private ExecutorService tsCallBackExecutor;
 
@@ -87,13 +89,15 @@ public class DefaultTelemetrySubscriptionService extends AbstractSubscriptionSer
                                                TbClusterService clusterService,
                                                PartitionService partitionService,
                                                TbApiUsageClient apiUsageClient,
-                                               TbApiUsageStateService apiUsageStateService) {
+                                               TbApiUsageStateService apiUsageStateService,
+                                               TbRecentTelemetryCache recentTelemetryCache) {
         super(clusterService, partitionService);
         this.attrService = attrService;
         this.tsService = tsService;
         this.tbEntityViewService = tbEntityViewService;
         this.apiUsageClient = apiUsageClient;
         this.apiUsageStateService = apiUsageStateService;
+        this.recentTelemetryCache = recentTelemetryCache;
     }
 
     @PostConstruct
@@ -178,6 +182,8 @@ public class DefaultTelemetrySubscriptionService extends AbstractSubscriptionSer
     }
 
     private void addCallbacks(TenantId tenantId, EntityId entityId, List<TsKvEntry> ts, FutureCallback<Integer> callback, ListenableFuture<Integer> saveFuture) {
+        // Registered before the main callback, so the next rule nodes already read the saved values from the cache.
+        addRecentTelemetryCallback(saveFuture, tenantId, entityId, ts);
         addMainCallback(saveFuture, callback);
         addWsCallback(saveFuture, success -> onTimeSeriesUpdate(tenantId, entityId, ts));
         if (EntityType.DEVICE.equals(entityId.getEntityType()) || EntityType.ASSET.equals(entityId.getEntityType())) {
@@ -303,7 +309,11 @@ public class DefaultTelemetrySubscriptionService extends AbstractSubscriptionSer
 
     @Override
     public void deleteTimeseriesAndNotify(TenantId tenantId, EntityId entityId, List<String> keys, List<DeleteTsKvQuery> deleteTsKvQueries, FutureCallback<Void> callback) {
+        List<String> deletedKeys = deleteTsKvQueries.stream().map(DeleteTsKvQuery::getKey).distinct().collect(Collectors.toList());
+        recentTelemetryCache.evict(entityId, deletedKeys);
         ListenableFuture<List<TsKvLatestRemovingResult>> deleteFuture = tsService.remove(tenantId, entityId, deleteTsKvQueries);
+        // Values saved while the removal was in progress may have been removed as well.
+        deleteFuture.addListener(() -> recentTelemetryCache.evict(entityId, deletedKeys), tsCallBackExecutor);
         addVoidCallback(deleteFuture, callback);
         addWsCallback(deleteFuture, list -> onTimeSeriesDelete(tenantId, entityId, keys, list));
     }
@@ -416,6 +426,19 @@ public class DefaultTelemetrySubscriptionService extends AbstractSubscriptionSer
         }, tsCallBackExecutor);
     }
 
+    private void addRecentTelemetryCallback(ListenableFuture<Integer> saveFuture, TenantId tenantId, EntityId entityId, List<TsKvEntry> ts) {
+        Futures.addCallback(saveFuture, new FutureCallback<Integer>() {
+            @Override
+            public void onSuccess(@Nullable Integer result) {
+                recentTelemetryCache.put(tenantId, entityId, ts);
+            }
+
+            @Override
+            public void onFailure(Throwable t) {
+            }
+        }, tsCallBackExecutor);
+    }
+
     private <S> void addMainCallback(ListenableFuture<S> saveFuture, final FutureCallback<S> callback) {
         Futures.addCallback(saveFuture, new FutureCallback<S>() {
             @Override
@@ -0,0 +1,278 @@
+/**
+ * Copyright © 2016-2022 The Thingsboard Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.thingsboard.server.service.telemetry;
+
+import org.thingsboard.server.common.data.kv.Aggregation;
+import org.thingsboard.server.common.data.kv.BasicTsKvEntry;
+import org.thingsboard.server.common.data.kv.DoubleDataEntry;
+import org.thingsboard.server.common.data.kv.KvEntry;
+import org.thingsboard.server.common.data.kv.LongDataEntry;
+import org.thingsboard.server.common.data.kv.ReadTsKvQuery;
+import org.thingsboard.server.common.data.kv.StringDataEntry;
+import org.thingsboard.server.common.data.kv.TsKvEntry;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Samples of one entity key ordered by ts in a fixed size ring. Every sample saved with ts >= coveredSinceTs since
+ * the buffer was created is present, so reads that start within the covered range are answered without the database.
+ * When the ring is full the oldest sample is dropped and the covered range shrinks accordingly.
+ * An unseeded buffer records samples but answers no reads until {@link #seed(long)} tells it which range is complete.
+ */
+class RecentTelemetryBuffer {
+
+    private static final long BUFFER_OVERHEAD_IN_BYTES = 96;
+    private static final long SAMPLE_OVERHEAD_IN_BYTES = 80;
+
+    private final TsKvEntry[] samples;
+    private int head;
+    private int size;
+    private long coveredSinceTs;
+    private long sizeInBytes;
+    private boolean seeded;
+
+    RecentTelemetryBuffer(int capacity) {
+        this(capacity, Long.MIN_VALUE);
+        this.seeded = false;
+    }
+
+    RecentTelemetryBuffer(int capacity, long coveredSinceTs) {
+        this.samples = new TsKvEntry[capacity];
+        this.coveredSinceTs = coveredSinceTs;
+        this.sizeInBytes = BUFFER_OVERHEAD_IN_BYTES + 8L * capacity;
+        this.seeded = true;
+    }
+
+    /**
+     * Marks every sample with ts >= coveredSinceTs as present and drops the older ones.
+     */
+    synchronized void seed(long coveredSinceTs) {
+        this.coveredSinceTs = Math.max(this.coveredSinceTs, coveredSinceTs);
+        while (size > 0 && get(0).getTs() < this.coveredSinceTs) {
+            dropOldest();
+        }
+        seeded = true;
+    }
+
+    synchronized boolean isSeeded() {
+        return seeded;
+    }
+
+    synchronized long getSizeInBytes() {
+        return sizeInBytes;
+    }
+
+    synchronized void add(TsKvEntry sample) {
+        long ts = sample.getTs();
+        if (ts < coveredSinceTs) {
+            return;
+        }
+        int idx = lowerBound(ts);
+        if (idx < size && get(idx).getTs() == ts) {
+            sizeInBytes += estimateSize(sample) - estimateSize(get(idx));
+            set(idx, sample);
+            return;
+        }
+        if (size == samples.length) {
+            removeOldest();
+            if (ts < coveredSinceTs) {
+                return;
+            }
+            idx--;
+        }
+        for (int i = size; i > idx; i--) {
+            set(i, get(i - 1));
+        }
+        set(idx, sample);
+        size++;
+        sizeInBytes += estimateSize(sample);
+    }
+
+    synchronized TsKvEntry getLatest() {
+        return seeded && size > 0 ? get(size - 1) : null;
+    }
+
+    /**
+     * Returns null when the buffered samples are not enough to answer the query exactly.
+     */
+    synchronized List<TsKvEntry> find(ReadTsKvQuery query) {
+        if (!seeded) {
+            return null;
+        }
+        if (Aggregation.NONE.equals(query.getAggregation())) {
+            return findSamples(query);
+        }
+        if (query.getStartTs() < coveredSinceTs) {
+            return null;
+        }
+        return aggregate(query);
+    }
+
+    private List<TsKvEntry> findSamples(ReadTsKvQuery query) {
+        int from = lowerBound(query.getStartTs());
+        int to = lowerBound(query.getEndTs());
+        int limit = query.getLimit();
+        boolean desc = "DESC".equalsIgnoreCase(query.getOrder());
+        // The newest samples of a window that starts before the covered range are still exact for DESC reads.
+        if (query.getStartTs() < coveredSinceTs && !(desc && to - from >= limit)) {
+            return null;
+        }
+        int count = Math.min(to - from, limit);
+        if (count <= 0) {
+            return Collections.emptyList();
+        }
+        List<TsKvEntry> result = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            result.add(get(desc ? to - 1 - i : from + i));
+        }
+        return result;
+    }
+
+    private List<TsKvEntry> aggregate(ReadTsKvQuery query) {
+        List<TsKvEntry> result = new ArrayList<>();
+        long endTs = query.getEndTs() + 1;
+        for (long startTs = query.getStartTs(); startTs < endTs; startTs += query.getInterval()) {
+            long intervalEndTs = Math.min(startTs + query.getInterval(), endTs);
+            int from = lowerBound(startTs);
+            int to = lowerBound(intervalEndTs);
+            if (from < to) {
+                KvEntry value = aggregate(query.getKey(), query.getAggregation(), from, to);
+                if (value != null) {
+                    result.add(new BasicTsKvEntry(startTs + (intervalEndTs - startTs) / 2, value));
+                }
+            }
+        }
+        return result;
+    }
+
+    private KvEntry aggregate(String key, Aggregation aggregation, int from, int to) {
+        long boolCount = 0;
+        long strCount = 0;
+        long jsonCount = 0;
+        long longCount = 0;
+        long doubleCount = 0;
+        long longSum = 0;
+        double doubleSum = 0.0;
+        long longMin = Long.MAX_VALUE;
+        long longMax = Long.MIN_VALUE;
+        double doubleMin = Double.MAX_VALUE;
+        double doubleMax = -Double.MAX_VALUE;
+        String strMin = null;
+        String strMax = null;
+        for (int i = from; i < to; i++) {
+            TsKvEntry sample = get(i);
+            switch (sample.getDataType()) {
+                case BOOLEAN:
+                    boolCount++;
+                    break;
+                case STRING:
+                    strCount++;
+                    String str = sample.getStrValue().orElse("");
+                    strMin = strMin == null || str.compareTo(strMin) < 0 ? str : strMin;
+                    strMax = strMax == null || str.compareTo(strMax) > 0 ? str : strMax;
+                    break;
+                case JSON:
+                    jsonCount++;
+                    break;
+                case LONG:
+                    long longValue = sample.getLongValue().orElse(0L);
+                    longCount++;
+                    longSum += longValue;
+                    longMin = Math.min(longMin, longValue);
+                    longMax = Math.max(longMax, longValue);
+                    break;
+                case DOUBLE:
+                    double doubleValue = sample.getDoubleValue().orElse(0.0);
+                    doubleCount++;
+                    doubleSum += doubleValue;
+                    doubleMin = Math.min(doubleMin, doubleValue);
+                    doubleMax = Math.max(doubleMax, doubleValue);
+                    break;
+            }
+        }
+        // Same rules as the aggregation of the timeseries DAO.
+        switch (aggregation) {
+            case COUNT:
+                long count = boolCount != 0 ? boolCount : strCount != 0 ? strCount : jsonCount != 0 ? jsonCount : longCount + doubleCount;
+                return new LongDataEntry(key, count);
+            case MIN:
+            case MAX:
+                boolean max = Aggregation.MAX.equals(aggregation);
+                if (strCount > 0) {
+                    return new StringDataEntry(key, max ? strMax : strMin);
+                } else if (longCount > 0 && doubleCount > 0) {
+                    return new DoubleDataEntry(key, max ? Math.max(doubleMax, longMax) : Math.min(doubleMin, longMin));
+                } else if (doubleCount > 0) {
+                    return new DoubleDataEntry(key, max ? doubleMax : doubleMin);
+                } else if (longCount > 0) {
+                    return new LongDataEntry(key, max ? longMax : longMin);
+                }
+                return null;
+            case SUM:
+                return doubleCount > 0 ? new DoubleDataEntry(key, doubleSum + longSum) : new LongDataEntry(key, longSum);
+            case AVG:
+                long totalCount = longCount + doubleCount;
+                return new DoubleDataEntry(key, totalCount > 0 ? (doubleSum + longSum) / totalCount : 0.0);
+            default:
+                return null;
+        }
+    }
+
+    private void removeOldest() {
+        coveredSinceTs = get(0).getTs() + 1;
+        dropOldest();
+    }
+
+    private void dropOldest() {
+        sizeInBytes -= estimateSize(get(0));
+        samples[head] = null;
+        head = (head + 1) % samples.length;
+        size--;
+    }
+
+    private int lowerBound(long ts) {
+        int low = 0;
+        int high = size;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (get(mid).getTs() < ts) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    private TsKvEntry get(int idx) {
+        return samples[(head + idx) % samples.length];
+    }
+
+    private void set(int idx, TsKvEntry sample) {
+        samples[(head + idx) % samples.length] = sample;
+    }
+
+    private static long estimateSize(TsKvEntry sample) {
+        long size = SAMPLE_OVERHEAD_IN_BYTES + 2L * sample.getKey().length();
+        String str = sample.getStrValue().orElse(null);
+        if (str == null) {
+            str = sample.getJsonValue().orElse(null);
+        }
+        return str != null ? size + 2L * str.length() : size;
+    }
+}
@@ -0,0 +1,221 @@
+/**
+ * Copyright © 2016-2022 The Thingsboard Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.thingsboard.server.actors.ruleChain;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.thingsboard.common.util.JacksonUtil;
+import org.thingsboard.rule.engine.action.TbLogNode;
+import org.thingsboard.rule.engine.action.TbLogNodeConfiguration;
+import org.thingsboard.rule.engine.filter.TbMsgTypeFilterNode;
+import org.thingsboard.rule.engine.filter.TbMsgTypeFilterNodeConfiguration;
+import org.thingsboard.rule.engine.transform.TbRenameKeysNode;
+import org.thingsboard.rule.engine.transform.TbRenameKeysNodeConfiguration;
+import org.thingsboard.server.actors.ActorSystemContext;
+import org.thingsboard.server.actors.TbActorCtx;
+import org.thingsboard.server.actors.TbActorRef;
+import org.thingsboard.server.actors.TbEntityActorId;
+import org.thingsboard.server.common.data.TenantProfile;
+import org.thingsboard.server.common.data.id.DeviceId;
+import org.thingsboard.server.common.data.id.RuleChainId;
+import org.thingsboard.server.common.data.id.RuleNodeId;
+import org.thingsboard.server.common.data.id.TenantId;
+import org.thingsboard.server.common.data.relation.EntityRelation;
+import org.thingsboard.server.common.data.rule.RuleChain;
+import org.thingsboard.server.common.data.rule.RuleChainType;
+import org.thingsboard.server.common.data.rule.RuleNode;
+import org.thingsboard.server.common.data.tenant.profile.DefaultTenantProfileConfiguration;
+import org.thingsboard.server.common.data.tenant.profile.TenantProfileData;
+import org.thingsboard.server.common.msg.TbActorMsg;
+import org.thingsboard.server.common.msg.TbMsg;
+import org.thingsboard.server.common.msg.TbMsgMetaData;
+import org.thingsboard.server.common.msg.queue.QueueToRuleEngineMsg;
+import org.thingsboard.server.common.msg.queue.RuleEngineException;
+import org.thingsboard.server.common.msg.queue.ServiceType;
+import org.thingsboard.server.common.msg.queue.TbMsgCallback;
+import org.thingsboard.server.common.msg.queue.TopicPartitionInfo;
+import org.thingsboard.server.common.msg.session.SessionMsgType;
+import org.thingsboard.server.dao.rule.RuleChainService;
+import org.thingsboard.server.dao.tenant.TbTenantProfileCache;
+import org.thingsboard.server.queue.usagestats.TbApiUsageClient;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.BDDMockito.willAnswer;
+import static org.mockito.BDDMockito.willReturn;
+import static org.mockito.BDDMockito.willThrow;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
+
+class RuleChainActorMessageProcessorTest {
+
+    TenantId tenantId = TenantId.fromUUID(UUID.randomUUID());
+    RuleChain ruleChain;
+    RuleChainService ruleChainService;
+    ActorSystemContext systemContext;
+    TbApiUsageClient apiUsageClient;
+    TbActorRef self;
+    TbActorCtx actorCtx;
+    Map<RuleNodeId, TbActorRef> nodeActors;
+    TbMsgCallback callback;
+
+    @BeforeEach
+    void setUp() {
+        ruleChain = new RuleChain(new RuleChainId(UUID.randomUUID()));
+        ruleChain.setTenantId(tenantId);
+        ruleChain.setName("Root Rule Chain");
+        ruleChain.setType(RuleChainType.CORE);
+
+        ruleChainService = mock(RuleChainService.class);
+        willReturn(ruleChain).given(ruleChainService).findRuleChainById(tenantId, ruleChain.getId());
+
+        DefaultTenantProfileConfiguration configuration = new DefaultTenantProfileConfiguration();
+        configuration.setMaxRuleNodeExecutionsPerMessage(0);
+        TenantProfileData profileData = new TenantProfileData();
+        profileData.setConfiguration(configuration);
+        TenantProfile tenantProfile = new TenantProfile();
+        tenantProfile.setProfileData(profileData);
+        TbTenantProfileCache tenantProfileCache = mock(TbTenantProfileCache.class);
+        willReturn(tenantProfile).given(tenantProfileCache).get(tenantId);
+
+        apiUsageClient = mock(TbApiUsageClient.class);
+        systemContext = mock(ActorSystemContext.class);
+        willReturn(ruleChainService).given(systemContext).getRuleChainService();
+        willReturn(tenantProfileCache).given(systemContext).getTenantProfileCache();
+        willReturn(apiUsageClient).given(systemContext).getApiUsageClient();
+        willReturn(true).given(systemContext).isRuleChainFusedExecutionEnabled();
+        willReturn(new TopicPartitionInfo("tb_rule_engine", tenantId, 0, true))
+                .given(systemContext).resolve(eq(ServiceType.TB_RULE_ENGINE), any(), any(), any());
+
+        self = mock(TbActorRef.class);
+        nodeActors = new HashMap<>();
+        actorCtx = mock(TbActorCtx.class);
+        willAnswer(invocation -> nodeActors.computeIfAbsent((RuleNodeId) ((TbEntityActorId) invocation.getArgument(0)).getEntityId(), id -> mock(TbActorRef.class)))
+                .given(actorCtx).getOrCreateChildActor(any(), any(), any());
+
+        callback = mock(TbMsgCallback.class);
+        willReturn(true).given(callback).isMsgValid();
+    }
+
+    @Test
+    void givenFusibleNodes_whenMsgProcessed_thenChainedInlineAndPassedToMailboxOfNotFusibleNode() {
+        RuleNode filter = filterNode();
+        RuleNode renameKeys = ruleNode(TbRenameKeysNode.class.getName(), JacksonUtil.valueToTree(new TbRenameKeysNodeConfiguration().defaultConfiguration()));
+        RuleNode log = ruleNode(TbLogNode.class.getName(), JacksonUtil.valueToTree(new TbLogNodeConfiguration().defaultConfiguration()));
+        relate(filter, renameKeys, "True");
+        relate(renameKeys, log, "Success");
+        relate(log, null, null);
+        RuleChainActorMessageProcessor processor = start(filter, renameKeys, log);
+
+        processor.onQueueToRuleEngineMsg(new QueueToRuleEngineMsg(tenantId, newMsg(), null, null));
+
+        verifyNoInteractions(nodeActors.get(filter.getId()), nodeActors.get(renameKeys.getId()));
+        ArgumentCaptor<TbActorMsg> captor = ArgumentCaptor.forClass(TbActorMsg.class);
+        verify(nodeActors.get(log.getId())).tell(captor.capture());
+        assertThat(captor.getValue()).isInstanceOf(RuleChainToRuleNodeMsg.class);
+        assertThat(((RuleChainToRuleNodeMsg) captor.getValue()).getFromRelationType()).isEqualTo("Success");
+        verify(self, never()).tell(any());
+        verify(apiUsageClient, times(2)).report(any(), any(), any());
+    }
+
+    @Test
+    void givenResultPassedOnFromOtherThread_whenFused_thenRoutedThroughMailboxOfChain() throws Exception {
+        RuleNode filter = filterNode();
+        relate(filter, null, null);
+        RuleChainActorMessageProcessor processor = start(filter);
+        TbActorRef fusedChainActor = (TbActorRef) ReflectionTestUtils.getField(processor, "fusedChainActor");
+        RuleNodeToRuleChainTellNextMsg tellNext = new RuleNodeToRuleChainTellNextMsg(ruleChain.getId(), filter.getId(),
+                Collections.singleton("True"), newMsg(), null);
+
+        Thread thread = new Thread(() -> fusedChainActor.tell(tellNext));
+        thread.start();
+        thread.join();
+
+        verify(self).tell(tellNext);
+    }
+
+    @Test
+    void givenFusedLoop_whenStepCapReached_thenMsgPassedToMailboxOfNode() {
+        RuleNode filter = filterNode();
+        relate(filter, filter, "True");
+        RuleChainActorMessageProcessor processor = start(filter);
+
+        processor.onQueueToRuleEngineMsg(new QueueToRuleEngineMsg(tenantId, newMsg(), null, null));
+
+        // every inline execution takes two steps: running the node and routing its result
+        verify(apiUsageClient, times(500)).report(any(), any(), any());
+        verify(nodeActors.get(filter.getId())).tell(any(RuleChainToRuleNodeMsg.class));
+    }
+
+    @Test
+    void givenFusedNodeThrows_whenMsgProcessed_thenMsgCallbackFailed() {
+        RuleNode filter = filterNode();
+        relate(filter, null, null);
+        RuleChainActorMessageProcessor processor = start(filter);
+        willThrow(new RuntimeException("Usage stats are not available")).given(apiUsageClient).report(any(), any(), any());
+
+        processor.onQueueToRuleEngineMsg(new QueueToRuleEngineMsg(tenantId, newMsg(), null, null));
+
+        verify(callback).onFailure(any(RuleEngineException.class));
+        verify(callback, never()).onSuccess();
+        verifyNoInteractions(nodeActors.get(filter.getId()));
+    }
+
+    private RuleChainActorMessageProcessor start(RuleNode... ruleNodes) {
+        ruleChain.setFirstRuleNodeId(ruleNodes[0].getId());
+        willReturn(List.of(ruleNodes)).given(ruleChainService).getRuleChainNodes(tenantId, ruleChain.getId());
+        RuleChainActorMessageProcessor processor = new RuleChainActorMessageProcessor(tenantId, ruleChain, systemContext, mock(TbActorRef.class), self);
+        processor.start(actorCtx);
+        return processor;
+    }
+
+    private void relate(RuleNode from, RuleNode to, String type) {
+        List<EntityRelation> relations = to != null
+                ? Collections.singletonList(new EntityRelation(from.getId(), to.getId(), type))
+                : Collections.emptyList();
+        willReturn(relations).given(ruleChainService).getRuleNodeRelations(TenantId.SYS_TENANT_ID, from.getId());
+    }
+
+    private TbMsg newMsg() {
+        return TbMsg.newMsg(SessionMsgType.POST_TELEMETRY_REQUEST.name(), new DeviceId(UUID.randomUUID()), new TbMsgMetaData(), "{\"temp\":42}", callback);
+    }
+
+    private RuleNode filterNode() {
+        return ruleNode(TbMsgTypeFilterNode.class.getName(), JacksonUtil.valueToTree(new TbMsgTypeFilterNodeConfiguration().defaultConfiguration()));
+    }
+
+    private RuleNode ruleNode(String type, JsonNode configuration) {
+        RuleNode ruleNode = new RuleNode(new RuleNodeId(UUID.randomUUID()));
+        ruleNode.setRuleChainId(ruleChain.getId());
+        ruleNode.setName(type.substring(type.lastIndexOf('.') + 1));
+        ruleNode.setType(type);
+        ruleNode.setConfiguration(configuration);
+        return ruleNode;
+    }
+}
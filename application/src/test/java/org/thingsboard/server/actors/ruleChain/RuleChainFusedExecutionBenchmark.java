@@ -0,0 +1,196 @@
+/**
+ * Copyright © 2016-2022 The Thingsboard Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.thingsboard.server.actors.ruleChain;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.thingsboard.common.util.JacksonUtil;
+import org.thingsboard.common.util.ThingsBoardExecutors;
+import org.thingsboard.rule.engine.filter.TbMsgTypeFilterNode;
+import org.thingsboard.rule.engine.filter.TbMsgTypeFilterNodeConfiguration;
+import org.thingsboard.rule.engine.transform.TbRenameKeysNode;
+import org.thingsboard.rule.engine.transform.TbRenameKeysNodeConfiguration;
+import org.thingsboard.server.actors.ActorSystemContext;
+import org.thingsboard.server.actors.DefaultTbActorSystem;
+import org.thingsboard.server.actors.TbActorRef;
+import org.thingsboard.server.actors.TbActorSystem;
+import org.thingsboard.server.actors.TbActorSystemSettings;
+import org.thingsboard.server.actors.service.DefaultActorService;
+import org.thingsboard.server.common.data.TenantProfile;
+import org.thingsboard.server.common.data.id.DeviceId;
+import org.thingsboard.server.common.data.id.RuleChainId;
+import org.thingsboard.server.common.data.id.RuleNodeId;
+import org.thingsboard.server.common.data.id.TenantId;
+import org.thingsboard.server.common.data.relation.EntityRelation;
+import org.thingsboard.server.common.data.rule.RuleChain;
+import org.thingsboard.server.common.data.rule.RuleChainType;
+import org.thingsboard.server.common.data.rule.RuleNode;
+import org.thingsboard.server.common.data.tenant.profile.DefaultTenantProfileConfiguration;
+import org.thingsboard.server.common.data.tenant.profile.TenantProfileData;
+import org.thingsboard.server.common.msg.TbMsg;
+import org.thingsboard.server.common.msg.TbMsgMetaData;
+import org.thingsboard.server.common.msg.queue.QueueToRuleEngineMsg;
+import org.thingsboard.server.common.msg.queue.RuleEngineException;
+import org.thingsboard.server.common.msg.queue.ServiceType;
+import org.thingsboard.server.common.msg.queue.TbMsgCallback;
+import org.thingsboard.server.common.msg.queue.TopicPartitionInfo;
+import org.thingsboard.server.common.msg.session.SessionMsgType;
+import org.thingsboard.server.dao.rule.RuleChainService;
+import org.thingsboard.server.dao.tenant.TbTenantProfileCache;
+import org.thingsboard.server.queue.usagestats.TbApiUsageClient;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.BDDMockito.willReturn;
+import static org.mockito.Mockito.mock;
+
+/**
+ * Measures the throughput of a chain of 10 filter and transformation nodes when every node is reached through
+ * its mailbox and when the chain actor runs the nodes inline.
+ * Not part of the regular test run; start it manually and compare the reported rates.
+ */
+@Slf4j
+class RuleChainFusedExecutionBenchmark {
+
+    static final int NODES = 10;
+    static final int MESSAGES = 200000;
+    static final String DATA = "{\"temp\":42,\"humidity\":73}";
+
+    TenantId tenantId = TenantId.fromUUID(UUID.randomUUID());
+    RuleChain ruleChain;
+    List<RuleNode> ruleNodes;
+    ActorSystemContext systemContext;
+    TbActorSystem actorSystem;
+    ExecutorService executor;
+
+    @BeforeEach
+    void setUp() {
+        ruleChain = new RuleChain(new RuleChainId(UUID.randomUUID()));
+        ruleChain.setTenantId(tenantId);
+        ruleChain.setName("Benchmark Rule Chain");
+        ruleChain.setType(RuleChainType.CORE);
+
+        RuleChainService ruleChainService = mock(RuleChainService.class);
+        ruleNodes = new ArrayList<>();
+        for (int i = 0; i < NODES; i++) {
+            ruleNodes.add(i % 2 == 0 ? filterNode() : renameKeysNode());
+        }
+        for (int i = 0; i < NODES; i++) {
+            RuleNode ruleNode = ruleNodes.get(i);
+            List<EntityRelation> relations = i < NODES - 1
+                    ? Collections.singletonList(new EntityRelation(ruleNode.getId(), ruleNodes.get(i + 1).getId(), i % 2 == 0 ? "True" : "Success"))
+                    : Collections.emptyList();
+            willReturn(ruleNode).given(ruleChainService).findRuleNodeById(tenantId, ruleNode.getId());
+            willReturn(relations).given(ruleChainService).getRuleNodeRelations(TenantId.SYS_TENANT_ID, ruleNode.getId());
+        }
+        ruleChain.setFirstRuleNodeId(ruleNodes.get(0).getId());
+        willReturn(ruleChain).given(ruleChainService).findRuleChainById(tenantId, ruleChain.getId());
+        willReturn(ruleNodes).given(ruleChainService).getRuleChainNodes(tenantId, ruleChain.getId());
+
+        TenantProfileData profileData = new TenantProfileData();
+        profileData.setConfiguration(new DefaultTenantProfileConfiguration());
+        TenantProfile tenantProfile = new TenantProfile();
+        tenantProfile.setProfileData(profileData);
+        TbTenantProfileCache tenantProfileCache = mock(TbTenantProfileCache.class);
+        willReturn(tenantProfile).given(tenantProfileCache).get(tenantId);
+
+        systemContext = mock(ActorSystemContext.class);
+        willReturn(ruleChainService).given(systemContext).getRuleChainService();
+        willReturn(tenantProfileCache).given(systemContext).getTenantProfileCache();
+        willReturn(mock(TbApiUsageClient.class)).given(systemContext).getApiUsageClient();
+        willReturn(new TopicPartitionInfo("tb_rule_engine", tenantId, 0, true))
+                .given(systemContext).resolve(eq(ServiceType.TB_RULE_ENGINE), any(), any(), any());
+
+        int parallelism = Math.max(2, Runtime.getRuntime().availableProcessors() / 2);
+        actorSystem = new DefaultTbActorSystem(new TbActorSystemSettings(5, parallelism, 42));
+        executor = ThingsBoardExecutors.newWorkStealingPool(parallelism, getClass());
+        actorSystem.createDispatcher(DefaultActorService.RULE_DISPATCHER_NAME, executor);
+    }
+
+    @AfterEach
+    void tearDown() {
+        actorSystem.stop();
+        executor.shutdownNow();
+    }
+
+    @Test
+    void processThroughMailboxes() throws Exception {
+        benchmark(false);
+    }
+
+    @Test
+    void processInline() throws Exception {
+        benchmark(true);
+    }
+
+    private void benchmark(boolean fusedExecutionEnabled) throws Exception {
+        willReturn(fusedExecutionEnabled).given(systemContext).isRuleChainFusedExecutionEnabled();
+        TbActorRef chainActor = actorSystem.createRootActor(DefaultActorService.RULE_DISPATCHER_NAME,
+                new RuleChainActor.ActorCreator(systemContext, tenantId, ruleChain));
+
+        CountDownLatch latch = new CountDownLatch(MESSAGES);
+        TbMsgCallback callback = new TbMsgCallback() {
+            @Override
+            public void onSuccess() {
+                latch.countDown();
+            }
+
+            @Override
+            public void onFailure(RuleEngineException e) {
+                log.warn("Failed to process message", e);
+            }
+        };
+        DeviceId deviceId = new DeviceId(UUID.randomUUID());
+        long startTs = System.nanoTime();
+        for (int i = 0; i < MESSAGES; i++) {
+            TbMsg msg = TbMsg.newMsg(SessionMsgType.POST_TELEMETRY_REQUEST.name(), deviceId, new TbMsgMetaData(), DATA, callback);
+            chainActor.tell(new QueueToRuleEngineMsg(tenantId, msg, null, null));
+        }
+        assertThat(latch.await(60, TimeUnit.SECONDS)).isTrue();
+        long durationMs = Math.max(1, TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startTs));
+        log.info("Processed {} messages by {} rule nodes with fused execution [{}] in {} ms: {} msg/s",
+                MESSAGES, NODES, fusedExecutionEnabled, durationMs, MESSAGES * 1000L / durationMs);
+    }
+
+    private RuleNode filterNode() {
+        return ruleNode(TbMsgTypeFilterNode.class.getName(), JacksonUtil.valueToTree(new TbMsgTypeFilterNodeConfiguration().defaultConfiguration()));
+    }
+
+    private RuleNode renameKeysNode() {
+        return ruleNode(TbRenameKeysNode.class.getName(), JacksonUtil.valueToTree(new TbRenameKeysNodeConfiguration().defaultConfiguration()));
+    }
+
+    private RuleNode ruleNode(String type, JsonNode configuration) {
+        RuleNode ruleNode = new RuleNode(new RuleNodeId(UUID.randomUUID()));
+        ruleNode.setRuleChainId(ruleChain.getId());
+        ruleNode.setName(type.substring(type.lastIndexOf('.') + 1));
+        ruleNode.setType(type);
+        ruleNode.setConfiguration(configuration);
+        return ruleNode;
+    }
+}
@@ -0,0 +1,67 @@
+/**
+ * Copyright © 2016-2022 The Thingsboard Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.thingsboard.server.actors.ruleChain;
+
+import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.Test;
+import org.thingsboard.server.common.data.id.RuleNodeId;
+import org.thingsboard.server.queue.util.ThreadCost;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+
+/**
+ * Measures the cost of resolving the next rule nodes of a message per hop, for a node with the usual
+ * Success and Failure relations plus a few custom ones.
+ * Not part of the regular test run; start it manually and compare the reported time and allocation per hop.
+ */
+@Slf4j
+class RuleNodeRoutesBenchmark {
+
+    static final int WARM_UP_HOPS = 5_000_000;
+    static final int HOPS = 50_000_000;
+    static final String[] RELATION_TYPES = {"Success", "Failure", "True", "False", "Other"};
+
+    @Test
+    void routePerHop() {
+        RuleNodeId from = new RuleNodeId(UUID.randomUUID());
+        List<RuleNodeRelation> relations = new ArrayList<>();
+        for (String type : RELATION_TYPES) {
+            relations.add(new RuleNodeRelation(from, new RuleNodeId(UUID.randomUUID()), type));
+        }
+        RuleNodeRoutes routes = new RuleNodeRoutes(relations);
+        List<Set<String>> lookups = new ArrayList<>();
+        for (String type : RELATION_TYPES) {
+            lookups.add(Collections.singleton(type));
+        }
+
+        ThreadCost cost = ThreadCost.measure(hops -> route(routes, lookups, hops), WARM_UP_HOPS, HOPS);
+        log.info("Routed to {} targets, {}", cost.getChecksum(), cost);
+    }
+
+    private static long route(RuleNodeRoutes routes, List<Set<String>> lookups, int hops) {
+        long targets = 0;
+        for (int i = 0; i < hops; i++) {
+            for (RuleNodeRelation relation : routes.get(lookups.get(i % lookups.size()))) {
+                targets += relation.getOut().getId().getLeastSignificantBits() & 1;
+            }
+        }
+        return targets;
+    }
+}
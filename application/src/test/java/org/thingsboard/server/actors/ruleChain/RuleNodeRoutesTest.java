@@ -0,0 +1,66 @@
+/**
+ * Copyright © 2016-2022 The Thingsboard Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.thingsboard.server.actors.ruleChain;
+
+import org.junit.jupiter.api.Test;
+import org.thingsboard.server.common.data.id.RuleChainId;
+import org.thingsboard.server.common.data.id.RuleNodeId;
+
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class RuleNodeRoutesTest {
+
+    RuleNodeId from = new RuleNodeId(UUID.randomUUID());
+    RuleNodeRelation success = relation("Success");
+    RuleNodeRelation successToChain = new RuleNodeRelation(from, new RuleChainId(UUID.randomUUID()), "Success");
+    RuleNodeRelation failure = relation("Failure");
+    RuleNodeRelation custom = relation("Other");
+    RuleNodeRoutes routes = new RuleNodeRoutes(List.of(success, failure, successToChain, custom));
+
+    @Test
+    void givenSingleRelationType_whenGet_thenRelationsOfTypeInOriginalOrder() {
+        assertThat(routes.get(Set.of("Success"))).containsExactly(success, successToChain);
+        assertThat(routes.get(Set.of("Failure"))).containsExactly(failure);
+        assertThat(routes.get(Set.of("True"))).isEmpty();
+    }
+
+    @Test
+    void givenRelationTypeInOtherCase_whenGet_thenMatchedIgnoringCase() {
+        assertThat(routes.get("SUCCESS")).containsExactly(success, successToChain);
+        assertThat(routes.get("other")).containsExactly(custom);
+    }
+
+    @Test
+    void givenSameRelationType_whenGetTwice_thenSameArrayReturned() {
+        assertThat(routes.get("Success")).isSameAs(routes.get("Success"));
+        assertThat(routes.get("success")).isSameAs(routes.get("Success"));
+    }
+
+    @Test
+    void givenSeveralOrNoRelationTypes_whenGet_thenMatchingOrAllRelations() {
+        assertThat(routes.get(Set.of("other", "Failure"))).containsExactly(failure, custom);
+        assertThat(routes.get((Set<String>) null)).containsExactly(success, failure, successToChain, custom);
+        assertThat(RuleNodeRoutes.EMPTY.get(Set.of("Success"))).isEmpty();
+    }
+
+    private RuleNodeRelation relation(String type) {
+        return new RuleNodeRelation(from, new RuleNodeId(UUID.randomUUID()), type);
+    }
+}
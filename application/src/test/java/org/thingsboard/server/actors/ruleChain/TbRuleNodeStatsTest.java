@@ -0,0 +1,147 @@
+/**
+ * Copyright © 2016-2022 The Thingsboard Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.thingsboard.server.actors.ruleChain;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.thingsboard.server.actors.ActorSystemContext;
+import org.thingsboard.server.common.data.id.DeviceId;
+import org.thingsboard.server.common.data.id.RuleChainId;
+import org.thingsboard.server.common.data.id.RuleNodeId;
+import org.thingsboard.server.common.data.id.TenantId;
+import org.thingsboard.server.common.data.rule.RuleNode;
+import org.thingsboard.server.common.msg.TbMsg;
+import org.thingsboard.server.common.msg.TbMsgMetaData;
+import org.thingsboard.server.common.msg.queue.RuleEngineException;
+import org.thingsboard.server.common.msg.queue.TbMsgCallback;
+import org.thingsboard.server.common.stats.DefaultStatsFactory;
+import org.thingsboard.server.common.stats.StatsFactory;
+
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.BDDMockito.then;
+import static org.mockito.Mockito.mock;
+
+class TbRuleNodeStatsTest {
+
+    MeterRegistry meterRegistry;
+    StatsFactory statsFactory;
+    RuleNode ruleNode;
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        statsFactory = new DefaultStatsFactory();
+        ReflectionTestUtils.setField(statsFactory, "meterRegistry", meterRegistry);
+
+        ruleNode = new RuleNode(new RuleNodeId(UUID.randomUUID()));
+        ruleNode.setRuleChainId(new RuleChainId(UUID.randomUUID()));
+        ruleNode.setType("org.thingsboard.rule.engine.filter.TbJsFilterNode");
+    }
+
+    @Test
+    void givenMessageAckedTwice_whenProcessingEnds_thenLatencyRecordedOnce() {
+        TbRuleNodeStats stats = new TbRuleNodeStats(statsFactory, ruleNode);
+        DefaultTbContext ctx = new DefaultTbContext(mock(ActorSystemContext.class), "Root Rule Chain",
+                new RuleNodeCtx(TenantId.SYS_TENANT_ID, null, null, ruleNode));
+
+        TbMsg msg = TbRuleNodeStatsCallback.wrap(newMsg(mock(TbMsgCallback.class)), stats, System.nanoTime());
+        assertThat(stats.getInFlight()).isEqualTo(1);
+
+        ctx.ack(msg);
+        ctx.ack(msg);
+
+        assertThat(stats.getInFlight()).isZero();
+        Timer latency = meterRegistry.find(TbRuleNodeStats.LATENCY).tag("ruleNodeType", "TbJsFilterNode").timer();
+        assertThat(latency).isNotNull();
+        assertThat(latency.count()).isEqualTo(1);
+    }
+
+    @Test
+    void givenConcurrentMessages_whenCallbacksCompletedDirectly_thenInFlightDropsToZero() {
+        TbRuleNodeStats stats = new TbRuleNodeStats(statsFactory, ruleNode);
+        TbMsgCallback callback = mock(TbMsgCallback.class);
+
+        TbMsg first = TbRuleNodeStatsCallback.wrap(newMsg(callback), stats, System.nanoTime());
+        TbMsg second = TbRuleNodeStatsCallback.wrap(newMsg(callback), stats, System.nanoTime());
+        assertThat(stats.getInFlight()).isEqualTo(2);
+
+        first.getCallback().onSuccess();
+        second.getCallback().onFailure(new RuleEngineException("dropped"));
+
+        assertThat(stats.getInFlight()).isZero();
+        then(callback).should().onSuccess();
+        then(callback).should().onFailure(any());
+    }
+
+    @Test
+    void givenMessagePassedToNextNode_whenWrapped_thenPreviousNodeEndedAndCallbackNotNested() {
+        TbRuleNodeStats stats = new TbRuleNodeStats(statsFactory, ruleNode);
+        TbMsgCallback callback = mock(TbMsgCallback.class);
+
+        TbMsg msg = TbRuleNodeStatsCallback.wrap(newMsg(callback), stats, System.nanoTime());
+        TbMsg next = TbRuleNodeStatsCallback.wrap(msg, stats, System.nanoTime());
+        assertThat(stats.getInFlight()).isEqualTo(1);
+
+        next.getCallback().onSuccess();
+
+        assertThat(stats.getInFlight()).isZero();
+        then(callback).should().onSuccess();
+    }
+
+    private static TbMsg newMsg(TbMsgCallback callback) {
+        return TbMsg.newMsg("POST_TELEMETRY_REQUEST", new DeviceId(UUID.randomUUID()), new TbMsgMetaData(), "{}", callback);
+    }
+
+    @Test
+    void givenExecution_whenRecorded_thenNodeAndChainTimersUpdatedAndNodeMetersRemovedOnDestroy() {
+        TbRuleNodeStats stats = new TbRuleNodeStats(statsFactory, ruleNode);
+        stats.onQueueWait(1000);
+        stats.onExecuted(2000);
+
+        assertThat(meterRegistry.find(TbRuleNodeStats.QUEUE_WAIT).timer().count()).isEqualTo(1);
+        assertThat(meterRegistry.find(TbRuleNodeStats.EXECUTION).timer().count()).isEqualTo(1);
+        assertThat(meterRegistry.find(TbRuleNodeStats.CHAIN_EXECUTION).tag("ruleChainId", ruleNode.getRuleChainId().toString()).timer().count()).isEqualTo(1);
+
+        stats.destroy();
+
+        assertThat(meterRegistry.find(TbRuleNodeStats.EXECUTION).meters()).isEmpty();
+        assertThat(meterRegistry.find(TbRuleNodeStats.IN_FLIGHT).meters()).isEmpty();
+        assertThat(meterRegistry.find(TbRuleNodeStats.CHAIN_EXECUTION).meters()).hasSize(1);
+    }
+
+    @Test
+    void givenStatsAcquiredTwice_whenReleased_thenSameInstanceAndMetersRemovedByLastHolder() {
+        TbRuleNodeStats actorStats = TbRuleNodeStats.acquire(statsFactory, ruleNode);
+        TbRuleNodeStats fusedStats = TbRuleNodeStats.acquire(statsFactory, ruleNode);
+        assertThat(fusedStats).isSameAs(actorStats);
+
+        actorStats.release();
+        assertThat(meterRegistry.find(TbRuleNodeStats.EXECUTION).meters()).hasSize(1);
+
+        fusedStats.release();
+        assertThat(meterRegistry.find(TbRuleNodeStats.EXECUTION).meters()).isEmpty();
+        TbRuleNodeStats reacquired = TbRuleNodeStats.acquire(statsFactory, ruleNode);
+        assertThat(reacquired).isNotSameAs(actorStats);
+        reacquired.release();
+    }
+}
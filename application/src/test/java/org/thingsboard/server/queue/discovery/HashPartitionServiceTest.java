@@ -17,6 +17,8 @@ package org.thingsboard.server.queue.discovery;
 
 import com.datastax.driver.core.utils.UUIDs;
 import com.datastax.oss.driver.api.core.uuid.Uuids;
+import com.google.common.hash.HashFunction;
+import com.google.common.hash.Hashing;
 import lombok.SneakyThrows;
 import lombok.extern.slf4j.Slf4j;
 import org.junit.Assert;
@@ -103,6 +105,25 @@ public class HashPartitionServiceTest {
         testDevicesDispersion(devices);
     }
 
+    @Test
+    public void testResolveReusesTopicPartitionInfos() {
+        ReflectionTestUtils.setField(clusterRoutingService, "hashFunctionName", "murmur3_128");
+        clusterRoutingService.init();
+        HashFunction guavaHashFunction = Hashing.murmur3_128();
+        Map<Integer, TopicPartitionInfo> resolved = new HashMap<>();
+        for (int i = 0; i < 1000; i++) {
+            DeviceId deviceId = new DeviceId(Uuids.timeBased());
+            TopicPartitionInfo tpi = clusterRoutingService.resolve(ServiceType.TB_CORE, TenantId.SYS_TENANT_ID, deviceId);
+            int hash = guavaHashFunction.newHasher()
+                    .putLong(deviceId.getId().getMostSignificantBits())
+                    .putLong(deviceId.getId().getLeastSignificantBits()).hash().asInt();
+            // the partition assignment is the one of the Guava hasher, and each partition is resolved to one prebuilt instance
+            Assert.assertEquals(Math.abs(hash % 10), (int) tpi.getPartition().get());
+            Assert.assertSame(resolved.computeIfAbsent(tpi.getPartition().get(), partition -> tpi), tpi);
+        }
+        Assert.assertEquals(10, resolved.size());
+    }
+
     private void testDevicesDispersion(List<DeviceId> devices) {
         long start = System.currentTimeMillis();
         Map<Integer, Integer> map = new HashMap<>();
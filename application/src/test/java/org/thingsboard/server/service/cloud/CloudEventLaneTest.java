@@ -0,0 +1,126 @@
+/**
+ * Copyright © 2016-2022 The Thingsboard Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.thingsboard.server.service.cloud;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.thingsboard.server.common.data.cloud.CloudEvent;
+import org.thingsboard.server.common.data.cloud.CloudEventType;
+import org.thingsboard.server.common.data.edge.EdgeEventActionType;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.stream.Collectors;
+
+public class CloudEventLaneTest {
+
+    @Test
+    public void testEveryEventBelongsToSingleLane() {
+        for (CloudEventType type : CloudEventType.values()) {
+            for (EdgeEventActionType action : EdgeEventActionType.values()) {
+                Assert.assertEquals(type + " " + action, 1, findLanes(type, action).size());
+            }
+        }
+    }
+
+    @Test
+    public void testControlAndAlarmEventsDoNotUseDefaultLane() {
+        Assert.assertEquals(List.of(CloudEventLane.CONTROL), findLanes(CloudEventType.DEVICE, EdgeEventActionType.RPC_CALL));
+        Assert.assertEquals(List.of(CloudEventLane.CONTROL), findLanes(CloudEventType.DEVICE, EdgeEventActionType.ATTRIBUTES_REQUEST));
+        Assert.assertEquals(List.of(CloudEventLane.ALARM), findLanes(CloudEventType.ALARM, EdgeEventActionType.ADDED));
+        Assert.assertEquals(List.of(CloudEventLane.DEFAULT), findLanes(CloudEventType.DEVICE, EdgeEventActionType.TIMESERIES_UPDATED));
+        Assert.assertEquals(List.of(CloudEventLane.DEFAULT), findLanes(CloudEventType.DEVICE, EdgeEventActionType.ADDED));
+    }
+
+    @Test
+    public void testLowerPriorityLanes() {
+        Assert.assertEquals(List.of(CloudEventLane.ALARM, CloudEventLane.DEFAULT), CloudEventLane.CONTROL.getLowerPriorityLanes());
+        Assert.assertEquals(List.of(CloudEventLane.DEFAULT), CloudEventLane.ALARM.getLowerPriorityLanes());
+        Assert.assertEquals(List.of(), CloudEventLane.DEFAULT.getLowerPriorityLanes());
+    }
+
+    @Test
+    public void testEventIsHeldBackByEarlierPendingEventOfSameEntity() {
+        UUID device = UUID.randomUUID();
+        UUID otherDevice = UUID.randomUUID();
+        // alarm lane batch, ordering keys are the alarm originators
+        List<CloudEvent> events = List.of(cloudEvent(100), cloudEvent(200), cloudEvent(300));
+        List<UUID> orderingKeys = Arrays.asList(otherDevice, device, null);
+        // the device was added at 150 and the event is not delivered by the default lane yet
+        Map<UUID, Long> firstPendingTs = Map.of(device, 150L);
+
+        Assert.assertEquals(1, CloudEventLane.countInOrder(events, orderingKeys, firstPendingTs, Long.MAX_VALUE));
+    }
+
+    @Test
+    public void testEventIsNotHeldBackByLaterPendingEventOfSameEntity() {
+        UUID device = UUID.randomUUID();
+        List<CloudEvent> events = List.of(cloudEvent(100), cloudEvent(200));
+        List<UUID> orderingKeys = List.of(device, device);
+
+        Assert.assertEquals(2, CloudEventLane.countInOrder(events, orderingKeys, Map.of(device, 200L), Long.MAX_VALUE));
+        Assert.assertEquals(2, CloudEventLane.countInOrder(events, orderingKeys, Map.of(), Long.MAX_VALUE));
+    }
+
+    @Test
+    public void testEventsAfterFirstPendingEventOfHigherLaneAreHeldBack() {
+        List<CloudEvent> events = List.of(cloudEvent(100), cloudEvent(200), cloudEvent(300));
+        List<UUID> orderingKeys = List.of(UUID.randomUUID(), UUID.randomUUID(), UUID.randomUUID());
+
+        Assert.assertEquals(1, CloudEventLane.countInOrder(events, orderingKeys, Map.of(), 200L));
+        Assert.assertEquals(0, CloudEventLane.countInOrder(events, orderingKeys, Map.of(), 100L));
+    }
+
+    @Test
+    public void testFirstPendingEventIsNeverHeldBack() {
+        UUID device = UUID.randomUUID();
+        // control lane waits for the default lane event of the device
+        List<CloudEvent> controlEvents = List.of(cloudEvent(200));
+        Assert.assertEquals(0, CloudEventLane.countInOrder(controlEvents, List.of(device), Map.of(device, 150L), Long.MAX_VALUE));
+        // the default lane is fenced by the held control event, but the earlier event of the device passes the fence
+        List<CloudEvent> defaultEvents = List.of(cloudEvent(150), cloudEvent(250));
+        Assert.assertEquals(1, CloudEventLane.countInOrder(defaultEvents, List.of(device, device), Map.of(), 200L));
+    }
+
+    @Test
+    public void testEventsOfSameMillisecondAsHeldEventAreHeldBack() {
+        UUID device = UUID.randomUUID();
+        // both alarms are created at 200, only the second one waits for the pending default lane event of its originator
+        List<CloudEvent> events = List.of(cloudEvent(100), cloudEvent(200), cloudEvent(200));
+        List<UUID> orderingKeys = List.of(UUID.randomUUID(), UUID.randomUUID(), device);
+
+        int inOrder = CloudEventLane.countInOrder(events, orderingKeys, Map.of(device, 150L), Long.MAX_VALUE);
+
+        // the lane offset moves to the last sent event and the next read starts after it, the held event must be read again
+        Assert.assertEquals(1, inOrder);
+        long laneOffset = events.get(inOrder - 1).getCreatedTime();
+        Assert.assertTrue(events.get(2).getCreatedTime() > laneOffset);
+    }
+
+    private CloudEvent cloudEvent(long createdTime) {
+        CloudEvent cloudEvent = new CloudEvent();
+        cloudEvent.setCreatedTime(createdTime);
+        return cloudEvent;
+    }
+
+    private List<CloudEventLane> findLanes(CloudEventType type, EdgeEventActionType action) {
+        return Arrays.stream(CloudEventLane.values())
+                .filter(lane -> lane.getCloudEventTypes().contains(type) && lane.getCloudEventActions().contains(action.name()))
+                .collect(Collectors.toList());
+    }
+}
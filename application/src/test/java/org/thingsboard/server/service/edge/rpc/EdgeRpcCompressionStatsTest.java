@@ -0,0 +1,86 @@
+/**
+ * Copyright © 2016-2022 The Thingsboard Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.thingsboard.server.service.edge.rpc;
+
+import io.grpc.Metadata;
+import io.grpc.ServerStreamTracer;
+import io.grpc.Status;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.thingsboard.edge.rpc.compression.EdgeRpcCompression;
+import org.thingsboard.server.common.stats.DefaultStatsFactory;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class EdgeRpcCompressionStatsTest {
+
+    MeterRegistry meterRegistry;
+    EdgeRpcCompressionStats stats;
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        DefaultStatsFactory statsFactory = new DefaultStatsFactory();
+        ReflectionTestUtils.setField(statsFactory, "meterRegistry", meterRegistry);
+        stats = new EdgeRpcCompressionStats(statsFactory);
+        stats.init();
+    }
+
+    @Test
+    void givenMessages_whenRecorded_thenRatioDistributionPerDirection() {
+        stats.onMessage(true, 100, 400);
+        stats.onMessage(true, 100, 200);
+        stats.onMessage(false, 50, 50);
+        stats.onMessage(false, -1, 50);
+
+        DistributionSummary outbound = meterRegistry.find("edgeRpc.compressionRatio").tag("direction", "outbound").summary();
+        assertThat(outbound.count()).isEqualTo(2);
+        assertThat(outbound.mean()).isEqualTo(3.0);
+        assertThat(outbound.max()).isEqualTo(4.0);
+
+        DistributionSummary inbound = meterRegistry.find("edgeRpc.compressionRatio").tag("direction", "inbound").summary();
+        assertThat(inbound.count()).isEqualTo(1);
+        assertThat(inbound.mean()).isEqualTo(1.0);
+    }
+
+    @Test
+    void givenCompressedInboundMessage_whenReadByServer_thenInboundRatioRecorded() {
+        ServerStreamTracer tracer = EdgeRpcCompression.serverStreamTracerFactory(stats)
+                .newServerStreamTracer("edge.EdgeRpcService/handleMsgs", new Metadata());
+
+        // the order in which gRPC reports a compressed message: wire bytes of header and body, the read message
+        // with an unknown uncompressed size, then the uncompressed bytes while the message is parsed
+        tracer.inboundWireSize(5);
+        tracer.inboundWireSize(95);
+        tracer.inboundMessageRead(0, 95, -1);
+        tracer.inboundUncompressedSize(150);
+        tracer.inboundUncompressedSize(150);
+        tracer.inboundWireSize(50);
+        tracer.inboundMessageRead(1, 45, -1);
+        tracer.inboundUncompressedSize(50);
+        tracer.streamClosed(Status.OK);
+
+        DistributionSummary inbound = meterRegistry.find("edgeRpc.compressionRatio").tag("direction", "inbound").summary();
+        assertThat(inbound.count()).isEqualTo(2);
+        assertThat(inbound.max()).isEqualTo(3.0);
+        assertThat(inbound.totalAmount()).isEqualTo(4.0);
+        assertThat(meterRegistry.find("edgeRpc.uncompressedBytes").tag("direction", "inbound").gauge().value()).isEqualTo(350);
+    }
+}
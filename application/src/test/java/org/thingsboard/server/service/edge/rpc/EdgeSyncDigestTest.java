@@ -0,0 +1,82 @@
+/**
+ * Copyright © 2016-2022 The Thingsboard Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.thingsboard.server.service.edge.rpc;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.thingsboard.server.common.data.EntityType;
+import org.thingsboard.server.common.data.asset.Asset;
+import org.thingsboard.server.common.data.id.AssetId;
+import org.thingsboard.server.common.data.id.TenantId;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+
+public class EdgeSyncDigestTest {
+
+    private final TenantId tenantId = new TenantId(UUID.randomUUID());
+
+    @Test
+    public void testSameEntitiesInDifferentOrderProduceSameDigest() {
+        Asset first = createAsset("first");
+        Asset second = createAsset("second");
+
+        EdgeSyncDigest cloudDigest = new EdgeSyncDigest();
+        cloudDigest.add(first.getUuidId(), first);
+        cloudDigest.add(second.getUuidId(), second);
+
+        EdgeSyncDigest edgeDigest = new EdgeSyncDigest();
+        edgeDigest.add(second.getUuidId(), new Asset(second));
+        edgeDigest.add(first.getUuidId(), new Asset(first));
+
+        Assert.assertTrue(cloudDigest.getMismatchedBuckets(toBucketDigests(edgeDigest)).isEmpty());
+    }
+
+    @Test
+    public void testChangedEntityMismatchesOnlyItsBucket() {
+        Asset asset = createAsset("asset");
+        EdgeSyncDigest cloudDigest = new EdgeSyncDigest();
+        cloudDigest.add(asset.getUuidId(), asset);
+
+        Asset outdated = new Asset(asset);
+        outdated.setLabel("outdated");
+        EdgeSyncDigest edgeDigest = new EdgeSyncDigest();
+        edgeDigest.add(outdated.getUuidId(), outdated);
+
+        Set<Integer> mismatched = cloudDigest.getMismatchedBuckets(toBucketDigests(edgeDigest));
+        Assert.assertEquals(Collections.singleton(EdgeSyncDigest.getBucket(asset.getUuidId())), mismatched);
+    }
+
+    @Test
+    public void testMissingEdgeDigestMismatchesAllBuckets() {
+        EdgeSyncDigest cloudDigest = new EdgeSyncDigest();
+        Assert.assertEquals(EdgeSyncDigest.BUCKETS_COUNT, cloudDigest.getMismatchedBuckets(Collections.emptyList()).size());
+    }
+
+    private List<Long> toBucketDigests(EdgeSyncDigest digest) {
+        return digest.toProto(EntityType.ASSET).getBucketDigestsList();
+    }
+
+    private Asset createAsset(String name) {
+        Asset asset = new Asset(new AssetId(UUID.randomUUID()));
+        asset.setTenantId(tenantId);
+        asset.setName(name);
+        asset.setType("default");
+        return asset;
+    }
+}
@@ -0,0 +1,168 @@
+/**
+ * Copyright © 2016-2022 The Thingsboard Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.thingsboard.server.service.state;
+
+import com.google.common.util.concurrent.ListenableFuture;
+import com.google.common.util.concurrent.MoreExecutors;
+import com.google.common.util.concurrent.SettableFuture;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.mockito.junit.MockitoJUnitRunner;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.thingsboard.server.common.data.DataConstants;
+import org.thingsboard.server.common.data.id.DeviceId;
+import org.thingsboard.server.common.data.id.TenantId;
+import org.thingsboard.server.common.data.kv.AttributeKvEntry;
+import org.thingsboard.server.common.stats.StatsFactory;
+import org.thingsboard.server.common.transport.WarmUpCompletedEvent;
+import org.thingsboard.server.dao.attributes.AttributesService;
+import org.thingsboard.server.dao.device.DeviceCredentialsService;
+import org.thingsboard.server.service.profile.TbDeviceProfileCache;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.BDDMockito.willAnswer;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+@RunWith(MockitoJUnitRunner.class)
+public class DeviceStateWarmUpServiceTest {
+
+    @Mock
+    TbDeviceProfileCache deviceProfileCache;
+    @Mock
+    DeviceCredentialsService deviceCredentialsService;
+    @Mock
+    AttributesService attributesService;
+    @Mock
+    StatsFactory statsFactory;
+    @Mock
+    ApplicationEventPublisher eventPublisher;
+
+    TenantId tenantId = TenantId.fromUUID(UUID.randomUUID());
+    List<SettableFuture<List<AttributeKvEntry>>> attributeLookups = new ArrayList<>();
+
+    DeviceStateWarmUpService warmUpService;
+
+    @Before
+    public void setUp() {
+        willAnswer(invocation -> invocation.getArgument(1)).given(statsFactory).createGauge(anyString(), any());
+        willAnswer(invocation -> {
+            SettableFuture<List<AttributeKvEntry>> future = SettableFuture.create();
+            attributeLookups.add(future);
+            return future;
+        }).given(attributesService).find(any(), any(), eq(DataConstants.SERVER_SCOPE), anyList());
+
+        warmUpService = new DeviceStateWarmUpService(deviceProfileCache, deviceCredentialsService, attributesService, statsFactory, eventPublisher);
+        ReflectionTestUtils.setField(warmUpService, "cacheEnabled", true);
+        ReflectionTestUtils.setField(warmUpService, "maxCachedDevices", 100);
+        ReflectionTestUtils.setField(warmUpService, "batchSize", 2);
+        warmUpService.init();
+    }
+
+    @Test
+    public void givenActiveStates_whenOnStatesLoaded_thenLookupsIssuedInParallelBatches() {
+        List<DeviceStateData> states = List.of(state(true), state(false), state(true), state(true));
+
+        ListenableFuture<?> future = warmUpService.onStatesLoaded(states, MoreExecutors.directExecutor());
+
+        assertThat(future.isDone(), is(false));
+        assertThat(attributeLookups.size(), is(2));
+        attributeLookups.get(0).set(Collections.emptyList());
+        assertThat(attributeLookups.size(), is(2));
+        attributeLookups.get(1).set(Collections.emptyList());
+        assertThat(attributeLookups.size(), is(3));
+        attributeLookups.get(2).set(Collections.emptyList());
+
+        assertThat(future.isDone(), is(true));
+        verify(deviceProfileCache, never()).get(tenantId, states.get(1).getDeviceId());
+        verify(deviceCredentialsService, times(3)).findDeviceCredentialsByDeviceId(eq(tenantId), any());
+        assertThat(cachedDevices(), is(3));
+    }
+
+    @Test
+    public void givenPendingLookups_whenComplete_thenEventPublishedOnceLookupsDone() {
+        warmUpService.onStatesLoaded(List.of(state(true)), MoreExecutors.directExecutor());
+
+        warmUpService.complete();
+
+        assertThat(warmUpService.isCompleted(), is(false));
+        verify(eventPublisher, never()).publishEvent(any(WarmUpCompletedEvent.class));
+
+        attributeLookups.get(0).setException(new RuntimeException("Failed to fetch attributes"));
+
+        assertThat(warmUpService.isCompleted(), is(true));
+        verify(eventPublisher, times(1)).publishEvent(any(WarmUpCompletedEvent.class));
+        assertThat(cachedDevices(), is(0));
+    }
+
+    @Test
+    public void givenCacheBudget_whenOnStatesLoaded_thenOnlyBudgetedDevicesLookedUp() {
+        ReflectionTestUtils.setField(warmUpService, "maxCachedDevices", 2);
+        warmUpService.init();
+
+        warmUpService.onStatesLoaded(List.of(state(true), state(true)), MoreExecutors.directExecutor());
+        warmUpService.onStatesLoaded(List.of(state(true), state(true)), MoreExecutors.directExecutor());
+
+        assertThat(attributeLookups.size(), is(2));
+    }
+
+    @Test
+    public void givenCompletedWarmUp_whenPartitionsAdded_thenCachesWarmedUpWithNewBudgetAndEventNotPublishedAgain() {
+        ReflectionTestUtils.setField(warmUpService, "maxCachedDevices", 1);
+        warmUpService.onPartitionsAdded();
+        warmUpService.onStatesLoaded(List.of(state(true), state(true)), MoreExecutors.directExecutor());
+        attributeLookups.get(0).set(Collections.emptyList());
+        warmUpService.complete();
+        assertThat(warmUpService.isCompleted(), is(true));
+
+        warmUpService.onPartitionsAdded();
+        ListenableFuture<?> future = warmUpService.onStatesLoaded(List.of(state(true), state(true)), MoreExecutors.directExecutor());
+        assertThat(attributeLookups.size(), is(2));
+        attributeLookups.get(1).set(Collections.emptyList());
+        warmUpService.complete();
+
+        assertThat(future.isDone(), is(true));
+        assertThat(cachedDevices(), is(2));
+        verify(eventPublisher, times(1)).publishEvent(any(WarmUpCompletedEvent.class));
+    }
+
+    private DeviceStateData state(boolean active) {
+        return DeviceStateData.builder()
+                .tenantId(tenantId)
+                .deviceId(new DeviceId(UUID.randomUUID()))
+                .state(DeviceState.builder().active(active).build())
+                .build();
+    }
+
+    private int cachedDevices() {
+        return ((AtomicInteger) ReflectionTestUtils.getField(warmUpService, "cachedDevices")).get();
+    }
+}
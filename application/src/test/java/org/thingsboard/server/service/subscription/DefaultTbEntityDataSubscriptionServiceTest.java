@@ -0,0 +1,162 @@
+/**
+ * Copyright © 2016-2022 The Thingsboard Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.thingsboard.server.service.subscription;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.thingsboard.server.common.data.EntityType;
+import org.thingsboard.server.common.data.id.CustomerId;
+import org.thingsboard.server.common.data.id.TenantId;
+import org.thingsboard.server.common.data.query.EntityCountQuery;
+import org.thingsboard.server.common.data.query.EntityTypeFilter;
+import org.thingsboard.server.dao.entity.EntityService;
+import org.thingsboard.server.service.security.model.SecurityUser;
+import org.thingsboard.server.service.telemetry.TelemetryWebSocketService;
+import org.thingsboard.server.service.telemetry.TelemetryWebSocketSessionRef;
+import org.thingsboard.server.service.telemetry.cmd.v2.CmdUpdate;
+import org.thingsboard.server.service.telemetry.cmd.v2.EntityCountCmd;
+import org.thingsboard.server.service.telemetry.cmd.v2.EntityCountUpdate;
+
+import java.util.UUID;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+public class DefaultTbEntityDataSubscriptionServiceTest {
+
+    private final TenantId tenantId = TenantId.fromUUID(UUID.randomUUID());
+
+    DefaultTbEntityDataSubscriptionService service;
+    EntityService entityService;
+    TelemetryWebSocketService wsService;
+    ScheduledExecutorService scheduler;
+    ScheduledFuture<?> sharedTask;
+
+    @Before
+    public void setUp() {
+        service = new DefaultTbEntityDataSubscriptionService();
+        entityService = mock(EntityService.class);
+        wsService = mock(TelemetryWebSocketService.class);
+        scheduler = mock(ScheduledExecutorService.class);
+        sharedTask = mock(ScheduledFuture.class);
+        doReturn(sharedTask).when(scheduler).scheduleWithFixedDelay(any(), anyLong(), anyLong(), any());
+        ReflectionTestUtils.setField(service, "entityService", entityService);
+        ReflectionTestUtils.setField(service, "wsService", wsService);
+        ReflectionTestUtils.setField(service, "scheduler", scheduler);
+        ReflectionTestUtils.setField(service, "dynamicPageLinkRefreshInterval", 6L);
+    }
+
+    @Test
+    public void givenSameCountQuery_whenSubscribed_thenRefreshTaskShared() {
+        when(entityService.countEntitiesByQuery(eq(tenantId), any(), any())).thenReturn(5L);
+
+        subscribe("session-1", countQuery(EntityType.DEVICE));
+        subscribe("session-2", countQuery(EntityType.DEVICE));
+        subscribe("session-3", countQuery(EntityType.ASSET));
+
+        verify(scheduler, times(2)).scheduleWithFixedDelay(any(), eq(6L), eq(6L), eq(TimeUnit.SECONDS));
+        verify(entityService, times(3)).countEntitiesByQuery(eq(tenantId), any(), any());
+    }
+
+    @Test
+    public void givenSharedQueryRefreshed_whenSubscribed_thenLatestResultServedWithoutQuery() {
+        when(entityService.countEntitiesByQuery(eq(tenantId), any(), any())).thenReturn(5L, 7L);
+        subscribe("session-1", countQuery(EntityType.DEVICE));
+
+        refreshSharedQuery();
+
+        verify(wsService).sendWsMsg(eq("session-1"), countUpdate(7));
+
+        subscribe("session-2", countQuery(EntityType.DEVICE));
+
+        verify(entityService, times(2)).countEntitiesByQuery(eq(tenantId), any(), any());
+        verify(wsService).sendWsMsg(eq("session-2"), countUpdate(7));
+    }
+
+    @Test
+    public void givenSharedQueryFailed_whenSubscribed_thenQueryExecuted() {
+        when(entityService.countEntitiesByQuery(eq(tenantId), any(), any()))
+                .thenReturn(5L)
+                .thenReturn(7L)
+                .thenThrow(new RuntimeException("Query timeout"))
+                .thenReturn(9L);
+        subscribe("session-1", countQuery(EntityType.DEVICE));
+        refreshSharedQuery();
+
+        // The failed refresh invalidates the result of the previous one.
+        refreshSharedQuery();
+        subscribe("session-2", countQuery(EntityType.DEVICE));
+
+        verify(entityService, times(4)).countEntitiesByQuery(eq(tenantId), any(), any());
+        verify(wsService).sendWsMsg(eq("session-2"), countUpdate(9));
+        verify(wsService, never()).sendWsMsg(eq("session-2"), countUpdate(7));
+    }
+
+    @Test
+    public void givenAllSubscriptionsCancelled_whenRefreshed_thenSharedTaskCancelledAndResultDropped() {
+        when(entityService.countEntitiesByQuery(eq(tenantId), any(), any())).thenReturn(5L);
+        subscribe("session-1", countQuery(EntityType.DEVICE));
+        refreshSharedQuery();
+
+        service.cancelAllSessionSubscriptions("session-1");
+        refreshSharedQuery();
+
+        verify(sharedTask).cancel(false);
+        verify(entityService, times(2)).countEntitiesByQuery(eq(tenantId), any(), any());
+
+        subscribe("session-2", countQuery(EntityType.DEVICE));
+
+        verify(entityService, times(3)).countEntitiesByQuery(eq(tenantId), any(), any());
+        verify(scheduler, times(2)).scheduleWithFixedDelay(any(), anyLong(), anyLong(), any());
+    }
+
+    private void subscribe(String sessionId, EntityCountQuery query) {
+        SecurityUser user = mock(SecurityUser.class);
+        when(user.getTenantId()).thenReturn(tenantId);
+        when(user.getCustomerId()).thenReturn(new CustomerId(CustomerId.NULL_UUID));
+        TelemetryWebSocketSessionRef sessionRef = new TelemetryWebSocketSessionRef(sessionId, user, null, null);
+        service.handleCmd(sessionRef, new EntityCountCmd(1, query));
+    }
+
+    private void refreshSharedQuery() {
+        ArgumentCaptor<Runnable> taskCaptor = ArgumentCaptor.forClass(Runnable.class);
+        verify(scheduler).scheduleWithFixedDelay(taskCaptor.capture(), anyLong(), anyLong(), any());
+        taskCaptor.getValue().run();
+    }
+
+    private static EntityCountQuery countQuery(EntityType entityType) {
+        EntityTypeFilter filter = new EntityTypeFilter();
+        filter.setEntityType(entityType);
+        return new EntityCountQuery(filter);
+    }
+
+    private static CmdUpdate countUpdate(int count) {
+        return argThat(update -> update instanceof EntityCountUpdate && ((EntityCountUpdate) update).getCount() == count);
+    }
+}
@@ -0,0 +1,176 @@
+/**
+ * Copyright © 2016-2022 The Thingsboard Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.thingsboard.server.service.telemetry;
+
+import com.google.common.util.concurrent.Futures;
+import com.google.common.util.concurrent.ListenableFuture;
+import com.google.common.util.concurrent.SettableFuture;
+import io.micrometer.core.instrument.Counter;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.thingsboard.server.common.data.id.DeviceId;
+import org.thingsboard.server.common.data.id.TenantId;
+import org.thingsboard.server.common.data.kv.BaseReadTsKvQuery;
+import org.thingsboard.server.common.data.kv.BasicTsKvEntry;
+import org.thingsboard.server.common.data.kv.LongDataEntry;
+import org.thingsboard.server.common.data.kv.StringDataEntry;
+import org.thingsboard.server.common.data.kv.TsKvEntry;
+import org.thingsboard.server.common.stats.DefaultCounter;
+import org.thingsboard.server.common.stats.StatsFactory;
+import org.thingsboard.server.dao.timeseries.TimeseriesService;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+public class DefaultTbRecentTelemetryCacheTest {
+
+    private static final String KEY = "temperature";
+
+    private final TenantId tenantId = TenantId.fromUUID(UUID.randomUUID());
+    private final DeviceId deviceId = new DeviceId(UUID.randomUUID());
+
+    TimeseriesService tsService;
+    DefaultCounter hitCounter;
+    DefaultCounter missCounter;
+    DefaultTbRecentTelemetryCache cache;
+
+    @Before
+    public void setUp() {
+        tsService = mock(TimeseriesService.class);
+        StatsFactory statsFactory = mock(StatsFactory.class);
+        hitCounter = new DefaultCounter(new AtomicInteger(), mock(Counter.class));
+        missCounter = new DefaultCounter(new AtomicInteger(), mock(Counter.class));
+        when(statsFactory.createDefaultCounter(anyString(), anyString(), eq("hit"))).thenReturn(hitCounter);
+        when(statsFactory.createDefaultCounter(anyString(), anyString(), eq("miss"))).thenReturn(missCounter);
+        cache = new DefaultTbRecentTelemetryCache(tsService, statsFactory);
+        ReflectionTestUtils.setField(cache, "enabled", true);
+        ReflectionTestUtils.setField(cache, "maxSamplesPerKey", 10);
+        ReflectionTestUtils.setField(cache, "maxSizeInBytes", 1024 * 1024L);
+        cache.init();
+    }
+
+    @Test
+    public void givenOlderValueSavedBefore_whenFirstBatchPut_thenCoverageStartsAtBatchMaxTs() {
+        mockLatest(Futures.immediateFuture(List.of(sample(50, 0))));
+
+        cache.put(tenantId, deviceId, List.of(sample(100, 1), sample(200, 2)));
+
+        // The value saved at 50 is not in the cache, so a window starting at 100 must go to the database.
+        assertThat(cache.findAll(deviceId, List.of(new BaseReadTsKvQuery(KEY, 100, 300, 10, "ASC")))).isEmpty();
+        assertThat(toTs(cache.findAll(deviceId, List.of(new BaseReadTsKvQuery(KEY, 200, 300, 10, "ASC"))).orElseThrow())).containsExactly(200L);
+        assertThat(cache.findLatest(deviceId, KEY)).map(TsKvEntry::getTs).hasValue(200L);
+
+        cache.put(tenantId, deviceId, List.of(sample(300, 3)));
+
+        assertThat(toTs(cache.findAll(deviceId, List.of(new BaseReadTsKvQuery(KEY, 200, 400, 10, "ASC"))).orElseThrow())).containsExactly(200L, 300L);
+        assertThat(hitCounter.get()).isEqualTo(3);
+        assertThat(missCounter.get()).isEqualTo(1);
+    }
+
+    @Test
+    public void givenNewerValueSavedBefore_whenFirstBatchPut_thenLatestNotServedFromBatch() {
+        mockLatest(Futures.immediateFuture(List.of(sample(500, 5))));
+
+        cache.put(tenantId, deviceId, List.of(sample(100, 1)));
+
+        assertThat(cache.findLatest(deviceId, KEY)).isEmpty();
+
+        cache.put(tenantId, deviceId, List.of(sample(600, 6)));
+
+        assertThat(cache.findLatest(deviceId, KEY)).map(TsKvEntry::getTs).hasValue(600L);
+        assertThat(cache.findAll(deviceId, List.of(new BaseReadTsKvQuery(KEY, 500, 700, 10, "ASC")))).isEmpty();
+        assertThat(toTs(cache.findAll(deviceId, List.of(new BaseReadTsKvQuery(KEY, 501, 700, 10, "ASC"))).orElseThrow())).containsExactly(600L);
+    }
+
+    @Test
+    public void givenNoSavedValue_whenFirstBatchPut_thenBatchServed() {
+        mockLatest(Futures.immediateFuture(List.of(new BasicTsKvEntry(System.currentTimeMillis(), new StringDataEntry(KEY, null)))));
+
+        cache.put(tenantId, deviceId, List.of(sample(100, 1)));
+
+        assertThat(cache.findLatest(deviceId, KEY)).map(TsKvEntry::getTs).hasValue(100L);
+    }
+
+    @Test
+    public void givenLatestNotLoadedYet_whenFind_thenMissUntilSeeded() {
+        SettableFuture<List<TsKvEntry>> latest = SettableFuture.create();
+        mockLatest(latest);
+
+        cache.put(tenantId, deviceId, List.of(sample(100, 1)));
+        cache.put(tenantId, deviceId, List.of(sample(200, 2)));
+
+        assertThat(cache.findLatest(deviceId, KEY)).isEmpty();
+
+        latest.set(Collections.emptyList());
+
+        assertThat(toTs(cache.findAll(deviceId, List.of(new BaseReadTsKvQuery(KEY, 100, 300, 10, "ASC"))).orElseThrow())).containsExactly(100L, 200L);
+    }
+
+    @Test
+    public void givenLatestLoadFailed_whenFind_thenBufferDropped() {
+        mockLatest(Futures.immediateFailedFuture(new RuntimeException("Database is not available")));
+
+        cache.put(tenantId, deviceId, List.of(sample(100, 1)));
+
+        assertThat(cache.findLatest(deviceId, KEY)).isEmpty();
+
+        mockLatest(Futures.immediateFuture(Collections.emptyList()));
+        cache.put(tenantId, deviceId, List.of(sample(200, 2)));
+
+        assertThat(cache.findLatest(deviceId, KEY)).map(TsKvEntry::getTs).hasValue(200L);
+    }
+
+    @Test
+    public void givenEvictedWhileLoading_whenSeeded_thenNewBufferNotSeeded() {
+        SettableFuture<List<TsKvEntry>> first = SettableFuture.create();
+        SettableFuture<List<TsKvEntry>> second = SettableFuture.create();
+        when(tsService.findLatest(any(), any(), any())).thenReturn(first, second);
+
+        cache.put(tenantId, deviceId, List.of(sample(100, 1)));
+        cache.evict(deviceId, List.of(KEY));
+        cache.put(tenantId, deviceId, List.of(sample(200, 2)));
+        first.set(Collections.emptyList());
+
+        assertThat(cache.findLatest(deviceId, KEY)).isEmpty();
+
+        second.set(Collections.emptyList());
+
+        assertThat(cache.findLatest(deviceId, KEY)).map(TsKvEntry::getTs).hasValue(200L);
+    }
+
+    private void mockLatest(ListenableFuture<List<TsKvEntry>> future) {
+        when(tsService.findLatest(any(), any(), any())).thenReturn(future);
+    }
+
+    private static TsKvEntry sample(long ts, long value) {
+        return new BasicTsKvEntry(ts, new LongDataEntry(KEY, value));
+    }
+
+    private static List<Long> toTs(List<TsKvEntry> entries) {
+        return entries.stream().map(TsKvEntry::getTs).collect(Collectors.toList());
+    }
+}
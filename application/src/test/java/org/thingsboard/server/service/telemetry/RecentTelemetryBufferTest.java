@@ -0,0 +1,111 @@
+/**
+ * Copyright © 2016-2022 The Thingsboard Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.thingsboard.server.service.telemetry;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.thingsboard.server.common.data.kv.Aggregation;
+import org.thingsboard.server.common.data.kv.BaseReadTsKvQuery;
+import org.thingsboard.server.common.data.kv.BasicTsKvEntry;
+import org.thingsboard.server.common.data.kv.LongDataEntry;
+import org.thingsboard.server.common.data.kv.TsKvEntry;
+
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class RecentTelemetryBufferTest {
+
+    private static final String KEY = "temperature";
+
+    RecentTelemetryBuffer buffer;
+
+    @Before
+    public void setUp() {
+        buffer = new RecentTelemetryBuffer(3, 100);
+        buffer.add(sample(300, 3));
+        buffer.add(sample(100, 1));
+        buffer.add(sample(200, 2));
+    }
+
+    @Test
+    public void givenCoveredWindow_whenFind_thenSamplesInRequestedOrder() {
+        assertThat(toTs(buffer.find(new BaseReadTsKvQuery(KEY, 100, 400, 10, "ASC")))).containsExactly(100L, 200L, 300L);
+        assertThat(toTs(buffer.find(new BaseReadTsKvQuery(KEY, 100, 300, 10, "DESC")))).containsExactly(200L, 100L);
+        assertThat(buffer.getLatest().getTs()).isEqualTo(300);
+    }
+
+    @Test
+    public void givenSampleBeforeCoveredRange_whenAdd_thenIgnored() {
+        buffer.add(sample(50, 0));
+        assertThat(toTs(buffer.find(new BaseReadTsKvQuery(KEY, 100, 400, 10, "ASC")))).containsExactly(100L, 200L, 300L);
+    }
+
+    @Test
+    public void givenFullBuffer_whenAdd_thenOldestDroppedAndWindowNotCovered() {
+        buffer.add(sample(400, 4));
+
+        assertThat(buffer.find(new BaseReadTsKvQuery(KEY, 100, 500, 10, "ASC"))).isNull();
+        assertThat(toTs(buffer.find(new BaseReadTsKvQuery(KEY, 100, 500, 2, "DESC")))).containsExactly(400L, 300L);
+        assertThat(toTs(buffer.find(new BaseReadTsKvQuery(KEY, 200, 500, 10, "ASC")))).containsExactly(200L, 300L, 400L);
+    }
+
+    @Test
+    public void givenSameTs_whenAdd_thenValueReplaced() {
+        buffer.add(sample(300, 30));
+        assertThat(buffer.getLatest().getLongValue()).hasValue(30L);
+        assertThat(buffer.find(new BaseReadTsKvQuery(KEY, 100, 400, 10, "ASC"))).hasSize(3);
+    }
+
+    @Test
+    public void givenAggregation_whenFind_thenIntervalsAggregated() {
+        List<TsKvEntry> avg = buffer.find(new BaseReadTsKvQuery(KEY, 100, 300, 201, 10, Aggregation.AVG));
+        assertThat(avg).hasSize(1);
+        assertThat(avg.get(0).getTs()).isEqualTo(200);
+        assertThat(avg.get(0).getDoubleValue()).hasValue(2.0);
+
+        List<TsKvEntry> max = buffer.find(new BaseReadTsKvQuery(KEY, 100, 299, 100, 10, Aggregation.MAX));
+        assertThat(max.stream().map(e -> e.getLongValue().orElse(null)).collect(Collectors.toList())).containsExactly(1L, 2L);
+
+        assertThat(buffer.find(new BaseReadTsKvQuery(KEY, 0, 300, 301, 10, Aggregation.AVG))).isNull();
+    }
+
+    @Test
+    public void givenUnseededBuffer_whenSeed_thenOlderSamplesDroppedAndReadsAnswered() {
+        RecentTelemetryBuffer unseeded = new RecentTelemetryBuffer(3);
+        unseeded.add(sample(100, 1));
+        unseeded.add(sample(200, 2));
+
+        assertThat(unseeded.getLatest()).isNull();
+        assertThat(unseeded.find(new BaseReadTsKvQuery(KEY, 100, 300, 10, "ASC"))).isNull();
+
+        unseeded.seed(150);
+
+        assertThat(unseeded.isSeeded()).isTrue();
+        assertThat(unseeded.getLatest().getTs()).isEqualTo(200);
+        assertThat(unseeded.find(new BaseReadTsKvQuery(KEY, 100, 300, 10, "ASC"))).isNull();
+        assertThat(toTs(unseeded.find(new BaseReadTsKvQuery(KEY, 150, 300, 10, "ASC")))).containsExactly(200L);
+    }
+
+    private static TsKvEntry sample(long ts, long value) {
+        return new BasicTsKvEntry(ts, new LongDataEntry(KEY, value));
+    }
+
+    private static List<Long> toTs(List<TsKvEntry> entries) {
+        return entries.stream().map(TsKvEntry::getTs).collect(Collectors.toList());
+    }
+}
@@ -0,0 +1,240 @@
+/**
+ * Copyright © 2016-2022 The Thingsboard Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.thingsboard.server.cache.ota;
+
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnExpression;
+import org.springframework.stereotype.Service;
+import org.thingsboard.server.common.data.StringUtils;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Keeps OTA package data in memory-mapped files on the local disk, so large packages do not live on the heap.
+ * Chunks are served as read-only views over the mapped files. Least recently used packages are evicted
+ * once the total size of the stored packages exceeds the configured limit.
+ */
+@Slf4j
+@Service
+@ConditionalOnExpression("'${cache.type:caffeine}'=='caffeine' && '${cache.ota.storage:memory}'=='file'")
+public class FileOtaPackageDataCache implements OtaPackageDataCache {
+
+    private static final String FILE_SUFFIX = ".bin";
+
+    @Value("${cache.ota.file.directory:}")
+    private String directory;
+
+    @Value("${cache.ota.file.maxSizeInBytes:1073741824}")
+    private long maxSizeInBytes;
+
+    private final Map<String, MappedPackage> packages = new LinkedHashMap<>(16, 0.75f, true);
+    private final Lock lock = new ReentrantLock();
+    @Getter
+    private long totalSizeInBytes;
+    private Path root;
+
+    @PostConstruct
+    public void init() throws IOException {
+        root = StringUtils.isEmpty(directory) ? Paths.get(System.getProperty("java.io.tmpdir"), "tb-ota-cache") : Paths.get(directory);
+        Files.createDirectories(root);
+        try (DirectoryStream<Path> stale = Files.newDirectoryStream(root, "*" + FILE_SUFFIX)) {
+            for (Path file : stale) {
+                deleteQuietly(file);
+            }
+        }
+        log.info("Using [{}] to store OTA package data, max size {} bytes", root, maxSizeInBytes);
+    }
+
+    @PreDestroy
+    public void destroy() {
+        lock.lock();
+        try {
+            packages.values().forEach(mappedPackage -> deleteQuietly(mappedPackage.getFile()));
+            packages.clear();
+            totalSizeInBytes = 0;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public byte[] get(String key) {
+        return get(key, 0, 0);
+    }
+
+    @Override
+    public byte[] get(String key, int chunkSize, int chunk) {
+        ByteBuffer data = getChunk(key, chunkSize, chunk);
+        if (data == null) {
+            return null;
+        }
+        byte[] result = new byte[data.remaining()];
+        data.get(result);
+        return result;
+    }
+
+    @Override
+    public ByteBuffer getChunk(String key, int chunkSize, int chunk) {
+        ByteBuffer data = getData(key);
+
+        if (chunkSize < 1) {
+            return data;
+        }
+
+        if (data != null && data.capacity() > 0) {
+            long startIndex = (long) chunkSize * chunk;
+
+            long size = Math.min(data.capacity() - startIndex, chunkSize);
+
+            if (startIndex < data.capacity() && size > 0) {
+                data.position((int) startIndex);
+                data.limit((int) (startIndex + size));
+                return data.slice();
+            }
+        }
+        return ByteBuffer.allocate(0).asReadOnlyBuffer();
+    }
+
+    @Override
+    public boolean has(String otaPackageId) {
+        ByteBuffer data = getData(otaPackageId);
+        return data != null && data.capacity() > 0;
+    }
+
+    @Override
+    public void put(String key, byte[] value) {
+        if (value == null) {
+            return;
+        }
+        if (value.length > maxSizeInBytes) {
+            log.warn("[{}] OTA package size {} exceeds the cache size limit {}", key, value.length, maxSizeInBytes);
+            return;
+        }
+        if (getData(key) != null) {
+            return;
+        }
+        MappedPackage mappedPackage;
+        try {
+            mappedPackage = writeAndMap(key, value);
+        } catch (IOException e) {
+            log.warn("[{}] Failed to store OTA package data", key, e);
+            return;
+        }
+        List<MappedPackage> evicted = new ArrayList<>();
+        lock.lock();
+        try {
+            MappedPackage existing = packages.putIfAbsent(key, mappedPackage);
+            if (existing != null) {
+                evicted.add(mappedPackage);
+            } else {
+                totalSizeInBytes += mappedPackage.getSize();
+                Iterator<Map.Entry<String, MappedPackage>> iterator = packages.entrySet().iterator();
+                while (totalSizeInBytes > maxSizeInBytes && iterator.hasNext()) {
+                    Map.Entry<String, MappedPackage> eldest = iterator.next();
+                    if (eldest.getKey().equals(key)) {
+                        continue;
+                    }
+                    iterator.remove();
+                    totalSizeInBytes -= eldest.getValue().getSize();
+                    evicted.add(eldest.getValue());
+                }
+            }
+        } finally {
+            lock.unlock();
+        }
+        evicted.forEach(removed -> deleteQuietly(removed.getFile()));
+    }
+
+    @Override
+    public void evict(String key) {
+        MappedPackage removed;
+        lock.lock();
+        try {
+            removed = packages.remove(key);
+            if (removed != null) {
+                totalSizeInBytes -= removed.getSize();
+            }
+        } finally {
+            lock.unlock();
+        }
+        if (removed != null) {
+            deleteQuietly(removed.getFile());
+        }
+    }
+
+    private ByteBuffer getData(String key) {
+        lock.lock();
+        try {
+            MappedPackage mappedPackage = packages.get(key);
+            return mappedPackage != null ? mappedPackage.getData().asReadOnlyBuffer() : null;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private MappedPackage writeAndMap(String key, byte[] value) throws IOException {
+        Path file = root.resolve(key + "_" + UUID.randomUUID() + FILE_SUFFIX);
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE_NEW, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            ByteBuffer source = ByteBuffer.wrap(value);
+            while (source.hasRemaining()) {
+                channel.write(source);
+            }
+            // The mapping stays valid after the channel is closed and is released once the buffer is collected.
+            MappedByteBuffer data = channel.map(FileChannel.MapMode.READ_ONLY, 0, value.length);
+            return new MappedPackage(file, data, value.length);
+        } catch (IOException e) {
+            deleteQuietly(file);
+            throw e;
+        }
+    }
+
+    private void deleteQuietly(Path file) {
+        try {
+            Files.deleteIfExists(file);
+        } catch (IOException e) {
+            log.debug("Failed to delete OTA package file [{}]", file, e);
+        }
+    }
+
+    @Getter
+    @RequiredArgsConstructor
+    private static class MappedPackage {
+        private final Path file;
+        private final MappedByteBuffer data;
+        private final long size;
+    }
+}
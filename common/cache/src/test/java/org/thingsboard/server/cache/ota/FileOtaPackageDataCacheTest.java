@@ -0,0 +1,81 @@
+/**
+ * Copyright © 2016-2022 The Thingsboard Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.thingsboard.server.cache.ota;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.nio.ByteBuffer;
+import java.nio.file.Path;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class FileOtaPackageDataCacheTest {
+
+    @TempDir
+    Path directory;
+
+    FileOtaPackageDataCache cache;
+
+    @BeforeEach
+    public void setUp() throws Exception {
+        cache = new FileOtaPackageDataCache();
+        ReflectionTestUtils.setField(cache, "directory", directory.toString());
+        ReflectionTestUtils.setField(cache, "maxSizeInBytes", 10L);
+        cache.init();
+    }
+
+    @AfterEach
+    public void tearDown() {
+        cache.destroy();
+    }
+
+    @Test
+    public void givenPackage_whenGetChunk_thenReturnReadOnlySlice() {
+        cache.put("a", new byte[]{0, 1, 2, 3, 4, 5, 6});
+
+        ByteBuffer chunk = cache.getChunk("a", 3, 2);
+        assertThat(chunk.isReadOnly()).isTrue();
+        assertThat(chunk.remaining()).isEqualTo(1);
+        assertThat(chunk.get()).isEqualTo((byte) 6);
+
+        assertThat(cache.get("a", 3, 1)).containsExactly(3, 4, 5);
+        assertThat(cache.get("a", 3, 3)).isEmpty();
+        assertThat(cache.get("a")).hasSize(7);
+        assertThat(cache.get("unknown")).isNull();
+        assertThat(cache.has("a")).isTrue();
+    }
+
+    @Test
+    public void givenSizeLimit_whenPut_thenEvictLeastRecentlyUsed() {
+        cache.put("a", new byte[4]);
+        cache.put("b", new byte[4]);
+        cache.get("a");
+        cache.put("c", new byte[4]);
+
+        assertThat(cache.has("a")).isTrue();
+        assertThat(cache.has("b")).isFalse();
+        assertThat(cache.has("c")).isTrue();
+        assertThat(cache.getTotalSizeInBytes()).isEqualTo(8);
+
+        cache.evict("a");
+        assertThat(cache.has("a")).isFalse();
+        assertThat(cache.getTotalSizeInBytes()).isEqualTo(4);
+    }
+}
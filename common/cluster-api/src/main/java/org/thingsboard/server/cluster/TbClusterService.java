@@ -57,6 +57,8 @@ public interface TbClusterService extends TbQueueClusterService {
 
     void pushMsgToRuleEngine(TenantId tenantId, EntityId entityId, TbMsg msg, TbQueueCallback callback);
 
+    void pushMsgToRuleEngine(TopicPartitionInfo tpi, TbMsg tbMsg, ToRuleEngineMsg.Builder msg, TbQueueCallback callback);
+
     void pushNotificationToRuleEngine(String targetServiceId, FromDeviceRpcResponse response, TbQueueCallback callback);
 
     void pushNotificationToTransport(String targetServiceId, ToTransportMsg response, TbQueueCallback callback);
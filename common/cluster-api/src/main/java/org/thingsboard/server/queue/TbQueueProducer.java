@@ -26,4 +26,11 @@ public interface TbQueueProducer<T extends TbQueueMsg> {
     void send(TopicPartitionInfo tpi, T msg, TbQueueCallback callback);
 
     void stop();
+
+    /**
+     * Whether messages are handed over to the consumers of the same JVM by reference, so the caller may skip serializing them.
+     */
+    default boolean isInMemory() {
+        return false;
+    }
 }
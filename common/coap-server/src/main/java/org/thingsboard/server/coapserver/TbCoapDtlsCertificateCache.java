@@ -0,0 +1,80 @@
+/**
+ * Copyright © 2016-2022 The Thingsboard Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.thingsboard.server.coapserver;
+
+import org.thingsboard.server.common.transport.auth.ValidateDeviceCredentialsResponse;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Bounded cache of the recently validated client certificates keyed by the SHA3 hash of the certificate.
+ * Lets reconnecting devices complete the DTLS handshake without a round trip to the transport API.
+ * Entries expire after the configured time, so changes of the device credentials are picked up eventually.
+ */
+class TbCoapDtlsCertificateCache {
+
+    private final int maxSize;
+    private final long ttlMs;
+    private final Map<String, Entry> entries;
+
+    TbCoapDtlsCertificateCache(int maxSize, long ttlMs) {
+        this.maxSize = maxSize;
+        this.ttlMs = ttlMs;
+        this.entries = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Entry> eldest) {
+                return size() > TbCoapDtlsCertificateCache.this.maxSize;
+            }
+        };
+    }
+
+    boolean isEnabled() {
+        return maxSize > 0 && ttlMs > 0;
+    }
+
+    synchronized ValidateDeviceCredentialsResponse get(String certHash) {
+        Entry entry = entries.get(certHash);
+        if (entry == null) {
+            return null;
+        }
+        if (entry.expirationTime < System.currentTimeMillis()) {
+            entries.remove(certHash);
+            return null;
+        }
+        return entry.response;
+    }
+
+    synchronized void put(String certHash, ValidateDeviceCredentialsResponse response) {
+        if (isEnabled()) {
+            entries.put(certHash, new Entry(response, System.currentTimeMillis() + ttlMs));
+        }
+    }
+
+    synchronized int size() {
+        return entries.size();
+    }
+
+    private static class Entry {
+        private final ValidateDeviceCredentialsResponse response;
+        private final long expirationTime;
+
+        private Entry(ValidateDeviceCredentialsResponse response, long expirationTime) {
+            this.response = response;
+            this.expirationTime = expirationTime;
+        }
+    }
+}
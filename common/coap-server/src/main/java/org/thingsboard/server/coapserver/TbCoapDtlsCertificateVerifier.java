@@ -48,24 +48,26 @@ import java.security.cert.X509Certificate;
 import java.util.Collections;
 import java.util.List;
 import java.util.concurrent.ConcurrentMap;
-import java.util.concurrent.CountDownLatch;
-import java.util.concurrent.TimeUnit;
 
 @Slf4j
 @Data
 public class TbCoapDtlsCertificateVerifier implements NewAdvancedCertificateVerifier {
 
     private final TbCoapDtlsSessionInMemoryStorage tbCoapDtlsSessionInMemoryStorage;
+    private final TbCoapDtlsCertificateCache certificateCache;
 
     private TransportService transportService;
     private TbServiceInfoProvider serviceInfoProvider;
     private boolean skipValidityCheckForClientCert;
+    private volatile HandshakeResultHandler resultHandler;
 
-    public TbCoapDtlsCertificateVerifier(TransportService transportService, TbServiceInfoProvider serviceInfoProvider, long dtlsSessionInactivityTimeout, long dtlsSessionReportTimeout, boolean skipValidityCheckForClientCert) {
+    public TbCoapDtlsCertificateVerifier(TransportService transportService, TbServiceInfoProvider serviceInfoProvider, long dtlsSessionInactivityTimeout, long dtlsSessionReportTimeout,
+                                         boolean skipValidityCheckForClientCert, int certificateCacheSize, long certificateCacheTtl) {
         this.transportService = transportService;
         this.serviceInfoProvider = serviceInfoProvider;
         this.skipValidityCheckForClientCert = skipValidityCheckForClientCert;
         this.tbCoapDtlsSessionInMemoryStorage = new TbCoapDtlsSessionInMemoryStorage(dtlsSessionInactivityTimeout, dtlsSessionReportTimeout);
+        this.certificateCache = new TbCoapDtlsCertificateCache(certificateCacheSize, certificateCacheTtl);
     }
 
     @Override
@@ -73,12 +75,26 @@ public class TbCoapDtlsCertificateVerifier implements NewAdvancedCertificateVeri
         return Collections.singletonList(CertificateType.X_509);
     }
 
+    /**
+     * Returns the result right away if the certificate was validated recently, otherwise validates it with the transport API
+     * and returns null: the result is delivered to the handshake result handler, so the DTLS threads are not blocked
+     * while the transport API request is in flight.
+     * <p>
+     * There is no timeout of its own for the transport API request. If the reply never arrives, the result handler is not
+     * called and the pending handshake is dropped by Scandium once the client gives up retransmitting its flight or the
+     * handshake expires, instead of after the 10 seconds the blocking implementation used to wait.
+     */
     @Override
     public CertificateVerificationResult verifyCertificate(ConnectionId cid, ServerNames serverName, InetSocketAddress remotePeer, boolean clientUsage, boolean verifySubject, boolean truncateCertificatePath, CertificateMessage message) {
+        CertPath certpath = message.getCertificateChain();
+        X509Certificate[] chain = certpath.getCertificates().toArray(new X509Certificate[0]);
+        return verifyCertificateChain(cid, remotePeer, certpath, chain, 0);
+    }
+
+    private CertificateVerificationResult verifyCertificateChain(ConnectionId cid, InetSocketAddress remotePeer, CertPath certpath, X509Certificate[] chain, int startIdx) {
         try {
-            CertPath certpath = message.getCertificateChain();
-            X509Certificate[] chain = certpath.getCertificates().toArray(new X509Certificate[0]);
-            for (X509Certificate cert : chain) {
+            for (int i = startIdx; i < chain.length; i++) {
+                X509Certificate cert = chain[i];
                 try {
                     if (!skipValidityCheckForClientCert) {
                         cert.checkValidity();
@@ -86,35 +102,33 @@ public class TbCoapDtlsCertificateVerifier implements NewAdvancedCertificateVeri
 
                     String strCert = SslUtil.getCertificateString(cert);
                     String sha3Hash = EncryptionUtil.getSha3Hash(strCert);
-                    final ValidateDeviceCredentialsResponse[] deviceCredentialsResponse = new ValidateDeviceCredentialsResponse[1];
-                    CountDownLatch latch = new CountDownLatch(1);
+                    ValidateDeviceCredentialsResponse cached = certificateCache.get(sha3Hash);
+                    if (cached != null && strCert.equals(cached.getCredentials())) {
+                        onCertificateValidated(remotePeer, cached);
+                        break;
+                    }
+                    int nextIdx = i + 1;
                     transportService.process(DeviceTransportType.COAP, TransportProtos.ValidateDeviceX509CertRequestMsg.newBuilder().setHash(sha3Hash).build(),
                             new TransportServiceCallback<>() {
                                 @Override
                                 public void onSuccess(ValidateDeviceCredentialsResponse msg) {
-                                    if (!StringUtils.isEmpty(msg.getCredentials())) {
-                                        deviceCredentialsResponse[0] = msg;
+                                    if (!StringUtils.isEmpty(msg.getCredentials()) && strCert.equals(msg.getCredentials())) {
+                                        certificateCache.put(sha3Hash, msg);
+                                        onCertificateValidated(remotePeer, msg);
+                                        completeVerification(new CertificateVerificationResult(cid, certpath, null));
+                                    } else {
+                                        completeVerification(verifyCertificateChain(cid, remotePeer, certpath, chain, nextIdx));
                                     }
-                                    latch.countDown();
                                 }
 
                                 @Override
                                 public void onError(Throwable e) {
                                     log.error(e.getMessage(), e);
-                                    latch.countDown();
+                                    completeVerification(verifyCertificateChain(cid, remotePeer, certpath, chain, nextIdx));
                                 }
                             });
-                    latch.await(10, TimeUnit.SECONDS);
-                    ValidateDeviceCredentialsResponse msg = deviceCredentialsResponse[0];
-                    if (msg != null && strCert.equals(msg.getCredentials())) {
-                        DeviceProfile deviceProfile = msg.getDeviceProfile();
-                        if (msg.hasDeviceInfo() && deviceProfile != null) {
-                            tbCoapDtlsSessionInMemoryStorage.put(remotePeer, new TbCoapDtlsSessionInfo(msg, deviceProfile));
-                        }
-                        break;
-                    }
-                } catch (InterruptedException |
-                        CertificateEncodingException |
+                    return null;
+                } catch (CertificateEncodingException |
                         CertificateExpiredException |
                         CertificateNotYetValidException e) {
                     log.error(e.getMessage(), e);
@@ -129,6 +143,19 @@ public class TbCoapDtlsCertificateVerifier implements NewAdvancedCertificateVeri
         }
     }
 
+    private void onCertificateValidated(InetSocketAddress remotePeer, ValidateDeviceCredentialsResponse msg) {
+        DeviceProfile deviceProfile = msg.getDeviceProfile();
+        if (msg.hasDeviceInfo() && deviceProfile != null) {
+            tbCoapDtlsSessionInMemoryStorage.put(remotePeer, new TbCoapDtlsSessionInfo(msg, deviceProfile));
+        }
+    }
+
+    private void completeVerification(CertificateVerificationResult result) {
+        if (result != null) {
+            resultHandler.apply(result);
+        }
+    }
+
     @Override
     public List<X500Principal> getAcceptedIssuers() {
         return CertPathUtil.toSubjects(null);
@@ -136,6 +163,7 @@ public class TbCoapDtlsCertificateVerifier implements NewAdvancedCertificateVeri
 
     @Override
     public void setResultHandler(HandshakeResultHandler resultHandler) {
+        this.resultHandler = resultHandler;
     }
 
     public ConcurrentMap<InetSocketAddress, TbCoapDtlsSessionInfo> getTbCoapDtlsSessionsMap() {
@@ -70,6 +70,12 @@ public class TbCoapDtlsSettings {
     @Value("${transport.coap.dtls.x509.dtls_session_report_timeout:1800000}")
     private long dtlsSessionReportTimeout;
 
+    @Value("${transport.coap.dtls.x509.certificate_cache_size:10000}")
+    private int certificateCacheSize;
+
+    @Value("${transport.coap.dtls.x509.certificate_cache_ttl:60000}")
+    private long certificateCacheTtl;
+
     @Autowired
     private TransportService transportService;
 
@@ -90,7 +96,9 @@ public class TbCoapDtlsSettings {
                         serviceInfoProvider,
                         dtlsSessionInactivityTimeout,
                         dtlsSessionReportTimeout,
-                        skipValidityCheckForClientCert
+                        skipValidityCheckForClientCert,
+                        certificateCacheSize,
+                        certificateCacheTtl
                 )
         );
         configBuilder.setCertificateIdentityProvider(new SingleCertificateProvider(serverCredentials.getPrivateKey(), serverCredentials.getCertificateChain(),
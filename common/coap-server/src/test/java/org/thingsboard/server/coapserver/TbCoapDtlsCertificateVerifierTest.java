@@ -0,0 +1,184 @@
+/**
+ * Copyright © 2016-2022 The Thingsboard Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.thingsboard.server.coapserver;
+
+import org.bouncycastle.asn1.x500.X500Name;
+import org.bouncycastle.cert.jcajce.JcaX509CertificateConverter;
+import org.bouncycastle.cert.jcajce.JcaX509v3CertificateBuilder;
+import org.bouncycastle.operator.jcajce.JcaContentSignerBuilder;
+import org.eclipse.californium.scandium.dtls.CertificateMessage;
+import org.eclipse.californium.scandium.dtls.CertificateVerificationResult;
+import org.eclipse.californium.scandium.dtls.ConnectionId;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.thingsboard.server.common.data.DeviceProfile;
+import org.thingsboard.server.common.data.DeviceTransportType;
+import org.thingsboard.server.common.msg.EncryptionUtil;
+import org.thingsboard.server.common.transport.TransportService;
+import org.thingsboard.server.common.transport.TransportServiceCallback;
+import org.thingsboard.server.common.transport.auth.TransportDeviceInfo;
+import org.thingsboard.server.common.transport.auth.ValidateDeviceCredentialsResponse;
+import org.thingsboard.server.common.transport.util.SslUtil;
+import org.thingsboard.server.gen.transport.TransportProtos;
+
+import java.math.BigInteger;
+import java.net.InetSocketAddress;
+import java.security.KeyPair;
+import java.security.KeyPairGenerator;
+import java.security.cert.X509Certificate;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+public class TbCoapDtlsCertificateVerifierTest {
+
+    private static final InetSocketAddress REMOTE_PEER = new InetSocketAddress("127.0.0.1", 5684);
+
+    private final Map<String, X509Certificate> registeredCertificates = new HashMap<>();
+    private final Set<String> failingLookups = new HashSet<>();
+    private final List<CertificateVerificationResult> handlerResults = new ArrayList<>();
+
+    private TransportService transportService;
+    private TbCoapDtlsCertificateVerifier verifier;
+    private X509Certificate deviceCertificate;
+    private X509Certificate issuerCertificate;
+
+    @BeforeEach
+    public void setUp() throws Exception {
+        KeyPairGenerator keyPairGenerator = KeyPairGenerator.getInstance("EC");
+        keyPairGenerator.initialize(256);
+        KeyPair issuerKeyPair = keyPairGenerator.generateKeyPair();
+        issuerCertificate = certificate(issuerKeyPair, "issuer", issuerKeyPair, "issuer");
+        deviceCertificate = certificate(keyPairGenerator.generateKeyPair(), "device", issuerKeyPair, "issuer");
+
+        transportService = mock(TransportService.class);
+        doAnswer(invocation -> {
+            TransportProtos.ValidateDeviceX509CertRequestMsg msg = invocation.getArgument(1);
+            TransportServiceCallback<ValidateDeviceCredentialsResponse> callback = invocation.getArgument(2);
+            if (failingLookups.contains(msg.getHash())) {
+                callback.onError(new RuntimeException("Transport API is not available"));
+                return null;
+            }
+            X509Certificate certificate = registeredCertificates.get(msg.getHash());
+            if (certificate == null) {
+                callback.onSuccess(ValidateDeviceCredentialsResponse.builder().build());
+            } else {
+                callback.onSuccess(ValidateDeviceCredentialsResponse.builder()
+                        .deviceInfo(new TransportDeviceInfo())
+                        .deviceProfile(new DeviceProfile())
+                        .credentials(SslUtil.getCertificateString(certificate))
+                        .build());
+            }
+            return null;
+        }).when(transportService).process(eq(DeviceTransportType.COAP), any(TransportProtos.ValidateDeviceX509CertRequestMsg.class), any());
+
+        verifier = new TbCoapDtlsCertificateVerifier(transportService, null, TimeUnit.DAYS.toMillis(1), TimeUnit.MINUTES.toMillis(30),
+                false, 100, TimeUnit.MINUTES.toMillis(1));
+        verifier.setResultHandler(result -> handlerResults.add((CertificateVerificationResult) result));
+    }
+
+    @Test
+    public void givenRegisteredCertificate_whenVerifiedTwice_thenSecondHandshakeServedFromCache() throws Exception {
+        register(deviceCertificate);
+
+        assertThat(verifyChain(deviceCertificate)).isNull();
+        assertThat(handlerResults).hasSize(1);
+        assertThat(handlerResults.get(0).getException()).isNull();
+        assertThat(verifier.getTbCoapDtlsSessionsMap()).containsKey(REMOTE_PEER);
+
+        verifier.getTbCoapDtlsSessionsMap().clear();
+        CertificateVerificationResult cached = verifyChain(deviceCertificate);
+
+        assertThat(cached).isNotNull();
+        assertThat(cached.getException()).isNull();
+        assertThat(handlerResults).hasSize(1);
+        assertThat(verifier.getTbCoapDtlsSessionsMap()).containsKey(REMOTE_PEER);
+        verify(transportService, times(1)).process(eq(DeviceTransportType.COAP), any(TransportProtos.ValidateDeviceX509CertRequestMsg.class), any());
+    }
+
+    @Test
+    public void givenUnknownDeviceCertificate_whenVerify_thenNextChainCertificateChecked() throws Exception {
+        register(issuerCertificate);
+
+        assertThat(verifyChain(deviceCertificate, issuerCertificate)).isNull();
+
+        assertThat(handlerResults).hasSize(1);
+        assertThat(handlerResults.get(0).getException()).isNull();
+        assertThat(verifier.getTbCoapDtlsSessionsMap()).containsKey(REMOTE_PEER);
+        verify(transportService, times(2)).process(eq(DeviceTransportType.COAP), any(TransportProtos.ValidateDeviceX509CertRequestMsg.class), any());
+    }
+
+    @Test
+    public void givenTransportApiError_whenVerify_thenNextChainCertificateChecked() throws Exception {
+        failingLookups.add(hash(deviceCertificate));
+        register(issuerCertificate);
+
+        assertThat(verifyChain(deviceCertificate, issuerCertificate)).isNull();
+
+        assertThat(handlerResults).hasSize(1);
+        assertThat(handlerResults.get(0).getException()).isNull();
+        assertThat(verifier.getTbCoapDtlsSessionsMap()).containsKey(REMOTE_PEER);
+        verify(transportService, times(2)).process(eq(DeviceTransportType.COAP), any(TransportProtos.ValidateDeviceX509CertRequestMsg.class), any());
+    }
+
+    @Test
+    public void givenTransportApiErrorForWholeChain_whenVerify_thenNoSessionCreated() throws Exception {
+        failingLookups.add(hash(deviceCertificate));
+
+        assertThat(verifyChain(deviceCertificate)).isNull();
+
+        assertThat(handlerResults).hasSize(1);
+        assertThat(verifier.getTbCoapDtlsSessionsMap()).isEmpty();
+
+        failingLookups.clear();
+        register(deviceCertificate);
+        assertThat(verifyChain(deviceCertificate)).isNull();
+        assertThat(verifier.getTbCoapDtlsSessionsMap()).containsKey(REMOTE_PEER);
+    }
+
+    private CertificateVerificationResult verifyChain(X509Certificate... chain) {
+        CertificateMessage message = new CertificateMessage(List.of(chain));
+        return verifier.verifyCertificate(ConnectionId.EMPTY, null, REMOTE_PEER, true, false, false, message);
+    }
+
+    private void register(X509Certificate certificate) throws Exception {
+        registeredCertificates.put(hash(certificate), certificate);
+    }
+
+    private static String hash(X509Certificate certificate) throws Exception {
+        return EncryptionUtil.getSha3Hash(SslUtil.getCertificateString(certificate));
+    }
+
+    private static X509Certificate certificate(KeyPair keyPair, String cn, KeyPair issuerKeyPair, String issuerCn) throws Exception {
+        long now = System.currentTimeMillis();
+        JcaX509v3CertificateBuilder builder = new JcaX509v3CertificateBuilder(new X500Name("CN=" + issuerCn), BigInteger.valueOf(now),
+                new Date(now - 60000), new Date(now + TimeUnit.DAYS.toMillis(1)), new X500Name("CN=" + cn), keyPair.getPublic());
+        return new JcaX509CertificateConverter().getCertificate(builder.build(new JcaContentSignerBuilder("SHA256withECDSA").build(issuerKeyPair.getPrivate())));
+    }
+}
@@ -0,0 +1,164 @@
+/**
+ * Copyright © 2016-2022 The Thingsboard Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.thingsboard.server.coapserver;
+
+import lombok.extern.slf4j.Slf4j;
+import org.bouncycastle.asn1.x500.X500Name;
+import org.bouncycastle.cert.jcajce.JcaX509CertificateConverter;
+import org.bouncycastle.cert.jcajce.JcaX509v3CertificateBuilder;
+import org.bouncycastle.operator.jcajce.JcaContentSignerBuilder;
+import org.eclipse.californium.scandium.dtls.CertificateMessage;
+import org.eclipse.californium.scandium.dtls.CertificateVerificationResult;
+import org.eclipse.californium.scandium.dtls.ConnectionId;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.thingsboard.server.common.data.DeviceProfile;
+import org.thingsboard.server.common.data.DeviceTransportType;
+import org.thingsboard.server.common.msg.EncryptionUtil;
+import org.thingsboard.server.common.transport.TransportService;
+import org.thingsboard.server.common.transport.TransportServiceCallback;
+import org.thingsboard.server.common.transport.auth.TransportDeviceInfo;
+import org.thingsboard.server.common.transport.auth.ValidateDeviceCredentialsResponse;
+import org.thingsboard.server.common.transport.util.SslUtil;
+import org.thingsboard.server.gen.transport.TransportProtos;
+
+import java.math.BigInteger;
+import java.net.InetSocketAddress;
+import java.security.KeyPair;
+import java.security.KeyPairGenerator;
+import java.security.cert.X509Certificate;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+
+/**
+ * Simulates a burst of devices performing the DTLS handshake at the same time: a small pool stands in for the
+ * Scandium handshake threads and the transport API answers the credentials lookups with a fixed latency.
+ * Not part of the regular test run; start it manually and compare the reported handshake rates.
+ */
+@Slf4j
+public class TbCoapDtlsHandshakeStormBenchmark {
+
+    static final int DEVICES = 2000;
+    static final int HANDSHAKE_THREADS = 2;
+    static final long TRANSPORT_API_LATENCY_MS = 20;
+
+    final List<X509Certificate> certificates = new ArrayList<>();
+    final ConcurrentHashMap<String, X509Certificate> certificatesByHash = new ConcurrentHashMap<>();
+    final AtomicInteger transportApiRequests = new AtomicInteger();
+
+    ExecutorService handshakeExecutor;
+    ScheduledExecutorService transportApiExecutor;
+    TbCoapDtlsCertificateVerifier verifier;
+
+    @BeforeEach
+    public void init() throws Exception {
+        KeyPairGenerator keyPairGenerator = KeyPairGenerator.getInstance("EC");
+        keyPairGenerator.initialize(256);
+        for (int i = 0; i < DEVICES; i++) {
+            X509Certificate certificate = selfSignedCertificate(keyPairGenerator.generateKeyPair(), "device-" + i);
+            certificates.add(certificate);
+            certificatesByHash.put(EncryptionUtil.getSha3Hash(SslUtil.getCertificateString(certificate)), certificate);
+        }
+        handshakeExecutor = Executors.newFixedThreadPool(HANDSHAKE_THREADS);
+        transportApiExecutor = Executors.newScheduledThreadPool(4);
+        verifier = new TbCoapDtlsCertificateVerifier(transportApiStandIn(), null, TimeUnit.DAYS.toMillis(1), TimeUnit.MINUTES.toMillis(30),
+                false, DEVICES, TimeUnit.MINUTES.toMillis(1));
+    }
+
+    @AfterEach
+    public void destroy() {
+        handshakeExecutor.shutdownNow();
+        transportApiExecutor.shutdownNow();
+    }
+
+    @Test
+    public void handshakeStorm() throws Exception {
+        runStorm("cold cache");
+        assertThat(transportApiRequests.get()).isEqualTo(DEVICES);
+        runStorm("warm cache");
+        assertThat(transportApiRequests.get()).isEqualTo(DEVICES);
+        assertThat(verifier.getTbCoapDtlsSessionsMap()).hasSize(DEVICES);
+    }
+
+    private void runStorm(String name) throws Exception {
+        verifier.getTbCoapDtlsSessionsMap().clear();
+        CountDownLatch completed = new CountDownLatch(DEVICES);
+        verifier.setResultHandler(result -> {
+            assertThat(((CertificateVerificationResult) result).getException()).isNull();
+            completed.countDown();
+        });
+        long startTs = System.nanoTime();
+        for (int i = 0; i < DEVICES; i++) {
+            InetSocketAddress remotePeer = new InetSocketAddress("127.0.0.1", 10000 + i);
+            CertificateMessage message = new CertificateMessage(Collections.singletonList(certificates.get(i)));
+            handshakeExecutor.submit(() -> {
+                CertificateVerificationResult result = verifier.verifyCertificate(ConnectionId.EMPTY, null, remotePeer,
+                        true, false, false, message);
+                if (result != null) {
+                    completed.countDown();
+                }
+            });
+        }
+        assertThat(completed.await(5, TimeUnit.MINUTES)).isTrue();
+        long durationMs = Math.max(1, TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startTs));
+        log.info("[{}] Verified {} client certificates on {} handshake threads in {} ms: {} handshakes/s",
+                name, DEVICES, HANDSHAKE_THREADS, durationMs, DEVICES * 1000L / durationMs);
+    }
+
+    private TransportService transportApiStandIn() {
+        TransportService transportService = mock(TransportService.class);
+        doAnswer(invocation -> {
+            TransportProtos.ValidateDeviceX509CertRequestMsg msg = invocation.getArgument(1);
+            TransportServiceCallback<ValidateDeviceCredentialsResponse> callback = invocation.getArgument(2);
+            transportApiRequests.incrementAndGet();
+            transportApiExecutor.schedule(() -> {
+                X509Certificate certificate = certificatesByHash.get(msg.getHash());
+                callback.onSuccess(ValidateDeviceCredentialsResponse.builder()
+                        .deviceInfo(new TransportDeviceInfo())
+                        .deviceProfile(new DeviceProfile())
+                        .credentials(SslUtil.getCertificateString(certificate))
+                        .build());
+                return null;
+            }, TRANSPORT_API_LATENCY_MS, TimeUnit.MILLISECONDS);
+            return null;
+        }).when(transportService).process(eq(DeviceTransportType.COAP), any(TransportProtos.ValidateDeviceX509CertRequestMsg.class), any());
+        return transportService;
+    }
+
+    private static X509Certificate selfSignedCertificate(KeyPair keyPair, String cn) throws Exception {
+        X500Name name = new X500Name("CN=" + cn);
+        long now = System.currentTimeMillis();
+        JcaX509v3CertificateBuilder builder = new JcaX509v3CertificateBuilder(name, BigInteger.valueOf(now), new Date(now - 60000),
+                new Date(now + TimeUnit.DAYS.toMillis(1)), name, keyPair.getPublic());
+        return new JcaX509CertificateConverter().getCertificate(builder.build(new JcaContentSignerBuilder("SHA256withECDSA").build(keyPair.getPrivate())));
+    }
+}
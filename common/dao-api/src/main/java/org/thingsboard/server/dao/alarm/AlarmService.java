@@ -42,6 +42,8 @@ public interface AlarmService {
 
     AlarmOperationResult createOrUpdateAlarm(Alarm alarm, boolean alarmCreationEnabled);
 
+    ListenableFuture<AlarmOperationResult> createOrUpdateAlarmAsync(Alarm alarm, boolean alarmCreationEnabled);
+
     AlarmOperationResult deleteAlarm(TenantId tenantId, AlarmId alarmId);
 
     ListenableFuture<AlarmOperationResult> ackAlarm(TenantId tenantId, AlarmId alarmId, long ackTs);
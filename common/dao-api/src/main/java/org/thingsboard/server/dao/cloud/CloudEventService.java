@@ -24,7 +24,10 @@ import org.thingsboard.server.common.data.id.TenantId;
 import org.thingsboard.server.common.data.page.PageData;
 import org.thingsboard.server.common.data.page.TimePageLink;
 
+import java.util.Collection;
 import java.util.List;
+import java.util.Map;
+import java.util.UUID;
 
 public interface CloudEventService {
 
@@ -32,6 +35,18 @@ public interface CloudEventService {
 
     PageData<CloudEvent> findCloudEvents(TenantId tenantId, TimePageLink pageLink);
 
+    PageData<CloudEvent> findCloudEvents(TenantId tenantId,
+                                         Collection<CloudEventType> cloudEventTypes,
+                                         Collection<String> cloudEventActions,
+                                         TimePageLink pageLink);
+
+    Map<UUID, Long> findFirstCloudEventTimes(TenantId tenantId,
+                                             Collection<UUID> entityIds,
+                                             Collection<CloudEventType> cloudEventTypes,
+                                             Collection<String> cloudEventActions,
+                                             long startTime,
+                                             long endTime);
+
     PageData<CloudEvent> findCloudEventsByEntityIdAndCloudEventActionAndCloudEventType(TenantId tenantId,
                                                                                        EntityId entityId,
                                                                                        CloudEventType cloudEventType,
@@ -21,9 +21,12 @@ import io.grpc.netty.shaded.io.grpc.netty.NettyChannelBuilder;
 import io.grpc.netty.shaded.io.netty.handler.ssl.SslContextBuilder;
 import io.grpc.stub.StreamObserver;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 import org.thingsboard.edge.exception.EdgeConnectionException;
+import org.thingsboard.edge.rpc.compression.EdgeRpcCompression;
+import org.thingsboard.edge.rpc.compression.EdgeRpcCompressionListener;
 import org.thingsboard.server.common.data.ResourceUtils;
 import org.thingsboard.server.common.data.StringUtils;
 import org.thingsboard.server.gen.edge.v1.ConnectRequestMsg;
@@ -34,6 +37,7 @@ import org.thingsboard.server.gen.edge.v1.DownlinkResponseMsg;
 import org.thingsboard.server.gen.edge.v1.EdgeConfiguration;
 import org.thingsboard.server.gen.edge.v1.EdgeRpcServiceGrpc;
 import org.thingsboard.server.gen.edge.v1.EdgeVersion;
+import org.thingsboard.server.gen.edge.v1.EntityTypeSyncDigestProto;
 import org.thingsboard.server.gen.edge.v1.RequestMsg;
 import org.thingsboard.server.gen.edge.v1.RequestMsgType;
 import org.thingsboard.server.gen.edge.v1.ResponseMsg;
@@ -42,6 +46,7 @@ import org.thingsboard.server.gen.edge.v1.UplinkMsg;
 import org.thingsboard.server.gen.edge.v1.UplinkResponseMsg;
 
 import javax.net.ssl.SSLException;
+import java.util.List;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.locks.ReentrantLock;
 import java.util.function.Consumer;
@@ -62,6 +67,11 @@ public class EdgeGrpcClient implements EdgeRpcClient {
     private boolean sslEnabled;
     @Value("${cloud.rpc.ssl.cert:}")
     private String certResource;
+    @Value("${cloud.rpc.compression:gzip}")
+    private String compression;
+
+    @Autowired(required = false)
+    private EdgeRpcCompressionListener compressionListener;
 
     private ManagedChannel channel;
 
@@ -76,8 +86,12 @@ public class EdgeGrpcClient implements EdgeRpcClient {
                         Consumer<EdgeConfiguration> onEdgeUpdate,
                         Consumer<DownlinkMsg> onDownlink,
                         Consumer<Exception> onError) {
+        EdgeRpcCompressionListener listener = compressionListener != null ? compressionListener : EdgeRpcCompressionListener.NOOP;
         NettyChannelBuilder builder = NettyChannelBuilder.forAddress(rpcHost, rpcPort)
-                .keepAliveTime(keepAliveTimeSec, TimeUnit.SECONDS);
+                .keepAliveTime(keepAliveTimeSec, TimeUnit.SECONDS)
+                .compressorRegistry(EdgeRpcCompression.compressorRegistry(listener))
+                .decompressorRegistry(EdgeRpcCompression.decompressorRegistry())
+                .intercept(EdgeRpcCompression.clientStatsInterceptor(listener));
         if (sslEnabled) {
             try {
                 SslContextBuilder sslContextBuilder = GrpcSslContexts.forClient();
@@ -95,7 +109,7 @@ public class EdgeGrpcClient implements EdgeRpcClient {
         channel = builder.build();
         EdgeRpcServiceGrpc.EdgeRpcServiceStub stub = EdgeRpcServiceGrpc.newStub(channel);
         log.info("[{}] Sending a connect request to the TB!", edgeKey);
-        this.inputStream = stub.withCompression("gzip").handleMsgs(initOutputStream(edgeKey, onUplinkResponse, onEdgeUpdate, onDownlink, onError));
+        this.inputStream = stub.withCompression(getCompression()).handleMsgs(initOutputStream(edgeKey, onUplinkResponse, onEdgeUpdate, onDownlink, onError));
         this.inputStream.onNext(RequestMsg.newBuilder()
                 .setMsgType(RequestMsgType.CONNECT_RPC_MESSAGE)
                 .setConnectRequestMsg(ConnectRequestMsg.newBuilder()
@@ -106,6 +120,14 @@ public class EdgeGrpcClient implements EdgeRpcClient {
                 .build());
     }
 
+    private String getCompression() {
+        if (EdgeRpcCompression.isSupported(compression)) {
+            return compression;
+        }
+        log.warn("Unsupported compression [{}], using [{}] instead", compression, EdgeRpcCompression.GZIP);
+        return EdgeRpcCompression.GZIP;
+    }
+
     private StreamObserver<ResponseMsg> initOutputStream(String edgeKey,
                                                          Consumer<UplinkResponseMsg> onUplinkResponse,
                                                          Consumer<EdgeConfiguration> onEdgeUpdate,
@@ -206,10 +228,13 @@ public class EdgeGrpcClient implements EdgeRpcClient {
     }
 
     @Override
-    public void sendSyncRequestMsg(boolean syncRequired) {
+    public void sendSyncRequestMsg(boolean syncRequired, List<EntityTypeSyncDigestProto> entityTypeDigests) {
         uplinkMsgLock.lock();
         try {
-            SyncRequestMsg syncRequestMsg = SyncRequestMsg.newBuilder().setSyncRequired(syncRequired).build();
+            SyncRequestMsg syncRequestMsg = SyncRequestMsg.newBuilder()
+                    .setSyncRequired(syncRequired)
+                    .addAllEntityTypeDigests(entityTypeDigests)
+                    .build();
             this.inputStream.onNext(RequestMsg.newBuilder()
                     .setMsgType(RequestMsgType.SYNC_REQUEST_RPC_MESSAGE)
                     .setSyncRequestMsg(syncRequestMsg)
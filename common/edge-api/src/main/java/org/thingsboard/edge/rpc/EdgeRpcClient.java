@@ -18,9 +18,12 @@ package org.thingsboard.edge.rpc;
 import org.thingsboard.server.gen.edge.v1.DownlinkMsg;
 import org.thingsboard.server.gen.edge.v1.DownlinkResponseMsg;
 import org.thingsboard.server.gen.edge.v1.EdgeConfiguration;
+import org.thingsboard.server.gen.edge.v1.EntityTypeSyncDigestProto;
 import org.thingsboard.server.gen.edge.v1.UplinkMsg;
 import org.thingsboard.server.gen.edge.v1.UplinkResponseMsg;
 
+import java.util.Collections;
+import java.util.List;
 import java.util.function.Consumer;
 
 public interface EdgeRpcClient {
@@ -34,7 +37,11 @@ public interface EdgeRpcClient {
 
     void disconnect(boolean onError) throws InterruptedException;
 
-    void sendSyncRequestMsg(boolean syncRequired);
+    default void sendSyncRequestMsg(boolean syncRequired) {
+        sendSyncRequestMsg(syncRequired, Collections.emptyList());
+    }
+
+    void sendSyncRequestMsg(boolean syncRequired, List<EntityTypeSyncDigestProto> entityTypeDigests);
 
     void sendUplinkMsg(UplinkMsg uplinkMsg);
 
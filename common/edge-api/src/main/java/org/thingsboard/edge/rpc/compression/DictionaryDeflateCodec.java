@@ -0,0 +1,91 @@
+/**
+ * Copyright © 2016-2022 The Thingsboard Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.thingsboard.edge.rpc.compression;
+
+import io.grpc.Codec;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.Inflater;
+import java.util.zip.InflaterInputStream;
+
+/**
+ * Raw deflate with a preset dictionary of the strings that repeat in almost every uplink and downlink message:
+ * telemetry and metadata keys, entity and message types. Small messages compress much better than with plain gzip,
+ * because the very first occurrence of such a string is already a back reference into the dictionary.
+ * Both sides must use the same dictionary, so any change of its content requires a new encoding name.
+ */
+public class DictionaryDeflateCodec implements Codec {
+
+    public static final String ENCODING = "tb-deflate-dict-v1";
+
+    private static final byte[] DICTIONARY = String.join("",
+            "deviceName", "deviceType", "deviceLabel", "customerId", "tenantId", "entityType", "entityName",
+            "originator", "msgType", "metadata", "values", "ts", "temperature", "humidity", "battery", "latitude", "longitude",
+            "active", "inactivityAlarmTime", "lastActivityTime", "lastConnectTime", "lastDisconnectTime",
+            "POST_TELEMETRY_REQUEST", "POST_ATTRIBUTES_REQUEST", "ATTRIBUTES_UPDATED", "ATTRIBUTES_DELETED", "TIMESERIES_UPDATED",
+            "ENTITY_CREATED", "ENTITY_UPDATED", "ENTITY_DELETED", "ALARM_ACK", "ALARM_CLEAR", "RPC_CALL_FROM_SERVER_TO_DEVICE",
+            "SERVER_SCOPE", "SHARED_SCOPE", "CLIENT_SCOPE", "DEVICE", "ASSET", "ENTITY_VIEW", "DASHBOARD", "RULE_CHAIN",
+            "CUSTOMER", "TENANT", "EDGE", "USER", "ALARM", "default", "Contains", "Manages", "true", "false", "null"
+    ).getBytes(StandardCharsets.UTF_8);
+
+    private final int level;
+
+    public DictionaryDeflateCodec(int level) {
+        this.level = level;
+    }
+
+    @Override
+    public String getMessageEncoding() {
+        return ENCODING;
+    }
+
+    @Override
+    public OutputStream compress(OutputStream os) throws IOException {
+        Deflater deflater = new Deflater(level, true);
+        deflater.setDictionary(DICTIONARY);
+        return new DeflaterOutputStream(os, deflater) {
+            @Override
+            public void close() throws IOException {
+                try {
+                    super.close();
+                } finally {
+                    deflater.end();
+                }
+            }
+        };
+    }
+
+    @Override
+    public InputStream decompress(InputStream is) throws IOException {
+        Inflater inflater = new Inflater(true);
+        inflater.setDictionary(DICTIONARY);
+        return new InflaterInputStream(is, inflater) {
+            @Override
+            public void close() throws IOException {
+                try {
+                    super.close();
+                } finally {
+                    inflater.end();
+                }
+            }
+        };
+    }
+}
@@ -0,0 +1,269 @@
+/**
+ * Copyright © 2016-2022 The Thingsboard Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.thingsboard.edge.rpc.compression;
+
+import io.grpc.CallOptions;
+import io.grpc.Channel;
+import io.grpc.ClientCall;
+import io.grpc.ClientInterceptor;
+import io.grpc.ClientStreamTracer;
+import io.grpc.Codec;
+import io.grpc.Compressor;
+import io.grpc.CompressorRegistry;
+import io.grpc.DecompressorRegistry;
+import io.grpc.Metadata;
+import io.grpc.MethodDescriptor;
+import io.grpc.ServerStreamTracer;
+import io.grpc.Status;
+
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.zip.Deflater;
+
+/**
+ * Compression setup shared by the edge gRPC client and the cloud gRPC server.
+ * Both sides register the same codecs, so the encoding is negotiated by gRPC itself: the receiver advertises
+ * the supported encodings in 'grpc-accept-encoding' and the responses fall back to 'identity' when
+ * the requested encoding is not supported by the other side.
+ */
+public final class EdgeRpcCompression {
+
+    public static final String IDENTITY = Codec.Identity.NONE.getMessageEncoding();
+    public static final String GZIP = new Codec.Gzip().getMessageEncoding();
+    public static final String DICTIONARY = DictionaryDeflateCodec.ENCODING;
+
+    private EdgeRpcCompression() {
+    }
+
+    public static boolean isSupported(String encoding) {
+        return IDENTITY.equals(encoding) || GZIP.equals(encoding) || DICTIONARY.equals(encoding);
+    }
+
+    public static CompressorRegistry compressorRegistry(EdgeRpcCompressionListener listener) {
+        CompressorRegistry registry = CompressorRegistry.newEmptyInstance();
+        registry.register(Codec.Identity.NONE);
+        registry.register(new MeteredCompressor(new Codec.Gzip(), listener));
+        registry.register(new MeteredCompressor(new DictionaryDeflateCodec(Deflater.DEFAULT_COMPRESSION), listener));
+        return registry;
+    }
+
+    public static DecompressorRegistry decompressorRegistry() {
+        return DecompressorRegistry.emptyInstance()
+                .with(Codec.Identity.NONE, false)
+                .with(new Codec.Gzip(), true)
+                .with(new DictionaryDeflateCodec(Deflater.DEFAULT_COMPRESSION), true);
+    }
+
+    public static ClientInterceptor clientStatsInterceptor(EdgeRpcCompressionListener listener) {
+        ClientStreamTracer.Factory factory = new ClientStreamTracer.Factory() {
+            @Override
+            public ClientStreamTracer newClientStreamTracer(ClientStreamTracer.StreamInfo info, Metadata headers) {
+                InboundMessageSizes inboundMessage = new InboundMessageSizes(listener);
+                return new ClientStreamTracer() {
+                    @Override
+                    public void outboundWireSize(long bytes) {
+                        listener.onWireBytes(true, bytes);
+                    }
+
+                    @Override
+                    public void outboundUncompressedSize(long bytes) {
+                        listener.onUncompressedBytes(true, bytes);
+                    }
+
+                    @Override
+                    public void inboundWireSize(long bytes) {
+                        listener.onWireBytes(false, bytes);
+                        inboundMessage.onWireSize(bytes);
+                    }
+
+                    @Override
+                    public void inboundUncompressedSize(long bytes) {
+                        listener.onUncompressedBytes(false, bytes);
+                        inboundMessage.onUncompressedSize(bytes);
+                    }
+
+                    @Override
+                    public void outboundMessageSent(int seqNo, long optionalWireSize, long optionalUncompressedSize) {
+                        listener.onMessage(true, optionalWireSize, optionalUncompressedSize);
+                    }
+
+                    @Override
+                    public void inboundMessageRead(int seqNo, long optionalWireSize, long optionalUncompressedSize) {
+                        inboundMessage.onMessageRead();
+                    }
+
+                    @Override
+                    public void streamClosed(Status status) {
+                        inboundMessage.onStreamClosed();
+                    }
+                };
+            }
+        };
+        return new ClientInterceptor() {
+            @Override
+            public <ReqT, RespT> ClientCall<ReqT, RespT> interceptCall(MethodDescriptor<ReqT, RespT> method, CallOptions callOptions, Channel next) {
+                return next.newCall(method, callOptions.withStreamTracerFactory(factory));
+            }
+        };
+    }
+
+    public static ServerStreamTracer.Factory serverStreamTracerFactory(EdgeRpcCompressionListener listener) {
+        return new ServerStreamTracer.Factory() {
+            @Override
+            public ServerStreamTracer newServerStreamTracer(String fullMethodName, Metadata headers) {
+                InboundMessageSizes inboundMessage = new InboundMessageSizes(listener);
+                return new ServerStreamTracer() {
+                    @Override
+                    public void outboundWireSize(long bytes) {
+                        listener.onWireBytes(true, bytes);
+                    }
+
+                    @Override
+                    public void outboundUncompressedSize(long bytes) {
+                        listener.onUncompressedBytes(true, bytes);
+                    }
+
+                    @Override
+                    public void inboundWireSize(long bytes) {
+                        listener.onWireBytes(false, bytes);
+                        inboundMessage.onWireSize(bytes);
+                    }
+
+                    @Override
+                    public void inboundUncompressedSize(long bytes) {
+                        listener.onUncompressedBytes(false, bytes);
+                        inboundMessage.onUncompressedSize(bytes);
+                    }
+
+                    @Override
+                    public void outboundMessageSent(int seqNo, long optionalWireSize, long optionalUncompressedSize) {
+                        listener.onMessage(true, optionalWireSize, optionalUncompressedSize);
+                    }
+
+                    @Override
+                    public void inboundMessageRead(int seqNo, long optionalWireSize, long optionalUncompressedSize) {
+                        inboundMessage.onMessageRead();
+                    }
+
+                    @Override
+                    public void streamClosed(Status status) {
+                        inboundMessage.onStreamClosed();
+                    }
+                };
+            }
+        };
+    }
+
+    /**
+     * Sizes of the message currently read from a stream. gRPC reports the uncompressed size of an inbound message as -1
+     * in inboundMessageRead, because it is only known while the application reads the decompressed stream, after that call.
+     * The wire bytes reported before inboundMessageRead belong to the message being read, the uncompressed bytes reported
+     * until the next message or the end of the stream belong to it as well.
+     */
+    private static class InboundMessageSizes {
+
+        private final EdgeRpcCompressionListener listener;
+        private long pendingWireBytes;
+        private long wireBytes = -1;
+        private long uncompressedBytes;
+
+        InboundMessageSizes(EdgeRpcCompressionListener listener) {
+            this.listener = listener;
+        }
+
+        synchronized void onWireSize(long bytes) {
+            pendingWireBytes += bytes;
+        }
+
+        synchronized void onUncompressedSize(long bytes) {
+            uncompressedBytes += bytes;
+        }
+
+        synchronized void onMessageRead() {
+            complete();
+            wireBytes = pendingWireBytes;
+            pendingWireBytes = 0;
+        }
+
+        synchronized void onStreamClosed() {
+            complete();
+        }
+
+        private void complete() {
+            if (wireBytes >= 0) {
+                listener.onMessage(false, wireBytes, uncompressedBytes);
+            }
+            wireBytes = -1;
+            uncompressedBytes = 0;
+        }
+    }
+
+    private static class MeteredCompressor implements Compressor {
+
+        private final Compressor delegate;
+        private final EdgeRpcCompressionListener listener;
+
+        MeteredCompressor(Compressor delegate, EdgeRpcCompressionListener listener) {
+            this.delegate = delegate;
+            this.listener = listener;
+        }
+
+        @Override
+        public String getMessageEncoding() {
+            return delegate.getMessageEncoding();
+        }
+
+        @Override
+        public OutputStream compress(OutputStream os) throws IOException {
+            return new TimedOutputStream(delegate.compress(os));
+        }
+
+        private class TimedOutputStream extends FilterOutputStream {
+
+            private long durationNanos;
+
+            TimedOutputStream(OutputStream out) {
+                super(out);
+            }
+
+            @Override
+            public void write(int b) throws IOException {
+                long startTs = System.nanoTime();
+                out.write(b);
+                durationNanos += System.nanoTime() - startTs;
+            }
+
+            @Override
+            public void write(byte[] b, int off, int len) throws IOException {
+                long startTs = System.nanoTime();
+                out.write(b, off, len);
+                durationNanos += System.nanoTime() - startTs;
+            }
+
+            @Override
+            public void close() throws IOException {
+                long startTs = System.nanoTime();
+                try {
+                    out.close();
+                } finally {
+                    durationNanos += System.nanoTime() - startTs;
+                    listener.onMessageCompressed(getMessageEncoding(), durationNanos);
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,48 @@
+/**
+ * Copyright © 2016-2022 The Thingsboard Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.thingsboard.edge.rpc.compression;
+
+public interface EdgeRpcCompressionListener {
+
+    EdgeRpcCompressionListener NOOP = new EdgeRpcCompressionListener() {
+        @Override
+        public void onWireBytes(boolean outbound, long bytes) {
+        }
+
+        @Override
+        public void onUncompressedBytes(boolean outbound, long bytes) {
+        }
+
+        @Override
+        public void onMessageCompressed(String encoding, long durationNanos) {
+        }
+
+        @Override
+        public void onMessage(boolean outbound, long wireBytes, long uncompressedBytes) {
+        }
+    };
+
+    void onWireBytes(boolean outbound, long bytes);
+
+    void onUncompressedBytes(boolean outbound, long bytes);
+
+    void onMessageCompressed(String encoding, long durationNanos);
+
+    /**
+     * Called once per message with its wire and uncompressed size. Either size is -1 when gRPC does not know it.
+     */
+    void onMessage(boolean outbound, long wireBytes, long uncompressedBytes);
+}
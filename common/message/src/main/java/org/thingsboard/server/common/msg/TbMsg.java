@@ -182,12 +182,26 @@ public final class TbMsg implements Serializable {
     }
 
     public static ByteString toByteString(TbMsg msg) {
-        return ByteString.copyFrom(toByteArray(msg));
+        return toByteString(msg, TbMsgWireFormat.DEFAULT);
+    }
+
+    public static ByteString toByteString(TbMsg msg, TbMsgWireFormat wireFormat) {
+        return toProto(msg, wireFormat).toByteString();
     }
 
     public static byte[] toByteArray(TbMsg msg) {
+        return toByteArray(msg, TbMsgWireFormat.DEFAULT);
+    }
+
+    public static byte[] toByteArray(TbMsg msg, TbMsgWireFormat wireFormat) {
+        return toProto(msg, wireFormat).toByteArray();
+    }
+
+    private static MsgProtos.TbMsgProto toProto(TbMsg msg, TbMsgWireFormat wireFormat) {
+        int version = wireFormat.getVersion();
         MsgProtos.TbMsgProto.Builder builder = MsgProtos.TbMsgProto.newBuilder();
-        builder.setId(msg.getId().toString());
+        builder.setVersion(version);
+        TbMsgWireFormat.writeId(builder, msg.getId(), version);
         builder.setTs(msg.getTs());
         builder.setType(msg.getType());
         builder.setEntityType(msg.getOriginator().getEntityType().name());
@@ -210,50 +224,70 @@ public final class TbMsg implements Serializable {
         }
 
         if (msg.getMetaData() != null) {
-            builder.setMetaData(MsgProtos.TbMsgMetaDataProto.newBuilder().putAllData(msg.getMetaData().getData()).build());
+            TbMsgWireFormat.writeMetaData(builder, msg.getMetaData().getData(), version);
         }
 
         builder.setDataType(msg.getDataType().ordinal());
-        builder.setData(msg.getData());
+        wireFormat.writeData(builder, msg.getData(), version);
 
         builder.setCtx(msg.ctx.toProto());
-        return builder.build().toByteArray();
+        return builder.build();
     }
 
     public static TbMsg fromBytes(String queueName, byte[] data, TbMsgCallback callback) {
         try {
-            MsgProtos.TbMsgProto proto = MsgProtos.TbMsgProto.parseFrom(data);
-            TbMsgMetaData metaData = new TbMsgMetaData(proto.getMetaData().getDataMap());
-            EntityId entityId = EntityIdFactory.getByTypeAndUuid(proto.getEntityType(), new UUID(proto.getEntityIdMSB(), proto.getEntityIdLSB()));
-            CustomerId customerId = null;
-            RuleChainId ruleChainId = null;
-            RuleNodeId ruleNodeId = null;
-            if (proto.getCustomerIdMSB() != 0L && proto.getCustomerIdLSB() != 0L) {
-                customerId = new CustomerId(new UUID(proto.getCustomerIdMSB(), proto.getCustomerIdLSB()));
-            }
-            if (proto.getRuleChainIdMSB() != 0L && proto.getRuleChainIdLSB() != 0L) {
-                ruleChainId = new RuleChainId(new UUID(proto.getRuleChainIdMSB(), proto.getRuleChainIdLSB()));
-            }
-            if (proto.getRuleNodeIdMSB() != 0L && proto.getRuleNodeIdLSB() != 0L) {
-                ruleNodeId = new RuleNodeId(new UUID(proto.getRuleNodeIdMSB(), proto.getRuleNodeIdLSB()));
-            }
-
-            TbMsgProcessingCtx ctx;
-            if (proto.hasCtx()) {
-                ctx = TbMsgProcessingCtx.fromProto(proto.getCtx());
-            } else {
-                // Backward compatibility with unprocessed messages fetched from queue after update.
-                ctx = new TbMsgProcessingCtx(proto.getRuleNodeExecCounter());
-            }
+            return fromProto(queueName, MsgProtos.TbMsgProto.parseFrom(data), callback);
+        } catch (InvalidProtocolBufferException e) {
+            throw new IllegalStateException("Could not parse protobuf for TbMsg", e);
+        }
+    }
 
-            TbMsgDataType dataType = TbMsgDataType.values()[proto.getDataType()];
-            return new TbMsg(queueName, UUID.fromString(proto.getId()), proto.getTs(), proto.getType(), entityId, customerId,
-                    metaData, dataType, proto.getData(), ruleChainId, ruleNodeId, ctx, callback);
+    public static TbMsg fromBytes(String queueName, ByteString data, TbMsgCallback callback) {
+        try {
+            return fromProto(queueName, MsgProtos.TbMsgProto.parseFrom(data), callback);
         } catch (InvalidProtocolBufferException e) {
             throw new IllegalStateException("Could not parse protobuf for TbMsg", e);
         }
     }
 
+    private static TbMsg fromProto(String queueName, MsgProtos.TbMsgProto proto, TbMsgCallback callback) {
+        TbMsgMetaData metaData = TbMsgWireFormat.readMetaData(proto);
+        EntityId entityId = EntityIdFactory.getByTypeAndUuid(proto.getEntityType(), new UUID(proto.getEntityIdMSB(), proto.getEntityIdLSB()));
+        CustomerId customerId = null;
+        RuleChainId ruleChainId = null;
+        RuleNodeId ruleNodeId = null;
+        if (proto.getCustomerIdMSB() != 0L && proto.getCustomerIdLSB() != 0L) {
+            customerId = new CustomerId(new UUID(proto.getCustomerIdMSB(), proto.getCustomerIdLSB()));
+        }
+        if (proto.getRuleChainIdMSB() != 0L && proto.getRuleChainIdLSB() != 0L) {
+            ruleChainId = new RuleChainId(new UUID(proto.getRuleChainIdMSB(), proto.getRuleChainIdLSB()));
+        }
+        if (proto.getRuleNodeIdMSB() != 0L && proto.getRuleNodeIdLSB() != 0L) {
+            ruleNodeId = new RuleNodeId(new UUID(proto.getRuleNodeIdMSB(), proto.getRuleNodeIdLSB()));
+        }
+
+        TbMsgProcessingCtx ctx;
+        if (proto.hasCtx()) {
+            ctx = TbMsgProcessingCtx.fromProto(proto.getCtx());
+        } else {
+            // Backward compatibility with unprocessed messages fetched from queue after update.
+            ctx = new TbMsgProcessingCtx(proto.getRuleNodeExecCounter());
+        }
+
+        TbMsgDataType dataType = TbMsgDataType.values()[proto.getDataType()];
+        return new TbMsg(queueName, TbMsgWireFormat.readId(proto), proto.getTs(), proto.getType(), entityId, customerId,
+                metaData, dataType, TbMsgWireFormat.readData(proto), ruleChainId, ruleNodeId, ctx, callback);
+    }
+
+    /**
+     * Creates the same message as {@code fromBytes(queueName, toByteArray(this), callback)} without the serialization round trip.
+     */
+    public TbMsg copy(String queueName, TbMsgCallback callback) {
+        return new TbMsg(queueName, this.id, this.ts, this.type, this.originator, this.customerId,
+                this.metaData != null ? this.metaData.copy() : new TbMsgMetaData(), this.dataType, this.data,
+                this.ruleChainId, this.ruleNodeId, this.ctx.copy(), callback);
+    }
+
     public TbMsg copyWithRuleChainId(RuleChainId ruleChainId) {
         return copyWithRuleChainId(ruleChainId, this.id);
     }
@@ -268,6 +302,11 @@ public final class TbMsg implements Serializable {
                 this.metaData, this.dataType, this.data, ruleChainId, ruleNodeId, this.ctx, callback);
     }
 
+    public TbMsg copyWithCallback(TbMsgCallback callback) {
+        return new TbMsg(this.queueName, this.id, this.ts, this.type, this.originator, this.customerId,
+                this.metaData, this.dataType, this.data, this.ruleChainId, this.ruleNodeId, this.ctx, callback);
+    }
+
     public TbMsgCallback getCallback() {
         // May be null in case of deserialization;
         if (callback != null) {
@@ -0,0 +1,207 @@
+/**
+ * Copyright © 2016-2022 The Thingsboard Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.thingsboard.server.common.msg;
+
+import com.google.protobuf.ByteString;
+import org.thingsboard.server.common.msg.gen.MsgProtos;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+/**
+ * Encoding of {@link TbMsg} into {@link MsgProtos.TbMsgProto}.
+ * <p>
+ * Version 0 writes the message id as a string and the metadata as a plain string map.
+ * Version 1 writes the message id as two fixed64 fields, replaces the well-known metadata keys by their dictionary ids
+ * and deflates payloads above the compression threshold. Both versions are always decoded, so messages already stored
+ * in the queue remain readable after the upgrade.
+ * <p>
+ * Instances are immutable. {@link #DEFAULT} writes the legacy format; producers that are allowed to write the compact
+ * format get their instance from the queue settings.
+ */
+public final class TbMsgWireFormat {
+
+    public static final int LEGACY_VERSION = 0;
+    public static final int COMPACT_VERSION = 1;
+
+    /**
+     * Upper bound of the decompressed payload, so that a small corrupted or crafted message can not exhaust the heap
+     * of the consumer.
+     */
+    public static final int MAX_DECOMPRESSED_DATA_SIZE = 16 * 1024 * 1024;
+
+    public static final TbMsgWireFormat DEFAULT = new TbMsgWireFormat(false, 1024);
+
+    /**
+     * Dictionary of the well-known metadata keys. The index of the key is its id on the wire,
+     * so the keys may only be appended to the end of the list.
+     */
+    private static final List<String> KEY_DICTIONARY = List.of(
+            "deviceName", "deviceType", "ts", "scope", "notifyDevice", "customerId", "tenantId", "userId", "userName",
+            "userEmail", "userFirstName", "userLastName", "requestUUID", "requestId", "oneway", "persistent",
+            "expirationTime", "retries", "originServiceId", "serviceId", "sessionId", "assetName", "assetType",
+            "entityViewName", "entityViewType", "edgeName", "ruleNodeId", "originatorName", "originatorType");
+
+    private static final Map<String, Integer> KEY_IDS = new HashMap<>();
+
+    static {
+        for (int i = 0; i < KEY_DICTIONARY.size(); i++) {
+            KEY_IDS.put(KEY_DICTIONARY.get(i), i);
+        }
+    }
+
+    private final boolean compactEncoding;
+    private final int compressionThreshold;
+
+    /**
+     * @param compactEncoding      write messages in the compact format. Enable only once no consumer of an older version reads the same queues.
+     * @param compressionThreshold minimum payload length in characters to compress in the compact format; 0 disables compression.
+     */
+    public TbMsgWireFormat(boolean compactEncoding, int compressionThreshold) {
+        this.compactEncoding = compactEncoding;
+        this.compressionThreshold = compressionThreshold;
+    }
+
+    public boolean isCompactEncoding() {
+        return compactEncoding;
+    }
+
+    public int getCompressionThreshold() {
+        return compressionThreshold;
+    }
+
+    int getVersion() {
+        return compactEncoding ? COMPACT_VERSION : LEGACY_VERSION;
+    }
+
+    static void writeId(MsgProtos.TbMsgProto.Builder builder, UUID id, int version) {
+        if (version >= COMPACT_VERSION) {
+            builder.setIdMSB(id.getMostSignificantBits());
+            builder.setIdLSB(id.getLeastSignificantBits());
+        } else {
+            builder.setId(id.toString());
+        }
+    }
+
+    static UUID readId(MsgProtos.TbMsgProto proto) {
+        if (proto.getVersion() >= COMPACT_VERSION) {
+            return new UUID(proto.getIdMSB(), proto.getIdLSB());
+        } else {
+            return UUID.fromString(proto.getId());
+        }
+    }
+
+    static void writeMetaData(MsgProtos.TbMsgProto.Builder builder, Map<String, String> data, int version) {
+        if (version >= COMPACT_VERSION) {
+            MsgProtos.TbMsgCompactMetaDataProto.Builder metaData = MsgProtos.TbMsgCompactMetaDataProto.newBuilder();
+            data.forEach((key, value) -> {
+                Integer keyId = KEY_IDS.get(key);
+                if (keyId != null) {
+                    metaData.putDictionaryData(keyId, value);
+                } else {
+                    metaData.putData(key, value);
+                }
+            });
+            builder.setCompactMetaData(metaData);
+        } else {
+            builder.setMetaData(MsgProtos.TbMsgMetaDataProto.newBuilder().putAllData(data));
+        }
+    }
+
+    static TbMsgMetaData readMetaData(MsgProtos.TbMsgProto proto) {
+        if (proto.getVersion() >= COMPACT_VERSION) {
+            MsgProtos.TbMsgCompactMetaDataProto metaData = proto.getCompactMetaData();
+            TbMsgMetaData result = new TbMsgMetaData(metaData.getDataMap());
+            metaData.getDictionaryDataMap().forEach((keyId, value) -> {
+                if (keyId < 0 || keyId >= KEY_DICTIONARY.size()) {
+                    throw new IllegalStateException("Unknown metadata key id: " + keyId);
+                }
+                result.putValue(KEY_DICTIONARY.get(keyId), value);
+            });
+            return result;
+        } else {
+            return new TbMsgMetaData(proto.getMetaData().getDataMap());
+        }
+    }
+
+    void writeData(MsgProtos.TbMsgProto.Builder builder, String data, int version) {
+        if (version >= COMPACT_VERSION && compressionThreshold > 0 && data.length() >= compressionThreshold) {
+            byte[] bytes = data.getBytes(StandardCharsets.UTF_8);
+            ByteString compressed = deflate(bytes);
+            if (compressed.size() < bytes.length) {
+                builder.setCompressedData(compressed);
+                return;
+            }
+        }
+        builder.setData(data);
+    }
+
+    static String readData(MsgProtos.TbMsgProto proto) {
+        if (proto.getVersion() >= COMPACT_VERSION && !proto.getCompressedData().isEmpty()) {
+            return inflate(proto.getCompressedData());
+        } else {
+            return proto.getData();
+        }
+    }
+
+    private static ByteString deflate(byte[] bytes) {
+        Deflater deflater = new Deflater(Deflater.BEST_SPEED);
+        try {
+            deflater.setInput(bytes);
+            deflater.finish();
+            ByteString.Output output = ByteString.newOutput(bytes.length / 2 + 16);
+            byte[] buffer = new byte[Math.min(bytes.length, 8192)];
+            while (!deflater.finished()) {
+                int length = deflater.deflate(buffer);
+                output.write(buffer, 0, length);
+            }
+            return output.toByteString();
+        } finally {
+            deflater.end();
+        }
+    }
+
+    private static String inflate(ByteString compressed) {
+        Inflater inflater = new Inflater();
+        try {
+            inflater.setInput(compressed.toByteArray());
+            ByteArrayOutputStream output = new ByteArrayOutputStream(Math.min(compressed.size() * 4, MAX_DECOMPRESSED_DATA_SIZE));
+            byte[] buffer = new byte[8192];
+            while (!inflater.finished()) {
+                int length = inflater.inflate(buffer);
+                if (length == 0 && (inflater.needsInput() || inflater.needsDictionary())) {
+                    throw new IllegalStateException("Truncated compressed TbMsg data");
+                }
+                if (output.size() + length > MAX_DECOMPRESSED_DATA_SIZE) {
+                    throw new IllegalStateException("Decompressed TbMsg data exceeds " + MAX_DECOMPRESSED_DATA_SIZE + " bytes");
+                }
+                output.write(buffer, 0, length);
+            }
+            return output.toString(StandardCharsets.UTF_8);
+        } catch (DataFormatException e) {
+            throw new IllegalStateException("Could not decompress TbMsg data", e);
+        } finally {
+            inflater.end();
+        }
+    }
+}
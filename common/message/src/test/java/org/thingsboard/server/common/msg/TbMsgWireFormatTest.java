@@ -0,0 +1,149 @@
+/**
+ * Copyright © 2016-2022 The Thingsboard Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.thingsboard.server.common.msg;
+
+import com.google.protobuf.ByteString;
+import org.junit.Test;
+import org.thingsboard.server.common.data.id.CustomerId;
+import org.thingsboard.server.common.data.id.DeviceId;
+import org.thingsboard.server.common.data.id.RuleChainId;
+import org.thingsboard.server.common.data.id.RuleNodeId;
+import org.thingsboard.server.common.msg.gen.MsgProtos;
+import org.thingsboard.server.common.msg.queue.TbMsgCallback;
+import org.thingsboard.server.common.msg.session.SessionMsgType;
+
+import java.util.Map;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class TbMsgWireFormatTest {
+
+    private static final String DATA = "{\"temperature\":42,\"humidity\":73}";
+
+    @Test
+    public void givenCompactEncoding_whenRoundTrip_thenSameMessage() throws Exception {
+        TbMsgWireFormat wireFormat = new TbMsgWireFormat(true, 1024);
+        TbMsg msg = newMsg(DATA);
+
+        byte[] bytes = TbMsg.toByteArray(msg, wireFormat);
+        MsgProtos.TbMsgProto proto = MsgProtos.TbMsgProto.parseFrom(bytes);
+        assertEquals(TbMsgWireFormat.COMPACT_VERSION, proto.getVersion());
+        assertTrue(proto.getId().isEmpty());
+        assertEquals(Map.of("customKey", "customValue"), proto.getCompactMetaData().getDataMap());
+        assertEquals(3, proto.getCompactMetaData().getDictionaryDataCount());
+        assertEquals(DATA, proto.getData());
+
+        assertSameMsg(msg, TbMsg.fromBytes("Main", bytes, TbMsgCallback.EMPTY));
+        assertSameMsg(msg, TbMsg.fromBytes("Main", TbMsg.toByteString(msg, wireFormat), TbMsgCallback.EMPTY));
+        assertTrue(bytes.length < legacyProto(msg).toByteArray().length);
+    }
+
+    @Test
+    public void givenLargePayload_whenRoundTrip_thenDataCompressed() throws Exception {
+        TbMsg msg = newMsg("{\"values\":[" + "1,2,3,4,5,6,7,8,9,".repeat(100) + "0]}");
+
+        MsgProtos.TbMsgProto proto = MsgProtos.TbMsgProto.parseFrom(TbMsg.toByteString(msg, new TbMsgWireFormat(true, 64)));
+        assertTrue(proto.getData().isEmpty());
+        assertFalse(proto.getCompressedData().isEmpty());
+        assertTrue(proto.getCompressedData().size() < msg.getData().length());
+
+        assertSameMsg(msg, TbMsg.fromBytes("Main", proto.toByteString(), TbMsgCallback.EMPTY));
+    }
+
+    @Test
+    public void givenLegacyEncoding_whenSerialize_thenLegacyFormat() throws Exception {
+        TbMsg msg = newMsg(DATA.repeat(10));
+
+        MsgProtos.TbMsgProto proto = MsgProtos.TbMsgProto.parseFrom(TbMsg.toByteArray(msg, new TbMsgWireFormat(false, 64)));
+        assertEquals(legacyProto(msg), proto);
+        assertSameMsg(msg, TbMsg.fromBytes("Main", proto.toByteArray(), TbMsgCallback.EMPTY));
+    }
+
+    @Test
+    public void givenDefaultWireFormat_whenSerialize_thenLegacyFormat() throws Exception {
+        TbMsg msg = newMsg(DATA);
+
+        MsgProtos.TbMsgProto proto = MsgProtos.TbMsgProto.parseFrom(TbMsg.toByteString(msg));
+        assertEquals(legacyProto(msg), proto);
+    }
+
+    @Test
+    public void givenOversizedCompressedData_whenDecode_thenRejected() {
+        TbMsg msg = newMsg("0".repeat(TbMsgWireFormat.MAX_DECOMPRESSED_DATA_SIZE + 1));
+        ByteString bytes = TbMsg.toByteString(msg, new TbMsgWireFormat(true, 1024));
+        assertTrue(bytes.size() < 1024 * 1024);
+
+        assertThatThrownBy(() -> TbMsg.fromBytes("Main", bytes, TbMsgCallback.EMPTY))
+                .isInstanceOf(IllegalStateException.class)
+                .hasMessageContaining("exceeds");
+    }
+
+    @Test
+    public void givenLegacyMessage_whenDecode_thenSameMessage() {
+        TbMsg msg = newMsg(DATA);
+
+        assertSameMsg(msg, TbMsg.fromBytes("Main", legacyProto(msg).toByteArray(), TbMsgCallback.EMPTY));
+    }
+
+    private static TbMsg newMsg(String data) {
+        TbMsgMetaData metaData = new TbMsgMetaData();
+        metaData.putValue("deviceName", "Thermostat A");
+        metaData.putValue("deviceType", "thermostat");
+        metaData.putValue("ts", "1666000000000");
+        metaData.putValue("customKey", "customValue");
+        return TbMsg.newMsg("Main", SessionMsgType.POST_TELEMETRY_REQUEST.name(), new DeviceId(UUID.randomUUID()),
+                new CustomerId(UUID.randomUUID()), metaData, data, new RuleChainId(UUID.randomUUID()), new RuleNodeId(UUID.randomUUID()));
+    }
+
+    // The format written before the compact encoding was introduced
+    private static MsgProtos.TbMsgProto legacyProto(TbMsg msg) {
+        return MsgProtos.TbMsgProto.newBuilder()
+                .setId(msg.getId().toString())
+                .setTs(msg.getTs())
+                .setType(msg.getType())
+                .setEntityType(msg.getOriginator().getEntityType().name())
+                .setEntityIdMSB(msg.getOriginator().getId().getMostSignificantBits())
+                .setEntityIdLSB(msg.getOriginator().getId().getLeastSignificantBits())
+                .setCustomerIdMSB(msg.getCustomerId().getId().getMostSignificantBits())
+                .setCustomerIdLSB(msg.getCustomerId().getId().getLeastSignificantBits())
+                .setRuleChainIdMSB(msg.getRuleChainId().getId().getMostSignificantBits())
+                .setRuleChainIdLSB(msg.getRuleChainId().getId().getLeastSignificantBits())
+                .setRuleNodeIdMSB(msg.getRuleNodeId().getId().getMostSignificantBits())
+                .setRuleNodeIdLSB(msg.getRuleNodeId().getId().getLeastSignificantBits())
+                .setMetaData(MsgProtos.TbMsgMetaDataProto.newBuilder().putAllData(msg.getMetaData().getData()))
+                .setDataType(msg.getDataType().ordinal())
+                .setData(msg.getData())
+                .setCtx(MsgProtos.TbMsgProcessingCtxProto.newBuilder())
+                .build();
+    }
+
+    private static void assertSameMsg(TbMsg expected, TbMsg actual) {
+        assertEquals(expected.getId(), actual.getId());
+        assertEquals(expected.getTs(), actual.getTs());
+        assertEquals(expected.getType(), actual.getType());
+        assertEquals(expected.getOriginator(), actual.getOriginator());
+        assertEquals(expected.getCustomerId(), actual.getCustomerId());
+        assertEquals(expected.getRuleChainId(), actual.getRuleChainId());
+        assertEquals(expected.getRuleNodeId(), actual.getRuleNodeId());
+        assertEquals(expected.getMetaData().getData(), actual.getMetaData().getData());
+        assertEquals(expected.getDataType(), actual.getDataType());
+        assertEquals(expected.getData(), actual.getData());
+    }
+}
@@ -0,0 +1,81 @@
+/**
+ * Copyright © 2016-2022 The Thingsboard Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.thingsboard.server.queue.common;
+
+import com.google.protobuf.InvalidProtocolBufferException;
+import org.thingsboard.server.common.data.id.EntityId;
+import org.thingsboard.server.common.data.id.EntityIdFactory;
+import org.thingsboard.server.common.msg.TbMsg;
+import org.thingsboard.server.common.msg.TbMsgWireFormat;
+import org.thingsboard.server.common.msg.gen.MsgProtos;
+import org.thingsboard.server.common.msg.queue.TbMsgCallback;
+import org.thingsboard.server.gen.transport.TransportProtos.ToRuleEngineMsg;
+import org.thingsboard.server.queue.TbQueueProducer;
+
+import java.util.UUID;
+
+/**
+ * Rule engine message that carries the {@link TbMsg} itself instead of its serialized form in {@code ToRuleEngineMsg.tbMsg}.
+ * Created only for in-memory producers, where the consumer runs in the same JVM; the message is serialized only if
+ * somebody asks for the bytes.
+ */
+public class TbRuleEngineProtoQueueMsg extends TbProtoQueueMsg<ToRuleEngineMsg> {
+
+    private final TbMsg tbMsg;
+    private final TbMsgWireFormat wireFormat;
+
+    private TbRuleEngineProtoQueueMsg(UUID key, ToRuleEngineMsg value, TbMsg tbMsg, TbMsgWireFormat wireFormat) {
+        super(key, value);
+        this.tbMsg = tbMsg;
+        this.wireFormat = wireFormat;
+    }
+
+    /**
+     * Builds the queue message for the producer. For in-memory producers the message is copied instead of serialized,
+     * so later changes of the caller's message do not leak into the queued one.
+     */
+    public static TbProtoQueueMsg<ToRuleEngineMsg> create(TbQueueProducer<?> producer, TbMsg tbMsg, ToRuleEngineMsg.Builder value,
+                                                          TbMsgWireFormat wireFormat) {
+        if (producer.isInMemory()) {
+            return new TbRuleEngineProtoQueueMsg(tbMsg.getId(), value.build(), tbMsg.copy(tbMsg.getQueueName(), TbMsgCallback.EMPTY), wireFormat);
+        }
+        return new TbProtoQueueMsg<>(tbMsg.getId(), value.setTbMsg(TbMsg.toByteString(tbMsg, wireFormat)).build());
+    }
+
+    public static boolean hasTbMsg(TbProtoQueueMsg<ToRuleEngineMsg> msg) {
+        return msg instanceof TbRuleEngineProtoQueueMsg || !msg.getValue().getTbMsg().isEmpty();
+    }
+
+    public static TbMsg getTbMsg(String queueName, TbProtoQueueMsg<ToRuleEngineMsg> msg, TbMsgCallback callback) {
+        if (msg instanceof TbRuleEngineProtoQueueMsg) {
+            return ((TbRuleEngineProtoQueueMsg) msg).tbMsg.copy(queueName, callback);
+        }
+        return TbMsg.fromBytes(queueName, msg.getValue().getTbMsg(), callback);
+    }
+
+    public static EntityId getOriginator(TbProtoQueueMsg<ToRuleEngineMsg> msg) throws InvalidProtocolBufferException {
+        if (msg instanceof TbRuleEngineProtoQueueMsg) {
+            return ((TbRuleEngineProtoQueueMsg) msg).tbMsg.getOriginator();
+        }
+        MsgProtos.TbMsgProto proto = MsgProtos.TbMsgProto.parseFrom(msg.getValue().getTbMsg());
+        return EntityIdFactory.getByTypeAndUuid(proto.getEntityType(), new UUID(proto.getEntityIdMSB(), proto.getEntityIdLSB()));
+    }
+
+    @Override
+    public byte[] getData() {
+        return value.toBuilder().setTbMsg(TbMsg.toByteString(tbMsg, wireFormat)).build().toByteArray();
+    }
+}
@@ -38,6 +38,7 @@ import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.Comparator;
+import java.util.EnumMap;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
@@ -79,6 +80,9 @@ public class HashPartitionService implements PartitionService {
     private List<ServiceInfo> currentOtherServices;
 
     private HashFunction hashFunction;
+    private UuidHashFunction entityIdHashFunction;
+
+    private volatile PartitionTable partitionTable = new PartitionTable();
 
     public HashPartitionService(TbServiceInfoProvider serviceInfoProvider,
                                 TenantRoutingInfoService tenantRoutingInfoService,
@@ -93,6 +97,7 @@ public class HashPartitionService implements PartitionService {
     @PostConstruct
     public void init() {
         this.hashFunction = forName(hashFunctionName);
+        this.entityIdHashFunction = UuidHashFunction.forName(hashFunctionName);
         QueueKey coreKey = new QueueKey(ServiceType.TB_CORE);
         partitionSizesMap.put(coreKey, corePartitions);
         partitionTopicsMap.put(coreKey, coreTopic);
@@ -120,6 +125,7 @@ public class HashPartitionService implements PartitionService {
             partitionTopicsMap.put(queueKey, queue.getQueueTopic());
             partitionSizesMap.put(queueKey, queue.getPartitions());
         });
+        partitionTable = new PartitionTable();
     }
 
     private List<QueueRoutingInfo> getQueueRoutingInfos() {
@@ -165,6 +171,7 @@ public class HashPartitionService implements PartitionService {
         partitionTopicsMap.put(queueKey, queueUpdateMsg.getQueueTopic());
         partitionSizesMap.put(queueKey, queueUpdateMsg.getPartitions());
         myPartitions.remove(queueKey);
+        partitionTable = new PartitionTable();
     }
 
     @Override
@@ -174,6 +181,7 @@ public class HashPartitionService implements PartitionService {
         myPartitions.remove(queueKey);
         partitionTopicsMap.remove(queueKey);
         partitionSizesMap.remove(queueKey);
+        partitionTable = new PartitionTable();
         //TODO: remove after merging tb entity services
         removeTenant(tenantId);
     }
@@ -181,11 +189,9 @@ public class HashPartitionService implements PartitionService {
     @Override
     public TopicPartitionInfo resolve(ServiceType serviceType, String queueName, TenantId tenantId, EntityId entityId) {
         TenantId isolatedOrSystemTenantId = getIsolatedOrSystemTenantId(serviceType, tenantId);
-        QueueKey queueKey = new QueueKey(serviceType, queueName, isolatedOrSystemTenantId);
-        if (!partitionSizesMap.containsKey(queueKey)) {
-            queueKey = new QueueKey(serviceType, isolatedOrSystemTenantId);
-        }
-        return resolve(queueKey, entityId);
+        TopicPartitionInfo[] partitions = getPartitions(serviceType, queueName, isolatedOrSystemTenantId);
+        UUID id = entityId.getId();
+        return partitions[resolvePartitionIndex(id.getMostSignificantBits(), id.getLeastSignificantBits(), partitions.length)];
     }
 
     @Override
@@ -193,15 +199,29 @@ public class HashPartitionService implements PartitionService {
         return resolve(serviceType, null, tenantId, entityId);
     }
 
-    private TopicPartitionInfo resolve(QueueKey queueKey, EntityId entityId) {
-        int hash = hashFunction.newHasher()
-                .putLong(entityId.getId().getMostSignificantBits())
-                .putLong(entityId.getId().getLeastSignificantBits()).hash().asInt();
-
-        Integer partitionSize = partitionSizesMap.get(queueKey);
-        int partition = Math.abs(hash % partitionSize);
+    private TopicPartitionInfo[] getPartitions(ServiceType serviceType, String queueName, TenantId tenantId) {
+        PartitionTable table = partitionTable;
+        String tableQueueName = queueName != null ? queueName : QueueKey.MAIN;
+        TopicPartitionInfo[] partitions = table.get(serviceType, tableQueueName, tenantId);
+        if (partitions == null) {
+            QueueKey queueKey = new QueueKey(serviceType, queueName, tenantId);
+            if (!partitionSizesMap.containsKey(queueKey)) {
+                queueKey = new QueueKey(serviceType, tenantId);
+            }
+            partitions = buildTopicPartitionInfos(queueKey);
+            // Unknown queue names are cached with the partitions of the main queue they fall back to.
+            table.put(serviceType, tableQueueName, tenantId, partitions);
+        }
+        return partitions;
+    }
 
-        return buildTopicPartitionInfo(queueKey, partition);
+    private TopicPartitionInfo[] buildTopicPartitionInfos(QueueKey queueKey) {
+        int partitionSize = partitionSizesMap.get(queueKey);
+        TopicPartitionInfo[] partitions = new TopicPartitionInfo[partitionSize];
+        for (int i = 0; i < partitionSize; i++) {
+            partitions[i] = buildTopicPartitionInfo(queueKey, i);
+        }
+        return partitions;
     }
 
     @Override
@@ -228,6 +248,11 @@ public class HashPartitionService implements PartitionService {
             }
         });
 
+        PartitionTable table = new PartitionTable();
+        partitionSizesMap.keySet().forEach(queueKey ->
+                table.put(queueKey.getType(), queueKey.getQueueName(), queueKey.getTenantId(), buildTopicPartitionInfos(queueKey)));
+        partitionTable = table;
+
         oldPartitions.forEach((queueKey, partitions) -> {
             if (!myPartitions.containsKey(queueKey)) {
                 log.info("[{}] NO MORE PARTITIONS FOR CURRENT KEY", queueKey);
@@ -298,9 +323,11 @@ public class HashPartitionService implements PartitionService {
 
     @Override
     public int resolvePartitionIndex(UUID entityId, int partitions) {
-        int hash = hashFunction.newHasher()
-                .putLong(entityId.getMostSignificantBits())
-                .putLong(entityId.getLeastSignificantBits()).hash().asInt();
+        return resolvePartitionIndex(entityId.getMostSignificantBits(), entityId.getLeastSignificantBits(), partitions);
+    }
+
+    private int resolvePartitionIndex(long mostSigBits, long leastSigBits, int partitions) {
+        int hash = entityIdHashFunction.hashToInt(mostSigBits, leastSigBits);
         return Math.abs(hash % partitions);
     }
 
@@ -429,4 +456,28 @@ public class HashPartitionService implements PartitionService {
         }
     }
 
+    /**
+     * Immutable topic partition infos of every queue, looked up without building a {@link QueueKey}.
+     * The table is replaced as a whole when the partitions or queues change.
+     */
+    private static final class PartitionTable {
+
+        private final Map<ServiceType, ConcurrentMap<TenantId, ConcurrentMap<String, TopicPartitionInfo[]>>> partitions = new EnumMap<>(ServiceType.class);
+
+        PartitionTable() {
+            for (ServiceType serviceType : ServiceType.values()) {
+                partitions.put(serviceType, new ConcurrentHashMap<>());
+            }
+        }
+
+        TopicPartitionInfo[] get(ServiceType serviceType, String queueName, TenantId tenantId) {
+            ConcurrentMap<String, TopicPartitionInfo[]> queues = partitions.get(serviceType).get(tenantId);
+            return queues != null ? queues.get(queueName) : null;
+        }
+
+        void put(ServiceType serviceType, String queueName, TenantId tenantId, TopicPartitionInfo[] queuePartitions) {
+            partitions.get(serviceType).computeIfAbsent(tenantId, id -> new ConcurrentHashMap<>()).put(queueName, queuePartitions);
+        }
+    }
+
 }
@@ -24,7 +24,7 @@ import org.thingsboard.server.common.msg.queue.ServiceType;
 @Data
 @AllArgsConstructor
 public class QueueKey {
-    private static final String MAIN = "Main";
+    static final String MAIN = "Main";
 
     private final ServiceType type;
     private final String queueName;
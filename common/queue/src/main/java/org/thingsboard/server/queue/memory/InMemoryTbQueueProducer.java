@@ -56,4 +56,9 @@ public class InMemoryTbQueueProducer<T extends TbQueueMsg> implements TbQueuePro
     public void stop() {
 
     }
+
+    @Override
+    public boolean isInMemory() {
+        return true;
+    }
 }
@@ -0,0 +1,45 @@
+/**
+ * Copyright © 2016-2022 The Thingsboard Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.thingsboard.server.queue.settings;
+
+import lombok.Data;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.thingsboard.server.common.msg.TbMsgWireFormat;
+
+import javax.annotation.PostConstruct;
+
+@Slf4j
+@Data
+@Component
+public class TbMsgWireFormatSettings {
+
+    @Value("${queue.tb_msg.compact_encoding:false}")
+    private boolean compactEncoding;
+
+    @Value("${queue.tb_msg.compression_threshold:1024}")
+    private int compressionThreshold;
+
+    private TbMsgWireFormat wireFormat;
+
+    @PostConstruct
+    public void init() {
+        log.info("Using {} TbMsg encoding with compression threshold [{}]", compactEncoding ? "compact" : "legacy", compressionThreshold);
+        wireFormat = new TbMsgWireFormat(compactEncoding, compressionThreshold);
+    }
+
+}
@@ -0,0 +1,62 @@
+/**
+ * Copyright © 2016-2022 The Thingsboard Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.thingsboard.server.queue.common;
+
+import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.Test;
+import org.thingsboard.server.common.msg.TbMsg;
+import org.thingsboard.server.common.msg.TbMsgWireFormat;
+import org.thingsboard.server.common.msg.queue.TbMsgCallback;
+import org.thingsboard.server.gen.transport.TransportProtos.ToRuleEngineMsg;
+import org.thingsboard.server.queue.TbQueueProducer;
+import org.thingsboard.server.queue.memory.DefaultInMemoryStorage;
+import org.thingsboard.server.queue.memory.InMemoryTbQueueProducer;
+import org.thingsboard.server.queue.util.ThreadCost;
+
+import static org.mockito.Mockito.mock;
+
+/**
+ * Compares the CPU time and the allocation per message of handing a TbMsg to the rule engine through the in-memory queue
+ * by reference and through its serialized form. Not part of the regular test run; start it manually and compare the
+ * reported numbers.
+ */
+@Slf4j
+class TbRuleEngineProtoQueueMsgBenchmark {
+
+    static final int WARMUP_MESSAGES = 200_000;
+    static final int MESSAGES = 1_000_000;
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void compareInMemoryAndSerializedHandOver() {
+        TbQueueProducer<TbProtoQueueMsg<ToRuleEngineMsg>> inMemoryProducer = new InMemoryTbQueueProducer<>(new DefaultInMemoryStorage(), "tb_rule_engine");
+        TbQueueProducer<TbProtoQueueMsg<ToRuleEngineMsg>> remoteProducer = mock(TbQueueProducer.class);
+        TbMsg tbMsg = TbRuleEngineProtoQueueMsgTest.newTbMsg();
+
+        log.info("[serialized] {}", ThreadCost.measure(count -> handOver(remoteProducer, tbMsg, count), WARMUP_MESSAGES, MESSAGES));
+        log.info("[in-memory] {}", ThreadCost.measure(count -> handOver(inMemoryProducer, tbMsg, count), WARMUP_MESSAGES, MESSAGES));
+    }
+
+    private static long handOver(TbQueueProducer<TbProtoQueueMsg<ToRuleEngineMsg>> producer, TbMsg tbMsg, int count) {
+        long checksum = 0;
+        for (int i = 0; i < count; i++) {
+            ToRuleEngineMsg.Builder value = ToRuleEngineMsg.newBuilder().setTenantIdMSB(1L).setTenantIdLSB(2L);
+            TbProtoQueueMsg<ToRuleEngineMsg> queueMsg = TbRuleEngineProtoQueueMsg.create(producer, tbMsg, value, TbMsgWireFormat.DEFAULT);
+            checksum += TbRuleEngineProtoQueueMsg.getTbMsg("Main", queueMsg, TbMsgCallback.EMPTY).getData().length();
+        }
+        return checksum;
+    }
+}
@@ -0,0 +1,92 @@
+/**
+ * Copyright © 2016-2022 The Thingsboard Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.thingsboard.server.queue.common;
+
+import org.junit.jupiter.api.Test;
+import org.thingsboard.server.common.data.id.CustomerId;
+import org.thingsboard.server.common.data.id.DeviceId;
+import org.thingsboard.server.common.data.id.RuleChainId;
+import org.thingsboard.server.common.msg.TbMsg;
+import org.thingsboard.server.common.msg.TbMsgWireFormat;
+import org.thingsboard.server.common.msg.TbMsgMetaData;
+import org.thingsboard.server.common.msg.gen.MsgProtos;
+import org.thingsboard.server.common.msg.queue.TbMsgCallback;
+import org.thingsboard.server.gen.transport.TransportProtos.ToRuleEngineMsg;
+import org.thingsboard.server.queue.TbQueueProducer;
+import org.thingsboard.server.queue.memory.DefaultInMemoryStorage;
+import org.thingsboard.server.queue.memory.InMemoryTbQueueProducer;
+
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+
+class TbRuleEngineProtoQueueMsgTest {
+
+    private final TbQueueProducer<TbProtoQueueMsg<ToRuleEngineMsg>> inMemoryProducer = new InMemoryTbQueueProducer<>(new DefaultInMemoryStorage(), "tb_rule_engine");
+    @SuppressWarnings("unchecked")
+    private final TbQueueProducer<TbProtoQueueMsg<ToRuleEngineMsg>> remoteProducer = mock(TbQueueProducer.class);
+
+    @Test
+    void givenInMemoryProducer_whenCreate_thenMsgPassedWithoutSerialization() {
+        TbMsg tbMsg = newTbMsg();
+        TbMsg expected = TbMsg.fromBytes("Main", TbMsg.toByteArray(tbMsg), TbMsgCallback.EMPTY);
+        TbProtoQueueMsg<ToRuleEngineMsg> queueMsg = TbRuleEngineProtoQueueMsg.create(inMemoryProducer, tbMsg, newValue(), TbMsgWireFormat.DEFAULT);
+        tbMsg.getMetaData().putValue("changedAfterPush", "true");
+
+        assertThat(queueMsg).isInstanceOf(TbRuleEngineProtoQueueMsg.class);
+        assertThat(queueMsg.getValue().getTbMsg().isEmpty()).isTrue();
+        assertThat(TbRuleEngineProtoQueueMsg.hasTbMsg(queueMsg)).isTrue();
+
+        TbMsg copy = TbRuleEngineProtoQueueMsg.getTbMsg("Main", queueMsg, TbMsgCallback.EMPTY);
+        assertThat(copy).usingRecursiveComparison().isEqualTo(expected);
+        assertThat(copy.getMetaData().getValue("changedAfterPush")).isNull();
+    }
+
+    @Test
+    void givenRemoteProducer_whenCreate_thenMsgSerialized() throws Exception {
+        TbMsg tbMsg = newTbMsg();
+        TbProtoQueueMsg<ToRuleEngineMsg> queueMsg = TbRuleEngineProtoQueueMsg.create(remoteProducer, tbMsg, newValue(), TbMsgWireFormat.DEFAULT);
+
+        assertThat(queueMsg).isNotInstanceOf(TbRuleEngineProtoQueueMsg.class);
+        assertThat(queueMsg.getValue().getTbMsg()).isEqualTo(TbMsg.toByteString(tbMsg));
+        assertThat(TbRuleEngineProtoQueueMsg.getOriginator(queueMsg)).isEqualTo(tbMsg.getOriginator());
+    }
+
+    @Test
+    void givenInMemoryMsg_whenGetData_thenSameAsSerializedMsg() throws Exception {
+        TbMsg tbMsg = newTbMsg();
+        TbProtoQueueMsg<ToRuleEngineMsg> inMemoryMsg = TbRuleEngineProtoQueueMsg.create(inMemoryProducer, tbMsg, newValue(), TbMsgWireFormat.DEFAULT);
+        TbProtoQueueMsg<ToRuleEngineMsg> remoteMsg = TbRuleEngineProtoQueueMsg.create(remoteProducer, tbMsg, newValue(), TbMsgWireFormat.DEFAULT);
+
+        ToRuleEngineMsg inMemoryValue = ToRuleEngineMsg.parseFrom(inMemoryMsg.getData());
+        ToRuleEngineMsg remoteValue = ToRuleEngineMsg.parseFrom(remoteMsg.getData());
+        assertThat(inMemoryValue.getRelationTypesList()).isEqualTo(remoteValue.getRelationTypesList());
+        assertThat(MsgProtos.TbMsgProto.parseFrom(inMemoryValue.getTbMsg())).isEqualTo(MsgProtos.TbMsgProto.parseFrom(remoteValue.getTbMsg()));
+    }
+
+    private static ToRuleEngineMsg.Builder newValue() {
+        return ToRuleEngineMsg.newBuilder().setTenantIdMSB(1L).setTenantIdLSB(2L).addRelationTypes("Success");
+    }
+
+    static TbMsg newTbMsg() {
+        TbMsgMetaData metaData = new TbMsgMetaData();
+        metaData.putValue("deviceName", "Thermostat A1");
+        metaData.putValue("deviceType", "thermostat");
+        return TbMsg.newMsg("Main", "POST_TELEMETRY_REQUEST", new DeviceId(new UUID(3L, 4L)), new CustomerId(new UUID(5L, 6L)),
+                metaData, "{\"temperature\":42,\"humidity\":73}", new RuleChainId(new UUID(7L, 8L)), null);
+    }
+}
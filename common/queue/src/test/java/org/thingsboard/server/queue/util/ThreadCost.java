@@ -0,0 +1,80 @@
+/**
+ * Copyright © 2016-2022 The Thingsboard Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.thingsboard.server.queue.util;
+
+import java.lang.management.ManagementFactory;
+import java.util.function.IntToLongFunction;
+
+/**
+ * CPU time, wall time and heap allocation of a task run on the current thread, for the benchmarks that are started
+ * manually. The allocation comes from the HotSpot thread counters, so the numbers are only comparable on the same JVM.
+ */
+public final class ThreadCost {
+
+    private final int ops;
+    private final long checksum;
+    private final long cpuNanos;
+    private final long wallNanos;
+    private final long allocatedBytes;
+
+    private ThreadCost(int ops, long checksum, long cpuNanos, long wallNanos, long allocatedBytes) {
+        this.ops = ops;
+        this.checksum = checksum;
+        this.cpuNanos = cpuNanos;
+        this.wallNanos = wallNanos;
+        this.allocatedBytes = allocatedBytes;
+    }
+
+    /**
+     * Runs {@code task} with {@code warmUpOps} operations to warm up the JIT, then measures it with {@code ops} operations.
+     * The task returns a checksum of its results, so the measured work is not eliminated as dead code.
+     */
+    public static ThreadCost measure(IntToLongFunction task, int warmUpOps, int ops) {
+        task.applyAsLong(warmUpOps);
+        com.sun.management.ThreadMXBean threadMXBean = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        long threadId = Thread.currentThread().getId();
+        long startBytes = threadMXBean.getThreadAllocatedBytes(threadId);
+        long startCpuNanos = threadMXBean.getCurrentThreadCpuTime();
+        long startNanos = System.nanoTime();
+        long checksum = task.applyAsLong(ops);
+        long wallNanos = System.nanoTime() - startNanos;
+        long cpuNanos = threadMXBean.getCurrentThreadCpuTime() - startCpuNanos;
+        long allocatedBytes = threadMXBean.getThreadAllocatedBytes(threadId) - startBytes;
+        return new ThreadCost(ops, checksum, cpuNanos, wallNanos, allocatedBytes);
+    }
+
+    public long getChecksum() {
+        return checksum;
+    }
+
+    public double getCpuNanosPerOp() {
+        return (double) cpuNanos / ops;
+    }
+
+    public double getWallNanosPerOp() {
+        return (double) wallNanos / ops;
+    }
+
+    public double getAllocatedBytesPerOp() {
+        return (double) allocatedBytes / ops;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%d ops: %.1f ns CPU, %.1f ns wall and %.1f bytes allocated per op",
+                ops, getCpuNanosPerOp(), getWallNanosPerOp(), getAllocatedBytesPerOp());
+    }
+}
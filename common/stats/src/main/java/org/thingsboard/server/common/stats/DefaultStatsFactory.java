@@ -102,6 +102,22 @@ public class DefaultStatsFactory implements StatsFactory {
         return timerBuilder.register(meterRegistry);
     }
 
+    @Override
+    public DistributionSummary createDistributionSummary(String key, String... tags) {
+        DistributionSummary.Builder summaryBuilder = DistributionSummary.builder(key)
+                .tags(tags)
+                .publishPercentiles();
+        if (timerPercentiles != null && timerPercentiles.length > 0) {
+            summaryBuilder.publishPercentiles(timerPercentiles);
+        }
+        return summaryBuilder.register(meterRegistry);
+    }
+
+    @Override
+    public void removeMeters(String key, String... tags) {
+        meterRegistry.find(key).tags(tags).meters().forEach(meterRegistry::remove);
+    }
+
     private static class StubCounter implements Counter {
         @Override
         public void increment(double amount) {
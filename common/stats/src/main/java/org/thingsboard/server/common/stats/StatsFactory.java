@@ -15,6 +15,7 @@
  */
 package org.thingsboard.server.common.stats;
 
+import io.micrometer.core.instrument.DistributionSummary;
 import io.micrometer.core.instrument.Timer;
 
 public interface StatsFactory {
@@ -27,4 +28,8 @@ public interface StatsFactory {
     MessagesStats createMessagesStats(String key);
 
     Timer createTimer(String key, String... tags);
+
+    DistributionSummary createDistributionSummary(String key, String... tags);
+
+    void removeMeters(String key, String... tags);
 }
@@ -147,10 +147,14 @@ public class CoapTransportResource extends AbstractCoapTransportResource {
         } else {
             switch (featureType.get()) {
                 case ATTRIBUTES:
-                    processRequest(exchange, SessionMsgType.POST_ATTRIBUTES_REQUEST);
+                    if (!respondIfThrottled(exchange)) {
+                        processRequest(exchange, SessionMsgType.POST_ATTRIBUTES_REQUEST);
+                    }
                     break;
                 case TELEMETRY:
-                    processRequest(exchange, SessionMsgType.POST_TELEMETRY_REQUEST);
+                    if (!respondIfThrottled(exchange)) {
+                        processRequest(exchange, SessionMsgType.POST_TELEMETRY_REQUEST);
+                    }
                     break;
                 case RPC:
                     Optional<Integer> requestId = getRequestId(exchange.advanced().getRequest());
@@ -170,6 +174,20 @@ public class CoapTransportResource extends AbstractCoapTransportResource {
         }
     }
 
+    /**
+     * Answers with 5.03 and a Max-Age retry hint while the queues are congested, so the device backs off
+     * instead of retransmitting the request.
+     */
+    private boolean respondIfThrottled(CoapExchange exchange) {
+        if (!transportContext.isUplinkThrottled()) {
+            return false;
+        }
+        Response response = new Response(CoAP.ResponseCode.SERVICE_UNAVAILABLE);
+        response.getOptions().setMaxAge(Math.max(1, TimeUnit.MILLISECONDS.toSeconds(transportContext.getFlowControlRetryDelayMs())));
+        exchange.respond(response);
+        return true;
+    }
+
     private void processProvision(CoapExchange exchange) {
         deferAccept(exchange);
         try {
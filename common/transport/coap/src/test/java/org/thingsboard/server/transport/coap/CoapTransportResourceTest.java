@@ -0,0 +1,91 @@
+/**
+ * Copyright © 2016-2022 The Thingsboard Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.thingsboard.server.transport.coap;
+
+import org.eclipse.californium.core.coap.CoAP;
+import org.eclipse.californium.core.coap.Request;
+import org.eclipse.californium.core.coap.Response;
+import org.eclipse.californium.core.network.Exchange;
+import org.eclipse.californium.core.server.resources.CoapExchange;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.thingsboard.server.coapserver.CoapServerService;
+import org.thingsboard.server.common.transport.TransportService;
+import org.thingsboard.server.queue.scheduler.SchedulerComponent;
+import org.thingsboard.server.transport.coap.client.CoapClientContext;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.BDDMockito.willReturn;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
+
+public class CoapTransportResourceTest {
+
+    CoapTransportContext context;
+    TransportService transportService;
+    CoapTransportResource resource;
+
+    @BeforeEach
+    public void setUp() {
+        context = mock(CoapTransportContext.class);
+        transportService = mock(TransportService.class);
+        willReturn(transportService).given(context).getTransportService();
+        willReturn(mock(CoapClientContext.class)).given(context).getClientContext();
+        willReturn(mock(SchedulerComponent.class)).given(context).getScheduler();
+        willReturn(1000L).given(context).getSessionReportTimeout();
+        resource = new CoapTransportResource(context, mock(CoapServerService.class), "api");
+    }
+
+    @Test
+    public void givenUplinkThrottled_whenPostTelemetry_thenServiceUnavailableWithMaxAge() {
+        willReturn(true).given(context).isUplinkThrottled();
+        willReturn(2500L).given(context).getFlowControlRetryDelayMs();
+
+        verifyServiceUnavailable(post("telemetry"), 2L);
+    }
+
+    @Test
+    public void givenUplinkThrottled_whenPostAttributes_thenServiceUnavailableWithMaxAge() {
+        willReturn(true).given(context).isUplinkThrottled();
+        willReturn(200L).given(context).getFlowControlRetryDelayMs();
+
+        verifyServiceUnavailable(post("attributes"), 1L);
+    }
+
+    private void verifyServiceUnavailable(CoapExchange exchange, long maxAge) {
+        resource.processHandlePost(exchange);
+
+        ArgumentCaptor<Response> response = ArgumentCaptor.forClass(Response.class);
+        verify(exchange).respond(response.capture());
+        assertThat(response.getValue().getCode()).isEqualTo(CoAP.ResponseCode.SERVICE_UNAVAILABLE);
+        assertThat(response.getValue().getOptions().getMaxAge()).isEqualTo(maxAge);
+        verify(exchange, never()).accept();
+        verifyNoInteractions(transportService);
+    }
+
+    private static CoapExchange post(String featureType) {
+        Request request = Request.newPost();
+        request.getOptions().setUriPath("api/v1/token/" + featureType);
+        Exchange advanced = mock(Exchange.class);
+        willReturn(request).given(advanced).getRequest();
+        CoapExchange exchange = mock(CoapExchange.class);
+        willReturn(advanced).given(exchange).advanced();
+        return exchange;
+    }
+}
@@ -0,0 +1,110 @@
+/**
+ * Copyright © 2016-2022 The Thingsboard Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.thingsboard.server.transport.http;
+
+import com.google.gson.JsonElement;
+import com.google.gson.JsonIOException;
+import com.google.gson.JsonParseException;
+import com.google.gson.JsonParser;
+import com.google.gson.JsonSyntaxException;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.google.gson.stream.MalformedJsonException;
+import org.thingsboard.server.common.transport.adaptor.JsonConverter;
+import org.thingsboard.server.gen.transport.TransportProtos.PostTelemetryMsg;
+
+import java.io.Closeable;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.Reader;
+
+/**
+ * Reads the records of a bulk telemetry upload one at a time and groups them into messages of bounded size,
+ * so a request body of any length is processed with constant memory.
+ * The body is either a JSON array of records or records separated by whitespace (NDJSON).
+ * Each record has any of the formats accepted by the regular telemetry upload.
+ * <p>
+ * A malformed or truncated body is reported as {@link JsonParseException}; an {@link IOException} always means that the body
+ * could not be read, for example because the client closed the connection.
+ */
+class BulkTelemetryReader implements Closeable {
+
+    private final JsonReader reader;
+    private final int maxBatchSize;
+    private boolean started;
+    private boolean array;
+    private boolean finished;
+
+    BulkTelemetryReader(Reader reader, int maxBatchSize) {
+        this.reader = new JsonReader(reader);
+        this.reader.setLenient(true);
+        this.maxBatchSize = maxBatchSize;
+    }
+
+    /**
+     * Adds records to the batch until it reaches max batch size time-series records; a record that is an array itself is never split.
+     *
+     * @return the next batch, or null if the body is fully read.
+     */
+    PostTelemetryMsg nextBatch() throws IOException {
+        PostTelemetryMsg.Builder batch = PostTelemetryMsg.newBuilder();
+        try {
+            while (batch.getTsKvListCount() < maxBatchSize && hasNext()) {
+                JsonElement record = JsonParser.parseReader(reader);
+                batch.addAllTsKvList(JsonConverter.convertToTelemetryProto(record).getTsKvListList());
+            }
+        } catch (JsonIOException e) {
+            // The parser wraps the failures of the underlying stream, which are no syntax errors
+            if (e.getCause() instanceof IOException) {
+                throw (IOException) e.getCause();
+            }
+            throw e;
+        } catch (MalformedJsonException | EOFException e) {
+            throw new JsonSyntaxException(e);
+        }
+        return batch.getTsKvListCount() > 0 ? batch.build() : null;
+    }
+
+    private boolean hasNext() throws IOException {
+        if (finished) {
+            return false;
+        }
+        if (!started) {
+            started = true;
+            try {
+                if (reader.peek() == JsonToken.BEGIN_ARRAY) {
+                    reader.beginArray();
+                    array = true;
+                }
+            } catch (EOFException e) {
+                finished = true;
+                return false;
+            }
+        }
+        if (array ? !reader.hasNext() : reader.peek() == JsonToken.END_DOCUMENT) {
+            if (array) {
+                reader.endArray();
+            }
+            finished = true;
+        }
+        return !finished;
+    }
+
+    @Override
+    public void close() throws IOException {
+        reader.close();
+    }
+}
@@ -15,7 +15,9 @@
  */
 package org.thingsboard.server.transport.http;
 
+import com.google.common.util.concurrent.ListenableFuture;
 import com.google.gson.JsonObject;
+import com.google.gson.JsonParseException;
 import com.google.gson.JsonParser;
 import io.swagger.annotations.ApiOperation;
 import io.swagger.annotations.ApiParam;
@@ -42,6 +44,7 @@ import org.thingsboard.server.common.data.TbTransportService;
 import org.thingsboard.server.common.data.id.DeviceId;
 import org.thingsboard.server.common.data.ota.OtaPackageType;
 import org.thingsboard.server.common.data.rpc.RpcStatus;
+import org.thingsboard.server.common.msg.tools.TbRateLimitsException;
 import org.thingsboard.server.common.transport.SessionMsgListener;
 import org.thingsboard.server.common.transport.TransportContext;
 import org.thingsboard.server.common.transport.TransportService;
@@ -65,9 +68,19 @@ import org.thingsboard.server.gen.transport.TransportProtos.ToServerRpcResponseM
 import org.thingsboard.server.gen.transport.TransportProtos.ValidateDeviceTokenRequestMsg;
 
 import javax.servlet.http.HttpServletRequest;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
 import java.util.Arrays;
 import java.util.List;
 import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
 import java.util.function.Consumer;
 
 
@@ -210,6 +223,134 @@ public class DeviceApiController implements TbTransportService {
         return responseWriter;
     }
 
+    @ApiOperation(value = "Post bulk time-series data (postTelemetryBulk)",
+            notes = "Post large amounts of time-series data on behalf of device, for example the readings buffered by the device while offline. "
+                    + "The request body is either a JSON array of records or newline delimited JSON (NDJSON) records, "
+                    + "each record in any of the formats supported by 'postTelemetry'. "
+                    + "The body is read as a stream and forwarded in batches, so it may be sent with chunked transfer encoding and be of any size. "
+                    + "\n Example of the request: "
+                    + MARKDOWN_CODE_BLOCK_START
+                    + "{\"ts\":1634712287000,\"values\":{\"temperature\":26, \"humidity\":87}}\n"
+                    + "{\"ts\":1634712588000,\"values\":{\"temperature\":25, \"humidity\":88}}"
+                    + MARKDOWN_CODE_BLOCK_END
+                    + "The response contains the number of the stored time-series records: "
+                    + MARKDOWN_CODE_BLOCK_START
+                    + "{\"accepted\":2}"
+                    + MARKDOWN_CODE_BLOCK_END
+                    + "The body is not read while the device uplink is throttled; if it stays throttled for longer than the request timeout, the response status is 429. "
+                    + "In case of an error the records before the failed batch may already be stored; the response contains their number as well.\n\n"
+                    + REQUIRE_ACCESS_TOKEN,
+            produces = MediaType.APPLICATION_JSON_VALUE)
+    @RequestMapping(value = "/{deviceToken}/telemetry/bulk", method = RequestMethod.POST, produces = "application/json")
+    public ResponseEntity<String> postTelemetryBulk(
+            @ApiParam(value = ACCESS_TOKEN_PARAM_DESCRIPTION, required = true, defaultValue = "YOUR_DEVICE_ACCESS_TOKEN")
+            @PathVariable("deviceToken") String deviceToken,
+            HttpServletRequest request) throws InterruptedException {
+        TransportService transportService = transportContext.getTransportService();
+        long timeout = transportContext.getDefaultTimeout();
+        CompletableFuture<ValidateDeviceCredentialsResponse> credentialsFuture = new CompletableFuture<>();
+        transportService.process(DeviceTransportType.DEFAULT, ValidateDeviceTokenRequestMsg.newBuilder().setToken(deviceToken).build(),
+                new TransportServiceCallback<>() {
+                    @Override
+                    public void onSuccess(ValidateDeviceCredentialsResponse msg) {
+                        credentialsFuture.complete(msg);
+                    }
+
+                    @Override
+                    public void onError(Throwable e) {
+                        credentialsFuture.completeExceptionally(e);
+                    }
+                });
+        ValidateDeviceCredentialsResponse credentials;
+        try {
+            credentials = credentialsFuture.get(timeout, TimeUnit.MILLISECONDS);
+        } catch (ExecutionException | TimeoutException e) {
+            log.warn("Failed to process request", e);
+            return new ResponseEntity<>(HttpStatus.INTERNAL_SERVER_ERROR);
+        }
+        if (!credentials.hasDeviceInfo()) {
+            return new ResponseEntity<>(HttpStatus.UNAUTHORIZED);
+        }
+        SessionInfoProto sessionInfo = SessionInfoCreator.create(credentials, transportContext, UUID.randomUUID());
+
+        int maxInFlightBatches = transportContext.getBulkMaxInFlightBatches();
+        Semaphore inFlightBatches = new Semaphore(maxInFlightBatches);
+        AtomicLong accepted = new AtomicLong();
+        AtomicReference<Throwable> processingError = new AtomicReference<>();
+        HttpStatus status = HttpStatus.OK;
+        String error = null;
+        try (BulkTelemetryReader reader = new BulkTelemetryReader(
+                new InputStreamReader(request.getInputStream(), StandardCharsets.UTF_8), transportContext.getBulkMaxBatchSize())) {
+            TransportProtos.PostTelemetryMsg batch;
+            while (processingError.get() == null && (batch = reader.nextBatch()) != null) {
+                // Stops reading the body while the transport is throttled and until the rule engine acknowledges one of the previous batches
+                if (!awaitUplinkCredits(timeout)) {
+                    status = HttpStatus.TOO_MANY_REQUESTS;
+                    error = "Device uplink is throttled";
+                    break;
+                }
+                if (!inFlightBatches.tryAcquire(timeout, TimeUnit.MILLISECONDS)) {
+                    throw new TimeoutException("Batch was not acknowledged in " + timeout + " ms");
+                }
+                int batchSize = batch.getTsKvListCount();
+                transportService.process(sessionInfo, batch, new TransportServiceCallback<>() {
+                    @Override
+                    public void onSuccess(Void msg) {
+                        accepted.addAndGet(batchSize);
+                        inFlightBatches.release();
+                    }
+
+                    @Override
+                    public void onError(Throwable e) {
+                        processingError.compareAndSet(null, e);
+                        inFlightBatches.release();
+                    }
+                });
+            }
+        } catch (JsonParseException | IllegalStateException e) {
+            log.debug("[{}] Failed to parse bulk telemetry", deviceToken, e);
+            status = HttpStatus.BAD_REQUEST;
+            error = e.getMessage();
+        } catch (IOException e) {
+            // The client closed the connection or stopped sending the body; the status only matters if it still reads the response
+            log.debug("[{}] Failed to read bulk telemetry", deviceToken, e);
+            status = HttpStatus.REQUEST_TIMEOUT;
+            error = "Failed to read request body: " + e.getMessage();
+        } catch (TimeoutException e) {
+            processingError.compareAndSet(null, e);
+        }
+        if (!inFlightBatches.tryAcquire(maxInFlightBatches, timeout, TimeUnit.MILLISECONDS)) {
+            processingError.compareAndSet(null, new TimeoutException("Batch was not acknowledged in " + timeout + " ms"));
+        }
+        if (processingError.get() != null) {
+            log.warn("[{}] Failed to process bulk telemetry", deviceToken, processingError.get());
+            status = processingError.get() instanceof TbRateLimitsException ? HttpStatus.TOO_MANY_REQUESTS : HttpStatus.INTERNAL_SERVER_ERROR;
+            error = processingError.get().getMessage();
+        }
+        JsonObject result = new JsonObject();
+        result.addProperty("accepted", accepted.get());
+        if (error != null) {
+            result.addProperty("error", error);
+        }
+        return new ResponseEntity<>(result.toString(), status);
+    }
+
+    /**
+     * Waits up to the timeout while the transport has no uplink credits. The wait ends as soon as the credits are released.
+     *
+     * @return false if the transport is still throttled after the timeout.
+     */
+    private boolean awaitUplinkCredits(long timeout) throws InterruptedException {
+        ListenableFuture<Void> uplinkCredits = transportContext.awaitUplinkCredits();
+        try {
+            uplinkCredits.get(timeout, TimeUnit.MILLISECONDS);
+            return true;
+        } catch (ExecutionException | TimeoutException e) {
+            uplinkCredits.cancel(false);
+            return false;
+        }
+    }
+
     @ApiOperation(value = "Save claiming information (claimDevice)",
             notes = "Saves the information required for user to claim the device. " +
                     "See more info about claiming in the corresponding 'Claiming devices' platform documentation."
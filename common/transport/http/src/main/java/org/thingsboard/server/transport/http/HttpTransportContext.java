@@ -45,6 +45,14 @@ public class HttpTransportContext extends TransportContext {
     @Value("${transport.http.max_request_timeout}")
     private long maxRequestTimeout;
 
+    @Getter
+    @Value("${transport.http.bulk.max_batch_size:1000}")
+    private int bulkMaxBatchSize;
+
+    @Getter
+    @Value("${transport.http.bulk.max_in_flight_batches:4}")
+    private int bulkMaxInFlightBatches;
+
     @Bean
     public TomcatConnectorCustomizer tomcatAsyncTimeoutConnectorCustomizer() {
         return connector -> {
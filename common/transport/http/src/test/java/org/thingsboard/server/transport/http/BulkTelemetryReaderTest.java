@@ -0,0 +1,85 @@
+/**
+ * Copyright © 2016-2022 The Thingsboard Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.thingsboard.server.transport.http;
+
+import com.google.gson.JsonParseException;
+import org.junit.jupiter.api.Test;
+import org.thingsboard.server.gen.transport.TransportProtos.PostTelemetryMsg;
+import org.thingsboard.server.gen.transport.TransportProtos.TsKvListProto;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class BulkTelemetryReaderTest {
+
+    @Test
+    void givenNdjson_whenRead_thenBatchesOfMaxSize() throws IOException {
+        String body = "{\"ts\":1,\"values\":{\"temperature\":26}}\n" +
+                "{\"ts\":2,\"values\":{\"temperature\":27}}\n" +
+                "[{\"ts\":3,\"values\":{\"temperature\":28}},{\"ts\":4,\"values\":{\"temperature\":29}}]\n" +
+                "{\"ts\":5,\"values\":{\"temperature\":30}}\n";
+
+        List<PostTelemetryMsg> batches = readAll(body, 2);
+
+        assertThat(batches).extracting(PostTelemetryMsg::getTsKvListCount).containsExactly(2, 2, 1);
+        assertThat(toTs(batches)).containsExactly(1L, 2L, 3L, 4L, 5L);
+    }
+
+    @Test
+    void givenJsonArray_whenRead_thenAllRecordsRead() throws IOException {
+        String body = "[{\"ts\":1,\"values\":{\"temperature\":26}}, {\"ts\":2,\"values\":{\"temperature\":27}}, {\"humidity\":87}]";
+
+        List<PostTelemetryMsg> batches = readAll(body, 2);
+
+        assertThat(batches).extracting(PostTelemetryMsg::getTsKvListCount).containsExactly(2, 1);
+        assertThat(batches.get(1).getTsKvList(0).getKv(0).getKey()).isEqualTo("humidity");
+    }
+
+    @Test
+    void givenEmptyBody_whenRead_thenNoBatches() throws IOException {
+        assertThat(readAll("", 10)).isEmpty();
+        assertThat(readAll("[]", 10)).isEmpty();
+    }
+
+    @Test
+    void givenMalformedRecord_whenRead_thenPreviousBatchesReturned() throws IOException {
+        try (BulkTelemetryReader reader = new BulkTelemetryReader(new StringReader("{\"temperature\":26}\n{\"temperature\":"), 1)) {
+            assertThat(reader.nextBatch().getTsKvListCount()).isEqualTo(1);
+            assertThatThrownBy(reader::nextBatch).isInstanceOf(JsonParseException.class);
+        }
+    }
+
+    private static List<PostTelemetryMsg> readAll(String body, int maxBatchSize) throws IOException {
+        List<PostTelemetryMsg> batches = new ArrayList<>();
+        try (BulkTelemetryReader reader = new BulkTelemetryReader(new StringReader(body), maxBatchSize)) {
+            PostTelemetryMsg batch;
+            while ((batch = reader.nextBatch()) != null) {
+                batches.add(batch);
+            }
+        }
+        return batches;
+    }
+
+    private static List<Long> toTs(List<PostTelemetryMsg> batches) {
+        return batches.stream().flatMap(batch -> batch.getTsKvListList().stream()).map(TsKvListProto::getTs).collect(Collectors.toList());
+    }
+}
@@ -0,0 +1,197 @@
+/**
+ * Copyright © 2016-2022 The Thingsboard Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.thingsboard.server.transport.http;
+
+import com.google.common.util.concurrent.Futures;
+import com.google.common.util.concurrent.SettableFuture;
+import com.google.gson.JsonParser;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.thingsboard.server.common.data.DeviceTransportType;
+import org.thingsboard.server.common.data.id.CustomerId;
+import org.thingsboard.server.common.data.id.DeviceId;
+import org.thingsboard.server.common.data.id.DeviceProfileId;
+import org.thingsboard.server.common.data.id.TenantId;
+import org.thingsboard.server.common.transport.TransportService;
+import org.thingsboard.server.common.transport.TransportServiceCallback;
+import org.thingsboard.server.common.transport.auth.TransportDeviceInfo;
+import org.thingsboard.server.common.transport.auth.ValidateDeviceCredentialsResponse;
+import org.thingsboard.server.gen.transport.TransportProtos.PostTelemetryMsg;
+import org.thingsboard.server.gen.transport.TransportProtos.SessionInfoProto;
+import org.thingsboard.server.gen.transport.TransportProtos.ValidateDeviceTokenRequestMsg;
+
+import javax.servlet.ReadListener;
+import javax.servlet.ServletInputStream;
+import javax.servlet.http.HttpServletRequest;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class DeviceApiControllerTest {
+
+    private static final String DEVICE_TOKEN = "deviceToken";
+
+    private final List<PostTelemetryMsg> processedBatches = new ArrayList<>();
+
+    private HttpTransportContext transportContext;
+    private DeviceApiController controller;
+
+    @BeforeEach
+    void setUp() {
+        TransportService transportService = mock(TransportService.class);
+        doAnswer(invocation -> {
+            TransportServiceCallback<ValidateDeviceCredentialsResponse> callback = invocation.getArgument(2);
+            callback.onSuccess(ValidateDeviceCredentialsResponse.builder().deviceInfo(newDeviceInfo()).build());
+            return null;
+        }).when(transportService).process(eq(DeviceTransportType.DEFAULT), any(ValidateDeviceTokenRequestMsg.class), any());
+        doAnswer(invocation -> {
+            TransportServiceCallback<Void> callback = invocation.getArgument(2);
+            processedBatches.add(invocation.getArgument(1));
+            callback.onSuccess(null);
+            return null;
+        }).when(transportService).process(any(SessionInfoProto.class), any(PostTelemetryMsg.class), any());
+
+        transportContext = mock(HttpTransportContext.class);
+        when(transportContext.getTransportService()).thenReturn(transportService);
+        when(transportContext.getNodeId()).thenReturn("tb-http-transport");
+        when(transportContext.getDefaultTimeout()).thenReturn(200L);
+        when(transportContext.getBulkMaxBatchSize()).thenReturn(2);
+        when(transportContext.getBulkMaxInFlightBatches()).thenReturn(1);
+        when(transportContext.awaitUplinkCredits()).thenReturn(Futures.immediateFuture(null));
+
+        controller = new DeviceApiController();
+        ReflectionTestUtils.setField(controller, "transportContext", transportContext);
+    }
+
+    @Test
+    void givenNdjsonBody_whenPostTelemetryBulk_thenRecordsForwardedInBatches() throws Exception {
+        ResponseEntity<String> response = controller.postTelemetryBulk(DEVICE_TOKEN, newRequest(
+                "{\"ts\":1,\"values\":{\"temperature\":26}}\n{\"ts\":2,\"values\":{\"temperature\":27}}\n{\"ts\":3,\"values\":{\"temperature\":28}}"));
+
+        assertThat(response.getStatusCode()).isEqualTo(HttpStatus.OK);
+        assertThat(getAccepted(response)).isEqualTo(3);
+        assertThat(processedBatches).extracting(PostTelemetryMsg::getTsKvListCount).containsExactly(2, 1);
+    }
+
+    @Test
+    void givenMalformedBody_whenPostTelemetryBulk_thenBadRequest() throws Exception {
+        ResponseEntity<String> response = controller.postTelemetryBulk(DEVICE_TOKEN, newRequest(
+                "{\"ts\":1,\"values\":{\"temperature\":26}}\n{\"ts\":2,\"values\":{\"temperature\":27}}\n{\"temperature\":"));
+
+        assertThat(response.getStatusCode()).isEqualTo(HttpStatus.BAD_REQUEST);
+        assertThat(getAccepted(response)).isEqualTo(2);
+    }
+
+    @Test
+    void givenClientDisconnect_whenPostTelemetryBulk_thenNotReportedAsBadRequest() throws Exception {
+        HttpServletRequest request = mock(HttpServletRequest.class);
+        when(request.getInputStream()).thenReturn(new FailingServletInputStream());
+
+        ResponseEntity<String> response = controller.postTelemetryBulk(DEVICE_TOKEN, request);
+
+        assertThat(response.getStatusCode()).isEqualTo(HttpStatus.REQUEST_TIMEOUT);
+        assertThat(processedBatches).isEmpty();
+    }
+
+    @Test
+    void givenThrottledUplink_whenPostTelemetryBulk_thenTooManyRequestsAndWaitCancelled() throws Exception {
+        SettableFuture<Void> uplinkCredits = SettableFuture.create();
+        when(transportContext.awaitUplinkCredits()).thenReturn(uplinkCredits);
+
+        ResponseEntity<String> response = controller.postTelemetryBulk(DEVICE_TOKEN, newRequest("{\"ts\":1,\"values\":{\"temperature\":26}}"));
+
+        assertThat(response.getStatusCode()).isEqualTo(HttpStatus.TOO_MANY_REQUESTS);
+        assertThat(getAccepted(response)).isZero();
+        assertThat(processedBatches).isEmpty();
+        assertThat(uplinkCredits.isCancelled()).isTrue();
+    }
+
+    @Test
+    void givenUplinkCreditsReleasedWhileWaiting_whenPostTelemetryBulk_thenUploadResumed() throws Exception {
+        SettableFuture<Void> uplinkCredits = SettableFuture.create();
+        when(transportContext.awaitUplinkCredits()).thenReturn(uplinkCredits);
+        ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor();
+        try {
+            scheduler.schedule(() -> uplinkCredits.set(null), 50, TimeUnit.MILLISECONDS);
+
+            ResponseEntity<String> response = controller.postTelemetryBulk(DEVICE_TOKEN, newRequest("{\"ts\":1,\"values\":{\"temperature\":26}}"));
+
+            assertThat(response.getStatusCode()).isEqualTo(HttpStatus.OK);
+            assertThat(getAccepted(response)).isEqualTo(1);
+        } finally {
+            scheduler.shutdownNow();
+        }
+    }
+
+    private static MockHttpServletRequest newRequest(String body) {
+        MockHttpServletRequest request = new MockHttpServletRequest("POST", "/api/v1/" + DEVICE_TOKEN + "/telemetry/bulk");
+        request.setContent(body.getBytes(StandardCharsets.UTF_8));
+        return request;
+    }
+
+    private static long getAccepted(ResponseEntity<String> response) {
+        return JsonParser.parseString(response.getBody()).getAsJsonObject().get("accepted").getAsLong();
+    }
+
+    private static TransportDeviceInfo newDeviceInfo() {
+        TransportDeviceInfo deviceInfo = new TransportDeviceInfo();
+        deviceInfo.setTenantId(TenantId.fromUUID(UUID.randomUUID()));
+        deviceInfo.setCustomerId(new CustomerId(UUID.randomUUID()));
+        deviceInfo.setDeviceProfileId(new DeviceProfileId(UUID.randomUUID()));
+        deviceInfo.setDeviceId(new DeviceId(UUID.randomUUID()));
+        deviceInfo.setDeviceName("Thermostat");
+        deviceInfo.setDeviceType("default");
+        return deviceInfo;
+    }
+
+    private static class FailingServletInputStream extends ServletInputStream {
+
+        @Override
+        public int read() throws IOException {
+            throw new IOException("Connection reset by peer");
+        }
+
+        @Override
+        public boolean isFinished() {
+            return false;
+        }
+
+        @Override
+        public boolean isReady() {
+            return true;
+        }
+
+        @Override
+        public void setReadListener(ReadListener readListener) {
+        }
+    }
+}
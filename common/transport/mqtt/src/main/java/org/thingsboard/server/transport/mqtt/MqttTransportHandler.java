@@ -76,6 +76,7 @@ import org.thingsboard.server.transport.mqtt.session.MqttTopicMatcher;
 import javax.net.ssl.SSLPeerUnverifiedException;
 import java.io.IOException;
 import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
 import java.security.cert.Certificate;
 import java.security.cert.X509Certificate;
 import java.util.ArrayList;
@@ -86,6 +87,7 @@ import java.util.concurrent.Callable;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentMap;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
@@ -128,6 +130,8 @@ public class MqttTransportHandler extends ChannelInboundHandlerAdapter implement
     final DeviceSessionCtx deviceSessionCtx;
     volatile InetSocketAddress address;
     volatile GatewaySessionHandler gatewaySessionHandler;
+    private final AtomicBoolean readingPaused = new AtomicBoolean();
+    volatile int keepAliveTimeSeconds;
 
     private final ConcurrentHashMap<String, String> otaPackSessions;
     private final ConcurrentHashMap<String, Integer> chunkSizes;
@@ -284,6 +288,7 @@ public class MqttTransportHandler extends ChannelInboundHandlerAdapter implement
         switch (msg.fixedHeader().messageType()) {
             case PUBLISH:
                 processPublish(ctx, (MqttPublishMessage) msg);
+                pauseReadingIfThrottled(ctx);
                 break;
             case SUBSCRIBE:
                 processSubscribe(ctx, (MqttSubscribeMessage) msg);
@@ -312,6 +317,34 @@ public class MqttTransportHandler extends ChannelInboundHandlerAdapter implement
         }
     }
 
+    /**
+     * Stops reading from the connection while the queues are congested. The device gets no more PUBACKs and,
+     * once its in-flight window or TCP buffers are full, slows down instead of being disconnected.
+     * A pause lasts at most half of the keep-alive interval, so a PINGREQ sent meanwhile is still answered in time.
+     */
+    void pauseReadingIfThrottled(ChannelHandlerContext ctx) {
+        if (context.isUplinkThrottled() && readingPaused.compareAndSet(false, true)) {
+            log.trace("[{}][{}] Pausing reading due to uplink flow control", sessionId, deviceSessionCtx.getDeviceId());
+            ctx.channel().config().setAutoRead(false);
+            long resumeDeadline = keepAliveTimeSeconds > 0 ?
+                    System.currentTimeMillis() + TimeUnit.SECONDS.toMillis(keepAliveTimeSeconds) / 2 : Long.MAX_VALUE;
+            scheduleReadingResume(ctx, resumeDeadline);
+        }
+    }
+
+    private void scheduleReadingResume(ChannelHandlerContext ctx, long resumeDeadline) {
+        long delay = Math.max(0, Math.min(context.getFlowControlRetryDelayMs(), resumeDeadline - System.currentTimeMillis()));
+        ctx.executor().schedule(() -> {
+            if (context.isUplinkThrottled() && ctx.channel().isActive() && System.currentTimeMillis() < resumeDeadline) {
+                scheduleReadingResume(ctx, resumeDeadline);
+            } else {
+                log.trace("[{}][{}] Resuming reading", sessionId, deviceSessionCtx.getDeviceId());
+                readingPaused.set(false);
+                ctx.channel().config().setAutoRead(true);
+            }
+        }, delay, TimeUnit.MILLISECONDS);
+    }
+
     private void processPublish(ChannelHandlerContext ctx, MqttPublishMessage mqttMsg) {
         if (!checkConnected(ctx, mqttMsg)) {
             return;
@@ -595,7 +628,7 @@ public class MqttTransportHandler extends ChannelInboundHandlerAdapter implement
         log.trace("[{}] Send firmware [{}] to device!", sessionId, firmwareId);
         ack(ctx, msgId);
         try {
-            byte[] firmwareChunk = context.getOtaPackageDataCache().get(firmwareId, chunkSize, chunk);
+            ByteBuffer firmwareChunk = context.getOtaPackageDataCache().getChunk(firmwareId, chunkSize, chunk);
             deviceSessionCtx.getPayloadAdaptor()
                     .convertToPublish(deviceSessionCtx, firmwareChunk, requestId, chunk, type)
                     .ifPresent(deviceSessionCtx.getChannel()::writeAndFlush);
@@ -782,6 +815,7 @@ public class MqttTransportHandler extends ChannelInboundHandlerAdapter implement
 
     void processConnect(ChannelHandlerContext ctx, MqttConnectMessage msg) {
         log.debug("[{}][{}] Processing connect msg for client: {}!", address, sessionId, msg.payload().clientIdentifier());
+        keepAliveTimeSeconds = msg.variableHeader().keepAliveTimeSeconds();
         String userName = msg.payload().userName();
         String clientId = msg.payload().clientIdentifier();
         if (DataConstants.PROVISION.equals(userName) || DataConstants.PROVISION.equals(clientId)) {
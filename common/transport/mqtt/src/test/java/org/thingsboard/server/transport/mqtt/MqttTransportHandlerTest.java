@@ -18,6 +18,8 @@ package org.thingsboard.server.transport.mqtt;
 import io.netty.buffer.ByteBuf;
 import io.netty.buffer.EmptyByteBuf;
 import io.netty.buffer.PooledByteBufAllocator;
+import io.netty.channel.Channel;
+import io.netty.channel.ChannelConfig;
 import io.netty.channel.ChannelHandlerContext;
 import io.netty.handler.codec.mqtt.MqttConnectMessage;
 import io.netty.handler.codec.mqtt.MqttConnectPayload;
@@ -29,11 +31,13 @@ import io.netty.handler.codec.mqtt.MqttPublishMessage;
 import io.netty.handler.codec.mqtt.MqttPublishVariableHeader;
 import io.netty.handler.codec.mqtt.MqttQoS;
 import io.netty.handler.ssl.SslHandler;
+import io.netty.util.concurrent.EventExecutor;
 import lombok.extern.slf4j.Slf4j;
 import org.junit.After;
 import org.junit.Before;
 import org.junit.Test;
 import org.junit.runner.RunWith;
+import org.mockito.ArgumentCaptor;
 import org.mockito.Mock;
 import org.mockito.junit.MockitoJUnitRunner;
 import org.thingsboard.common.util.ThingsBoardThreadFactory;
@@ -56,6 +60,7 @@ import static org.hamcrest.Matchers.greaterThan;
 import static org.hamcrest.Matchers.is;
 import static org.junit.Assert.fail;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.BDDMockito.willDoNothing;
 import static org.mockito.BDDMockito.willReturn;
 import static org.mockito.Mockito.never;
@@ -77,6 +82,12 @@ public class MqttTransportHandlerTest {
     SslHandler sslHandler;
     @Mock
     ChannelHandlerContext ctx;
+    @Mock
+    Channel channel;
+    @Mock
+    ChannelConfig channelConfig;
+    @Mock
+    EventExecutor eventExecutor;
 
     AtomicInteger packedId = new AtomicInteger();
     ExecutorService executor;
@@ -206,4 +217,66 @@ public class MqttTransportHandlerTest {
         messages.forEach((msg) -> verify(handler, times(1)).processRegularSessionMsg(ctx, msg));
     }
 
-}
\ No newline at end of file
+    @Test
+    public void givenUplinkThrottled_whenPauseReadingIfThrottled_thenReadingPausedUntilCreditsAvailable() {
+        mockChannel();
+        willReturn(true).given(context).isUplinkThrottled();
+        willReturn(1000L).given(context).getFlowControlRetryDelayMs();
+
+        handler.pauseReadingIfThrottled(ctx);
+        handler.pauseReadingIfThrottled(ctx);
+
+        verify(channelConfig, times(1)).setAutoRead(false);
+        ArgumentCaptor<Runnable> resumeTask = ArgumentCaptor.forClass(Runnable.class);
+        verify(eventExecutor, times(1)).schedule(resumeTask.capture(), eq(1000L), eq(TimeUnit.MILLISECONDS));
+
+        willReturn(true).given(channel).isActive();
+        resumeTask.getValue().run();
+        verify(channelConfig, never()).setAutoRead(true);
+        verify(eventExecutor, times(2)).schedule(resumeTask.capture(), eq(1000L), eq(TimeUnit.MILLISECONDS));
+
+        willReturn(false).given(context).isUplinkThrottled();
+        resumeTask.getValue().run();
+        verify(channelConfig, times(1)).setAutoRead(true);
+
+        handler.pauseReadingIfThrottled(ctx);
+        verify(channelConfig, times(1)).setAutoRead(false);
+    }
+
+    @Test
+    public void givenKeepAlive_whenUplinkStaysThrottled_thenReadingResumedWithinHalfOfKeepAlive() throws InterruptedException {
+        mockChannel();
+        willReturn(true).given(context).isUplinkThrottled();
+        willReturn(1000L).given(context).getFlowControlRetryDelayMs();
+        handler.keepAliveTimeSeconds = 1;
+
+        handler.pauseReadingIfThrottled(ctx);
+
+        verify(channelConfig, times(1)).setAutoRead(false);
+        ArgumentCaptor<Long> delay = ArgumentCaptor.forClass(Long.class);
+        ArgumentCaptor<Runnable> resumeTask = ArgumentCaptor.forClass(Runnable.class);
+        verify(eventExecutor, times(1)).schedule(resumeTask.capture(), delay.capture(), eq(TimeUnit.MILLISECONDS));
+        assertThat(delay.getValue() <= 500L, is(true));
+
+        Thread.sleep(delay.getValue() + 10);
+        resumeTask.getValue().run();
+        verify(channelConfig, times(1)).setAutoRead(true);
+    }
+
+    @Test
+    public void givenUplinkNotThrottled_whenPauseReadingIfThrottled_thenReadingNotPaused() {
+        willReturn(false).given(context).isUplinkThrottled();
+
+        handler.pauseReadingIfThrottled(ctx);
+
+        verify(ctx, never()).channel();
+        verify(ctx, never()).executor();
+    }
+
+    void mockChannel() {
+        willReturn(channel).given(ctx).channel();
+        willReturn(channelConfig).given(channel).config();
+        willReturn(eventExecutor).given(ctx).executor();
+    }
+
+}
@@ -16,10 +16,12 @@
 package org.thingsboard.server.common.transport;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.google.common.util.concurrent.ListenableFuture;
 import lombok.Data;
 import lombok.Getter;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.thingsboard.common.util.ThingsBoardExecutors;
 import org.thingsboard.server.cache.ota.OtaPackageDataCache;
 import org.thingsboard.server.common.transport.limits.TransportRateLimitService;
@@ -61,6 +63,10 @@ public abstract class TransportContext {
     @Autowired
     protected TransportRateLimitService rateLimitService;
 
+    @Getter
+    @Value("${transport.flow_control.retry_delay_ms:1000}")
+    private long flowControlRetryDelayMs;
+
     @PostConstruct
     public void init() {
         executor = ThingsBoardExecutors.newWorkStealingPool(50, getClass());
@@ -77,6 +83,20 @@ public abstract class TransportContext {
         return serviceInfoProvider.getServiceId();
     }
 
+    /**
+     * @return true if the transport should slow the devices down instead of accepting new messages.
+     */
+    public boolean isUplinkThrottled() {
+        return transportService.getUplinkCredits() <= 0;
+    }
+
+    /**
+     * @return a future completed once the transport stops throttling the devices.
+     */
+    public ListenableFuture<Void> awaitUplinkCredits() {
+        return transportService.awaitUplinkCredits();
+    }
+
 
 
 }
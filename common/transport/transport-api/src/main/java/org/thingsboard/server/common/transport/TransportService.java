@@ -15,6 +15,7 @@
  */
 package org.thingsboard.server.common.transport;
 
+import com.google.common.util.concurrent.ListenableFuture;
 import org.thingsboard.server.common.data.DeviceProfile;
 import org.thingsboard.server.common.data.DeviceTransportType;
 import org.thingsboard.server.common.data.rpc.RpcStatus;
@@ -144,4 +145,17 @@ public interface TransportService {
     boolean hasSession(SessionInfoProto sessionInfo);
 
     void createGaugeStats(String openConnections, AtomicInteger connectionsCounter);
+
+    /**
+     * Credit based flow control of the device uplink: the number of messages that may still be pushed to the queues
+     * before the devices should be slowed down. Zero or negative while the queues are congested or the startup
+     * warm-up is in progress.
+     */
+    long getUplinkCredits();
+
+    /**
+     * @return a future completed as soon as the uplink credits are positive, right away if they already are.
+     * Cancel the future to stop waiting.
+     */
+    ListenableFuture<Void> awaitUplinkCredits();
 }
@@ -0,0 +1,32 @@
+/**
+ * Copyright © 2016-2022 The Thingsboard Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.thingsboard.server.common.transport;
+
+import org.thingsboard.server.queue.discovery.event.TbApplicationEvent;
+
+/**
+ * Published once the device states and hot caches of the partitions owned on startup are loaded.
+ * The event is local to the process and is not sent through the queue, so only the transports running in the same
+ * process as the core service (monolith deployment) receive it.
+ */
+public final class WarmUpCompletedEvent extends TbApplicationEvent {
+
+    private static final long serialVersionUID = 3851637466046329113L;
+
+    public WarmUpCompletedEvent() {
+        super(new Object());
+    }
+}
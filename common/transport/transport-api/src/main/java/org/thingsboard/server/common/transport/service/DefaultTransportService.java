@@ -18,6 +18,7 @@ package org.thingsboard.server.common.transport.service;
 import com.google.common.util.concurrent.Futures;
 import com.google.common.util.concurrent.ListenableFuture;
 import com.google.common.util.concurrent.MoreExecutors;
+import com.google.common.util.concurrent.SettableFuture;
 import com.google.gson.Gson;
 import com.google.gson.JsonObject;
 import com.google.protobuf.ByteString;
@@ -26,6 +27,7 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.context.annotation.Lazy;
+import org.springframework.context.event.EventListener;
 import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
 import org.thingsboard.common.util.ThingsBoardExecutors;
@@ -66,6 +68,7 @@ import org.thingsboard.server.common.transport.TransportResourceCache;
 import org.thingsboard.server.common.transport.TransportService;
 import org.thingsboard.server.common.transport.TransportServiceCallback;
 import org.thingsboard.server.common.transport.TransportTenantProfileCache;
+import org.thingsboard.server.common.transport.WarmUpCompletedEvent;
 import org.thingsboard.server.common.transport.auth.GetOrCreateDeviceFromGatewayResponse;
 import org.thingsboard.server.common.transport.auth.TransportDeviceInfo;
 import org.thingsboard.server.common.transport.auth.ValidateDeviceCredentialsResponse;
@@ -88,12 +91,15 @@ import org.thingsboard.server.queue.TbQueueProducer;
 import org.thingsboard.server.queue.TbQueueRequestTemplate;
 import org.thingsboard.server.queue.common.AsyncCallbackTemplate;
 import org.thingsboard.server.queue.common.TbProtoQueueMsg;
+import org.thingsboard.server.queue.common.TbRuleEngineProtoQueueMsg;
 import org.thingsboard.server.queue.discovery.NotificationsTopicService;
 import org.thingsboard.server.queue.discovery.PartitionService;
 import org.thingsboard.server.queue.discovery.TbServiceInfoProvider;
+import org.thingsboard.server.queue.memory.InMemoryStorage;
 import org.thingsboard.server.queue.provider.TbQueueProducerProvider;
 import org.thingsboard.server.queue.provider.TbTransportQueueFactory;
 import org.thingsboard.server.queue.scheduler.SchedulerComponent;
+import org.thingsboard.server.queue.settings.TbMsgWireFormatSettings;
 import org.thingsboard.server.queue.usagestats.TbApiUsageClient;
 import org.thingsboard.server.queue.util.AfterStartUp;
 import org.thingsboard.server.queue.util.TbTransportComponent;
@@ -106,10 +112,12 @@ import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
+import java.util.Queue;
 import java.util.Random;
 import java.util.Set;
 import java.util.UUID;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
 import java.util.concurrent.ConcurrentMap;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.ExecutorService;
@@ -138,6 +146,8 @@ public class DefaultTransportService implements TransportService {
     public static final TransportProtos.SubscribeToRPCMsg SUBSCRIBE_TO_RPC_ASYNC_MSG = TransportProtos.SubscribeToRPCMsg.newBuilder()
             .setSessionType(TransportProtos.SessionType.ASYNC).build();
 
+    private static final long QUEUE_LAG_UPDATE_INTERVAL_MS = 100;
+
     private final AtomicInteger atomicTs = new AtomicInteger(0);
 
     @Value("${transport.log.enabled:true}")
@@ -154,10 +164,29 @@ public class DefaultTransportService implements TransportService {
     private int notificationsPollDuration;
     @Value("${transport.stats.enabled:false}")
     private boolean statsEnabled;
+    @Value("${transport.flow_control.enabled:false}")
+    private boolean flowControlEnabled;
+    @Value("${transport.flow_control.max_pending_msgs:10000}")
+    private int flowControlMaxPendingMsgs;
+    @Value("${transport.flow_control.max_queue_lag:100000}")
+    private int flowControlMaxQueueLag;
+    @Value("${state.warm_up.transport_readiness_gate:false}")
+    private boolean warmUpReadinessGate;
+    @Value("${state.warm_up.max_wait_time_ms:300000}")
+    private long warmUpMaxWaitTimeMs;
 
     @Autowired
     @Lazy
     private TbApiUsageClient apiUsageClient;
+    @Autowired(required = false)
+    private InMemoryStorage inMemoryStorage;
+    @Autowired
+    private TbMsgWireFormatSettings wireFormatSettings;
+
+    private final AtomicInteger pendingMsgs = new AtomicInteger();
+    private volatile int queueLag;
+    private volatile boolean warmedUp = true;
+    private final Queue<SettableFuture<Void>> uplinkCreditWaiters = new ConcurrentLinkedQueue<>();
     private final Map<String, Number> statsMap = new LinkedHashMap<>();
 
     private final Gson gson = new Gson();
@@ -229,6 +258,18 @@ public class DefaultTransportService implements TransportService {
         this.transportCallbackExecutor = ThingsBoardExecutors.newWorkStealingPool(20, getClass());
         this.scheduler.scheduleAtFixedRate(this::checkInactivityAndReportActivity, new Random().nextInt((int) sessionReportTimeout), sessionReportTimeout, TimeUnit.MILLISECONDS);
         this.scheduler.scheduleAtFixedRate(this::invalidateRateLimits, new Random().nextInt((int) sessionReportTimeout), sessionReportTimeout, TimeUnit.MILLISECONDS);
+        if (warmUpReadinessGate && !serviceInfoProvider.isService(ServiceType.TB_CORE)) {
+            // The warm-up completion is a local application event, a standalone transport would only wait for the timeout
+            log.warn("Transport readiness gate is supported only when the transport runs in the same process as the core service, ignoring it");
+            warmUpReadinessGate = false;
+        }
+        if (warmUpReadinessGate) {
+            warmedUp = false;
+            this.scheduler.schedule(this::onWarmUpTimeout, warmUpMaxWaitTimeMs, TimeUnit.MILLISECONDS);
+        }
+        if (flowControlEnabled && inMemoryStorage != null) {
+            this.scheduler.scheduleAtFixedRate(this::updateQueueLag, QUEUE_LAG_UPDATE_INTERVAL_MS, QUEUE_LAG_UPDATE_INTERVAL_MS, TimeUnit.MILLISECONDS);
+        }
         transportApiRequestTemplate = queueProvider.createTransportApiRequestTemplate();
         transportApiRequestTemplate.setMessagesStats(transportApiStats);
         ruleEngineMsgProducer = producerProvider.getRuleEngineMsgProducer();
@@ -1076,6 +1117,67 @@ public class DefaultTransportService implements TransportService {
                 .setEvent(event).build();
     }
 
+    @EventListener(WarmUpCompletedEvent.class)
+    public void onWarmUpCompleted() {
+        if (!warmedUp) {
+            log.info("Warm-up completed, accepting device uplink");
+            warmedUp = true;
+            notifyUplinkCreditWaiters();
+        }
+    }
+
+    private void onWarmUpTimeout() {
+        if (!warmedUp) {
+            log.warn("Warm-up not completed in {} ms, accepting device uplink", warmUpMaxWaitTimeMs);
+            warmedUp = true;
+            notifyUplinkCreditWaiters();
+        }
+    }
+
+    @Override
+    public long getUplinkCredits() {
+        if (!warmedUp) {
+            return 0;
+        }
+        if (!flowControlEnabled) {
+            return Long.MAX_VALUE;
+        }
+        return Math.min(flowControlMaxPendingMsgs - pendingMsgs.get(), flowControlMaxQueueLag - queueLag);
+    }
+
+    @Override
+    public ListenableFuture<Void> awaitUplinkCredits() {
+        if (getUplinkCredits() > 0) {
+            return Futures.immediateFuture(null);
+        }
+        SettableFuture<Void> waiter = SettableFuture.create();
+        waiter.addListener(() -> {
+            if (waiter.isCancelled()) {
+                uplinkCreditWaiters.remove(waiter);
+            }
+        }, MoreExecutors.directExecutor());
+        uplinkCreditWaiters.add(waiter);
+        // the credits may have been released before the waiter was added
+        notifyUplinkCreditWaiters();
+        return waiter;
+    }
+
+    private void notifyUplinkCreditWaiters() {
+        SettableFuture<Void> waiter;
+        while (!uplinkCreditWaiters.isEmpty() && getUplinkCredits() > 0 && (waiter = uplinkCreditWaiters.poll()) != null) {
+            waiter.set(null);
+        }
+    }
+
+    private void updateQueueLag() {
+        try {
+            queueLag = inMemoryStorage.getLagTotal();
+            notifyUplinkCreditWaiters();
+        } catch (Exception e) {
+            log.warn("Failed to update queue lag", e);
+        }
+    }
+
     protected void sendToDeviceActor(TransportProtos.SessionInfoProto sessionInfo, TransportToDeviceActorMsg toDeviceActorMsg, TransportServiceCallback<Void> callback) {
         TopicPartitionInfo tpi = partitionService.resolve(ServiceType.TB_CORE, getTenantId(sessionInfo), getDeviceId(sessionInfo));
         if (log.isTraceEnabled()) {
@@ -1084,7 +1186,7 @@ public class DefaultTransportService implements TransportService {
         TransportTbQueueCallback transportTbQueueCallback = callback != null ?
                 new TransportTbQueueCallback(callback) : null;
         tbCoreProducerStats.incrementTotal();
-        StatsCallback wrappedCallback = new StatsCallback(transportTbQueueCallback, tbCoreProducerStats);
+        StatsCallback wrappedCallback = new StatsCallback(transportTbQueueCallback, tbCoreProducerStats, pendingMsgs);
         tbCoreMsgProducer.send(tpi,
                 new TbProtoQueueMsg<>(getRoutingKey(sessionInfo),
                         ToCoreMsg.newBuilder().setToDeviceActorMsg(toDeviceActorMsg).build()),
@@ -1096,12 +1198,12 @@ public class DefaultTransportService implements TransportService {
         if (log.isTraceEnabled()) {
             log.trace("[{}][{}] Pushing to topic {} message {}", tenantId, tbMsg.getOriginator(), tpi.getFullTopicName(), tbMsg);
         }
-        ToRuleEngineMsg msg = ToRuleEngineMsg.newBuilder().setTbMsg(TbMsg.toByteString(tbMsg))
+        ToRuleEngineMsg.Builder msg = ToRuleEngineMsg.newBuilder()
                 .setTenantIdMSB(tenantId.getId().getMostSignificantBits())
-                .setTenantIdLSB(tenantId.getId().getLeastSignificantBits()).build();
+                .setTenantIdLSB(tenantId.getId().getLeastSignificantBits());
         ruleEngineProducerStats.incrementTotal();
-        StatsCallback wrappedCallback = new StatsCallback(callback, ruleEngineProducerStats);
-        ruleEngineMsgProducer.send(tpi, new TbProtoQueueMsg<>(tbMsg.getId(), msg), wrappedCallback);
+        StatsCallback wrappedCallback = new StatsCallback(callback, ruleEngineProducerStats, pendingMsgs);
+        ruleEngineMsgProducer.send(tpi, TbRuleEngineProtoQueueMsg.create(ruleEngineMsgProducer, tbMsg, msg, wireFormatSettings.getWireFormat()), wrappedCallback);
     }
 
     private void sendToRuleEngine(TenantId tenantId, DeviceId deviceId, CustomerId customerId, TransportProtos.SessionInfoProto sessionInfo, JsonObject json,
@@ -1142,17 +1244,22 @@ public class DefaultTransportService implements TransportService {
         }
     }
 
-    private static class StatsCallback implements TbQueueCallback {
+    private class StatsCallback implements TbQueueCallback {
         private final TbQueueCallback callback;
         private final MessagesStats stats;
+        private final AtomicInteger pendingMsgs;
 
-        private StatsCallback(TbQueueCallback callback, MessagesStats stats) {
+        private StatsCallback(TbQueueCallback callback, MessagesStats stats, AtomicInteger pendingMsgs) {
             this.callback = callback;
             this.stats = stats;
+            this.pendingMsgs = pendingMsgs;
+            pendingMsgs.incrementAndGet();
         }
 
         @Override
         public void onSuccess(TbQueueMsgMetadata metadata) {
+            pendingMsgs.decrementAndGet();
+            notifyUplinkCreditWaiters();
             stats.incrementSuccessful();
             if (callback != null)
                 callback.onSuccess(metadata);
@@ -1160,6 +1267,8 @@ public class DefaultTransportService implements TransportService {
 
         @Override
         public void onFailure(Throwable t) {
+            pendingMsgs.decrementAndGet();
+            notifyUplinkCreditWaiters();
             stats.incrementFailed();
             if (callback != null)
                 callback.onFailure(t);
@@ -0,0 +1,135 @@
+/**
+ * Copyright © 2016-2022 The Thingsboard Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.thingsboard.server.common.transport.service;
+
+import com.google.common.util.concurrent.ListenableFuture;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.thingsboard.server.common.stats.MessagesStats;
+import org.thingsboard.server.common.stats.StatsFactory;
+import org.thingsboard.server.common.transport.TransportDeviceProfileCache;
+import org.thingsboard.server.common.transport.TransportResourceCache;
+import org.thingsboard.server.common.transport.TransportTenantProfileCache;
+import org.thingsboard.server.common.transport.limits.TransportRateLimitService;
+import org.thingsboard.server.gen.transport.TransportProtos;
+import org.thingsboard.server.queue.TbQueueCallback;
+import org.thingsboard.server.queue.TbQueueProducer;
+import org.thingsboard.server.queue.discovery.NotificationsTopicService;
+import org.thingsboard.server.queue.discovery.PartitionService;
+import org.thingsboard.server.queue.discovery.TbServiceInfoProvider;
+import org.thingsboard.server.queue.memory.InMemoryStorage;
+import org.thingsboard.server.queue.provider.TbQueueProducerProvider;
+import org.thingsboard.server.queue.provider.TbTransportQueueFactory;
+import org.thingsboard.server.queue.scheduler.SchedulerComponent;
+import org.thingsboard.server.queue.util.DataDecodingEncodingService;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.BDDMockito.willReturn;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+public class DefaultTransportServiceTest {
+
+    DefaultTransportService transportService;
+    TbQueueProducer tbCoreMsgProducer;
+
+    @Before
+    public void setUp() {
+        transportService = new DefaultTransportService(mock(PartitionService.class), mock(TbServiceInfoProvider.class),
+                mock(TbTransportQueueFactory.class), mock(TbQueueProducerProvider.class), mock(NotificationsTopicService.class),
+                mock(StatsFactory.class), mock(TransportDeviceProfileCache.class), mock(TransportTenantProfileCache.class),
+                mock(TransportRateLimitService.class), mock(DataDecodingEncodingService.class), mock(SchedulerComponent.class),
+                mock(TransportResourceCache.class), mock(ApplicationEventPublisher.class));
+        tbCoreMsgProducer = mock(TbQueueProducer.class);
+        ReflectionTestUtils.setField(transportService, "tbCoreMsgProducer", tbCoreMsgProducer);
+        ReflectionTestUtils.setField(transportService, "tbCoreProducerStats", mock(MessagesStats.class));
+        ReflectionTestUtils.setField(transportService, "flowControlMaxPendingMsgs", 2);
+        ReflectionTestUtils.setField(transportService, "flowControlMaxQueueLag", 100);
+    }
+
+    @Test
+    public void givenFlowControlDisabled_whenGetUplinkCredits_thenUnlimited() {
+        sendToDeviceActor();
+        sendToDeviceActor();
+        sendToDeviceActor();
+
+        assertEquals(Long.MAX_VALUE, transportService.getUplinkCredits());
+    }
+
+    @Test
+    public void givenPendingMsgs_whenGetUplinkCredits_thenCreditsReturnedOnAcknowledgement() {
+        ReflectionTestUtils.setField(transportService, "flowControlEnabled", true);
+        assertEquals(2, transportService.getUplinkCredits());
+
+        sendToDeviceActor();
+        sendToDeviceActor();
+        assertEquals(0, transportService.getUplinkCredits());
+
+        ArgumentCaptor<TbQueueCallback> callbacks = ArgumentCaptor.forClass(TbQueueCallback.class);
+        verify(tbCoreMsgProducer, times(2)).send(any(), any(), callbacks.capture());
+        callbacks.getAllValues().get(0).onSuccess(null);
+        assertEquals(1, transportService.getUplinkCredits());
+        callbacks.getAllValues().get(1).onFailure(new RuntimeException());
+        assertEquals(2, transportService.getUplinkCredits());
+    }
+
+    @Test
+    public void givenQueueLag_whenGetUplinkCredits_thenCappedByLagHeadroom() {
+        ReflectionTestUtils.setField(transportService, "flowControlEnabled", true);
+        ReflectionTestUtils.setField(transportService, "flowControlMaxPendingMsgs", 1000);
+        InMemoryStorage inMemoryStorage = mock(InMemoryStorage.class);
+        ReflectionTestUtils.setField(transportService, "inMemoryStorage", inMemoryStorage);
+
+        willReturn(90).given(inMemoryStorage).getLagTotal();
+        ReflectionTestUtils.invokeMethod(transportService, "updateQueueLag");
+        assertEquals(10, transportService.getUplinkCredits());
+
+        willReturn(150).given(inMemoryStorage).getLagTotal();
+        ReflectionTestUtils.invokeMethod(transportService, "updateQueueLag");
+        assertEquals(-50, transportService.getUplinkCredits());
+    }
+
+    @Test
+    public void givenNoUplinkCredits_whenAwaitUplinkCredits_thenCompletedOnAcknowledgement() {
+        ReflectionTestUtils.setField(transportService, "flowControlEnabled", true);
+        sendToDeviceActor();
+        sendToDeviceActor();
+
+        ListenableFuture<Void> uplinkCredits = transportService.awaitUplinkCredits();
+        ListenableFuture<Void> cancelled = transportService.awaitUplinkCredits();
+        cancelled.cancel(false);
+        assertFalse(uplinkCredits.isDone());
+
+        ArgumentCaptor<TbQueueCallback> callbacks = ArgumentCaptor.forClass(TbQueueCallback.class);
+        verify(tbCoreMsgProducer, times(2)).send(any(), any(), callbacks.capture());
+        callbacks.getAllValues().get(0).onSuccess(null);
+
+        assertTrue(uplinkCredits.isDone());
+        assertTrue(transportService.awaitUplinkCredits().isDone());
+    }
+
+    private void sendToDeviceActor() {
+        transportService.sendToDeviceActor(TransportProtos.SessionInfoProto.getDefaultInstance(),
+                TransportProtos.TransportToDeviceActorMsg.getDefaultInstance(), null);
+    }
+}
@@ -0,0 +1,100 @@
+/**
+ * Copyright © 2016-2022 The Thingsboard Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.thingsboard.common.util;
+
+import com.google.common.util.concurrent.Futures;
+import com.google.common.util.concurrent.ListenableFuture;
+import com.google.common.util.concurrent.ListeningExecutorService;
+import com.google.common.util.concurrent.MoreExecutors;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+
+/**
+ * Isolates blocking calls (synchronous DAO access, waits on futures) from the actor and callback threads.
+ * Submitted calls run on a bounded elastic pool or, when created with virtual threads on a JVM that supports them,
+ * on a virtual thread per call. The time every call blocks its thread is reported to the {@link BlockingCallListener}
+ * under the name of the call site.
+ */
+public class BlockingCallExecutor {
+
+    private final ListeningExecutorService executor;
+    private final boolean virtualThreads;
+    private volatile BlockingCallListener listener = BlockingCallListener.NONE;
+
+    BlockingCallExecutor(ExecutorService executor, boolean virtualThreads) {
+        this.executor = MoreExecutors.listeningDecorator(executor);
+        this.virtualThreads = virtualThreads;
+    }
+
+    public boolean isVirtualThreads() {
+        return virtualThreads;
+    }
+
+    public void setListener(BlockingCallListener listener) {
+        this.listener = listener != null ? listener : BlockingCallListener.NONE;
+    }
+
+    /**
+     * Runs the call on the executor. The returned future fails with {@link RejectedExecutionException} when the queue
+     * of waiting calls is full.
+     */
+    public <T> ListenableFuture<T> submit(String callSite, Callable<T> task) {
+        try {
+            return executor.submit(() -> {
+                long startTs = System.nanoTime();
+                try {
+                    return task.call();
+                } finally {
+                    listener.onBlocked(callSite, System.nanoTime() - startTs);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            return Futures.immediateFailedFuture(e);
+        }
+    }
+
+    /**
+     * Waits for the future on the calling thread, for the call sites that have to stay synchronous.
+     */
+    public <T> T await(String callSite, Future<T> future) throws ExecutionException, InterruptedException {
+        if (future.isDone()) {
+            return future.get();
+        }
+        long startTs = System.nanoTime();
+        try {
+            return future.get();
+        } finally {
+            listener.onBlocked(callSite, System.nanoTime() - startTs);
+        }
+    }
+
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+
+    @FunctionalInterface
+    public interface BlockingCallListener {
+
+        BlockingCallListener NONE = (callSite, blockedNanos) -> {};
+
+        void onBlocked(String callSite, long blockedNanos);
+
+    }
+}
@@ -15,9 +15,16 @@
  */
 package org.thingsboard.common.util;
 
+import lombok.extern.slf4j.Slf4j;
+
 import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
 
+@Slf4j
 public class ThingsBoardExecutors {
 
     /**
@@ -47,4 +54,24 @@ public class ThingsBoardExecutors {
     public static ExecutorService newWorkStealingPool(int parallelism, Class clazz) {
         return newWorkStealingPool(parallelism, clazz.getSimpleName());
     }
+
+    /**
+     * Creates an executor for blocking calls. With {@code virtualThreads} and a JVM that supports them every call
+     * runs on its own virtual thread; otherwise on a pool of up to {@code maxThreads} threads that are released
+     * after a minute without work. At most {@code maxQueueSize} calls wait for a pool thread, further calls are rejected.
+     */
+    public static BlockingCallExecutor newBlockingCallExecutor(int maxThreads, int maxQueueSize, String namePrefix, boolean virtualThreads) {
+        if (virtualThreads) {
+            try {
+                ExecutorService executor = (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+                return new BlockingCallExecutor(executor, true);
+            } catch (ReflectiveOperationException e) {
+                log.info("[{}] Virtual threads are not supported by the JVM, using a pool of {} threads", namePrefix, maxThreads);
+            }
+        }
+        ThreadPoolExecutor executor = new ThreadPoolExecutor(maxThreads, maxThreads, 60, TimeUnit.SECONDS,
+                new LinkedBlockingQueue<>(maxQueueSize), ThingsBoardThreadFactory.forName(namePrefix));
+        executor.allowCoreThreadTimeOut(true);
+        return new BlockingCallExecutor(executor, false);
+    }
 }
@@ -0,0 +1,110 @@
+/**
+ * Copyright © 2016-2022 The Thingsboard Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.thingsboard.common.util;
+
+import com.google.common.util.concurrent.Futures;
+import com.google.common.util.concurrent.ListenableFuture;
+import com.google.common.util.concurrent.SettableFuture;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import static org.hamcrest.CoreMatchers.instanceOf;
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.greaterThanOrEqualTo;
+import static org.junit.Assert.fail;
+
+public class BlockingCallExecutorTest {
+
+    BlockingCallExecutor executor;
+    Map<String, Long> blockedNanos = new ConcurrentHashMap<>();
+
+    @Before
+    public void setUp() {
+        executor = ThingsBoardExecutors.newBlockingCallExecutor(2, 100, "blocking-call-test", true);
+        executor.setListener((callSite, nanos) -> blockedNanos.merge(callSite, nanos, Long::sum));
+    }
+
+    @After
+    public void tearDown() {
+        executor.shutdown();
+    }
+
+    @Test
+    public void givenCall_whenSubmit_thenResultAndBlockedTimeReported() throws Exception {
+        String result = executor.submit("test.submit", () -> {
+            Thread.sleep(20);
+            return "done";
+        }).get(5, TimeUnit.SECONDS);
+
+        assertThat(result, is("done"));
+        assertThat(blockedNanos.get("test.submit"), greaterThanOrEqualTo(TimeUnit.MILLISECONDS.toNanos(20)));
+    }
+
+    @Test
+    public void givenPendingFuture_whenAwait_thenBlockedTimeReported() throws Exception {
+        SettableFuture<String> future = SettableFuture.create();
+        ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor();
+        try {
+            scheduler.schedule(() -> future.set("done"), 20, TimeUnit.MILLISECONDS);
+            assertThat(executor.await("test.await", future), is("done"));
+        } finally {
+            scheduler.shutdownNow();
+        }
+        assertThat(blockedNanos.get("test.await"), greaterThanOrEqualTo(TimeUnit.MILLISECONDS.toNanos(10)));
+    }
+
+    @Test
+    public void givenCompletedFuture_whenAwait_thenNotReported() throws Exception {
+        assertThat(executor.await("test.completed", Futures.immediateFuture("done")), is("done"));
+        assertThat(blockedNanos.containsKey("test.completed"), is(false));
+    }
+
+    @Test
+    public void givenFullQueue_whenSubmit_thenRejectedWithFailedFuture() throws Exception {
+        BlockingCallExecutor pool = ThingsBoardExecutors.newBlockingCallExecutor(1, 1, "blocking-call-test-pool", false);
+        CountDownLatch release = new CountDownLatch(1);
+        try {
+            ListenableFuture<Boolean> running = pool.submit("test.running", () -> release.await(5, TimeUnit.SECONDS));
+            ListenableFuture<Boolean> queued = pool.submit("test.queued", () -> true);
+            ListenableFuture<Boolean> rejected = pool.submit("test.rejected", () -> true);
+
+            assertThat(rejected.isDone(), is(true));
+            try {
+                rejected.get();
+                fail("Expected the call to be rejected");
+            } catch (ExecutionException e) {
+                assertThat(e.getCause(), instanceOf(RejectedExecutionException.class));
+            }
+
+            release.countDown();
+            assertThat(running.get(5, TimeUnit.SECONDS), is(true));
+            assertThat(queued.get(5, TimeUnit.SECONDS), is(true));
+        } finally {
+            pool.shutdown();
+        }
+    }
+}
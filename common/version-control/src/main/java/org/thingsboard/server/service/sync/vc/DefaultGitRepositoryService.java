@@ -23,6 +23,7 @@ import org.eclipse.jgit.api.errors.GitAPIException;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.stereotype.Service;
+import org.thingsboard.common.util.ThingsBoardThreadFactory;
 import org.thingsboard.server.common.data.EntityType;
 import org.thingsboard.server.common.data.id.EntityId;
 import org.thingsboard.server.common.data.id.EntityIdFactory;
@@ -37,6 +38,7 @@ import org.thingsboard.server.common.data.sync.vc.VersionedEntityInfo;
 import org.thingsboard.server.service.sync.vc.GitRepository.Diff;
 
 import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
 import java.io.File;
 import java.io.IOException;
 import java.nio.charset.StandardCharsets;
@@ -48,6 +50,8 @@ import java.util.Map;
 import java.util.Optional;
 import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 import java.util.stream.Collectors;
 
 @Slf4j
@@ -63,11 +67,21 @@ public class DefaultGitRepositoryService implements GitRepositoryService {
 
     private final Map<TenantId, GitRepository> repositories = new ConcurrentHashMap<>();
 
+    private ExecutorService commitIndexExecutor;
+
     @PostConstruct
     public void init() {
         if (StringUtils.isEmpty(repositoriesFolder)) {
             repositoriesFolder = defaultFolder;
         }
+        commitIndexExecutor = Executors.newSingleThreadExecutor(ThingsBoardThreadFactory.forName("vc-commit-index"));
+    }
+
+    @PreDestroy
+    public void stop() {
+        if (commitIndexExecutor != null) {
+            commitIndexExecutor.shutdownNow();
+        }
     }
 
     @Override
@@ -234,7 +248,7 @@ public class DefaultGitRepositoryService implements GitRepositoryService {
         }
 
         Files.createDirectories(repositoryDirectory);
-        repository = GitRepository.clone(settings, repositoryDirectory.toFile());
+        repository = GitRepository.clone(settings, repositoryDirectory.toFile(), commitIndexExecutor);
         repositories.put(tenantId, repository);
         log.debug("[{}] Init tenant repository completed.", tenantId);
     }
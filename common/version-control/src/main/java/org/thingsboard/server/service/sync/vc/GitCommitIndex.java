@@ -0,0 +1,168 @@
+/**
+ * Copyright © 2016-2022 The Thingsboard Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.thingsboard.server.service.sync.vc;
+
+import org.eclipse.jgit.lib.ObjectId;
+import org.eclipse.jgit.lib.Repository;
+import org.eclipse.jgit.revwalk.RevCommit;
+import org.eclipse.jgit.revwalk.RevWalk;
+import org.eclipse.jgit.revwalk.filter.RevFilter;
+import org.eclipse.jgit.treewalk.EmptyTreeIterator;
+import org.eclipse.jgit.treewalk.TreeWalk;
+import org.eclipse.jgit.treewalk.filter.TreeFilter;
+import org.thingsboard.server.common.data.StringUtils;
+import org.thingsboard.server.common.data.page.PageData;
+import org.thingsboard.server.common.data.page.PageLink;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Predicate;
+
+/**
+ * Non-merge commits of a branch together with the paths each of them changed, kept in history order.
+ * The index is built by a single walk of the branch and then extended by walking only the commits added since the
+ * previous update, so listing and searching the history does not walk the repository on every request.
+ * A branch that was rewritten (the previous tip is not an ancestor of the new one) is indexed from scratch.
+ */
+class GitCommitIndex {
+
+    private final Repository repository;
+    // Changed paths repeat across commits, so every path is stored once
+    private final Map<String, String> paths = new HashMap<>();
+    // Oldest first, so the commits added to the branch are appended
+    private List<IndexedCommit> commits = new ArrayList<>();
+    private ObjectId tipId;
+
+    GitCommitIndex(Repository repository) {
+        this.repository = repository;
+    }
+
+    synchronized void update(ObjectId newTipId) throws IOException {
+        if (newTipId.equals(tipId)) {
+            return;
+        }
+        boolean fastForward = false;
+        if (tipId != null) {
+            try (RevWalk revWalk = new RevWalk(repository)) {
+                fastForward = revWalk.isMergedInto(revWalk.parseCommit(tipId), revWalk.parseCommit(newTipId));
+            }
+        }
+        if (!fastForward) {
+            commits = new ArrayList<>();
+            paths.clear();
+            tipId = null;
+        }
+        List<IndexedCommit> added = new ArrayList<>();
+        try (RevWalk revWalk = new RevWalk(repository); TreeWalk treeWalk = new TreeWalk(repository)) {
+            revWalk.setRevFilter(RevFilter.NO_MERGES);
+            revWalk.markStart(revWalk.parseCommit(newTipId));
+            if (fastForward) {
+                revWalk.markUninteresting(revWalk.parseCommit(tipId));
+            }
+            treeWalk.setRecursive(true);
+            treeWalk.setFilter(TreeFilter.ANY_DIFF);
+            for (RevCommit revCommit : revWalk) {
+                added.add(new IndexedCommit(GitRepository.toCommit(revCommit), getChangedPaths(revWalk, treeWalk, revCommit)));
+            }
+        }
+        Collections.reverse(added);
+        commits.addAll(added);
+        tipId = newTipId.copy();
+    }
+
+    /**
+     * Returns the requested page of the commits, newest first unless sorted by timestamp ascending.
+     * Only the commits of the page are copied; the filters are matched against the index in memory.
+     */
+    synchronized PageData<GitRepository.Commit> find(String path, PageLink pageLink) {
+        Predicate<IndexedCommit> filter = null;
+        if (StringUtils.isNotEmpty(path)) {
+            String pathFilter = path.endsWith("/") ? path.substring(0, path.length() - 1) : path;
+            filter = commit -> commit.changed(pathFilter);
+        }
+        if (StringUtils.isNotEmpty(pageLink.getTextSearch())) {
+            String textSearch = pageLink.getTextSearch().toLowerCase();
+            Predicate<IndexedCommit> messageFilter = commit -> commit.getCommit().getMessage().toLowerCase().contains(textSearch);
+            filter = filter != null ? filter.and(messageFilter) : messageFilter;
+        }
+        boolean ascending = GitRepository.isSortedByTimestampAscending(pageLink);
+        int startIndex = pageLink.getPageSize() * pageLink.getPage();
+        int endIndex = startIndex + pageLink.getPageSize();
+        List<GitRepository.Commit> data = new ArrayList<>();
+        int totalElements = 0;
+        int size = commits.size();
+        for (int i = 0; i < size; i++) {
+            IndexedCommit commit = commits.get(ascending ? i : size - 1 - i);
+            if (filter == null || filter.test(commit)) {
+                if (totalElements >= startIndex && totalElements < endIndex) {
+                    data.add(commit.getCommit());
+                }
+                totalElements++;
+                if (filter == null && totalElements >= endIndex) {
+                    totalElements = size;
+                    break;
+                }
+            }
+        }
+        int totalPages = pageLink.getPageSize() > 0 ? (int) Math.ceil((float) totalElements / pageLink.getPageSize()) : 1;
+        boolean hasNext = pageLink.getPageSize() > 0 && totalElements > startIndex + data.size();
+        return new PageData<>(data, totalPages, totalElements, hasNext);
+    }
+
+    private String[] getChangedPaths(RevWalk revWalk, TreeWalk treeWalk, RevCommit revCommit) throws IOException {
+        treeWalk.reset();
+        if (revCommit.getParentCount() > 0) {
+            treeWalk.addTree(revWalk.parseCommit(revCommit.getParent(0)).getTree());
+        } else {
+            treeWalk.addTree(new EmptyTreeIterator());
+        }
+        treeWalk.addTree(revCommit.getTree());
+        List<String> changedPaths = new ArrayList<>();
+        while (treeWalk.next()) {
+            changedPaths.add(paths.computeIfAbsent(treeWalk.getPathString(), p -> p));
+        }
+        return changedPaths.toArray(new String[0]);
+    }
+
+    private static class IndexedCommit {
+
+        private final GitRepository.Commit commit;
+        private final String[] changedPaths;
+
+        IndexedCommit(GitRepository.Commit commit, String[] changedPaths) {
+            this.commit = commit;
+            this.changedPaths = changedPaths;
+        }
+
+        GitRepository.Commit getCommit() {
+            return commit;
+        }
+
+        // Same matching as the JGit path filter: the path itself or any path below it
+        boolean changed(String path) {
+            for (String changedPath : changedPaths) {
+                if (changedPath.startsWith(path) && (changedPath.length() == path.length() || changedPath.charAt(path.length()) == '/')) {
+                    return true;
+                }
+            }
+            return false;
+        }
+    }
+}
@@ -15,18 +15,15 @@
  */
 package org.thingsboard.server.service.sync.vc;
 
-import com.google.common.collect.Iterables;
-import com.google.common.collect.Ordering;
-import com.google.common.collect.Streams;
 import lombok.Data;
 import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
 import org.thingsboard.server.common.data.StringUtils;
 import org.apache.sshd.common.util.security.SecurityUtils;
 import org.eclipse.jgit.api.CloneCommand;
 import org.eclipse.jgit.api.Git;
 import org.eclipse.jgit.api.GitCommand;
 import org.eclipse.jgit.api.ListBranchCommand;
-import org.eclipse.jgit.api.LogCommand;
 import org.eclipse.jgit.api.LsRemoteCommand;
 import org.eclipse.jgit.api.ResetCommand;
 import org.eclipse.jgit.api.TransportCommand;
@@ -43,8 +40,6 @@ import org.eclipse.jgit.lib.ObjectLoader;
 import org.eclipse.jgit.lib.ObjectReader;
 import org.eclipse.jgit.lib.Ref;
 import org.eclipse.jgit.revwalk.RevCommit;
-import org.eclipse.jgit.revwalk.RevWalk;
-import org.eclipse.jgit.revwalk.filter.RevFilter;
 import org.eclipse.jgit.transport.CredentialsProvider;
 import org.eclipse.jgit.transport.FetchResult;
 import org.eclipse.jgit.transport.RefSpec;
@@ -74,13 +69,17 @@ import java.security.KeyPair;
 import java.security.PublicKey;
 import java.util.ArrayList;
 import java.util.Collections;
-import java.util.Comparator;
 import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
-import java.util.function.Function;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.stream.Collectors;
 
+@Slf4j
 public class GitRepository {
 
     private final Git git;
@@ -94,15 +93,21 @@ public class GitRepository {
 
     private ObjectId headId;
 
-    private GitRepository(Git git, RepositorySettings settings, CredentialsProvider credentialsProvider, SshdSessionFactory sshSessionFactory, String directory) {
+    private final Map<String, GitCommitIndex> commitIndexes = new ConcurrentHashMap<>();
+    private final Executor commitIndexExecutor;
+    private final AtomicBoolean commitIndexesUpdatePending = new AtomicBoolean();
+
+    private GitRepository(Git git, RepositorySettings settings, CredentialsProvider credentialsProvider, SshdSessionFactory sshSessionFactory,
+                          String directory, Executor commitIndexExecutor) {
         this.git = git;
         this.settings = settings;
         this.credentialsProvider = credentialsProvider;
         this.sshSessionFactory = sshSessionFactory;
         this.directory = directory;
+        this.commitIndexExecutor = commitIndexExecutor;
     }
 
-    public static GitRepository clone(RepositorySettings settings, File directory) throws GitAPIException {
+    public static GitRepository clone(RepositorySettings settings, File directory, Executor commitIndexExecutor) throws GitAPIException {
         CredentialsProvider credentialsProvider = null;
         SshdSessionFactory sshSessionFactory = null;
         if (RepositoryAuthMethod.USERNAME_PASSWORD.equals(settings.getAuthMethod())) {
@@ -116,10 +121,10 @@ public class GitRepository {
                 .setNoCheckout(true);
         configureTransportCommand(cloneCommand, credentialsProvider, sshSessionFactory);
         Git git = cloneCommand.call();
-        return new GitRepository(git, settings, credentialsProvider, sshSessionFactory, directory.getAbsolutePath());
+        return new GitRepository(git, settings, credentialsProvider, sshSessionFactory, directory.getAbsolutePath(), commitIndexExecutor);
     }
 
-    public static GitRepository open(File directory, RepositorySettings settings) throws IOException {
+    public static GitRepository open(File directory, RepositorySettings settings, Executor commitIndexExecutor) throws IOException {
         Git git = Git.open(directory);
         CredentialsProvider credentialsProvider = null;
         SshdSessionFactory sshSessionFactory = null;
@@ -128,7 +133,7 @@ public class GitRepository {
         } else if (RepositoryAuthMethod.PRIVATE_KEY.equals(settings.getAuthMethod())) {
             sshSessionFactory = newSshdSessionFactory(settings.getPrivateKey(), settings.getPrivateKeyPassword(), directory);
         }
-        return new GitRepository(git, settings, credentialsProvider, sshSessionFactory, directory.getAbsolutePath());
+        return new GitRepository(git, settings, credentialsProvider, sshSessionFactory, directory.getAbsolutePath(), commitIndexExecutor);
     }
 
     public static void test(RepositorySettings settings, File directory) throws GitAPIException {
@@ -151,6 +156,43 @@ public class GitRepository {
         if (head != null) {
             this.headId = head.getObjectId();
         }
+        scheduleCommitIndexesUpdate();
+    }
+
+    /*
+     * Indexing the fetched commits walks the new history, so it is done off the fetching thread.
+     * A listing that arrives meanwhile waits for the index of its branch instead of walking the history twice.
+     * Fetches that come while an update is still queued are covered by that update.
+     */
+    private void scheduleCommitIndexesUpdate() {
+        if (commitIndexes.isEmpty() || !commitIndexesUpdatePending.compareAndSet(false, true)) {
+            return;
+        }
+        try {
+            commitIndexExecutor.execute(() -> {
+                commitIndexesUpdatePending.set(false);
+                updateCommitIndexes();
+            });
+        } catch (RejectedExecutionException e) {
+            commitIndexesUpdatePending.set(false);
+            log.debug("[{}] Skipping commit indexes update, executor is stopped", directory);
+        }
+    }
+
+    private void updateCommitIndexes() {
+        commitIndexes.entrySet().removeIf(entry -> {
+            try {
+                ObjectId branchId = git.getRepository().resolve("origin/" + entry.getKey());
+                if (branchId == null) {
+                    return true;
+                }
+                entry.getValue().update(branchId);
+                return false;
+            } catch (Exception e) {
+                log.warn("[{}] Failed to update commit index of branch {}", directory, entry.getKey(), e);
+                return true;
+            }
+        });
     }
 
     public void deleteLocalBranchIfExists(String branch) throws GitAPIException {
@@ -193,21 +235,9 @@ public class GitRepository {
         if (branchId == null) {
             return new PageData<>();
         }
-        LogCommand command = git.log()
-                .add(branchId);
-
-        if (StringUtils.isNotEmpty(pageLink.getTextSearch())) {
-            command.setRevFilter(new NoMergesAndCommitMessageFilter(pageLink.getTextSearch()));
-        } else {
-            command.setRevFilter(RevFilter.NO_MERGES);
-        }
-
-        if (StringUtils.isNotEmpty(path)) {
-            command.addPath(path);
-        }
-
-        Iterable<RevCommit> commits = execute(command);
-        return iterableToPageData(commits, this::toCommit, pageLink, revCommitComparatorFunction);
+        GitCommitIndex commitIndex = commitIndexes.computeIfAbsent(branch, b -> new GitCommitIndex(git.getRepository()));
+        commitIndex.update(branchId);
+        return commitIndex.find(path, pageLink);
     }
 
     public List<String> listFilesAtCommit(String commitId) throws IOException {
@@ -344,7 +374,7 @@ public class GitRepository {
         return new BranchInfo(branchName, isDefault);
     }
 
-    private Commit toCommit(RevCommit revCommit) {
+    static Commit toCommit(RevCommit revCommit) {
         return new Commit(revCommit.getCommitTime() * 1000l, revCommit.getName(),
                 revCommit.getFullMessage(), revCommit.getAuthorIdent().getName(), revCommit.getAuthorIdent().getEmailAddress());
     }
@@ -368,41 +398,11 @@ public class GitRepository {
         return command.call();
     }
 
-    private static Function<PageLink, Comparator<RevCommit>> revCommitComparatorFunction = pageLink -> {
+    static boolean isSortedByTimestampAscending(PageLink pageLink) {
         SortOrder sortOrder = pageLink.getSortOrder();
-        if (sortOrder != null
+        return sortOrder != null
                 && sortOrder.getProperty().equals("timestamp")
-                && SortOrder.Direction.ASC.equals(sortOrder.getDirection())) {
-            return Comparator.comparingInt(RevCommit::getCommitTime);
-        }
-        return null;
-    };
-
-    private static <T, R> PageData<R> iterableToPageData(Iterable<T> iterable,
-                                                         Function<? super T, ? extends R> mapper,
-                                                         PageLink pageLink,
-                                                         Function<PageLink, Comparator<T>> comparatorFunction) {
-        iterable = Streams.stream(iterable).collect(Collectors.toList());
-        int totalElements = Iterables.size(iterable);
-        int totalPages = pageLink.getPageSize() > 0 ? (int) Math.ceil((float) totalElements / pageLink.getPageSize()) : 1;
-        int startIndex = pageLink.getPageSize() * pageLink.getPage();
-        int limit = startIndex + pageLink.getPageSize();
-        if (comparatorFunction != null) {
-            Comparator<T> comparator = comparatorFunction.apply(pageLink);
-            if (comparator != null) {
-                iterable = Ordering.from(comparator).immutableSortedCopy(iterable);
-            }
-        }
-        iterable = Iterables.limit(iterable, limit);
-        if (startIndex < totalElements) {
-            iterable = Iterables.skip(iterable, startIndex);
-        } else {
-            iterable = Collections.emptyList();
-        }
-        List<R> data = Streams.stream(iterable).map(mapper)
-                .collect(Collectors.toList());
-        boolean hasNext = pageLink.getPageSize() > 0 && totalElements > startIndex + data.size();
-        return new PageData<>(data, totalPages, totalElements, hasNext);
+                && SortOrder.Direction.ASC.equals(sortOrder.getDirection());
     }
 
     private static void configureTransportCommand(TransportCommand transportCommand, CredentialsProvider credentialsProvider, SshdSessionFactory sshSessionFactory) {
@@ -460,35 +460,6 @@ public class GitRepository {
         return keyPairs;
     }
 
-    private static class NoMergesAndCommitMessageFilter extends RevFilter {
-
-        private final String textSearch;
-
-        NoMergesAndCommitMessageFilter(String textSearch) {
-            this.textSearch = textSearch.toLowerCase();
-        }
-
-        @Override
-        public boolean include(RevWalk walker, RevCommit c) {
-            return c.getParentCount() < 2 && c.getFullMessage().toLowerCase().contains(this.textSearch);
-        }
-
-        @Override
-        public RevFilter clone() {
-            return this;
-        }
-
-        @Override
-        public boolean requiresCommitBody() {
-            return false;
-        }
-
-        @Override
-        public String toString() {
-            return "NO_MERGES_AND_COMMIT_MESSAGE";
-        }
-    }
-
     @Data
     public static class Commit {
         private final long timestamp;
@@ -0,0 +1,191 @@
+/**
+ * Copyright © 2016-2022 The Thingsboard Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.thingsboard.server.service.sync.vc;
+
+import org.eclipse.jgit.api.Git;
+import org.eclipse.jgit.api.LogCommand;
+import org.eclipse.jgit.api.ResetCommand;
+import org.eclipse.jgit.lib.ObjectId;
+import org.eclipse.jgit.revwalk.RevCommit;
+import org.eclipse.jgit.revwalk.filter.RevFilter;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.thingsboard.server.common.data.page.PageData;
+import org.thingsboard.server.common.data.page.PageLink;
+import org.thingsboard.server.common.data.page.SortOrder;
+import org.thingsboard.server.common.data.sync.vc.RepositorySettings;
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class GitCommitIndexTest {
+
+    @TempDir
+    Path directory;
+
+    Git git;
+    GitCommitIndex index;
+
+    @BeforeEach
+    public void setUp() throws Exception {
+        git = Git.init().setDirectory(directory.resolve("origin").toFile()).call();
+        index = new GitCommitIndex(git.getRepository());
+    }
+
+    @AfterEach
+    public void tearDown() {
+        git.close();
+    }
+
+    @Test
+    public void givenNewCommits_whenUpdate_thenCommitsAppended() throws Exception {
+        commit("devices/a.json", "1", "first");
+        commit("assets/b.json", "1", "second");
+        index.update(tip());
+        assertThat(ids(index.find(null, new PageLink(10)))).isEqualTo(logIds(null));
+
+        commit("devices/a.json", "2", "third");
+        index.update(tip());
+        assertThat(ids(index.find(null, new PageLink(10)))).hasSize(3).isEqualTo(logIds(null));
+    }
+
+    @Test
+    public void givenRewrittenBranch_whenUpdate_thenIndexRebuilt() throws Exception {
+        commit("devices/a.json", "1", "first");
+        RevCommit second = commit("devices/a.json", "2", "second");
+        commit("devices/a.json", "3", "third");
+        index.update(tip());
+
+        git.reset().setMode(ResetCommand.ResetType.HARD).setRef(second.getName()).call();
+        commit("assets/b.json", "1", "rewritten");
+        index.update(tip());
+
+        List<String> ids = ids(index.find(null, new PageLink(10)));
+        assertThat(ids).hasSize(3).isEqualTo(logIds(null));
+        assertThat(index.find(null, new PageLink(10)).getData().get(0).getMessage()).isEqualTo("rewritten");
+    }
+
+    @Test
+    public void givenPathFilter_whenFind_thenSameCommitsAsJGitPathFilter() throws Exception {
+        commit("devices/a.json", "1", "first");
+        commit("devices/ab.json", "1", "second");
+        commit("devices/a/c.json", "1", "third");
+        commit("assets/a.json", "1", "fourth");
+        commit("devices/a.json", "2", "fifth");
+        index.update(tip());
+
+        for (String path : List.of("devices", "devices/", "devices/a", "devices/a.json", "assets", "dev", "missing")) {
+            String jgitPath = path.endsWith("/") ? path.substring(0, path.length() - 1) : path;
+            assertThat(ids(index.find(path, new PageLink(10)))).as(path).isEqualTo(logIds(jgitPath));
+        }
+    }
+
+    @Test
+    public void givenPageLink_whenFind_thenPageAndTotalsReturned() throws Exception {
+        List<String> committed = new ArrayList<>();
+        for (int i = 0; i < 5; i++) {
+            committed.add(commit("devices/" + i + ".json", "1", "commit " + i).getName());
+        }
+        index.update(tip());
+
+        PageData<GitRepository.Commit> page = index.find(null, new PageLink(2, 0));
+        assertThat(ids(page)).containsExactly(committed.get(4), committed.get(3));
+        assertThat(page.getTotalElements()).isEqualTo(5);
+        assertThat(page.getTotalPages()).isEqualTo(3);
+        assertThat(page.hasNext()).isTrue();
+
+        page = index.find(null, new PageLink(2, 2));
+        assertThat(ids(page)).containsExactly(committed.get(0));
+        assertThat(page.getTotalElements()).isEqualTo(5);
+        assertThat(page.hasNext()).isFalse();
+
+        SortOrder ascending = new SortOrder("timestamp", SortOrder.Direction.ASC);
+        page = index.find(null, new PageLink(2, 1, null, ascending));
+        assertThat(ids(page)).containsExactly(committed.get(2), committed.get(3));
+        assertThat(page.hasNext()).isTrue();
+
+        page = index.find("devices/1.json", new PageLink(2, 0));
+        assertThat(ids(page)).containsExactly(committed.get(1));
+        assertThat(page.getTotalElements()).isEqualTo(1);
+        assertThat(page.hasNext()).isFalse();
+
+        page = index.find(null, new PageLink(2, 0, "COMMIT 3"));
+        assertThat(ids(page)).containsExactly(committed.get(3));
+        assertThat(page.getTotalElements()).isEqualTo(1);
+    }
+
+    @Test
+    public void givenIndexedBranch_whenFetch_thenIndexUpdatedInBackground() throws Exception {
+        commit("devices/a.json", "1", "first");
+        String branch = git.getRepository().getBranch();
+        RepositorySettings settings = new RepositorySettings();
+        settings.setRepositoryUri(git.getRepository().getDirectory().getParentFile().toURI().toString());
+        List<Runnable> tasks = new ArrayList<>();
+        GitRepository repository = GitRepository.clone(settings, new File(directory.toFile(), "clone"), tasks::add);
+
+        assertThat(repository.listCommits(branch, new PageLink(10)).getData()).hasSize(1);
+
+        commit("devices/a.json", "2", "second");
+        repository.fetch();
+        repository.fetch();
+        assertThat(tasks).hasSize(1);
+
+        Map<String, GitCommitIndex> commitIndexes = (Map<String, GitCommitIndex>) ReflectionTestUtils.getField(repository, "commitIndexes");
+        GitCommitIndex branchIndex = commitIndexes.get(branch);
+        assertThat(branchIndex.find(null, new PageLink(10)).getData()).hasSize(1);
+
+        tasks.remove(0).run();
+        assertThat(branchIndex.find(null, new PageLink(10)).getData()).hasSize(2);
+        assertThat(repository.listCommits(branch, new PageLink(10)).getData()).hasSize(2);
+    }
+
+    private RevCommit commit(String file, String content, String message) throws Exception {
+        Path path = git.getRepository().getWorkTree().toPath().resolve(file);
+        Files.createDirectories(path.getParent());
+        Files.write(path, content.getBytes(StandardCharsets.UTF_8));
+        git.add().addFilepattern(".").call();
+        return git.commit().setMessage(message).call();
+    }
+
+    private ObjectId tip() throws Exception {
+        return git.getRepository().resolve("HEAD");
+    }
+
+    private List<String> logIds(String path) throws Exception {
+        LogCommand log = git.log().add(tip()).setRevFilter(RevFilter.NO_MERGES);
+        if (path != null) {
+            log.addPath(path);
+        }
+        List<String> ids = new ArrayList<>();
+        log.call().forEach(revCommit -> ids.add(revCommit.getName()));
+        return ids;
+    }
+
+    private static List<String> ids(PageData<GitRepository.Commit> page) {
+        return page.getData().stream().map(GitRepository.Commit::getId).collect(Collectors.toList());
+    }
+}
@@ -18,6 +18,7 @@ package org.thingsboard.server.dao.alarm;
 
 import com.fasterxml.jackson.databind.JsonNode;
 import com.google.common.base.Function;
+import com.google.common.util.concurrent.FutureCallback;
 import com.google.common.util.concurrent.Futures;
 import com.google.common.util.concurrent.ListenableFuture;
 import com.google.common.util.concurrent.MoreExecutors;
@@ -25,7 +26,11 @@ import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 import org.springframework.util.CollectionUtils;
+import org.thingsboard.common.util.BlockingCallExecutor;
 import org.thingsboard.common.util.ThingsBoardThreadFactory;
+import org.thingsboard.server.cache.TbCacheTransaction;
+import org.thingsboard.server.cache.TbCacheValueWrapper;
+import org.thingsboard.server.cache.TbTransactionalCache;
 import org.thingsboard.server.common.data.alarm.Alarm;
 import org.thingsboard.server.common.data.alarm.AlarmInfo;
 import org.thingsboard.server.common.data.alarm.AlarmQuery;
@@ -82,6 +87,12 @@ public class BaseAlarmService extends AbstractEntityService implements AlarmServ
     @Autowired
     private DataValidator<Alarm> alarmDataValidator;
 
+    @Autowired
+    private TbTransactionalCache<AlarmCacheKey, Alarm> cache;
+
+    @Autowired
+    private BlockingCallExecutor blockingCallExecutor;
+
     protected ExecutorService readResultsProcessingExecutor;
 
     @PostConstruct
@@ -101,6 +112,11 @@ public class BaseAlarmService extends AbstractEntityService implements AlarmServ
         return createOrUpdateAlarm(alarm, true);
     }
 
+    @Override
+    public ListenableFuture<AlarmOperationResult> createOrUpdateAlarmAsync(Alarm alarm, boolean alarmCreationEnabled) {
+        return blockingCallExecutor.submit("alarm.createOrUpdate", () -> createOrUpdateAlarm(alarm, alarmCreationEnabled));
+    }
+
     @Override
     public AlarmOperationResult createOrUpdateAlarm(Alarm alarm, boolean alarmCreationEnabled) {
         alarmDataValidator.validate(alarm, Alarm::getTenantId);
@@ -113,7 +129,7 @@ public class BaseAlarmService extends AbstractEntityService implements AlarmServ
             }
             alarm.setCustomerId(entityService.fetchEntityCustomerId(alarm.getTenantId(), alarm.getOriginator()));
             if (alarm.getId() == null) {
-                Alarm existing = alarmDao.findLatestByOriginatorAndType(alarm.getTenantId(), alarm.getOriginator(), alarm.getType()).get();
+                Alarm existing = findLatestCached(alarm.getTenantId(), alarm.getOriginator(), alarm.getType());
                 if (existing == null || existing.getStatus().isCleared()) {
                     if (!alarmCreationEnabled) {
                         throw new ApiUsageLimitsExceededException("Alarms creation is disabled");
@@ -123,7 +139,11 @@ public class BaseAlarmService extends AbstractEntityService implements AlarmServ
                     return updateAlarm(existing, alarm);
                 }
             } else {
-                return updateAlarm(alarm).get();
+                Alarm latest = findLatestCached(alarm.getTenantId(), alarm.getOriginator(), alarm.getType());
+                if (latest != null && latest.getId().equals(alarm.getId())) {
+                    return updateAlarm(latest, alarm);
+                }
+                return blockingCallExecutor.await("alarm.update", updateAlarm(alarm));
             }
         } catch (ExecutionException | InterruptedException e) {
             throw new RuntimeException(e);
@@ -131,7 +151,56 @@ public class BaseAlarmService extends AbstractEntityService implements AlarmServ
     }
 
     public ListenableFuture<Alarm> findLatestByOriginatorAndType(TenantId tenantId, EntityId originator, String type) {
-        return alarmDao.findLatestByOriginatorAndType(tenantId, originator, type);
+        AlarmCacheKey key = new AlarmCacheKey(originator.getId(), type);
+        TbCacheValueWrapper<Alarm> cached = cache.get(key);
+        if (cached != null) {
+            return Futures.immediateFuture(copyOf(cached.get()));
+        }
+        TbCacheTransaction<AlarmCacheKey, Alarm> cacheTransaction = cache.newTransactionForKey(key);
+        ListenableFuture<Alarm> future = alarmDao.findLatestByOriginatorAndType(tenantId, originator, type);
+        Futures.addCallback(future, new FutureCallback<>() {
+            @Override
+            public void onSuccess(@Nullable Alarm alarm) {
+                cacheTransaction.putIfAbsent(key, alarm);
+                cacheTransaction.commit();
+            }
+
+            @Override
+            public void onFailure(Throwable t) {
+                cacheTransaction.rollback();
+            }
+        }, MoreExecutors.directExecutor());
+        return Futures.transform(future, BaseAlarmService::copyOf, MoreExecutors.directExecutor());
+    }
+
+    /**
+     * The latest alarm of every originator and type is kept in the cache, so the active alarm of an originator is
+     * resolved without a query. Saves of the latest alarm write through to the cache, other changes evict it.
+     * Cached instances are copied because callers modify the alarms they get.
+     */
+    private Alarm findLatestCached(TenantId tenantId, EntityId originator, String type) {
+        Alarm alarm = cache.getAndPutInTransaction(new AlarmCacheKey(originator.getId(), type), () -> {
+            try {
+                return blockingCallExecutor.await("alarm.findLatest", alarmDao.findLatestByOriginatorAndType(tenantId, originator, type));
+            } catch (InterruptedException | ExecutionException e) {
+                throw new RuntimeException(e);
+            }
+        }, true);
+        return copyOf(alarm);
+    }
+
+    private Alarm saveLatest(Alarm alarm) {
+        Alarm saved = alarmDao.save(alarm.getTenantId(), alarm);
+        cache.put(new AlarmCacheKey(saved.getOriginator().getId(), saved.getType()), copyOf(saved));
+        return saved;
+    }
+
+    private void evictLatest(Alarm alarm) {
+        cache.evict(new AlarmCacheKey(alarm.getOriginator().getId(), alarm.getType()));
+    }
+
+    private static Alarm copyOf(Alarm alarm) {
+        return alarm != null ? new Alarm(alarm) : null;
     }
 
     @Override
@@ -145,13 +214,14 @@ public class BaseAlarmService extends AbstractEntityService implements AlarmServ
     public AlarmOperationResult deleteAlarm(TenantId tenantId, AlarmId alarmId) {
         try {
             log.debug("Deleting Alarm Id: {}", alarmId);
-            Alarm alarm = alarmDao.findAlarmByIdAsync(tenantId, alarmId.getId()).get();
+            Alarm alarm = blockingCallExecutor.await("alarm.findById", alarmDao.findAlarmByIdAsync(tenantId, alarmId.getId()));
             if (alarm == null) {
                 return new AlarmOperationResult(alarm, false);
             }
             AlarmOperationResult result = new AlarmOperationResult(alarm, true, new ArrayList<>(getPropagationEntityIds(alarm)));
             deleteEntityRelations(tenantId, alarm.getId());
             alarmDao.deleteAlarm(tenantId, alarm);
+            evictLatest(alarm);
             return result;
         } catch (ExecutionException | InterruptedException e) {
             throw new RuntimeException(e);
@@ -160,7 +230,7 @@ public class BaseAlarmService extends AbstractEntityService implements AlarmServ
 
     private AlarmOperationResult createAlarm(Alarm alarm) throws InterruptedException, ExecutionException {
         log.debug("New Alarm : {}", alarm);
-        Alarm saved = alarmDao.save(alarm.getTenantId(), alarm);
+        Alarm saved = saveLatest(alarm);
         List<EntityId> propagatedEntitiesList = createEntityAlarmRecords(saved);
         return new AlarmOperationResult(saved, true, true, propagatedEntitiesList);
     }
@@ -177,9 +247,7 @@ public class BaseAlarmService extends AbstractEntityService implements AlarmServ
         if (alarm.isPropagateToTenant()) {
             propagatedEntitiesSet.add(alarm.getTenantId());
         }
-        for (EntityId entityId : propagatedEntitiesSet) {
-            createEntityAlarmRecord(alarm.getTenantId(), entityId, alarm);
-        }
+        createEntityAlarmRecords(alarm, propagatedEntitiesSet);
         return new ArrayList<>(propagatedEntitiesSet);
     }
 
@@ -188,7 +256,7 @@ public class BaseAlarmService extends AbstractEntityService implements AlarmServ
         RelationsSearchParameters parameters = new RelationsSearchParameters(alarm.getOriginator(), EntitySearchDirection.TO, Integer.MAX_VALUE, false);
         query.setParameters(parameters);
         List<String> propagateRelationTypes = alarm.getPropagateRelationTypes();
-        Stream<EntityRelation> relations = relationService.findByQuery(alarm.getTenantId(), query).get().stream();
+        Stream<EntityRelation> relations = blockingCallExecutor.await("alarm.findRelatedEntities", relationService.findByQuery(alarm.getTenantId(), query)).stream();
         if (!CollectionUtils.isEmpty(propagateRelationTypes)) {
             relations = relations.filter(entityRelation -> propagateRelationTypes.contains(entityRelation.getType()));
         }
@@ -204,7 +272,9 @@ public class BaseAlarmService extends AbstractEntityService implements AlarmServ
                 if (alarm == null) {
                     return null;
                 } else {
-                    return updateAlarm(alarm, update);
+                    AlarmOperationResult result = updateAlarm(alarm, update);
+                    evictLatest(result.getAlarm());
+                    return result;
                 }
             }
         });
@@ -214,7 +284,7 @@ public class BaseAlarmService extends AbstractEntityService implements AlarmServ
         boolean propagationEnabled = !oldAlarm.isPropagate() && newAlarm.isPropagate();
         boolean propagationToOwnerEnabled = !oldAlarm.isPropagateToOwner() && newAlarm.isPropagateToOwner();
         boolean propagationToTenantEnabled = !oldAlarm.isPropagateToTenant() && newAlarm.isPropagateToTenant();
-        Alarm result = alarmDao.save(newAlarm.getTenantId(), merge(oldAlarm, newAlarm));
+        Alarm result = saveLatest(merge(oldAlarm, newAlarm));
         List<EntityId> propagatedEntitiesList;
         if (propagationEnabled || propagationToOwnerEnabled || propagationToTenantEnabled) {
             try {
@@ -243,6 +313,7 @@ public class BaseAlarmService extends AbstractEntityService implements AlarmServ
                     alarm.setStatus(newStatus);
                     alarm.setAckTs(ackTime);
                     alarm = alarmDao.save(alarm.getTenantId(), alarm);
+                    evictLatest(alarm);
                     return new AlarmOperationResult(alarm, true, new ArrayList<>(getPropagationEntityIds(alarm)));
                 }
             }
@@ -266,6 +337,7 @@ public class BaseAlarmService extends AbstractEntityService implements AlarmServ
                         alarm.setDetails(details);
                     }
                     alarm = alarmDao.save(alarm.getTenantId(), alarm);
+                    evictLatest(alarm);
                     return new AlarmOperationResult(alarm, true, new ArrayList<>(getPropagationEntityIds(alarm)));
                 }
             }
@@ -393,12 +465,15 @@ public class BaseAlarmService extends AbstractEntityService implements AlarmServ
         }
     }
 
-    private void createEntityAlarmRecord(TenantId tenantId, EntityId entityId, Alarm alarm) {
-        EntityAlarm entityAlarm = new EntityAlarm(tenantId, entityId, alarm.getCreatedTime(), alarm.getType(), alarm.getCustomerId(), alarm.getId());
+    private void createEntityAlarmRecords(Alarm alarm, Set<EntityId> entityIds) {
+        List<EntityAlarm> entityAlarms = new ArrayList<>(entityIds.size());
+        for (EntityId entityId : entityIds) {
+            entityAlarms.add(new EntityAlarm(alarm.getTenantId(), entityId, alarm.getCreatedTime(), alarm.getType(), alarm.getCustomerId(), alarm.getId()));
+        }
         try {
-            alarmDao.createEntityAlarmRecord(entityAlarm);
+            alarmDao.createEntityAlarmRecords(entityAlarms);
         } catch (Exception e) {
-            log.warn("[{}] Failed to create entity alarm record: {}", tenantId, entityAlarm, e);
+            log.warn("[{}] Failed to create entity alarm records: {}", alarm.getTenantId(), entityAlarms, e);
         }
     }
 
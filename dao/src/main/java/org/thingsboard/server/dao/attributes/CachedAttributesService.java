@@ -24,6 +24,7 @@ import org.springframework.beans.factory.annotation.Value;
 import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.context.annotation.Primary;
 import org.springframework.stereotype.Service;
+import org.thingsboard.common.util.BlockingCallExecutor;
 import org.thingsboard.server.cache.TbCacheValueWrapper;
 import org.thingsboard.server.cache.TbTransactionalCache;
 import org.thingsboard.server.common.data.EntityType;
@@ -61,6 +62,7 @@ public class CachedAttributesService implements AttributesService {
 
     private final AttributesDao attributesDao;
     private final CacheExecutorService cacheExecutorService;
+    private final BlockingCallExecutor blockingCallExecutor;
     private final DefaultCounter hitCounter;
     private final DefaultCounter missCounter;
     private final TbTransactionalCache<AttributeCacheKey, AttributeKvEntry> cache;
@@ -72,9 +74,11 @@ public class CachedAttributesService implements AttributesService {
     public CachedAttributesService(AttributesDao attributesDao,
                                    StatsFactory statsFactory,
                                    CacheExecutorService cacheExecutorService,
+                                   BlockingCallExecutor blockingCallExecutor,
                                    TbTransactionalCache<AttributeCacheKey, AttributeKvEntry> cache) {
         this.attributesDao = attributesDao;
         this.cacheExecutorService = cacheExecutorService;
+        this.blockingCallExecutor = blockingCallExecutor;
         this.cache = cache;
 
         this.hitCounter = statsFactory.createDefaultCounter(STATS_NAME, "result", "hit");
@@ -192,7 +196,7 @@ public class CachedAttributesService implements AttributesService {
     @Override
     public ListenableFuture<List<AttributeKvEntry>> findAll(TenantId tenantId, EntityId entityId, String scope) {
         validate(entityId, scope);
-        return Futures.immediateFuture(attributesDao.findAll(tenantId, entityId, scope));
+        return blockingCallExecutor.submit("attributes.findAll", () -> attributesDao.findAll(tenantId, entityId, scope));
     }
 
     @Override
@@ -36,9 +36,12 @@ import org.thingsboard.server.dao.attributes.AttributesService;
 import org.thingsboard.server.dao.exception.DataValidationException;
 import org.thingsboard.server.dao.service.DataValidator;
 
+import java.util.Collection;
 import java.util.Collections;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.UUID;
 
 import static org.thingsboard.server.dao.service.Validator.validateId;
 
@@ -72,6 +75,24 @@ public class BaseCloudEventService implements CloudEventService {
         return cloudEventDao.findCloudEvents(tenantId.getId(), pageLink);
     }
 
+    @Override
+    public PageData<CloudEvent> findCloudEvents(TenantId tenantId,
+                                                Collection<CloudEventType> cloudEventTypes,
+                                                Collection<String> cloudEventActions,
+                                                TimePageLink pageLink) {
+        return cloudEventDao.findCloudEvents(tenantId.getId(), cloudEventTypes, cloudEventActions, pageLink);
+    }
+
+    @Override
+    public Map<UUID, Long> findFirstCloudEventTimes(TenantId tenantId,
+                                                    Collection<UUID> entityIds,
+                                                    Collection<CloudEventType> cloudEventTypes,
+                                                    Collection<String> cloudEventActions,
+                                                    long startTime,
+                                                    long endTime) {
+        return cloudEventDao.findFirstCloudEventTimes(tenantId.getId(), entityIds, cloudEventTypes, cloudEventActions, startTime, endTime);
+    }
+
     @Override
     public PageData<CloudEvent> findCloudEventsByEntityIdAndCloudEventActionAndCloudEventType(TenantId tenantId,
                                                                                               EntityId entityId,
@@ -22,6 +22,8 @@ import org.thingsboard.server.common.data.page.PageData;
 import org.thingsboard.server.common.data.page.TimePageLink;
 import org.thingsboard.server.dao.Dao;
 
+import java.util.Collection;
+import java.util.Map;
 import java.util.UUID;
 
 /**
@@ -47,6 +49,39 @@ public interface CloudEventDao extends Dao<CloudEvent> {
      */
     PageData<CloudEvent> findCloudEvents(UUID tenantId, TimePageLink pageLink);
 
+    /**
+     * Find cloud events of the given types and actions by tenantId and pageLink.
+     *
+     * @param tenantId the tenantId
+     * @param cloudEventTypes the cloud event types
+     * @param cloudEventActions the cloud event actions
+     * @param pageLink the pageLink
+     * @return the event list
+     */
+    PageData<CloudEvent> findCloudEvents(UUID tenantId,
+                                         Collection<CloudEventType> cloudEventTypes,
+                                         Collection<String> cloudEventActions,
+                                         TimePageLink pageLink);
+
+    /**
+     * Find the created time of the first cloud event of every given entity, among the events of the given types and actions
+     * created in the (startTime, endTime] range.
+     *
+     * @param tenantId the tenantId
+     * @param entityIds the entity ids
+     * @param cloudEventTypes the cloud event types
+     * @param cloudEventActions the cloud event actions
+     * @param startTime the start time, exclusive
+     * @param endTime the end time, inclusive
+     * @return the created time of the first event by entity id, entities without events are absent
+     */
+    Map<UUID, Long> findFirstCloudEventTimes(UUID tenantId,
+                                             Collection<UUID> entityIds,
+                                             Collection<CloudEventType> cloudEventTypes,
+                                             Collection<String> cloudEventActions,
+                                             long startTime,
+                                             long endTime);
+
     PageData<CloudEvent> findCloudEventsByEntityIdAndCloudEventActionAndCloudEventType(
             UUID tenantId,
             UUID entityId,
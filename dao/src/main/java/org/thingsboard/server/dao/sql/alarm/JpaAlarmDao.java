@@ -49,6 +49,7 @@ import java.util.List;
 import java.util.Objects;
 import java.util.Set;
 import java.util.UUID;
+import java.util.stream.Collectors;
 
 /**
  * Created by Valerii Sosliuk on 5/19/2017.
@@ -66,6 +67,9 @@ public class JpaAlarmDao extends JpaAbstractDao<AlarmEntity, Alarm> implements A
     @Autowired
     private EntityAlarmRepository entityAlarmRepository;
 
+    @Autowired
+    private EntityAlarmInsertRepository entityAlarmInsertRepository;
+
     @Override
     protected Class<AlarmEntity> getEntityClass() {
         return AlarmEntity.class;
@@ -178,6 +182,12 @@ public class JpaAlarmDao extends JpaAbstractDao<AlarmEntity, Alarm> implements A
         entityAlarmRepository.save(new EntityAlarmEntity(entityAlarm));
     }
 
+    @Override
+    public void createEntityAlarmRecords(List<EntityAlarm> entityAlarms) {
+        log.debug("Saving entities {}", entityAlarms);
+        entityAlarmInsertRepository.saveOrUpdate(entityAlarms.stream().map(EntityAlarmEntity::new).collect(Collectors.toList()));
+    }
+
     @Override
     public List<EntityAlarm> findEntityAlarmRecords(TenantId tenantId, AlarmId id) {
         log.trace("[{}] Try to find entity alarm records using [{}]", tenantId, id);
@@ -17,6 +17,6 @@ package org.thingsboard.server.dao.sql.cloud;
 
 public interface CloudEventCleanupRepository {
 
-    void cleanupEvents(long eventsTtl);
+    void cleanupEvents(long eventExpTime);
 
 }
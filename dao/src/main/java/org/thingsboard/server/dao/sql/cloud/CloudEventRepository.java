@@ -24,6 +24,8 @@ import org.springframework.data.repository.query.Param;
 import org.thingsboard.server.common.data.cloud.CloudEventType;
 import org.thingsboard.server.dao.model.sql.CloudEventEntity;
 
+import java.util.Collection;
+import java.util.List;
 import java.util.UUID;
 
 public interface CloudEventRepository extends JpaRepository<CloudEventEntity, UUID>, JpaSpecificationExecutor<CloudEventEntity> {
@@ -38,6 +40,46 @@ public interface CloudEventRepository extends JpaRepository<CloudEventEntity, UU
                                                 @Param("endTime") Long endTime,
                                                 Pageable pageable);
 
+    @Query("SELECT e FROM CloudEventEntity e WHERE " +
+            "e.tenantId = :tenantId " +
+            "AND e.createdTime > :startTime " +
+            "AND e.createdTime <= :endTime "
+    )
+    Page<CloudEventEntity> findEventsByTenantIdAndTimeRange(@Param("tenantId") UUID tenantId,
+                                                            @Param("startTime") long startTime,
+                                                            @Param("endTime") long endTime,
+                                                            Pageable pageable);
+
+    @Query("SELECT e FROM CloudEventEntity e WHERE " +
+            "e.tenantId = :tenantId " +
+            "AND e.cloudEventType IN :cloudEventTypes " +
+            "AND e.cloudEventAction IN :cloudEventActions " +
+            "AND e.createdTime > :startTime " +
+            "AND e.createdTime <= :endTime "
+    )
+    Page<CloudEventEntity> findEventsByTenantIdAndTypesAndActions(@Param("tenantId") UUID tenantId,
+                                                                  @Param("cloudEventTypes") Collection<CloudEventType> cloudEventTypes,
+                                                                  @Param("cloudEventActions") Collection<String> cloudEventActions,
+                                                                  @Param("startTime") long startTime,
+                                                                  @Param("endTime") long endTime,
+                                                                  Pageable pageable);
+
+    @Query("SELECT e.entityId, MIN(e.createdTime) FROM CloudEventEntity e WHERE " +
+            "e.tenantId = :tenantId " +
+            "AND e.entityId IN :entityIds " +
+            "AND e.cloudEventType IN :cloudEventTypes " +
+            "AND e.cloudEventAction IN :cloudEventActions " +
+            "AND e.createdTime > :startTime " +
+            "AND e.createdTime <= :endTime " +
+            "GROUP BY e.entityId"
+    )
+    List<Object[]> findFirstEventTimesByTenantIdAndEntityIds(@Param("tenantId") UUID tenantId,
+                                                             @Param("entityIds") Collection<UUID> entityIds,
+                                                             @Param("cloudEventTypes") Collection<CloudEventType> cloudEventTypes,
+                                                             @Param("cloudEventActions") Collection<String> cloudEventActions,
+                                                             @Param("startTime") long startTime,
+                                                             @Param("endTime") long endTime);
+
     @Query("SELECT e FROM CloudEventEntity e WHERE " +
             "e.tenantId = :tenantId " +
             "AND e.entityId  = :entityId " +
@@ -18,8 +18,10 @@ package org.thingsboard.server.dao.sql.cloud;
 import com.datastax.oss.driver.api.core.uuid.Uuids;
 import com.google.common.util.concurrent.ListenableFuture;
 import lombok.extern.slf4j.Slf4j;
+import org.hibernate.exception.ConstraintViolationException;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.stereotype.Component;
 import org.thingsboard.server.common.data.cloud.CloudEvent;
@@ -35,13 +37,22 @@ import org.thingsboard.server.dao.sql.JpaAbstractDao;
 import org.thingsboard.server.dao.sql.ScheduledLogExecutorComponent;
 import org.thingsboard.server.dao.sql.TbSqlBlockingQueueParams;
 import org.thingsboard.server.dao.sql.TbSqlBlockingQueueWrapper;
+import org.thingsboard.server.dao.sqlts.insert.sql.SqlPartitioningRepository;
+import org.thingsboard.server.dao.timeseries.SqlPartition;
 
 import javax.annotation.PostConstruct;
 import javax.annotation.PreDestroy;
+import java.util.Collection;
 import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Map;
 import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
 import java.util.function.Function;
 
+import static org.thingsboard.server.dao.model.ModelConstants.CLOUD_EVENT_COLUMN_FAMILY_NAME;
 import static org.thingsboard.server.dao.model.ModelConstants.NULL_UUID;
 
 @Slf4j
@@ -50,6 +61,9 @@ public class JpaBaseCloudEventDao extends JpaAbstractDao<CloudEventEntity, Cloud
 
     private final UUID systemTenantId = NULL_UUID;
 
+    private final Map<Long, SqlPartition> partitions = new ConcurrentHashMap<>();
+    private static final ReentrantLock partitionCreationLock = new ReentrantLock();
+
     @Autowired
     ScheduledLogExecutorComponent logExecutor;
 
@@ -76,6 +90,12 @@ public class JpaBaseCloudEventDao extends JpaAbstractDao<CloudEventEntity, Cloud
     @Autowired
     private CloudEventCleanupRepository cloudEventCleanupRepository;
 
+    @Autowired
+    private SqlPartitioningRepository partitioningRepository;
+
+    @Autowired
+    private CloudEventPartitionConfiguration partitionConfiguration;
+
     @Override
     protected Class<CloudEventEntity> getEntityClass() {
         return CloudEventEntity.class;
@@ -145,15 +165,56 @@ public class JpaBaseCloudEventDao extends JpaAbstractDao<CloudEventEntity, Cloud
             entity.setUuid(Uuids.timeBased());
         }
 
+        savePartitionIfNotExist(entity.getCreatedTime());
         return addToQueue(entity);
     }
 
+    private void savePartitionIfNotExist(long createdTime) {
+        long partitionDuration = partitionConfiguration.getPartitionSizeInMs();
+        long partitionStartTs = createdTime - (createdTime % partitionDuration);
+        if (partitions.get(partitionStartTs) == null) {
+            savePartition(new SqlPartition(CLOUD_EVENT_COLUMN_FAMILY_NAME, partitionStartTs, partitionStartTs + partitionDuration, Long.toString(partitionStartTs)));
+        }
+    }
+
+    private void savePartition(SqlPartition sqlPartition) {
+        if (!partitions.containsKey(sqlPartition.getStart())) {
+            partitionCreationLock.lock();
+            try {
+                log.trace("Saving partition: {}", sqlPartition);
+                partitioningRepository.save(sqlPartition);
+                log.trace("Adding partition to map: {}", sqlPartition);
+                partitions.put(sqlPartition.getStart(), sqlPartition);
+            } catch (DataIntegrityViolationException ex) {
+                log.trace("Error occurred during partition save:", ex);
+                if (ex.getCause() instanceof ConstraintViolationException) {
+                    log.warn("Saving partition [{}] rejected, it overlaps an existing cloud_event partition. Cloud events of its range are stored in the existing partition.", sqlPartition.getPartitionDate());
+                    partitions.put(sqlPartition.getStart(), sqlPartition);
+                } else {
+                    throw new RuntimeException(ex);
+                }
+            } finally {
+                partitionCreationLock.unlock();
+            }
+        }
+    }
+
     private ListenableFuture<Void> addToQueue(CloudEventEntity entity) {
         return queue.add(entity);
     }
 
     @Override
     public PageData<CloudEvent> findCloudEvents(UUID tenantId, TimePageLink pageLink) {
+        if (pageLink.getStartTime() != null && pageLink.getEndTime() != null) {
+            // both bounds are bind parameters on created_time, so only the matching partitions are scanned
+            return DaoUtil.toPageData(
+                    cloudEventRepository
+                            .findEventsByTenantIdAndTimeRange(
+                                    tenantId,
+                                    pageLink.getStartTime(),
+                                    pageLink.getEndTime(),
+                                    DaoUtil.toPageable(pageLink)));
+        }
         return DaoUtil.toPageData(
                 cloudEventRepository
                         .findEventsByTenantId(
@@ -163,6 +224,40 @@ public class JpaBaseCloudEventDao extends JpaAbstractDao<CloudEventEntity, Cloud
                                 DaoUtil.toPageable(pageLink)));
     }
 
+    @Override
+    public PageData<CloudEvent> findCloudEvents(UUID tenantId,
+                                                Collection<CloudEventType> cloudEventTypes,
+                                                Collection<String> cloudEventActions,
+                                                TimePageLink pageLink) {
+        return DaoUtil.toPageData(
+                cloudEventRepository
+                        .findEventsByTenantIdAndTypesAndActions(
+                                tenantId,
+                                cloudEventTypes,
+                                cloudEventActions,
+                                pageLink.getStartTime() != null ? pageLink.getStartTime() : 0L,
+                                pageLink.getEndTime() != null ? pageLink.getEndTime() : Long.MAX_VALUE,
+                                DaoUtil.toPageable(pageLink)));
+    }
+
+    @Override
+    public Map<UUID, Long> findFirstCloudEventTimes(UUID tenantId,
+                                                    Collection<UUID> entityIds,
+                                                    Collection<CloudEventType> cloudEventTypes,
+                                                    Collection<String> cloudEventActions,
+                                                    long startTime,
+                                                    long endTime) {
+        Map<UUID, Long> result = new HashMap<>();
+        if (entityIds.isEmpty() || startTime >= endTime) {
+            return result;
+        }
+        for (Object[] row : cloudEventRepository.findFirstEventTimesByTenantIdAndEntityIds(
+                tenantId, entityIds, cloudEventTypes, cloudEventActions, startTime, endTime)) {
+            result.put((UUID) row[0], ((Number) row[1]).longValue());
+        }
+        return result;
+    }
+
     @Override
     public PageData<CloudEvent> findCloudEventsByEntityIdAndCloudEventActionAndCloudEventType(UUID tenantId,
                                                                                               UUID entityId,
@@ -183,8 +278,14 @@ public class JpaBaseCloudEventDao extends JpaAbstractDao<CloudEventEntity, Cloud
 
     @Override
     public void cleanupEvents(long eventsTtl) {
-        log.info("Going to cleanup old cloud events using debug events ttl: {}s", eventsTtl);
-        cloudEventCleanupRepository.cleanupEvents(eventsTtl);
+        if (eventsTtl <= 0) {
+            log.debug("Cloud events ttl is not set, skipping cleanup");
+            return;
+        }
+        long eventExpTime = System.currentTimeMillis() - TimeUnit.SECONDS.toMillis(eventsTtl);
+        log.info("Going to cleanup old cloud events using ttl: {}s", eventsTtl);
+        cloudEventCleanupRepository.cleanupEvents(eventExpTime);
+        partitions.keySet().removeIf(startTs -> startTs + partitionConfiguration.getPartitionSizeInMs() < eventExpTime);
     }
 
 }
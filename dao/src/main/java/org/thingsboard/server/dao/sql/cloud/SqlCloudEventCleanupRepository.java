@@ -16,6 +16,7 @@
 package org.thingsboard.server.dao.sql.cloud;
 
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Repository;
 import org.thingsboard.server.dao.sql.JpaAbstractDaoListeningExecutorService;
 
@@ -23,26 +24,103 @@ import java.sql.Connection;
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.thingsboard.server.dao.model.ModelConstants.CLOUD_EVENT_COLUMN_FAMILY_NAME;
 
 @Slf4j
 @Repository
 public class SqlCloudEventCleanupRepository extends JpaAbstractDaoListeningExecutorService implements CloudEventCleanupRepository {
 
+    private static final String SELECT_PARTITIONS_STMT = "SELECT tablename from pg_tables WHERE schemaname = 'public' and tablename like concat(?, '_%')";
+    private static final int PSQL_VERSION_14 = 140000;
+
+    @Autowired
+    private CloudEventPartitionConfiguration partitionConfiguration;
+
+    private volatile Integer currentServerVersion;
+
     @Override
-    public void cleanupEvents(long eventsTtl) {
+    public void cleanupEvents(long eventExpTime) {
+        long partitionDuration = partitionConfiguration.getPartitionSizeInMs();
+        int removed = 0;
+        for (long partitionTs : fetchPartitions()) {
+            long partitionEndTs = partitionTs + partitionDuration;
+            if (partitionEndTs < eventExpTime) {
+                log.info("Detaching expired cloud event partition: [{}-{}]", partitionTs, partitionEndTs);
+                if (detachAndDropPartition(partitionTs)) {
+                    removed++;
+                    log.info("Detached expired cloud event partition: {}", partitionTs);
+                }
+            } else {
+                log.debug("Skip valid cloud event partition: {}", partitionTs);
+            }
+        }
+        log.info("Total cloud event partitions removed by TTL: [{}]", removed);
+    }
+
+    private List<Long> fetchPartitions() {
+        List<Long> partitions = new ArrayList<>();
         try (Connection connection = dataSource.getConnection();
-             PreparedStatement stmt = connection.prepareStatement("call cleanup_cloud_events_by_ttl(?,?)")) {
-            stmt.setLong(1, eventsTtl);
-            stmt.setLong(2, 0);
+             PreparedStatement stmt = connection.prepareStatement(SELECT_PARTITIONS_STMT)) {
+            stmt.setString(1, CLOUD_EVENT_COLUMN_FAMILY_NAME);
             stmt.execute();
-            printWarnings(stmt);
-            try (ResultSet resultSet = stmt.getResultSet()){
-                resultSet.next();
-                log.info("Total cloud events removed by TTL: [{}]", resultSet.getLong(1));
+            try (ResultSet resultSet = stmt.getResultSet()) {
+                while (resultSet.next()) {
+                    String partitionTableName = resultSet.getString(1);
+                    String partitionTsStr = partitionTableName.substring(CLOUD_EVENT_COLUMN_FAMILY_NAME.length() + 1);
+                    try {
+                        partitions.add(Long.parseLong(partitionTsStr));
+                    } catch (NumberFormatException nfe) {
+                        log.warn("Failed to parse table name: {}", partitionTableName);
+                    }
+                }
             }
         } catch (SQLException e) {
-            log.error("SQLException occurred during events TTL task execution ", e);
+            log.error("SQLException occurred during cloud events TTL task execution ", e);
+        }
+        return partitions;
+    }
+
+    private boolean detachAndDropPartition(long partitionTs) {
+        String tablePartition = CLOUD_EVENT_COLUMN_FAMILY_NAME + "_" + partitionTs;
+        String detachPsqlStmtStr = "ALTER TABLE " + CLOUD_EVENT_COLUMN_FAMILY_NAME + " DETACH PARTITION " + tablePartition;
+        if (getCurrentServerVersion() >= PSQL_VERSION_14) {
+            detachPsqlStmtStr += " CONCURRENTLY";
+        }
+
+        String dropStmtStr = "DROP TABLE " + tablePartition;
+        try (Connection connection = dataSource.getConnection();
+             PreparedStatement detachStmt = connection.prepareStatement(detachPsqlStmtStr);
+             PreparedStatement dropStmt = connection.prepareStatement(dropStmtStr)) {
+            detachStmt.execute();
+            dropStmt.execute();
+            return true;
+        } catch (SQLException e) {
+            log.error("SQLException occurred during detach and drop of the cloud event partition: {}", partitionTs, e);
+        }
+        return false;
+    }
+
+    private synchronized int getCurrentServerVersion() {
+        if (currentServerVersion == null) {
+            try (Connection connection = dataSource.getConnection();
+                 PreparedStatement versionStmt = connection.prepareStatement("SELECT current_setting('server_version_num')")) {
+                versionStmt.execute();
+                try (ResultSet resultSet = versionStmt.getResultSet()) {
+                    while (resultSet.next()) {
+                        currentServerVersion = resultSet.getInt(1);
+                    }
+                }
+            } catch (SQLException e) {
+                log.warn("SQLException occurred during fetch of the server version", e);
+            }
+            if (currentServerVersion == null) {
+                currentServerVersion = 0;
+            }
         }
+        return currentServerVersion;
     }
 
-}
\ No newline at end of file
+}
@@ -17,8 +17,6 @@ package org.thingsboard.server.dao.sqlts;
 
 import com.google.common.util.concurrent.Futures;
 import com.google.common.util.concurrent.ListenableFuture;
-import com.google.common.util.concurrent.MoreExecutors;
-import com.google.common.util.concurrent.SettableFuture;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.data.domain.PageRequest;
@@ -26,7 +24,6 @@ import org.springframework.data.domain.Sort;
 import org.thingsboard.server.common.data.id.EntityId;
 import org.thingsboard.server.common.data.id.TenantId;
 import org.thingsboard.server.common.data.kv.Aggregation;
-import org.thingsboard.server.common.data.kv.BaseReadTsKvQuery;
 import org.thingsboard.server.common.data.kv.DeleteTsKvQuery;
 import org.thingsboard.server.common.data.kv.ReadTsKvQuery;
 import org.thingsboard.server.common.data.kv.TsKvEntry;
@@ -37,7 +34,9 @@ import org.thingsboard.server.dao.model.sqlts.ts.TsKvEntity;
 import org.thingsboard.server.dao.sql.TbSqlBlockingQueueParams;
 import org.thingsboard.server.dao.sql.TbSqlBlockingQueueWrapper;
 import org.thingsboard.server.dao.sqlts.insert.InsertTsRepository;
+import org.thingsboard.server.dao.sqlts.ts.TsKvAggregationRepository;
 import org.thingsboard.server.dao.sqlts.ts.TsKvRepository;
+import org.thingsboard.server.dao.sqlts.ts.TsKvRollupService;
 import org.thingsboard.server.dao.timeseries.TimeseriesDao;
 
 import javax.annotation.PostConstruct;
@@ -45,11 +44,8 @@ import javax.annotation.PreDestroy;
 import java.util.ArrayList;
 import java.util.Comparator;
 import java.util.List;
-import java.util.Optional;
 import java.util.UUID;
-import java.util.concurrent.CompletableFuture;
 import java.util.function.Function;
-import java.util.stream.Collectors;
 
 @Slf4j
 public abstract class AbstractChunkedAggregationTimeseriesDao extends AbstractSqlTimeseriesDao implements TimeseriesDao {
@@ -57,6 +53,12 @@ public abstract class AbstractChunkedAggregationTimeseriesDao extends AbstractSq
     @Autowired
     protected TsKvRepository tsKvRepository;
 
+    @Autowired
+    protected TsKvAggregationRepository aggregationRepository;
+
+    @Autowired
+    protected TsKvRollupService rollupService;
+
     @Autowired
     protected InsertTsRepository<TsKvEntity> insertRepository;
 
@@ -77,7 +79,10 @@ public abstract class AbstractChunkedAggregationTimeseriesDao extends AbstractSq
 
         Function<TsKvEntity, Integer> hashcodeFunction = entity -> entity.getEntityId().hashCode();
         tsQueue = new TbSqlBlockingQueueWrapper<>(tsParams, hashcodeFunction, tsBatchThreads, statsFactory);
-        tsQueue.init(logExecutor, v -> insertRepository.saveOrUpdate(v),
+        tsQueue.init(logExecutor, v -> {
+                    insertRepository.saveOrUpdate(v);
+                    rollupService.onSaved(v);
+                },
                 Comparator.comparing((Function<TsKvEntity, UUID>) AbstractTsKvEntity::getEntityId)
                         .thenComparing(AbstractTsKvEntity::getKey)
                         .thenComparing(AbstractTsKvEntity::getTs)
@@ -91,14 +96,26 @@ public abstract class AbstractChunkedAggregationTimeseriesDao extends AbstractSq
         }
     }
 
+    @Override
+    public void cleanup(long systemTtl) {
+        super.cleanup(systemTtl);
+        try {
+            rollupService.cleanup();
+        } catch (Exception e) {
+            log.error("Exception occurred during timeseries rollups TTL task execution ", e);
+        }
+    }
+
     @Override
     public ListenableFuture<Void> remove(TenantId tenantId, EntityId entityId, DeleteTsKvQuery query) {
         return service.submit(() -> {
+            Integer keyId = getOrSaveKeyId(query.getKey());
             tsKvRepository.delete(
                     entityId.getId(),
-                    getOrSaveKeyId(query.getKey()),
+                    keyId,
                     query.getStartTs(),
                     query.getEndTs());
+            rollupService.onRemoved(entityId.getId(), keyId, query.getStartTs(), query.getEndTs());
             return null;
         });
     }
@@ -123,19 +140,7 @@ public abstract class AbstractChunkedAggregationTimeseriesDao extends AbstractSq
         if (query.getAggregation() == Aggregation.NONE) {
             return findAllAsyncWithLimit(entityId, query);
         } else {
-            List<ListenableFuture<Optional<TsKvEntry>>> futures = new ArrayList<>();
-            long endPeriod = query.getEndTs();
-            long startPeriod = query.getStartTs();
-            long step = query.getInterval();
-            while (startPeriod <= endPeriod) {
-                long startTs = startPeriod;
-                long endTs = Math.min(startPeriod + step, endPeriod + 1);
-                long ts = startTs + (endTs - startTs) / 2;
-                ListenableFuture<Optional<TsKvEntry>> aggregateTsKvEntry = findAndAggregateAsync(entityId, query.getKey(), startTs, endTs, ts,  query.getAggregation());
-                futures.add(aggregateTsKvEntry);
-                startPeriod = endTs;
-            }
-            return getTskvEntriesFuture(Futures.allAsList(futures));
+            return service.submit(() -> findAllAndAggregate(entityId, query));
         }
     }
 
@@ -152,120 +157,24 @@ public abstract class AbstractChunkedAggregationTimeseriesDao extends AbstractSq
         return Futures.immediateFuture(DaoUtil.convertDataList(tsKvEntities));
     }
 
-    ListenableFuture<Optional<TsKvEntry>> findAndAggregateAsync(EntityId entityId, String key, long startTs, long endTs, long ts, Aggregation aggregation) {
-        List<CompletableFuture<TsKvEntity>> entitiesFutures = new ArrayList<>();
-        switchAggregation(entityId, key, startTs, endTs, aggregation, entitiesFutures);
-        return Futures.transform(setFutures(entitiesFutures), entity -> {
-            if (entity != null && entity.isNotEmpty()) {
+    List<TsKvEntry> findAllAndAggregate(EntityId entityId, ReadTsKvQuery query) {
+        long startTs = query.getStartTs();
+        long endTs = query.getEndTs() + 1;
+        long interval = query.getInterval();
+        Integer keyId = getOrSaveKeyId(query.getKey());
+        List<TsKvEntity> entities = rollupService.findAggregated(entityId.getId(), keyId, startTs, endTs, interval, query.getAggregation())
+                .orElseGet(() -> aggregationRepository.findAggregated(entityId.getId(), keyId, startTs, endTs, interval, query.getAggregation()));
+        List<TsKvEntry> result = new ArrayList<>(entities.size());
+        for (TsKvEntity entity : entities) {
+            if (entity.isNotEmpty()) {
+                long intervalStartTs = entity.getTs();
+                long intervalEndTs = Math.min(intervalStartTs + interval, endTs);
                 entity.setEntityId(entityId.getId());
-                entity.setStrKey(key);
-                entity.setTs(ts);
-                return Optional.of(DaoUtil.getData(entity));
-            } else {
-                return Optional.empty();
+                entity.setStrKey(query.getKey());
+                entity.setTs(intervalStartTs + (intervalEndTs - intervalStartTs) / 2);
+                result.add(DaoUtil.getData(entity));
             }
-        }, MoreExecutors.directExecutor());
-    }
-
-    protected void switchAggregation(EntityId entityId, String key, long startTs, long endTs, Aggregation aggregation, List<CompletableFuture<TsKvEntity>> entitiesFutures) {
-        switch (aggregation) {
-            case AVG:
-                findAvg(entityId, key, startTs, endTs, entitiesFutures);
-                break;
-            case MAX:
-                findMax(entityId, key, startTs, endTs, entitiesFutures);
-                break;
-            case MIN:
-                findMin(entityId, key, startTs, endTs, entitiesFutures);
-                break;
-            case SUM:
-                findSum(entityId, key, startTs, endTs, entitiesFutures);
-                break;
-            case COUNT:
-                findCount(entityId, key, startTs, endTs, entitiesFutures);
-                break;
-            default:
-                throw new IllegalArgumentException("Not supported aggregation type: " + aggregation);
         }
-    }
-
-    protected void findCount(EntityId entityId, String key, long startTs, long endTs, List<CompletableFuture<TsKvEntity>> entitiesFutures) {
-        Integer keyId = getOrSaveKeyId(key);
-        entitiesFutures.add(tsKvRepository.findCount(
-                entityId.getId(),
-                keyId,
-                startTs,
-                endTs));
-    }
-
-    protected void findSum(EntityId entityId, String key, long startTs, long endTs, List<CompletableFuture<TsKvEntity>> entitiesFutures) {
-        Integer keyId = getOrSaveKeyId(key);
-        entitiesFutures.add(tsKvRepository.findSum(
-                entityId.getId(),
-                keyId,
-                startTs,
-                endTs));
-    }
-
-    protected void findMin(EntityId entityId, String key, long startTs, long endTs, List<CompletableFuture<TsKvEntity>> entitiesFutures) {
-        Integer keyId = getOrSaveKeyId(key);
-        entitiesFutures.add(tsKvRepository.findStringMin(
-                entityId.getId(),
-                keyId,
-                startTs,
-                endTs));
-        entitiesFutures.add(tsKvRepository.findNumericMin(
-                entityId.getId(),
-                keyId,
-                startTs,
-                endTs));
-    }
-
-    protected void findMax(EntityId entityId, String key, long startTs, long endTs, List<CompletableFuture<TsKvEntity>> entitiesFutures) {
-        Integer keyId = getOrSaveKeyId(key);
-        entitiesFutures.add(tsKvRepository.findStringMax(
-                entityId.getId(),
-                keyId,
-                startTs,
-                endTs));
-        entitiesFutures.add(tsKvRepository.findNumericMax(
-                entityId.getId(),
-                keyId,
-                startTs,
-                endTs));
-    }
-
-    protected void findAvg(EntityId entityId, String key, long startTs, long endTs, List<CompletableFuture<TsKvEntity>> entitiesFutures) {
-        Integer keyId = getOrSaveKeyId(key);
-        entitiesFutures.add(tsKvRepository.findAvg(
-                entityId.getId(),
-                keyId,
-                startTs,
-                endTs));
-    }
-
-    protected SettableFuture<TsKvEntity> setFutures(List<CompletableFuture<TsKvEntity>> entitiesFutures) {
-        SettableFuture<TsKvEntity> listenableFuture = SettableFuture.create();
-        CompletableFuture<List<TsKvEntity>> entities =
-                CompletableFuture.allOf(entitiesFutures.toArray(new CompletableFuture[entitiesFutures.size()]))
-                        .thenApply(v -> entitiesFutures.stream()
-                                .map(CompletableFuture::join)
-                                .collect(Collectors.toList()));
-
-        entities.whenComplete((tsKvEntities, throwable) -> {
-            if (throwable != null) {
-                listenableFuture.setException(throwable);
-            } else {
-                TsKvEntity result = null;
-                for (TsKvEntity entity : tsKvEntities) {
-                    if (entity.isNotEmpty()) {
-                        result = entity;
-                        break;
-                    }
-                }
-                listenableFuture.set(result);
-            }
-        });
-        return listenableFuture;
+        return result;
     }
 }
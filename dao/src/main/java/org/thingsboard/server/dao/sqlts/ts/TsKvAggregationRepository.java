@@ -0,0 +1,108 @@
+/**
+ * Copyright © 2016-2022 The Thingsboard Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.thingsboard.server.dao.sqlts.ts;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+import org.thingsboard.server.common.data.kv.Aggregation;
+import org.thingsboard.server.dao.model.sqlts.ts.TsKvEntity;
+import org.thingsboard.server.dao.util.SqlTsDao;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Aggregates all intervals of a timeseries read with a single GROUP BY query. Rows are read as they are streamed
+ * from the database; intervals without values produce no rows. Returned entities have the interval start as ts.
+ */
+@SqlTsDao
+@Repository
+public class TsKvAggregationRepository {
+
+    private static final String FROM_WHERE_GROUP_BY_CLAUSE = "FROM (SELECT (tskv.ts - ?) / ? AS bucket, tskv.bool_v, tskv.str_v, tskv.long_v, tskv.dbl_v, tskv.json_v " +
+            "FROM ts_kv tskv WHERE tskv.entity_id = ? AND tskv.key = ? AND tskv.ts >= ? AND tskv.ts < ?) b " +
+            "GROUP BY b.bucket ORDER BY b.bucket";
+
+    private static final String LONG_AND_DOUBLE_COUNT = "SUM(CASE WHEN b.long_v IS NULL THEN 0 ELSE 1 END) AS long_count, " +
+            "SUM(CASE WHEN b.dbl_v IS NULL THEN 0 ELSE 1 END) AS double_count ";
+
+    private static final String FIND_SUM_QUERY = "SELECT b.bucket, SUM(COALESCE(b.long_v, 0)) AS long_value, SUM(COALESCE(b.dbl_v, 0.0)) AS double_value, " +
+            LONG_AND_DOUBLE_COUNT + FROM_WHERE_GROUP_BY_CLAUSE;
+
+    private static final String FIND_MAX_QUERY = "SELECT b.bucket, MAX(b.str_v) AS str_value, MAX(COALESCE(b.long_v, -9223372036854775807)) AS long_value, " +
+            "MAX(COALESCE(b.dbl_v, -1.79769E+308)) AS double_value, " + LONG_AND_DOUBLE_COUNT + FROM_WHERE_GROUP_BY_CLAUSE;
+
+    private static final String FIND_MIN_QUERY = "SELECT b.bucket, MIN(b.str_v) AS str_value, MIN(COALESCE(b.long_v, 9223372036854775807)) AS long_value, " +
+            "MIN(COALESCE(b.dbl_v, 1.79769E+308)) AS double_value, " + LONG_AND_DOUBLE_COUNT + FROM_WHERE_GROUP_BY_CLAUSE;
+
+    private static final String FIND_COUNT_QUERY = "SELECT b.bucket, SUM(CASE WHEN b.bool_v IS NULL THEN 0 ELSE 1 END) AS bool_count, " +
+            "SUM(CASE WHEN b.str_v IS NULL THEN 0 ELSE 1 END) AS str_count, " +
+            "SUM(CASE WHEN b.json_v IS NULL THEN 0 ELSE 1 END) AS json_count, " +
+            LONG_AND_DOUBLE_COUNT + FROM_WHERE_GROUP_BY_CLAUSE;
+
+    @Autowired
+    protected JdbcTemplate jdbcTemplate;
+
+    public List<TsKvEntity> findAggregated(UUID entityId, int entityKey, long startTs, long endTs, long interval, Aggregation aggregation) {
+        List<TsKvEntity> result = new ArrayList<>();
+        jdbcTemplate.query(getQuery(aggregation), rs -> {
+            TsKvEntity entity = toEntity(rs, aggregation);
+            entity.setTs(startTs + rs.getLong("bucket") * interval);
+            result.add(entity);
+        }, startTs, interval, entityId, entityKey, startTs, endTs);
+        return result;
+    }
+
+    private static String getQuery(Aggregation aggregation) {
+        switch (aggregation) {
+            case AVG:
+            case SUM:
+                return FIND_SUM_QUERY;
+            case MAX:
+                return FIND_MAX_QUERY;
+            case MIN:
+                return FIND_MIN_QUERY;
+            case COUNT:
+                return FIND_COUNT_QUERY;
+            default:
+                throw new IllegalArgumentException("Not supported aggregation type: " + aggregation);
+        }
+    }
+
+    static TsKvEntity toEntity(ResultSet rs, Aggregation aggregation) throws SQLException {
+        if (Aggregation.COUNT.equals(aggregation)) {
+            return new TsKvEntity(getLong(rs, "bool_count"), getLong(rs, "str_count"), getLong(rs, "long_count"),
+                    getLong(rs, "double_count"), getLong(rs, "json_count"));
+        }
+        if (Aggregation.MIN.equals(aggregation) || Aggregation.MAX.equals(aggregation)) {
+            String strValue = rs.getString("str_value");
+            if (strValue != null) {
+                return new TsKvEntity(strValue);
+            }
+        }
+        Long longValue = getLong(rs, "long_value");
+        Double doubleValue = rs.getObject("double_value") != null ? rs.getDouble("double_value") : null;
+        return new TsKvEntity(longValue, doubleValue, getLong(rs, "long_count"), getLong(rs, "double_count"), aggregation.name());
+    }
+
+    private static Long getLong(ResultSet rs, String column) throws SQLException {
+        return rs.getObject(column) != null ? rs.getLong(column) : null;
+    }
+}
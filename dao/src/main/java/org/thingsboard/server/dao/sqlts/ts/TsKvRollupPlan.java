@@ -0,0 +1,41 @@
+/**
+ * Copyright © 2016-2022 The Thingsboard Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.thingsboard.server.dao.sqlts.ts;
+
+import lombok.Data;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Splits an aggregated read into rollups of one resolution for [rollupStartTs, rollupEndTs)
+ * and raw ts_kv ranges for everything the rollups can not answer exactly.
+ */
+@Data
+public class TsKvRollupPlan {
+    private final TsKvRollupResolution resolution;
+    private final long rollupStartTs;
+    private final long rollupEndTs;
+    private final List<Long> rawStartTs = new ArrayList<>();
+    private final List<Long> rawEndTs = new ArrayList<>();
+
+    public void addRawRange(long startTs, long endTs) {
+        if (startTs < endTs) {
+            rawStartTs.add(startTs);
+            rawEndTs.add(endTs);
+        }
+    }
+}
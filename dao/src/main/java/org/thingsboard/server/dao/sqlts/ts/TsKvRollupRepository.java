@@ -0,0 +1,199 @@
+/**
+ * Copyright © 2016-2022 The Thingsboard Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.thingsboard.server.dao.sqlts.ts;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.BatchPreparedStatementSetter;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+import org.thingsboard.server.common.data.kv.Aggregation;
+import org.thingsboard.server.dao.model.sqlts.ts.TsKvEntity;
+import org.thingsboard.server.dao.util.SqlTsDao;
+
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Stores min, max, sum and count of the ts_kv values per entity, key and rollup bucket.
+ * Buckets are rebuilt from the finer resolution instead of being incremented, so rewriting a value with the same ts
+ * or rebuilding a bucket twice keeps the rollups exact. The queries use PostgreSQL syntax, see {@link #isAvailable()}.
+ */
+@SqlTsDao
+@Repository
+public class TsKvRollupRepository {
+
+    private static final String POSTGRESQL = "PostgreSQL";
+
+    // the tables are created by the ts schema and upgrade scripts of PostgreSQL only
+    private static final String SELECT_TABLES_EXIST = "SELECT to_regclass('ts_kv_rollup') IS NOT NULL AND to_regclass('ts_kv_rollup_state') IS NOT NULL;";
+
+    private static final String INSERT_STATE = "INSERT INTO ts_kv_rollup_state (id, start_ts) VALUES (0, ?) ON CONFLICT (id) DO NOTHING;";
+    private static final String SELECT_STATE = "SELECT start_ts FROM ts_kv_rollup_state WHERE id = 0;";
+    private static final String DELETE_STATE = "DELETE FROM ts_kv_rollup_state WHERE id = 0;";
+
+    private static final String ROLLUP_COLUMNS = "bool_count, str_count, long_count, dbl_count, json_count, " +
+            "long_sum, dbl_sum, long_min, long_max, dbl_min, dbl_max, str_min, str_max";
+
+    private static final String INSERT_SELECT = "INSERT INTO ts_kv_rollup (entity_id, key, resolution, ts, " + ROLLUP_COLUMNS + ") SELECT ?, ?, ?, ?, ";
+
+    private static final String HAVING_ON_CONFLICT_DO_UPDATE = " HAVING COUNT(*) > 0 ON CONFLICT (entity_id, key, resolution, ts) DO UPDATE SET " +
+            "bool_count = EXCLUDED.bool_count, str_count = EXCLUDED.str_count, long_count = EXCLUDED.long_count, " +
+            "dbl_count = EXCLUDED.dbl_count, json_count = EXCLUDED.json_count, long_sum = EXCLUDED.long_sum, dbl_sum = EXCLUDED.dbl_sum, " +
+            "long_min = EXCLUDED.long_min, long_max = EXCLUDED.long_max, dbl_min = EXCLUDED.dbl_min, dbl_max = EXCLUDED.dbl_max, " +
+            "str_min = EXCLUDED.str_min, str_max = EXCLUDED.str_max;";
+
+    private static final String REBUILD_FROM_TS_KV = INSERT_SELECT +
+            "COUNT(t.bool_v), COUNT(t.str_v), COUNT(t.long_v), COUNT(t.dbl_v), COUNT(t.json_v), SUM(t.long_v), SUM(t.dbl_v), " +
+            "MIN(t.long_v), MAX(t.long_v), MIN(t.dbl_v), MAX(t.dbl_v), MIN(t.str_v), MAX(t.str_v) " +
+            "FROM ts_kv t WHERE t.entity_id = ? AND t.key = ? AND t.ts >= ? AND t.ts < ?" + HAVING_ON_CONFLICT_DO_UPDATE;
+
+    private static final String REBUILD_FROM_ROLLUP = INSERT_SELECT +
+            "SUM(r.bool_count), SUM(r.str_count), SUM(r.long_count), SUM(r.dbl_count), SUM(r.json_count), SUM(r.long_sum), SUM(r.dbl_sum), " +
+            "MIN(r.long_min), MAX(r.long_max), MIN(r.dbl_min), MAX(r.dbl_max), MIN(r.str_min), MAX(r.str_max) " +
+            "FROM ts_kv_rollup r WHERE r.entity_id = ? AND r.key = ? AND r.resolution = ? AND r.ts >= ? AND r.ts < ?" + HAVING_ON_CONFLICT_DO_UPDATE;
+
+    private static final String DELETE = "DELETE FROM ts_kv_rollup WHERE entity_id = ? AND key = ? AND resolution = ? AND ts >= ? AND ts < ?;";
+    private static final String CLEANUP = "DELETE FROM ts_kv_rollup WHERE resolution = ? AND ts < ?;";
+
+    // Rollup buckets that lie within a single interval are combined with the raw values of the remaining ranges.
+    private static final String FROM_PARTIALS_GROUP_BY_CLAUSE = "FROM (SELECT (r.ts - ?) / ? AS bucket, r." + ROLLUP_COLUMNS.replace(", ", ", r.") + " " +
+            "FROM ts_kv_rollup r WHERE r.entity_id = ? AND r.key = ? AND r.resolution = ? AND r.ts >= ? AND r.ts < ? " +
+            "AND (r.ts - ?) / ? = (r.ts + ? - ?) / ? " +
+            "UNION ALL SELECT (t.ts - ?) / ? AS bucket, CASE WHEN t.bool_v IS NULL THEN 0 ELSE 1 END, CASE WHEN t.str_v IS NULL THEN 0 ELSE 1 END, " +
+            "CASE WHEN t.long_v IS NULL THEN 0 ELSE 1 END, CASE WHEN t.dbl_v IS NULL THEN 0 ELSE 1 END, CASE WHEN t.json_v IS NULL THEN 0 ELSE 1 END, " +
+            "t.long_v, t.dbl_v, t.long_v, t.long_v, t.dbl_v, t.dbl_v, t.str_v, t.str_v " +
+            "FROM unnest(?, ?) AS g(from_ts, to_ts) JOIN ts_kv t ON t.entity_id = ? AND t.key = ? AND t.ts >= g.from_ts AND t.ts < g.to_ts) p " +
+            "GROUP BY p.bucket ORDER BY p.bucket";
+
+    private static final String LONG_AND_DOUBLE_COUNT = "SUM(p.long_count) AS long_count, SUM(p.dbl_count) AS double_count ";
+
+    private static final String FIND_SUM_QUERY = "SELECT p.bucket, COALESCE(SUM(p.long_sum), 0) AS long_value, COALESCE(SUM(p.dbl_sum), 0.0) AS double_value, " +
+            LONG_AND_DOUBLE_COUNT + FROM_PARTIALS_GROUP_BY_CLAUSE;
+
+    private static final String FIND_MAX_QUERY = "SELECT p.bucket, MAX(p.str_max) AS str_value, MAX(p.long_max) AS long_value, MAX(p.dbl_max) AS double_value, " +
+            LONG_AND_DOUBLE_COUNT + FROM_PARTIALS_GROUP_BY_CLAUSE;
+
+    private static final String FIND_MIN_QUERY = "SELECT p.bucket, MIN(p.str_min) AS str_value, MIN(p.long_min) AS long_value, MIN(p.dbl_min) AS double_value, " +
+            LONG_AND_DOUBLE_COUNT + FROM_PARTIALS_GROUP_BY_CLAUSE;
+
+    private static final String FIND_COUNT_QUERY = "SELECT p.bucket, SUM(p.bool_count) AS bool_count, SUM(p.str_count) AS str_count, " +
+            "SUM(p.json_count) AS json_count, " + LONG_AND_DOUBLE_COUNT + FROM_PARTIALS_GROUP_BY_CLAUSE;
+
+    @Autowired
+    protected JdbcTemplate jdbcTemplate;
+
+    public boolean isAvailable() {
+        Boolean postgres = jdbcTemplate.execute((ConnectionCallback<Boolean>) con ->
+                POSTGRESQL.equalsIgnoreCase(con.getMetaData().getDatabaseProductName()));
+        return Boolean.TRUE.equals(postgres) && Boolean.TRUE.equals(jdbcTemplate.queryForObject(SELECT_TABLES_EXIST, Boolean.class));
+    }
+
+    public void resetState() {
+        jdbcTemplate.update(DELETE_STATE);
+    }
+
+    public long getOrSaveStartTs(long startTs) {
+        jdbcTemplate.update(INSERT_STATE, startTs);
+        Long savedStartTs = jdbcTemplate.queryForObject(SELECT_STATE, Long.class);
+        return savedStartTs != null ? savedStartTs : startTs;
+    }
+
+    public void rebuild(TsKvRollupResolution resolution, List<TsKvRollupBucket> buckets) {
+        TsKvRollupResolution source = resolution.getSource();
+        jdbcTemplate.batchUpdate(source == null ? REBUILD_FROM_TS_KV : REBUILD_FROM_ROLLUP, new BatchPreparedStatementSetter() {
+            @Override
+            public void setValues(PreparedStatement ps, int i) throws SQLException {
+                TsKvRollupBucket bucket = buckets.get(i);
+                int idx = 1;
+                ps.setObject(idx++, bucket.getEntityId());
+                ps.setInt(idx++, bucket.getKey());
+                ps.setLong(idx++, resolution.getIntervalMs());
+                ps.setLong(idx++, bucket.getTs());
+                ps.setObject(idx++, bucket.getEntityId());
+                ps.setInt(idx++, bucket.getKey());
+                if (source != null) {
+                    ps.setLong(idx++, source.getIntervalMs());
+                }
+                ps.setLong(idx++, bucket.getTs());
+                ps.setLong(idx, bucket.getTs() + resolution.getIntervalMs());
+            }
+
+            @Override
+            public int getBatchSize() {
+                return buckets.size();
+            }
+        });
+    }
+
+    public void delete(UUID entityId, int key, TsKvRollupResolution resolution, long startTs, long endTs) {
+        jdbcTemplate.update(DELETE, entityId, key, resolution.getIntervalMs(), startTs, endTs);
+    }
+
+    public int cleanup(TsKvRollupResolution resolution, long expirationTs) {
+        return jdbcTemplate.update(CLEANUP, resolution.getIntervalMs(), expirationTs);
+    }
+
+    public List<TsKvEntity> findAggregated(UUID entityId, int entityKey, long startTs, long interval, Aggregation aggregation, TsKvRollupPlan plan) {
+        long resolutionMs = plan.getResolution().getIntervalMs();
+        List<TsKvEntity> result = new ArrayList<>();
+        jdbcTemplate.query(getQuery(aggregation), ps -> {
+            int idx = 1;
+            ps.setLong(idx++, startTs);
+            ps.setLong(idx++, interval);
+            ps.setObject(idx++, entityId);
+            ps.setInt(idx++, entityKey);
+            ps.setLong(idx++, resolutionMs);
+            ps.setLong(idx++, plan.getRollupStartTs());
+            ps.setLong(idx++, plan.getRollupEndTs());
+            ps.setLong(idx++, startTs);
+            ps.setLong(idx++, interval);
+            ps.setLong(idx++, resolutionMs - 1);
+            ps.setLong(idx++, startTs);
+            ps.setLong(idx++, interval);
+            ps.setLong(idx++, startTs);
+            ps.setLong(idx++, interval);
+            ps.setArray(idx++, ps.getConnection().createArrayOf("bigint", plan.getRawStartTs().toArray()));
+            ps.setArray(idx++, ps.getConnection().createArrayOf("bigint", plan.getRawEndTs().toArray()));
+            ps.setObject(idx++, entityId);
+            ps.setInt(idx, entityKey);
+        }, rs -> {
+            TsKvEntity entity = TsKvAggregationRepository.toEntity(rs, aggregation);
+            entity.setTs(startTs + rs.getLong("bucket") * interval);
+            result.add(entity);
+        });
+        return result;
+    }
+
+    private static String getQuery(Aggregation aggregation) {
+        switch (aggregation) {
+            case AVG:
+            case SUM:
+                return FIND_SUM_QUERY;
+            case MAX:
+                return FIND_MAX_QUERY;
+            case MIN:
+                return FIND_MIN_QUERY;
+            case COUNT:
+                return FIND_COUNT_QUERY;
+            default:
+                throw new IllegalArgumentException("Not supported aggregation type: " + aggregation);
+        }
+    }
+}
@@ -0,0 +1,54 @@
+/**
+ * Copyright © 2016-2022 The Thingsboard Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.thingsboard.server.dao.sqlts.ts;
+
+import lombok.Getter;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Resolutions of the ts_kv rollups, from the finest to the coarsest.
+ * Each resolution is rebuilt from the previous one; minute rollups are rebuilt from ts_kv.
+ */
+public enum TsKvRollupResolution {
+
+    MINUTE(TimeUnit.MINUTES.toMillis(1)),
+    HOUR(TimeUnit.HOURS.toMillis(1)),
+    DAY(TimeUnit.DAYS.toMillis(1));
+
+    @Getter
+    private final long intervalMs;
+
+    TsKvRollupResolution(long intervalMs) {
+        this.intervalMs = intervalMs;
+    }
+
+    public long alignDown(long ts) {
+        return Math.floorDiv(ts, intervalMs) * intervalMs;
+    }
+
+    public long alignUp(long ts) {
+        return alignDown(ts + intervalMs - 1);
+    }
+
+    public boolean isAligned(long ts) {
+        return Math.floorMod(ts, intervalMs) == 0;
+    }
+
+    public TsKvRollupResolution getSource() {
+        return ordinal() > 0 ? values()[ordinal() - 1] : null;
+    }
+}
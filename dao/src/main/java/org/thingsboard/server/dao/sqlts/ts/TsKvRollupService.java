@@ -0,0 +1,221 @@
+/**
+ * Copyright © 2016-2022 The Thingsboard Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.thingsboard.server.dao.sqlts.ts;
+
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.thingsboard.server.common.data.kv.Aggregation;
+import org.thingsboard.server.dao.model.sqlts.ts.TsKvEntity;
+import org.thingsboard.server.dao.util.SqlTsDao;
+
+import javax.annotation.PostConstruct;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Maintains minute, hour and day rollups of ts_kv as the timeseries batches are saved and answers aggregated reads
+ * from the coarsest rollup that fits the requested interval. Rollups only cover the data saved since they were enabled;
+ * the state is reset when they are disabled, because the rollups are not maintained in the meantime.
+ * A coarse bucket is only rebuilt while its finer source is complete: once a part of the source has expired by TTL,
+ * late changes inside the bucket are not applied to it, instead of replacing it with the aggregates of the remaining part.
+ */
+@Slf4j
+@SqlTsDao
+@Component
+public class TsKvRollupService {
+
+    // Rollup buckets that cross an interval boundary are read from ts_kv, so for reads that are not aligned with the
+    // resolution every interval has to contain enough buckets to make the rollup cheaper than the raw values.
+    private static final long MIN_BUCKETS_PER_UNALIGNED_INTERVAL = 10;
+
+    @Getter
+    @Value("${sql.ts.rollup.enabled:false}")
+    private boolean enabled;
+
+    @Value("${sql.ttl.ts.rollup.minute_ttl:604800}")
+    private long minuteTtl;
+
+    @Value("${sql.ttl.ts.rollup.hour_ttl:7776000}")
+    private long hourTtl;
+
+    @Value("${sql.ttl.ts.rollup.day_ttl:0}")
+    private long dayTtl;
+
+    @Autowired
+    private TsKvRollupRepository rollupRepository;
+
+    private long maintainedSinceTs;
+
+    @PostConstruct
+    public void init() {
+        if (!rollupRepository.isAvailable()) {
+            if (enabled) {
+                log.warn("Timeseries rollups require PostgreSQL with the ts_kv_rollup tables, rollups are disabled");
+                enabled = false;
+            }
+            return;
+        }
+        if (enabled) {
+            maintainedSinceTs = rollupRepository.getOrSaveStartTs(System.currentTimeMillis());
+            log.info("Timeseries rollups are enabled and maintained since [{}]", maintainedSinceTs);
+        } else {
+            rollupRepository.resetState();
+        }
+    }
+
+    public void onSaved(List<TsKvEntity> entities) {
+        if (!enabled || entities.isEmpty()) {
+            return;
+        }
+        try {
+            Set<TsKvRollupBucket> buckets = new LinkedHashSet<>();
+            for (TsKvEntity entity : entities) {
+                buckets.add(new TsKvRollupBucket(entity.getEntityId(), entity.getKey(), entity.getTs()));
+            }
+            rebuild(buckets, System.currentTimeMillis());
+        } catch (Exception e) {
+            log.warn("Failed to update timeseries rollups for {} saved values", entities.size(), e);
+        }
+    }
+
+    public void onRemoved(UUID entityId, int key, long startTs, long endTs) {
+        if (!enabled) {
+            return;
+        }
+        long now = System.currentTimeMillis();
+        for (TsKvRollupResolution resolution : TsKvRollupResolution.values()) {
+            long rebuildableSinceTs = getRebuildableSinceTs(resolution, now);
+            // buckets removed in part are deleted only when they are rebuilt afterwards
+            long deleteStartTs = resolution.alignDown(startTs) >= rebuildableSinceTs ? resolution.alignDown(startTs) : resolution.alignUp(startTs);
+            long deleteEndTs = resolution.alignDown(endTs) >= rebuildableSinceTs ? endTs : resolution.alignDown(endTs);
+            if (deleteStartTs < deleteEndTs) {
+                rollupRepository.delete(entityId, key, resolution, deleteStartTs, deleteEndTs);
+            }
+        }
+        Set<TsKvRollupBucket> boundaries = new LinkedHashSet<>();
+        boundaries.add(new TsKvRollupBucket(entityId, key, startTs));
+        boundaries.add(new TsKvRollupBucket(entityId, key, endTs));
+        rebuild(boundaries, now);
+    }
+
+    public Optional<List<TsKvEntity>> findAggregated(UUID entityId, int entityKey, long startTs, long endTs, long interval, Aggregation aggregation) {
+        return getPlan(startTs, endTs, interval, System.currentTimeMillis())
+                .map(plan -> rollupRepository.findAggregated(entityId, entityKey, startTs, interval, aggregation, plan));
+    }
+
+    public void cleanup() {
+        if (!enabled) {
+            return;
+        }
+        long now = System.currentTimeMillis();
+        for (TsKvRollupResolution resolution : TsKvRollupResolution.values()) {
+            long ttl = getTtl(resolution);
+            if (ttl > 0) {
+                int removed = rollupRepository.cleanup(resolution, now - TimeUnit.SECONDS.toMillis(ttl));
+                log.info("Total {} timeseries rollups removed by TTL: [{}]", resolution, removed);
+            }
+        }
+    }
+
+    Optional<TsKvRollupPlan> getPlan(long startTs, long endTs, long interval, long now) {
+        if (!enabled) {
+            return Optional.empty();
+        }
+        TsKvRollupResolution[] resolutions = TsKvRollupResolution.values();
+        for (int i = resolutions.length - 1; i >= 0; i--) {
+            TsKvRollupResolution resolution = resolutions[i];
+            long resolutionMs = resolution.getIntervalMs();
+            if (interval % resolutionMs != 0) {
+                continue;
+            }
+            boolean aligned = resolution.isAligned(startTs);
+            if (!aligned && interval / resolutionMs < MIN_BUCKETS_PER_UNALIGNED_INTERVAL) {
+                continue;
+            }
+            long rollupStartTs = Math.max(resolution.alignUp(startTs), resolution.alignUp(maintainedSinceTs));
+            long ttl = getTtl(resolution);
+            if (ttl > 0) {
+                rollupStartTs = Math.max(rollupStartTs, resolution.alignUp(now - TimeUnit.SECONDS.toMillis(ttl)));
+            }
+            long rollupEndTs = resolution.alignDown(endTs);
+            if (rollupStartTs >= rollupEndTs) {
+                continue;
+            }
+            TsKvRollupPlan plan = new TsKvRollupPlan(resolution, rollupStartTs, rollupEndTs);
+            plan.addRawRange(startTs, rollupStartTs);
+            if (!aligned) {
+                // Interval boundaries split the rollup buckets that contain them; those buckets are read from ts_kv.
+                long boundaryTs = startTs + ((rollupStartTs - startTs) / interval + 1) * interval;
+                for (; boundaryTs < rollupEndTs; boundaryTs += interval) {
+                    long bucketTs = resolution.alignDown(boundaryTs);
+                    plan.addRawRange(bucketTs, bucketTs + resolutionMs);
+                }
+            }
+            plan.addRawRange(rollupEndTs, endTs);
+            return Optional.of(plan);
+        }
+        return Optional.empty();
+    }
+
+    private void rebuild(Collection<TsKvRollupBucket> buckets, long now) {
+        for (TsKvRollupResolution resolution : TsKvRollupResolution.values()) {
+            long rebuildableSinceTs = getRebuildableSinceTs(resolution, now);
+            Set<TsKvRollupBucket> aligned = new LinkedHashSet<>();
+            for (TsKvRollupBucket bucket : buckets) {
+                long bucketTs = resolution.alignDown(bucket.getTs());
+                if (bucketTs >= rebuildableSinceTs) {
+                    aligned.add(new TsKvRollupBucket(bucket.getEntityId(), bucket.getKey(), bucketTs));
+                } else {
+                    log.debug("[{}][{}] {} rollup of [{}] is not rebuilt, its source has expired", bucket.getEntityId(), bucket.getKey(), resolution, bucketTs);
+                }
+            }
+            if (aligned.isEmpty()) {
+                return;
+            }
+            rollupRepository.rebuild(resolution, new ArrayList<>(aligned));
+            buckets = aligned;
+        }
+    }
+
+    /**
+     * Returns the start of the oldest bucket of the resolution that can still be rebuilt from its complete source.
+     */
+    long getRebuildableSinceTs(TsKvRollupResolution resolution, long now) {
+        TsKvRollupResolution source = resolution.getSource();
+        long sourceTtl = source != null ? getTtl(source) : 0;
+        return sourceTtl > 0 ? now - TimeUnit.SECONDS.toMillis(sourceTtl) : Long.MIN_VALUE;
+    }
+
+    private long getTtl(TsKvRollupResolution resolution) {
+        switch (resolution) {
+            case MINUTE:
+                return minuteTtl;
+            case HOUR:
+                return hourTtl;
+            default:
+                return dayTtl;
+        }
+    }
+}
@@ -0,0 +1,51 @@
+/**
+ * Copyright © 2016-2022 The Thingsboard Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.thingsboard.server.dao.util;
+
+import io.micrometer.core.instrument.Timer;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.thingsboard.common.util.BlockingCallExecutor;
+import org.thingsboard.common.util.ThingsBoardExecutors;
+import org.thingsboard.server.common.stats.StatsFactory;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+
+@Configuration
+public class BlockingCallExecutorConfiguration {
+
+    private static final String STATS_KEY = "blockingCalls";
+
+    @Value("${database.blocking_calls.max_threads:50}")
+    private int maxThreads;
+    @Value("${database.blocking_calls.max_queue_size:10000}")
+    private int maxQueueSize;
+    @Value("${database.blocking_calls.virtual_threads:false}")
+    private boolean virtualThreads;
+
+    @Bean(destroyMethod = "shutdown")
+    public BlockingCallExecutor blockingCallExecutor(StatsFactory statsFactory) {
+        BlockingCallExecutor executor = ThingsBoardExecutors.newBlockingCallExecutor(maxThreads, maxQueueSize, "blocking-calls", virtualThreads);
+        ConcurrentMap<String, Timer> timers = new ConcurrentHashMap<>();
+        executor.setListener((callSite, blockedNanos) -> timers
+                .computeIfAbsent(callSite, site -> statsFactory.createTimer(STATS_KEY, "callSite", site))
+                .record(blockedNanos, TimeUnit.NANOSECONDS));
+        return executor;
+    }
+}
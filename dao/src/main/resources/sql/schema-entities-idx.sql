@@ -73,3 +73,9 @@ CREATE INDEX IF NOT EXISTS idx_rule_node_external_id ON rule_node(rule_chain_id,
 CREATE INDEX IF NOT EXISTS idx_rule_node_type ON rule_node(type);
 
 CREATE INDEX IF NOT EXISTS idx_api_usage_state_entity_id ON api_usage_state(entity_id);
+
+CREATE INDEX IF NOT EXISTS idx_cloud_event_id ON cloud_event(id);
+
+CREATE INDEX IF NOT EXISTS idx_cloud_event_tenant_id_and_created_time ON cloud_event(tenant_id, created_time DESC);
+
+CREATE INDEX IF NOT EXISTS idx_cloud_event_tenant_id_type_action_created_time ON cloud_event(tenant_id, cloud_event_type, cloud_event_action, created_time);
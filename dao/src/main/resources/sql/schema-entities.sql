@@ -723,7 +723,7 @@ CREATE TABLE IF NOT EXISTS rpc (
 );
 
 CREATE TABLE IF NOT EXISTS cloud_event (
-    id uuid NOT NULL CONSTRAINT cloud_event_pkey PRIMARY KEY,
+    id uuid NOT NULL,
     created_time bigint NOT NULL,
     cloud_event_type varchar(255),
     entity_id uuid,
@@ -731,7 +731,7 @@ CREATE TABLE IF NOT EXISTS cloud_event (
     entity_body varchar(10000000),
     tenant_id uuid,
     ts bigint NOT NULL
-);
+) PARTITION BY RANGE (created_time);
 
 CREATE OR REPLACE PROCEDURE cleanup_events_by_ttl(
     IN regular_events_start_ts bigint,
@@ -797,20 +797,3 @@ CREATE TABLE IF NOT EXISTS user_auth_settings (
     user_id uuid UNIQUE NOT NULL CONSTRAINT fk_user_auth_settings_user_id REFERENCES tb_user(id),
     two_fa_settings varchar
 );
-
-CREATE OR REPLACE PROCEDURE cleanup_cloud_events_by_ttl(IN ttl bigint, INOUT deleted bigint)
-    LANGUAGE plpgsql AS
-$$
-DECLARE
-    ttl_ts bigint;
-    ttl_deleted_count bigint DEFAULT 0;
-BEGIN
-    IF ttl > 0 THEN
-        ttl_ts := (EXTRACT(EPOCH FROM current_timestamp) * 1000 - ttl::bigint * 1000)::bigint;
-        EXECUTE format(
-                'WITH deleted AS (DELETE FROM cloud_event WHERE ts < %L::bigint RETURNING *) SELECT count(*) FROM deleted', ttl_ts) into ttl_deleted_count;
-    END IF;
-    RAISE NOTICE 'Cloud events removed by ttl: %', ttl_deleted_count;
-    deleted := ttl_deleted_count;
-END
-$$;
@@ -34,6 +34,36 @@ CREATE TABLE IF NOT EXISTS ts_kv_dictionary
     CONSTRAINT ts_key_id_pkey PRIMARY KEY (key)
 );
 
+CREATE TABLE IF NOT EXISTS ts_kv_rollup
+(
+    entity_id  uuid   NOT NULL,
+    key        int    NOT NULL,
+    resolution bigint NOT NULL,
+    ts         bigint NOT NULL,
+    bool_count bigint NOT NULL,
+    str_count  bigint NOT NULL,
+    long_count bigint NOT NULL,
+    dbl_count  bigint NOT NULL,
+    json_count bigint NOT NULL,
+    long_sum   numeric,
+    dbl_sum    double precision,
+    long_min   bigint,
+    long_max   bigint,
+    dbl_min    double precision,
+    dbl_max    double precision,
+    str_min    varchar(10000000),
+    str_max    varchar(10000000),
+    CONSTRAINT ts_kv_rollup_pkey PRIMARY KEY (entity_id, key, resolution, ts)
+);
+
+CREATE INDEX IF NOT EXISTS idx_ts_kv_rollup_resolution_ts ON ts_kv_rollup(resolution, ts);
+
+CREATE TABLE IF NOT EXISTS ts_kv_rollup_state
+(
+    id       int    NOT NULL CONSTRAINT ts_kv_rollup_state_pkey PRIMARY KEY,
+    start_ts bigint NOT NULL
+);
+
 CREATE OR REPLACE PROCEDURE drop_partitions_by_max_ttl(IN partition_type varchar, IN system_ttl bigint, INOUT deleted bigint)
     LANGUAGE plpgsql AS
 $$
@@ -111,6 +111,35 @@ public abstract class BaseAlarmServiceTest extends AbstractServiceTest {
         Assert.assertEquals(created, fetched);
     }
 
+    @Test
+    public void testCreateOrUpdateAlarmAfterClear() throws ExecutionException, InterruptedException {
+        AssetId originatorId = new AssetId(Uuids.timeBased());
+        Alarm alarm = Alarm.builder().tenantId(tenantId).originator(originatorId)
+                .type(TEST_ALARM)
+                .severity(AlarmSeverity.CRITICAL).status(AlarmStatus.ACTIVE_UNACK)
+                .startTs(System.currentTimeMillis()).build();
+
+        Alarm created = alarmService.createOrUpdateAlarm(alarm).getAlarm();
+        Assert.assertEquals(created, alarmService.findLatestByOriginatorAndType(tenantId, originatorId, TEST_ALARM).get());
+
+        Alarm update = Alarm.builder().tenantId(tenantId).originator(originatorId)
+                .type(TEST_ALARM)
+                .severity(AlarmSeverity.MAJOR).status(AlarmStatus.ACTIVE_UNACK)
+                .startTs(System.currentTimeMillis()).build();
+        AlarmOperationResult updateResult = alarmService.createOrUpdateAlarmAsync(update, true).get();
+        Assert.assertFalse(updateResult.isCreated());
+        Assert.assertEquals(created.getId(), updateResult.getAlarm().getId());
+        Assert.assertEquals(AlarmSeverity.MAJOR, alarmService.findLatestByOriginatorAndType(tenantId, originatorId, TEST_ALARM).get().getSeverity());
+
+        alarmService.clearAlarm(tenantId, created.getId(), null, System.currentTimeMillis()).get();
+        Assert.assertTrue(alarmService.findLatestByOriginatorAndType(tenantId, originatorId, TEST_ALARM).get().getStatus().isCleared());
+
+        AlarmOperationResult createResult = alarmService.createOrUpdateAlarm(update);
+        Assert.assertTrue(createResult.isCreated());
+        Assert.assertNotEquals(created.getId(), createResult.getAlarm().getId());
+        Assert.assertEquals(createResult.getAlarm().getId(), alarmService.findLatestByOriginatorAndType(tenantId, originatorId, TEST_ALARM).get().getId());
+    }
+
     @Test
     public void testFindAlarm() throws ExecutionException, InterruptedException {
         AssetId parentId = new AssetId(Uuids.timeBased());
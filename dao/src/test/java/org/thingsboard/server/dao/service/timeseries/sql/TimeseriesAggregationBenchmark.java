@@ -0,0 +1,128 @@
+/**
+ * Copyright © 2016-2022 The Thingsboard Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.thingsboard.server.dao.service.timeseries.sql;
+
+import com.datastax.oss.driver.api.core.uuid.Uuids;
+import lombok.extern.slf4j.Slf4j;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.Mockito;
+import org.springframework.boot.test.mock.mockito.SpyBean;
+import org.thingsboard.server.common.data.Tenant;
+import org.thingsboard.server.common.data.id.DeviceId;
+import org.thingsboard.server.common.data.id.TenantId;
+import org.thingsboard.server.common.data.kv.Aggregation;
+import org.thingsboard.server.common.data.kv.BaseReadTsKvQuery;
+import org.thingsboard.server.common.data.kv.BasicTsKvEntry;
+import org.thingsboard.server.common.data.kv.DoubleDataEntry;
+import org.thingsboard.server.common.data.kv.ReadTsKvQuery;
+import org.thingsboard.server.common.data.kv.TsKvEntry;
+import org.thingsboard.server.dao.service.AbstractServiceTest;
+import org.thingsboard.server.dao.service.DaoSqlTest;
+import org.thingsboard.server.dao.sqlts.ts.TsKvAggregationRepository;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the query count and latency of aggregated timeseries reads for typical dashboard ranges,
+ * comparing a single bucketed read with one read per interval, as the reads were issued before.
+ * Not part of the regular test run; start it manually and compare the reported figures.
+ */
+@Slf4j
+@DaoSqlTest
+public class TimeseriesAggregationBenchmark extends AbstractServiceTest {
+
+    static final String KEY = "temperature";
+    static final long SAMPLE_INTERVAL = TimeUnit.MINUTES.toMillis(1);
+    static final long DATA_RANGE = TimeUnit.DAYS.toMillis(7);
+    static final int SAVE_BATCH_SIZE = 1000;
+    static final int RUNS = 5;
+    static final long[][] DASHBOARD_RANGES = {
+            {TimeUnit.HOURS.toMillis(1), TimeUnit.MINUTES.toMillis(1)},
+            {TimeUnit.DAYS.toMillis(1), TimeUnit.MINUTES.toMillis(5)},
+            {TimeUnit.DAYS.toMillis(7), TimeUnit.MINUTES.toMillis(10)},
+            {TimeUnit.DAYS.toMillis(7), TimeUnit.HOURS.toMillis(1)}
+    };
+
+    @SpyBean
+    TsKvAggregationRepository aggregationRepository;
+
+    TenantId tenantId;
+    DeviceId deviceId;
+    long endTs;
+
+    @Before
+    public void before() throws Exception {
+        Tenant tenant = new Tenant();
+        tenant.setTitle("Benchmark tenant");
+        tenantId = tenantService.saveTenant(tenant).getId();
+        deviceId = new DeviceId(Uuids.timeBased());
+        endTs = System.currentTimeMillis();
+        List<TsKvEntry> entries = new ArrayList<>(SAVE_BATCH_SIZE);
+        for (long ts = endTs - DATA_RANGE; ts < endTs; ts += SAMPLE_INTERVAL) {
+            entries.add(new BasicTsKvEntry(ts, new DoubleDataEntry(KEY, Math.sin(ts / 60000.0) * 10 + 20)));
+            if (entries.size() == SAVE_BATCH_SIZE) {
+                tsService.save(tenantId, deviceId, entries, 0).get();
+                entries = new ArrayList<>(SAVE_BATCH_SIZE);
+            }
+        }
+        if (!entries.isEmpty()) {
+            tsService.save(tenantId, deviceId, entries, 0).get();
+        }
+    }
+
+    @After
+    public void after() {
+        tenantService.deleteTenant(tenantId);
+    }
+
+    @Test
+    public void aggregateDashboardRanges() throws Exception {
+        for (long[] range : DASHBOARD_RANGES) {
+            long startTs = endTs - range[0];
+            long interval = range[1];
+            List<ReadTsKvQuery> bucketed = Collections.singletonList(
+                    new BaseReadTsKvQuery(KEY, startTs, endTs, interval, Integer.MAX_VALUE, Aggregation.AVG));
+            List<ReadTsKvQuery> perInterval = new ArrayList<>();
+            for (long intervalStartTs = startTs; intervalStartTs < endTs; intervalStartTs += interval) {
+                long intervalEndTs = Math.min(intervalStartTs + interval, endTs);
+                perInterval.add(new BaseReadTsKvQuery(KEY, intervalStartTs, intervalEndTs, intervalEndTs - intervalStartTs,
+                        Integer.MAX_VALUE, Aggregation.AVG));
+            }
+            report("bucketed", range, bucketed);
+            report("per interval", range, perInterval);
+        }
+    }
+
+    private void report(String mode, long[] range, List<ReadTsKvQuery> queries) throws Exception {
+        tsService.findAll(tenantId, deviceId, queries).get();
+        Mockito.clearInvocations(aggregationRepository);
+        long startTs = System.nanoTime();
+        int values = 0;
+        for (int i = 0; i < RUNS; i++) {
+            values = tsService.findAll(tenantId, deviceId, queries).get().size();
+        }
+        long durationNanos = (System.nanoTime() - startTs) / RUNS;
+        int sqlQueries = Mockito.mockingDetails(aggregationRepository).getInvocations().size() / RUNS;
+        log.info("[{}] range {} h, interval {} min: {} value(s), {} SQL queries, {} ms per read",
+                mode, TimeUnit.MILLISECONDS.toHours(range[0]), TimeUnit.MILLISECONDS.toMinutes(range[1]),
+                values, sqlQueries, durationNanos / 1_000_000.0);
+    }
+}
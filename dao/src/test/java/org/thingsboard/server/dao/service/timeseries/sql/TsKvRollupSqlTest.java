@@ -0,0 +1,192 @@
+/**
+ * Copyright © 2016-2022 The Thingsboard Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.thingsboard.server.dao.service.timeseries.sql;
+
+import com.datastax.oss.driver.api.core.uuid.Uuids;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.thingsboard.server.common.data.Tenant;
+import org.thingsboard.server.common.data.id.DeviceId;
+import org.thingsboard.server.common.data.id.TenantId;
+import org.thingsboard.server.common.data.kv.Aggregation;
+import org.thingsboard.server.common.data.kv.BasicTsKvEntry;
+import org.thingsboard.server.common.data.kv.DoubleDataEntry;
+import org.thingsboard.server.common.data.kv.LongDataEntry;
+import org.thingsboard.server.common.data.kv.TsKvEntry;
+import org.thingsboard.server.dao.model.sqlts.ts.TsKvEntity;
+import org.thingsboard.server.dao.service.AbstractServiceTest;
+import org.thingsboard.server.dao.service.DaoSqlTest;
+import org.thingsboard.server.dao.sqlts.ts.TsKvRollupRepository;
+import org.thingsboard.server.dao.sqlts.ts.TsKvRollupResolution;
+import org.thingsboard.server.dao.sqlts.ts.TsKvRollupService;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@DaoSqlTest
+public class TsKvRollupSqlTest extends AbstractServiceTest {
+
+    private static final String KEY = "temperature";
+    private static final long SECOND = TimeUnit.SECONDS.toMillis(1);
+    private static final long MINUTE = TimeUnit.MINUTES.toMillis(1);
+    private static final long HOUR = TimeUnit.HOURS.toMillis(1);
+    private static final long DAY = TimeUnit.DAYS.toMillis(1);
+
+    @Autowired
+    TsKvRollupRepository rollupRepository;
+
+    @Autowired
+    JdbcTemplate jdbcTemplate;
+
+    TsKvRollupService rollupService;
+    TenantId tenantId;
+    DeviceId deviceId;
+
+    @Before
+    public void before() {
+        Tenant tenant = new Tenant();
+        tenant.setTitle("Rollup tenant");
+        tenantId = tenantService.saveTenant(tenant).getId();
+        deviceId = new DeviceId(Uuids.timeBased());
+        rollupService = new TsKvRollupService();
+        ReflectionTestUtils.setField(rollupService, "enabled", true);
+        ReflectionTestUtils.setField(rollupService, "rollupRepository", rollupRepository);
+    }
+
+    @After
+    public void after() {
+        tenantService.deleteTenant(tenantId);
+        jdbcTemplate.update("DELETE FROM ts_kv_rollup WHERE entity_id = ?", deviceId.getId());
+    }
+
+    @Test
+    public void testRollupTablesAreCreatedBySchema() {
+        assertThat(rollupRepository.isAvailable()).isTrue();
+    }
+
+    @Test
+    public void givenSavedValues_whenRebuild_thenEveryResolutionAggregatesTsKv() throws Exception {
+        long dayTs = TsKvRollupResolution.DAY.alignDown(System.currentTimeMillis()) - DAY;
+        save(new BasicTsKvEntry(dayTs + SECOND, new LongDataEntry(KEY, 1L)),
+                new BasicTsKvEntry(dayTs + MINUTE + SECOND, new LongDataEntry(KEY, 5L)),
+                new BasicTsKvEntry(dayTs + HOUR + SECOND, new DoubleDataEntry(KEY, 2.5)));
+
+        Map<String, Object> minute = findRollup(TsKvRollupResolution.MINUTE, dayTs);
+        assertThat(((Number) minute.get("long_count")).longValue()).isEqualTo(1);
+        assertThat(((Number) minute.get("long_sum")).longValue()).isEqualTo(1);
+
+        Map<String, Object> hour = findRollup(TsKvRollupResolution.HOUR, dayTs);
+        assertThat(((Number) hour.get("long_count")).longValue()).isEqualTo(2);
+        assertThat(((Number) hour.get("dbl_count")).longValue()).isEqualTo(0);
+        assertThat(((Number) hour.get("long_sum")).longValue()).isEqualTo(6);
+        assertThat(((Number) hour.get("long_min")).longValue()).isEqualTo(1);
+        assertThat(((Number) hour.get("long_max")).longValue()).isEqualTo(5);
+
+        Map<String, Object> day = findRollup(TsKvRollupResolution.DAY, dayTs);
+        assertThat(((Number) day.get("long_count")).longValue()).isEqualTo(2);
+        assertThat(((Number) day.get("dbl_count")).longValue()).isEqualTo(1);
+        assertThat(((Number) day.get("long_sum")).longValue()).isEqualTo(6);
+        assertThat(((Number) day.get("dbl_sum")).doubleValue()).isEqualTo(2.5);
+    }
+
+    @Test
+    public void givenRewrittenValue_whenRebuild_thenRollupIsNotCountedTwice() throws Exception {
+        long dayTs = TsKvRollupResolution.DAY.alignDown(System.currentTimeMillis()) - DAY;
+        save(new BasicTsKvEntry(dayTs + SECOND, new LongDataEntry(KEY, 1L)));
+        save(new BasicTsKvEntry(dayTs + SECOND, new LongDataEntry(KEY, 3L)));
+
+        Map<String, Object> hour = findRollup(TsKvRollupResolution.HOUR, dayTs);
+        assertThat(((Number) hour.get("long_count")).longValue()).isEqualTo(1);
+        assertThat(((Number) hour.get("long_sum")).longValue()).isEqualTo(3);
+    }
+
+    @Test
+    public void givenExpiredMinuteRollups_whenLateValueSaved_thenHourRollupIsNotReplacedByPartialOne() throws Exception {
+        long hourTs = TsKvRollupResolution.HOUR.alignDown(System.currentTimeMillis()) - 2 * DAY;
+        save(new BasicTsKvEntry(hourTs + SECOND, new LongDataEntry(KEY, 1L)),
+                new BasicTsKvEntry(hourTs + MINUTE + SECOND, new LongDataEntry(KEY, 5L)));
+        assertThat(((Number) findRollup(TsKvRollupResolution.HOUR, hourTs).get("long_count")).longValue()).isEqualTo(2);
+
+        ReflectionTestUtils.setField(rollupService, "minuteTtl", TimeUnit.DAYS.toSeconds(1));
+        rollupService.cleanup();
+        assertThat(countRollups(TsKvRollupResolution.MINUTE)).isZero();
+
+        save(new BasicTsKvEntry(hourTs + 2 * MINUTE + SECOND, new LongDataEntry(KEY, 7L)));
+
+        Map<String, Object> hour = findRollup(TsKvRollupResolution.HOUR, hourTs);
+        assertThat(((Number) hour.get("long_count")).longValue()).isEqualTo(2);
+        assertThat(((Number) hour.get("long_sum")).longValue()).isEqualTo(6);
+        assertThat(((Number) findRollup(TsKvRollupResolution.MINUTE, hourTs + 2 * MINUTE).get("long_sum")).longValue()).isEqualTo(7);
+    }
+
+    @Test
+    public void givenUnalignedRead_whenFindAggregated_thenRollupsAreCombinedWithRawEdges() throws Exception {
+        long hourTs = TsKvRollupResolution.HOUR.alignDown(System.currentTimeMillis()) - DAY;
+        List<TsKvEntry> entries = new ArrayList<>();
+        for (int i = 0; i < 120; i++) {
+            entries.add(new BasicTsKvEntry(hourTs + i * MINUTE + 10 * SECOND, new LongDataEntry(KEY, 1L)));
+        }
+        save(entries.toArray(new TsKvEntry[0]));
+
+        // starts in the middle of the first minute, so the first and the boundary minutes are read from ts_kv
+        long startTs = hourTs + 30 * SECOND;
+        List<TsKvEntity> result = rollupService.findAggregated(deviceId.getId(), getKeyId(), startTs, startTs + 2 * HOUR, HOUR, Aggregation.COUNT)
+                .orElseThrow();
+
+        assertThat(result).hasSize(2);
+        assertThat(result.get(0).getTs()).isEqualTo(startTs);
+        assertThat(result.get(0).getLongValue()).isEqualTo(60L);
+        assertThat(result.get(1).getTs()).isEqualTo(startTs + HOUR);
+        assertThat(result.get(1).getLongValue()).isEqualTo(59L);
+    }
+
+    private void save(TsKvEntry... entries) throws Exception {
+        List<TsKvEntry> tsKvEntries = List.of(entries);
+        tsService.save(tenantId, deviceId, tsKvEntries, 0).get(30, TimeUnit.SECONDS);
+        int keyId = getKeyId();
+        List<TsKvEntity> entities = new ArrayList<>();
+        for (TsKvEntry entry : tsKvEntries) {
+            TsKvEntity entity = new TsKvEntity();
+            entity.setEntityId(deviceId.getId());
+            entity.setKey(keyId);
+            entity.setTs(entry.getTs());
+            entities.add(entity);
+        }
+        rollupService.onSaved(entities);
+    }
+
+    private int getKeyId() {
+        return jdbcTemplate.queryForObject("SELECT key_id FROM ts_kv_dictionary WHERE key = ?", Integer.class, KEY);
+    }
+
+    private Map<String, Object> findRollup(TsKvRollupResolution resolution, long ts) {
+        return jdbcTemplate.queryForMap("SELECT * FROM ts_kv_rollup WHERE entity_id = ? AND key = ? AND resolution = ? AND ts = ?",
+                deviceId.getId(), getKeyId(), resolution.getIntervalMs(), ts);
+    }
+
+    private int countRollups(TsKvRollupResolution resolution) {
+        return jdbcTemplate.queryForObject("SELECT COUNT(*) FROM ts_kv_rollup WHERE entity_id = ? AND resolution = ?",
+                Integer.class, deviceId.getId(), resolution.getIntervalMs());
+    }
+}
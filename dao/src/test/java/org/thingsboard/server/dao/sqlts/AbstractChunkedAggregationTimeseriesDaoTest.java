@@ -15,23 +15,29 @@
  */
 package org.thingsboard.server.dao.sqlts;
 
-import com.google.common.util.concurrent.Futures;
-import com.google.common.util.concurrent.ListenableFuture;
 import org.junit.Before;
 import org.junit.Test;
+import org.springframework.test.util.ReflectionTestUtils;
 import org.thingsboard.server.common.data.kv.BaseReadTsKvQuery;
 import org.thingsboard.server.common.data.kv.ReadTsKvQuery;
 import org.thingsboard.server.common.data.kv.TsKvEntry;
+import org.thingsboard.server.dao.model.sqlts.ts.TsKvEntity;
+import org.thingsboard.server.dao.sqlts.ts.TsKvAggregationRepository;
+import org.thingsboard.server.dao.sqlts.ts.TsKvRollupService;
 
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Optional;
+import java.util.stream.Collectors;
 
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
 import static org.mockito.ArgumentMatchers.anyLong;
-import static org.mockito.ArgumentMatchers.anyString;
-import static org.mockito.BDDMockito.willCallRealMethod;
+import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.BDDMockito.willReturn;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.spy;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
@@ -41,112 +47,149 @@ import static org.thingsboard.server.common.data.kv.Aggregation.COUNT;
 public class AbstractChunkedAggregationTimeseriesDaoTest {
 
     final int LIMIT = 1;
+    final int KEY_ID = 1;
     final String TEMP = "temp";
     final String DESC = "DESC";
     AbstractChunkedAggregationTimeseriesDao tsDao;
+    TsKvAggregationRepository aggregationRepository;
+    TsKvRollupService rollupService;
 
     @Before
     public void setUp() throws Exception {
         tsDao = spy(AbstractChunkedAggregationTimeseriesDao.class);
-        ListenableFuture<Optional<TsKvEntry>> optionalListenableFuture = Futures.immediateFuture(Optional.of(mock(TsKvEntry.class)));
-        willReturn(optionalListenableFuture).given(tsDao).findAndAggregateAsync(any(), anyString(), anyLong(), anyLong(), anyLong(), any());
-        willReturn(Futures.immediateFuture(mock(TsKvEntry.class))).given(tsDao).getTskvEntriesFuture(any());
+        aggregationRepository = mock(TsKvAggregationRepository.class);
+        rollupService = mock(TsKvRollupService.class);
+        ReflectionTestUtils.setField(tsDao, "aggregationRepository", aggregationRepository);
+        ReflectionTestUtils.setField(tsDao, "rollupService", rollupService);
+        willReturn(KEY_ID).given(tsDao).getOrSaveKeyId(TEMP);
     }
 
     @Test
     public void givenIntervalNotMultiplePeriod_whenAggregateCount_thenLastIntervalShorterThanOthersAndEqualsEndTs() {
         ReadTsKvQuery query = new BaseReadTsKvQuery(TEMP, 1, 3000, 2000, LIMIT, COUNT, DESC);
-        ReadTsKvQuery subQueryFirst = new BaseReadTsKvQuery(TEMP, 1, 2001, 1001, LIMIT, COUNT, DESC);
-        ReadTsKvQuery subQuerySecond = new BaseReadTsKvQuery(TEMP, 2001, 3001, 2501, LIMIT, COUNT, DESC);
-        tsDao.findAllAsync(SYS_TENANT_ID, SYS_TENANT_ID, query);
-        verify(tsDao, times(2)).findAndAggregateAsync(any(), any(), anyLong(), anyLong(), anyLong(), any());
-        verify(tsDao, times(1)).findAndAggregateAsync(SYS_TENANT_ID, subQueryFirst.getKey(), 1, 2001, getTsForReadTsKvQuery(1, 2001), COUNT);
-        verify(tsDao, times(1)).findAndAggregateAsync(SYS_TENANT_ID, subQuerySecond.getKey(), 2001, 3000 + 1, getTsForReadTsKvQuery(2001, 3001), COUNT);
+        givenIntervals(query, 1, 2001);
+        assertThat(findTs(query)).containsExactly(getTsForReadTsKvQuery(1, 2001), getTsForReadTsKvQuery(2001, 3001));
+        verifySingleQuery(1, 3001, 2000);
     }
 
     @Test
     public void givenIntervalNotMultiplePeriod_whenAggregateCount_thenIntervalEqualsPeriod() {
         ReadTsKvQuery query = new BaseReadTsKvQuery(TEMP, 1, 3000, 3000, LIMIT, COUNT, DESC);
-        ReadTsKvQuery subQueryFirst = new BaseReadTsKvQuery(TEMP, 1, 3001, 1501, LIMIT, COUNT, DESC);
-        willCallRealMethod().given(tsDao).findAllAsync(SYS_TENANT_ID, SYS_TENANT_ID, query);
-        assertThat(tsDao.findAllAsync(SYS_TENANT_ID, SYS_TENANT_ID, query)).isNotNull();
-        verify(tsDao, times(1)).findAndAggregateAsync(any(), any(), anyLong(), anyLong(), anyLong(), any());
-        verify(tsDao, times(1)).findAndAggregateAsync(SYS_TENANT_ID, subQueryFirst.getKey(), 1, 3000 + 1, getTsForReadTsKvQuery(1, 3001), COUNT);
+        givenIntervals(query, 1);
+        assertThat(findTs(query)).containsExactly(getTsForReadTsKvQuery(1, 3001));
+        verifySingleQuery(1, 3001, 3000);
     }
 
     @Test
     public void givenIntervalNotMultiplePeriod_whenAggregateCount_thenIntervalEqualsPeriodMinusOne() {
         ReadTsKvQuery query = new BaseReadTsKvQuery(TEMP, 1, 3000, 2999, LIMIT, COUNT, DESC);
-        ReadTsKvQuery subQueryFirst = new BaseReadTsKvQuery(TEMP, 1, 3000, 1500, LIMIT, COUNT, DESC);
-        ReadTsKvQuery subQuerySecond = new BaseReadTsKvQuery(TEMP, 3000, 3001, 3000, LIMIT, COUNT, DESC);
-        willCallRealMethod().given(tsDao).findAllAsync(SYS_TENANT_ID, SYS_TENANT_ID, query);
-        tsDao.findAllAsync(SYS_TENANT_ID, SYS_TENANT_ID, query);
-        verify(tsDao, times(2)).findAndAggregateAsync(any(), any(), anyLong(), anyLong(), anyLong(), any());
-        verify(tsDao, times(1)).findAndAggregateAsync(SYS_TENANT_ID, subQueryFirst.getKey(), 1, 3000, getTsForReadTsKvQuery(1, 3000), COUNT);
-        verify(tsDao, times(1)).findAndAggregateAsync(SYS_TENANT_ID, subQuerySecond.getKey(), 3000, 3001, getTsForReadTsKvQuery(3000, 3001), COUNT);
-
+        givenIntervals(query, 1, 3000);
+        assertThat(findTs(query)).containsExactly(getTsForReadTsKvQuery(1, 3000), getTsForReadTsKvQuery(3000, 3001));
+        verifySingleQuery(1, 3001, 2999);
     }
 
     @Test
     public void givenIntervalNotMultiplePeriod_whenAggregateCount_thenIntervalEqualsPeriodPlusOne() {
         ReadTsKvQuery query = new BaseReadTsKvQuery(TEMP, 1, 3000, 3001, LIMIT, COUNT, DESC);
-        ReadTsKvQuery subQueryFirst = new BaseReadTsKvQuery(TEMP, 1, 3001, 1501, LIMIT, COUNT, DESC);
-        willCallRealMethod().given(tsDao).findAllAsync(SYS_TENANT_ID, SYS_TENANT_ID, query);
-        tsDao.findAllAsync(SYS_TENANT_ID, SYS_TENANT_ID, query);
-        verify(tsDao, times(1)).findAndAggregateAsync(any(), any(), anyLong(), anyLong(), anyLong(), any());
-        verify(tsDao, times(1)).findAndAggregateAsync(SYS_TENANT_ID, subQueryFirst.getKey(), 1, 3001, getTsForReadTsKvQuery(1, 3001), COUNT);
+        givenIntervals(query, 1);
+        assertThat(findTs(query)).containsExactly(getTsForReadTsKvQuery(1, 3001));
+        verifySingleQuery(1, 3001, 3001);
     }
 
     @Test
     public void givenIntervalNotMultiplePeriod_whenAggregateCount_thenIntervalEqualsOneMillisecondAndStartTsIsZero() {
         ReadTsKvQuery query = new BaseReadTsKvQuery(TEMP, 0, 0, 1, LIMIT, COUNT, DESC);
-        ReadTsKvQuery subQueryFirst = new BaseReadTsKvQuery(TEMP, 0, 1, 0, LIMIT, COUNT, DESC);
-        willCallRealMethod().given(tsDao).findAllAsync(SYS_TENANT_ID, SYS_TENANT_ID, query);
-        tsDao.findAllAsync(SYS_TENANT_ID, SYS_TENANT_ID, query);
-        verify(tsDao, times(1)).findAndAggregateAsync(any(), any(), anyLong(), anyLong(), anyLong(), any());
-        verify(tsDao, times(1)).findAndAggregateAsync(SYS_TENANT_ID, subQueryFirst.getKey(), 0, 1, getTsForReadTsKvQuery(0, 1), COUNT);
+        givenIntervals(query, 0);
+        assertThat(findTs(query)).containsExactly(getTsForReadTsKvQuery(0, 1));
+        verifySingleQuery(0, 1, 1);
     }
 
     @Test
     public void givenIntervalNotMultiplePeriod_whenAggregateCount_thenIntervalEqualsOneMillisecondAndStartTsIsOne() {
         ReadTsKvQuery query = new BaseReadTsKvQuery(TEMP, 1, 1, 1, LIMIT, COUNT, DESC);
-        ReadTsKvQuery subQuery = new BaseReadTsKvQuery(TEMP, 1, 2, 1, LIMIT, COUNT, DESC);
-        willCallRealMethod().given(tsDao).findAllAsync(SYS_TENANT_ID, SYS_TENANT_ID, query);
-        tsDao.findAllAsync(SYS_TENANT_ID, SYS_TENANT_ID, query);
-        verify(tsDao, times(1)).findAndAggregateAsync(any(), any(), anyLong(), anyLong(), anyLong(), any());
-        verify(tsDao, times(1)).findAndAggregateAsync(SYS_TENANT_ID, subQuery.getKey(), 1, 2, getTsForReadTsKvQuery(1, 2), COUNT);
+        givenIntervals(query, 1);
+        assertThat(findTs(query)).containsExactly(getTsForReadTsKvQuery(1, 2));
+        verifySingleQuery(1, 2, 1);
     }
 
     @Test
     public void givenIntervalNotMultiplePeriod_whenAggregateCount_thenIntervalEqualsOneMillisecondAndStartTsIsIntegerMax() {
         ReadTsKvQuery query = new BaseReadTsKvQuery(TEMP, Integer.MAX_VALUE, Integer.MAX_VALUE, 1, LIMIT, COUNT, DESC);
-        ReadTsKvQuery subQueryFirst = new BaseReadTsKvQuery(TEMP, Integer.MAX_VALUE, Integer.MAX_VALUE + 1L, Integer.MAX_VALUE, LIMIT, COUNT, DESC);
-        willCallRealMethod().given(tsDao).findAllAsync(SYS_TENANT_ID, SYS_TENANT_ID, query);
-        tsDao.findAllAsync(SYS_TENANT_ID, SYS_TENANT_ID, query);
-        verify(tsDao, times(1)).findAndAggregateAsync(any(), any(), anyLong(), anyLong(), anyLong(), any());
-        verify(tsDao, times(1)).findAndAggregateAsync(SYS_TENANT_ID, subQueryFirst.getKey(), Integer.MAX_VALUE, 1L + Integer.MAX_VALUE, getTsForReadTsKvQuery(Integer.MAX_VALUE, 1L + Integer.MAX_VALUE), COUNT);
+        givenIntervals(query, Integer.MAX_VALUE);
+        assertThat(findTs(query)).containsExactly(getTsForReadTsKvQuery(Integer.MAX_VALUE, 1L + Integer.MAX_VALUE));
+        verifySingleQuery(Integer.MAX_VALUE, 1L + Integer.MAX_VALUE, 1);
     }
 
     @Test
     public void givenIntervalNotMultiplePeriod_whenAggregateCount_thenIntervalEqualsBigNumber() {
         ReadTsKvQuery query = new BaseReadTsKvQuery(TEMP, 1, 3000, Integer.MAX_VALUE, LIMIT, COUNT, DESC);
-        ReadTsKvQuery subQueryFirst = new BaseReadTsKvQuery(TEMP, 1, 3001, 1501, LIMIT, COUNT, DESC);
-        willCallRealMethod().given(tsDao).findAllAsync(SYS_TENANT_ID, SYS_TENANT_ID, query);
-        tsDao.findAllAsync(SYS_TENANT_ID, SYS_TENANT_ID, query);
-        verify(tsDao, times(1)).findAndAggregateAsync(any(), any(), anyLong(), anyLong(), anyLong(), any());
-        verify(tsDao, times(1)).findAndAggregateAsync(SYS_TENANT_ID, subQueryFirst.getKey(), 1, 3001, getTsForReadTsKvQuery(1, 3001), COUNT);
+        givenIntervals(query, 1);
+        assertThat(findTs(query)).containsExactly(getTsForReadTsKvQuery(1, 3001));
+        verifySingleQuery(1, 3001, Integer.MAX_VALUE);
     }
 
     @Test
     public void givenIntervalNotMultiplePeriod_whenAggregateCount_thenCountIntervalEqualsPeriodSize() {
         ReadTsKvQuery query = new BaseReadTsKvQuery(TEMP, 1, 3000, 3, LIMIT, COUNT, DESC);
-        willCallRealMethod().given(tsDao).findAllAsync(SYS_TENANT_ID, SYS_TENANT_ID, query);
-        tsDao.findAllAsync(SYS_TENANT_ID, SYS_TENANT_ID, query);
-        verify(tsDao, times(1000)).findAndAggregateAsync(any(), any(), anyLong(), anyLong(), anyLong(), any());
+        List<Long> intervalStarts = new ArrayList<>();
+        List<Long> expectedTs = new ArrayList<>();
         for (long i = 1; i <= 3000; i += 3) {
-            ReadTsKvQuery querySub = new BaseReadTsKvQuery(TEMP, i, i + 3, i + (i + 3 - i) / 2, LIMIT, COUNT, DESC);
-            verify(tsDao, times(1)).findAndAggregateAsync(SYS_TENANT_ID, querySub.getKey(), i, i + 3, getTsForReadTsKvQuery(i, i + 3), COUNT);
+            intervalStarts.add(i);
+            expectedTs.add(getTsForReadTsKvQuery(i, i + 3));
+        }
+        givenIntervals(query, intervalStarts.stream().mapToLong(Long::longValue).toArray());
+        assertThat(findTs(query)).hasSize(1000).containsExactlyElementsOf(expectedTs);
+        verifySingleQuery(1, 3001, 3);
+    }
+
+    @Test
+    public void givenEmptyIntervals_whenAggregateCount_thenOnlyIntervalsWithValuesReturned() {
+        ReadTsKvQuery query = new BaseReadTsKvQuery(TEMP, 1, 3000, 1000, LIMIT, COUNT, DESC);
+        List<TsKvEntity> entities = new ArrayList<>();
+        entities.add(createCountEntity(1001));
+        entities.add(createEmptyEntity(2001));
+        willReturn(entities).given(aggregationRepository).findAggregated(any(), anyInt(), anyLong(), anyLong(), anyLong(), any());
+        assertThat(findTs(query)).containsExactly(getTsForReadTsKvQuery(1001, 2001));
+    }
+
+    @Test
+    public void givenRollupFitsInterval_whenAggregateCount_thenRawValuesAreNotAggregated() {
+        ReadTsKvQuery query = new BaseReadTsKvQuery(TEMP, 0, 7199999, 3600000, LIMIT, COUNT, DESC);
+        List<TsKvEntity> entities = new ArrayList<>();
+        entities.add(createCountEntity(0));
+        entities.add(createCountEntity(3600000));
+        willReturn(Optional.of(entities)).given(rollupService).findAggregated(SYS_TENANT_ID.getId(), KEY_ID, 0, 7200000, 3600000, COUNT);
+        assertThat(findTs(query)).containsExactly(getTsForReadTsKvQuery(0, 3600000), getTsForReadTsKvQuery(3600000, 7200000));
+        verify(aggregationRepository, never()).findAggregated(any(), anyInt(), anyLong(), anyLong(), anyLong(), any());
+    }
+
+    private void givenIntervals(ReadTsKvQuery query, long... intervalStarts) {
+        List<TsKvEntity> entities = new ArrayList<>();
+        for (long intervalStart : intervalStarts) {
+            entities.add(createCountEntity(intervalStart));
         }
+        willReturn(entities).given(aggregationRepository).findAggregated(any(), anyInt(), anyLong(), anyLong(), anyLong(), eq(query.getAggregation()));
+    }
+
+    private List<Long> findTs(ReadTsKvQuery query) {
+        return tsDao.findAllAndAggregate(SYS_TENANT_ID, query).stream().map(TsKvEntry::getTs).collect(Collectors.toList());
+    }
+
+    private void verifySingleQuery(long startTs, long endTs, long interval) {
+        verify(aggregationRepository, times(1)).findAggregated(any(), anyInt(), anyLong(), anyLong(), anyLong(), any());
+        verify(aggregationRepository, times(1)).findAggregated(SYS_TENANT_ID.getId(), KEY_ID, startTs, endTs, interval, COUNT);
+    }
+
+    private TsKvEntity createCountEntity(long intervalStart) {
+        TsKvEntity entity = new TsKvEntity(0L, 0L, 1L, 0L, 0L);
+        entity.setTs(intervalStart);
+        return entity;
+    }
+
+    private TsKvEntity createEmptyEntity(long intervalStart) {
+        TsKvEntity entity = new TsKvEntity();
+        entity.setTs(intervalStart);
+        return entity;
     }
 
     long getTsForReadTsKvQuery(long startTs, long endTs) {
@@ -0,0 +1,98 @@
+/**
+ * Copyright © 2016-2022 The Thingsboard Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.thingsboard.server.dao.sqlts.ts;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class TsKvRollupServiceTest {
+
+    private static final long MINUTE = TimeUnit.MINUTES.toMillis(1);
+    private static final long HOUR = TimeUnit.HOURS.toMillis(1);
+    private static final long DAY = TimeUnit.DAYS.toMillis(1);
+
+    TsKvRollupService rollupService;
+
+    @Before
+    public void setUp() {
+        rollupService = new TsKvRollupService();
+        ReflectionTestUtils.setField(rollupService, "enabled", true);
+    }
+
+    @Test
+    public void givenAlignedRead_whenGetPlan_thenCoarsestResolutionWithoutRawRanges() {
+        TsKvRollupPlan plan = rollupService.getPlan(0, 2 * DAY, DAY, 3 * DAY).orElseThrow();
+
+        assertThat(plan.getResolution()).isEqualTo(TsKvRollupResolution.DAY);
+        assertThat(plan.getRollupStartTs()).isEqualTo(0);
+        assertThat(plan.getRollupEndTs()).isEqualTo(2 * DAY);
+        assertThat(plan.getRawStartTs()).isEmpty();
+    }
+
+    @Test
+    public void givenUnalignedRead_whenGetPlan_thenEdgesAndBoundaryBucketsAreRaw() {
+        long startTs = 30000;
+        TsKvRollupPlan plan = rollupService.getPlan(startTs, startTs + 3 * HOUR, HOUR, DAY).orElseThrow();
+
+        assertThat(plan.getResolution()).isEqualTo(TsKvRollupResolution.MINUTE);
+        assertThat(plan.getRollupStartTs()).isEqualTo(MINUTE);
+        assertThat(plan.getRollupEndTs()).isEqualTo(3 * HOUR);
+        assertThat(plan.getRawStartTs()).containsExactly(startTs, HOUR, 2 * HOUR, 3 * HOUR);
+        assertThat(plan.getRawEndTs()).containsExactly(MINUTE, HOUR + MINUTE, 2 * HOUR + MINUTE, 3 * HOUR + startTs);
+    }
+
+    @Test
+    public void givenExpiredRollups_whenGetPlan_thenExpiredRangeIsRaw() {
+        ReflectionTestUtils.setField(rollupService, "hourTtl", TimeUnit.DAYS.toSeconds(1));
+        TsKvRollupPlan plan = rollupService.getPlan(0, 3 * DAY, HOUR, 3 * DAY).orElseThrow();
+
+        assertThat(plan.getResolution()).isEqualTo(TsKvRollupResolution.HOUR);
+        assertThat(plan.getRollupStartTs()).isEqualTo(2 * DAY);
+        assertThat(plan.getRawStartTs()).containsExactly(0L);
+        assertThat(plan.getRawEndTs()).containsExactly(2 * DAY);
+    }
+
+    @Test
+    public void givenReadBeforeRollupsEnabled_whenGetPlan_thenNoPlan() {
+        ReflectionTestUtils.setField(rollupService, "maintainedSinceTs", 2 * DAY + 1);
+        assertThat(rollupService.getPlan(0, 2 * DAY, HOUR, 3 * DAY)).isEqualTo(Optional.empty());
+    }
+
+    @Test
+    public void givenIntervalNotMultipleOfMinute_whenGetPlan_thenNoPlan() {
+        assertThat(rollupService.getPlan(0, DAY, 1000, DAY)).isEqualTo(Optional.empty());
+    }
+
+    @Test
+    public void givenExpiredSource_whenGetRebuildableSinceTs_thenOnlyBucketsWithCompleteSourceAreRebuilt() {
+        ReflectionTestUtils.setField(rollupService, "minuteTtl", TimeUnit.DAYS.toSeconds(1));
+        assertThat(rollupService.getRebuildableSinceTs(TsKvRollupResolution.MINUTE, 3 * DAY)).isEqualTo(Long.MIN_VALUE);
+        assertThat(rollupService.getRebuildableSinceTs(TsKvRollupResolution.HOUR, 3 * DAY)).isEqualTo(2 * DAY);
+        assertThat(rollupService.getRebuildableSinceTs(TsKvRollupResolution.DAY, 3 * DAY)).isEqualTo(Long.MIN_VALUE);
+    }
+
+    @Test
+    public void givenRollupsDisabled_whenGetPlan_thenNoPlan() {
+        ReflectionTestUtils.setField(rollupService, "enabled", false);
+        assertThat(rollupService.getPlan(0, 2 * DAY, DAY, 3 * DAY)).isEqualTo(Optional.empty());
+    }
+}
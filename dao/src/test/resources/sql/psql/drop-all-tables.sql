@@ -15,6 +15,8 @@ DROP TABLE IF EXISTS tenant;
 DROP TABLE IF EXISTS ts_kv;
 DROP TABLE IF EXISTS ts_kv_latest;
 DROP TABLE IF EXISTS ts_kv_dictionary;
+DROP TABLE IF EXISTS ts_kv_rollup;
+DROP TABLE IF EXISTS ts_kv_rollup_state;
 DROP TABLE IF EXISTS user_credentials;
 DROP TABLE IF EXISTS widget_type;
 DROP TABLE IF EXISTS widgets_bundle;
@@ -130,13 +130,13 @@ final class MqttChannelHandler extends SimpleChannelInboundHandler<MqttMessage>
                     e.getValue().setSent(true);
                 });
 
-                this.client.getPendingPublishes().forEach((id, publish) -> {
+                this.client.getPendingPublishes().values().forEach(publish -> {
                     if (publish.isSent()) return;
                     channel.write(publish.getMessage());
                     publish.setSent(true);
                     if (publish.getQos() == MqttQoS.AT_MOST_ONCE) {
                         publish.getFuture().setSuccess(null); //We don't get an ACK for QOS 0
-                        this.client.getPendingPublishes().remove(publish.getMessageId());
+                        this.client.removePendingPublish(publish.getMessageId());
                     }
                 });
                 channel.flush();
@@ -225,7 +225,7 @@ final class MqttChannelHandler extends SimpleChannelInboundHandler<MqttMessage>
         }
         pendingPublish.getFuture().setSuccess(null);
         pendingPublish.onPubackReceived();
-        this.client.getPendingPublishes().remove(message.variableHeader().messageId());
+        this.client.removePendingPublish(message.variableHeader().messageId());
         pendingPublish.getPayload().release();
     }
 
@@ -257,7 +257,7 @@ final class MqttChannelHandler extends SimpleChannelInboundHandler<MqttMessage>
         MqttMessageIdVariableHeader variableHeader = (MqttMessageIdVariableHeader) message.variableHeader();
         MqttPendingPublish pendingPublish = this.client.getPendingPublishes().get(variableHeader.messageId());
         pendingPublish.getFuture().setSuccess(null);
-        this.client.getPendingPublishes().remove(variableHeader.messageId());
+        this.client.removePendingPublish(variableHeader.messageId());
         pendingPublish.getPayload().release();
         pendingPublish.onPubcompReceived();
     }
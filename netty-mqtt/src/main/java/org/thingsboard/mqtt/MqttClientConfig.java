@@ -42,6 +42,8 @@ public final class MqttClientConfig {
     private boolean reconnect = true;
     private long reconnectDelay = 1L;
     private int maxBytesInMessage = 8092;
+    private int maxInFlightPublishes = 0;
+    private int maxWaitingPublishes = 1000;
 
     public MqttClientConfig() {
         this(null);
@@ -182,4 +184,44 @@ public final class MqttClientConfig {
         }
         this.maxBytesInMessage = maxBytesInMessage;
     }
+
+    public int getMaxInFlightPublishes() {
+        return maxInFlightPublishes;
+    }
+
+    /**
+     * Sets the maximum number of publishes that are sent but not yet acknowledged by the server.
+     * Publishes over the limit wait in the client until an ack frees a slot, so their futures complete later.
+     * Default value is 0, which means the number of publishes in flight is not limited.
+     *
+     * @see #setMaxWaitingPublishes(int)
+     *
+     * @param maxInFlightPublishes
+     * @throws IllegalArgumentException if maxInFlightPublishes is negative or greater than 65535.
+     */
+    public void setMaxInFlightPublishes(int maxInFlightPublishes) {
+        if (maxInFlightPublishes < 0 || maxInFlightPublishes > 0xffff) {
+            throw new IllegalArgumentException("maxInFlightPublishes must be >= 0 and <= 65535");
+        }
+        this.maxInFlightPublishes = maxInFlightPublishes;
+    }
+
+    public int getMaxWaitingPublishes() {
+        return maxWaitingPublishes;
+    }
+
+    /**
+     * Sets the maximum number of publishes that wait for a free in-flight slot.
+     * When the limit is reached, the future of a new publish fails right away.
+     * Only used when maxInFlightPublishes is set. Default value is 1000.
+     *
+     * @param maxWaitingPublishes
+     * @throws IllegalArgumentException if maxWaitingPublishes is not positive.
+     */
+    public void setMaxWaitingPublishes(int maxWaitingPublishes) {
+        if (maxWaitingPublishes <= 0) {
+            throw new IllegalArgumentException("maxWaitingPublishes must be > 0");
+        }
+        this.maxWaitingPublishes = maxWaitingPublishes;
+    }
 }
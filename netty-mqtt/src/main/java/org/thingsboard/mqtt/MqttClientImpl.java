@@ -47,14 +47,17 @@ import io.netty.util.concurrent.Future;
 import io.netty.util.concurrent.Promise;
 import lombok.extern.slf4j.Slf4j;
 
+import java.util.ArrayDeque;
 import java.util.Collections;
 import java.util.HashSet;
 import java.util.Map;
 import java.util.Optional;
+import java.util.Queue;
 import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentMap;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicInteger;
 
 /**
@@ -67,12 +70,15 @@ final class MqttClientImpl implements MqttClient {
     private final Set<String> serverSubscriptions = new HashSet<>();
     private final ConcurrentMap<Integer, MqttPendingUnsubscription> pendingServerUnsubscribes = new ConcurrentHashMap<>();
     private final ConcurrentMap<Integer, MqttIncomingQos2Publish> qos2PendingIncomingPublishes = new ConcurrentHashMap<>();
-    private final ConcurrentMap<Integer, MqttPendingPublish> pendingPublishes = new ConcurrentHashMap<>();
+    private final MqttPendingPublishes pendingPublishes = new MqttPendingPublishes();
     private final HashMultimap<String, MqttSubscription> subscriptions = HashMultimap.create();
     private final ConcurrentMap<Integer, MqttPendingSubscription> pendingSubscriptions = new ConcurrentHashMap<>();
     private final Set<String> pendingSubscribeTopics = new HashSet<>();
     private final HashMultimap<MqttHandler, MqttSubscription> handlerToSubscription = HashMultimap.create();
     private final AtomicInteger nextMessageId = new AtomicInteger(1);
+    private final AtomicBoolean flushScheduled = new AtomicBoolean();
+    private final Queue<Runnable> waitingPublishes = new ArrayDeque<>();
+    private int inFlightPublishes;
 
     private final MqttClientConfig clientConfig;
 
@@ -149,6 +155,7 @@ final class MqttClientImpl implements MqttClient {
 
         future.addListener((ChannelFutureListener) f -> {
             if (f.isSuccess()) {
+                flushScheduled.set(false);
                 MqttClientImpl.this.channel = f.channel();
                 log.debug("[{}][{}] Connected successfully {}!", host, port, this.channel.id());
                 MqttClientImpl.this.channel.closeFuture().addListener((ChannelFutureListener) channelFuture -> {
@@ -167,8 +174,10 @@ final class MqttClientImpl implements MqttClient {
                     pendingServerUnsubscribes.forEach((id, mqttPendingServerUnsubscribes) -> mqttPendingServerUnsubscribes.onChannelClosed());
                     pendingServerUnsubscribes.clear();
                     qos2PendingIncomingPublishes.clear();
-                    pendingPublishes.forEach((id, mqttPendingPublish) -> mqttPendingPublish.onChannelClosed());
-                    pendingPublishes.clear();
+                    pendingPublishes.values().forEach(mqttPendingPublish -> {
+                        mqttPendingPublish.onChannelClosed();
+                        removePendingPublish(mqttPendingPublish.getMessageId());
+                    });
                     pendingSubscribeTopics.clear();
                     handlerToSubscription.clear();
                     scheduleConnectIfRequired(host, port, true);
@@ -372,35 +381,45 @@ final class MqttClientImpl implements MqttClient {
     public Future<Void> publish(String topic, ByteBuf payload, MqttQoS qos, boolean retain) {
         log.trace("[{}] Publishing message to {}", channel != null ? channel.id() : "UNKNOWN", topic);
         Promise<Void> future = new DefaultPromise<>(this.eventLoop.next());
+        if (acquirePublishSlot(() -> sendPublish(topic, payload, qos, retain, future), payload, future)) {
+            sendPublish(topic, payload, qos, retain, future);
+        }
+        return future;
+    }
+
+    private void sendPublish(String topic, ByteBuf payload, MqttQoS qos, boolean retain, Promise<Void> future) {
         MqttFixedHeader fixedHeader = new MqttFixedHeader(MqttMessageType.PUBLISH, false, qos, retain, 0);
         MqttPublishVariableHeader variableHeader = new MqttPublishVariableHeader(topic, getNewMessageId().messageId());
         MqttPublishMessage message = new MqttPublishMessage(fixedHeader, variableHeader, payload);
         MqttPendingPublish pendingPublish = new MqttPendingPublish(variableHeader.packetId(), future,
-                payload.retain(), message, qos, () -> !pendingPublishes.containsKey(variableHeader.packetId()));
-        this.pendingPublishes.put(pendingPublish.getMessageId(), pendingPublish);
-        ChannelFuture channelFuture = this.sendAndFlushPacket(message);
+                payload.retain(), message, qos, () -> !pendingPublishes.contains(variableHeader.packetId()));
+        this.pendingPublishes.put(pendingPublish);
+        ChannelFuture channelFuture = this.sendPacket(message);
 
         if (channelFuture != null) {
             channelFuture.addListener(result -> {
                 pendingPublish.setSent(true);
                 if (result.cause() != null) {
-                    pendingPublishes.remove(pendingPublish.getMessageId());
+                    removePendingPublish(pendingPublish.getMessageId());
                     future.setFailure(result.cause());
                 } else {
                     if (pendingPublish.isSent() && pendingPublish.getQos() == MqttQoS.AT_MOST_ONCE) {
-                        pendingPublishes.remove(pendingPublish.getMessageId());
+                        removePendingPublish(pendingPublish.getMessageId());
                         pendingPublish.getFuture().setSuccess(null); //We don't get an ACK for QOS 0
                     } else if (pendingPublish.isSent()) {
                         pendingPublish.startPublishRetransmissionTimer(eventLoop.next(), MqttClientImpl.this::sendAndFlushPacket);
                     } else {
-                        pendingPublishes.remove(pendingPublish.getMessageId());
+                        removePendingPublish(pendingPublish.getMessageId());
                     }
                 }
             });
         } else {
-            pendingPublishes.remove(pendingPublish.getMessageId());
+            // no channel to write to: the publish is failed, otherwise a publish that waited for a slot is never completed
+            removePendingPublish(pendingPublish.getMessageId());
+            pendingPublish.onChannelClosed();
+            payload.release();
+            future.setFailure(new ChannelClosedException("Channel is closed!"));
         }
-        return future;
     }
 
     /**
@@ -453,6 +472,72 @@ final class MqttClientImpl implements MqttClient {
         return this.channel.newFailedFuture(new ChannelClosedException("Channel is closed!"));
     }
 
+    /**
+     * Writes the packet without flushing it. The flush is scheduled on the channel event loop after the write,
+     * so the packets written in the meantime go out in a single flush.
+     */
+    private ChannelFuture sendPacket(Object message) {
+        Channel channel = this.channel;
+        if (channel == null) {
+            return null;
+        }
+        if (channel.isActive()) {
+            log.trace("[{}] Sending message {}", channel.id(), message);
+            ChannelFuture future = channel.write(message);
+            if (flushScheduled.compareAndSet(false, true)) {
+                channel.eventLoop().execute(() -> {
+                    flushScheduled.set(false);
+                    channel.flush();
+                });
+            }
+            return future;
+        }
+        return channel.newFailedFuture(new ChannelClosedException("Channel is closed!"));
+    }
+
+    private boolean acquirePublishSlot(Runnable publish, ByteBuf payload, Promise<Void> future) {
+        int maxInFlightPublishes = clientConfig.getMaxInFlightPublishes();
+        if (maxInFlightPublishes <= 0) {
+            return true;
+        }
+        synchronized (waitingPublishes) {
+            if (inFlightPublishes < maxInFlightPublishes) {
+                inFlightPublishes++;
+                return true;
+            }
+            if (waitingPublishes.size() < clientConfig.getMaxWaitingPublishes()) {
+                waitingPublishes.add(publish);
+                return false;
+            }
+        }
+        payload.release();
+        future.setFailure(new IllegalStateException("Too many publishes are waiting for an ack: " + clientConfig.getMaxWaitingPublishes()));
+        return false;
+    }
+
+    private void releasePublishSlot() {
+        Runnable next;
+        synchronized (waitingPublishes) {
+            next = waitingPublishes.poll();
+            if (next == null && inFlightPublishes > 0) {
+                inFlightPublishes--;
+            }
+        }
+        if (next != null) {
+            // The slot is handed over to the next publish; it is sent from the event loop to avoid deep recursion
+            // when the channel is closed and every waiting publish fails right away.
+            eventLoop.execute(next);
+        }
+    }
+
+    MqttPendingPublish removePendingPublish(int messageId) {
+        MqttPendingPublish pendingPublish = pendingPublishes.remove(messageId);
+        if (pendingPublish != null) {
+            releasePublishSlot();
+        }
+        return pendingPublish;
+    }
+
     private MqttMessageIdVariableHeader getNewMessageId() {
         int messageId;
         synchronized (this.nextMessageId) {
@@ -539,7 +624,7 @@ final class MqttClientImpl implements MqttClient {
         return pendingServerUnsubscribes;
     }
 
-    ConcurrentMap<Integer, MqttPendingPublish> getPendingPublishes() {
+    MqttPendingPublishes getPendingPublishes() {
         return pendingPublishes;
     }
 
@@ -0,0 +1,55 @@
+/**
+ * Copyright © 2016-2022 The Thingsboard Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.thingsboard.mqtt;
+
+import io.netty.util.collection.IntObjectHashMap;
+import io.netty.util.collection.IntObjectMap;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Publishes waiting for delivery keyed by the primitive message id, so the lookups on every ack neither box the id
+ * nor allocate map entries.
+ */
+final class MqttPendingPublishes {
+
+    private final IntObjectMap<MqttPendingPublish> publishes = new IntObjectHashMap<>();
+
+    synchronized void put(MqttPendingPublish publish) {
+        publishes.put(publish.getMessageId(), publish);
+    }
+
+    synchronized MqttPendingPublish get(int messageId) {
+        return publishes.get(messageId);
+    }
+
+    synchronized boolean contains(int messageId) {
+        return publishes.containsKey(messageId);
+    }
+
+    synchronized MqttPendingPublish remove(int messageId) {
+        return publishes.remove(messageId);
+    }
+
+    synchronized int size() {
+        return publishes.size();
+    }
+
+    synchronized List<MqttPendingPublish> values() {
+        return new ArrayList<>(publishes.values());
+    }
+}
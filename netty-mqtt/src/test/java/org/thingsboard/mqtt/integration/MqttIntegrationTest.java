@@ -28,6 +28,7 @@ import org.junit.After;
 import org.junit.Assert;
 import org.junit.Before;
 import org.junit.Test;
+import org.thingsboard.mqtt.ChannelClosedException;
 import org.thingsboard.mqtt.MqttClient;
 import org.thingsboard.mqtt.MqttClientConfig;
 import org.thingsboard.mqtt.MqttConnectResult;
@@ -38,6 +39,7 @@ import java.util.List;
 import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
 
 @Slf4j
 public class MqttIntegrationTest {
@@ -104,6 +106,89 @@ public class MqttIntegrationTest {
         Assert.assertEquals(1, disconnectCount);
     }
 
+    @Test
+    public void givenMaxInFlightPublishes_whenPublishMoreMessages_thenAllMessagesDelivered() throws Throwable {
+        //given
+        MqttClientConfig config = new MqttClientConfig();
+        config.setMaxInFlightPublishes(5);
+        this.mqttClient = initClient(config);
+
+        //when
+        int count = 100;
+        CountDownLatch latch = new CountDownLatch(count);
+        for (int i = 0; i < count; i++) {
+            publishMsg().addListener(future -> {
+                if (future.isSuccess()) {
+                    latch.countDown();
+                }
+            });
+        }
+
+        //then
+        Assert.assertTrue(latch.await(10, TimeUnit.SECONDS));
+        long pubCount = this.mqttServer.getEventsFromClient().stream().filter(type -> type == MqttMessageType.PUBLISH).count();
+        Assert.assertEquals(count, pubCount);
+    }
+
+    @Test
+    public void givenFullWaitQueue_whenPublish_thenFutureFailed() throws Throwable {
+        //given
+        MqttClientConfig config = new MqttClientConfig();
+        config.setMaxInFlightPublishes(1);
+        config.setMaxWaitingPublishes(2);
+        this.mqttClient = initClient(config);
+
+        //when
+        int count = 20;
+        CountDownLatch latch = new CountDownLatch(count);
+        AtomicInteger delivered = new AtomicInteger();
+        AtomicInteger rejected = new AtomicInteger();
+        for (int i = 0; i < count; i++) {
+            publishMsg().addListener(future -> {
+                if (future.isSuccess()) {
+                    delivered.incrementAndGet();
+                } else if (future.cause() instanceof IllegalStateException) {
+                    rejected.incrementAndGet();
+                }
+                latch.countDown();
+            });
+        }
+
+        //then
+        Assert.assertTrue(latch.await(10, TimeUnit.SECONDS));
+        Assert.assertTrue(rejected.get() > 0);
+        Assert.assertEquals(count, delivered.get() + rejected.get());
+        long pubCount = this.mqttServer.getEventsFromClient().stream().filter(type -> type == MqttMessageType.PUBLISH).count();
+        Assert.assertEquals(delivered.get(), pubCount);
+    }
+
+    @Test
+    public void givenNoChannel_whenPublishWaitsForSlot_thenAllFuturesFailed() throws Throwable {
+        //given
+        MqttClientConfig config = new MqttClientConfig();
+        config.setMaxInFlightPublishes(1);
+        config.setMaxWaitingPublishes(5);
+        this.mqttClient = MqttClient.create(config, null);
+        this.mqttClient.setEventLoop(this.eventLoopGroup);
+
+        //when
+        int count = 3;
+        CountDownLatch latch = new CountDownLatch(count);
+        AtomicInteger closed = new AtomicInteger();
+        for (int i = 0; i < count; i++) {
+            publishMsg().addListener(future -> {
+                if (future.cause() instanceof ChannelClosedException) {
+                    closed.incrementAndGet();
+                }
+                latch.countDown();
+            });
+        }
+
+        //then
+        Assert.assertTrue(latch.await(10, TimeUnit.SECONDS));
+        Assert.assertEquals(count, closed.get());
+    }
+
     private Future<Void> publishMsg() {
         ByteBuf byteBuf = ALLOCATOR.buffer();
         byteBuf.writeBytes("payload".getBytes(StandardCharsets.UTF_8));
@@ -114,7 +199,10 @@ public class MqttIntegrationTest {
     }
 
     private MqttClient initClient() throws Exception {
-        MqttClientConfig config = new MqttClientConfig();
+        return initClient(new MqttClientConfig());
+    }
+
+    private MqttClient initClient(MqttClientConfig config) throws Exception {
         config.setTimeoutSeconds(KEEPALIVE_TIMEOUT_SECONDS);
         MqttClient client = MqttClient.create(config, null);
         client.setEventLoop(this.eventLoopGroup);
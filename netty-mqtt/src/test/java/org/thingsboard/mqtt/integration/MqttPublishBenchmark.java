@@ -0,0 +1,109 @@
+/**
+ * Copyright © 2016-2022 The Thingsboard Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.thingsboard.mqtt.integration;
+
+import io.netty.buffer.Unpooled;
+import io.netty.channel.EventLoopGroup;
+import io.netty.channel.nio.NioEventLoopGroup;
+import io.netty.handler.codec.mqtt.MqttQoS;
+import lombok.extern.slf4j.Slf4j;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.thingsboard.mqtt.MqttClient;
+import org.thingsboard.mqtt.MqttClientConfig;
+import org.thingsboard.mqtt.MqttConnectResult;
+import org.thingsboard.mqtt.integration.server.MqttServer;
+
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the QoS 1 publish throughput of the client against the local test server.
+ * Not part of the regular test run; start it manually and compare the reported rates.
+ */
+@Slf4j
+public class MqttPublishBenchmark {
+
+    static final String MQTT_HOST = "localhost";
+    static final int MESSAGES = 50000;
+    static final int PUBLISHER_THREADS = 4;
+    static final byte[] PAYLOAD = "{\"temperature\":42,\"humidity\":73}".getBytes(StandardCharsets.UTF_8);
+
+    EventLoopGroup eventLoopGroup;
+    MqttServer mqttServer;
+
+    @Before
+    public void init() throws Exception {
+        this.eventLoopGroup = new NioEventLoopGroup();
+        this.mqttServer = new MqttServer();
+        this.mqttServer.init();
+    }
+
+    @After
+    public void destroy() throws InterruptedException {
+        if (this.mqttServer != null) {
+            this.mqttServer.shutdown();
+        }
+        if (this.eventLoopGroup != null) {
+            this.eventLoopGroup.shutdownGracefully(0, 5, TimeUnit.SECONDS);
+        }
+    }
+
+    @Test
+    public void publishWithUnlimitedInFlightWindow() throws Exception {
+        benchmark(0);
+    }
+
+    @Test
+    public void publishWithInFlightWindow() throws Exception {
+        benchmark(1000);
+    }
+
+    private void benchmark(int maxInFlightPublishes) throws Exception {
+        MqttClientConfig config = new MqttClientConfig();
+        config.setMaxInFlightPublishes(maxInFlightPublishes);
+        MqttClient client = MqttClient.create(config, null);
+        client.setEventLoop(this.eventLoopGroup);
+        MqttConnectResult result = client.connect(MQTT_HOST, this.mqttServer.getMqttPort()).get(10, TimeUnit.SECONDS);
+        Assert.assertTrue(result.isSuccess());
+        try {
+            CountDownLatch latch = new CountDownLatch(MESSAGES);
+            long startTs = System.nanoTime();
+            Thread[] publishers = new Thread[PUBLISHER_THREADS];
+            for (int i = 0; i < PUBLISHER_THREADS; i++) {
+                publishers[i] = new Thread(() -> {
+                    for (int j = 0; j < MESSAGES / PUBLISHER_THREADS; j++) {
+                        client.publish("benchmark/topic", Unpooled.wrappedBuffer(PAYLOAD), MqttQoS.AT_LEAST_ONCE)
+                                .addListener(future -> latch.countDown());
+                    }
+                });
+                publishers[i].start();
+            }
+            for (Thread publisher : publishers) {
+                publisher.join();
+            }
+            Assert.assertTrue(latch.await(60, TimeUnit.SECONDS));
+            long durationMs = Math.max(1, TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startTs));
+            log.info("Published {} messages with max in flight window [{}] in {} ms: {} msg/s",
+                    MESSAGES, maxInFlightPublishes, durationMs, MESSAGES * 1000L / durationMs);
+        } finally {
+            client.disconnect();
+        }
+    }
+}
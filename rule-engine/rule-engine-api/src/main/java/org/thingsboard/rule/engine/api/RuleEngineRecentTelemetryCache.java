@@ -0,0 +1,36 @@
+/**
+ * Copyright © 2016-2022 The Thingsboard Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.thingsboard.rule.engine.api;
+
+import org.thingsboard.server.common.data.id.EntityId;
+import org.thingsboard.server.common.data.kv.ReadTsKvQuery;
+import org.thingsboard.server.common.data.kv.TsKvEntry;
+
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Most recent timeseries samples saved by the telemetry service, kept in memory per entity and key.
+ * Reads return an empty Optional when the buffered samples do not fully cover the request,
+ * so the caller has to fall back to the database.
+ */
+public interface RuleEngineRecentTelemetryCache {
+
+    Optional<List<TsKvEntry>> findAll(EntityId entityId, List<ReadTsKvQuery> queries);
+
+    Optional<TsKvEntry> findLatest(EntityId entityId, String key);
+
+}
@@ -60,6 +60,12 @@ public @interface RuleNode {
 
     boolean ruleChainNode() default false;
 
+    /**
+     * Marks nodes that pass every message on from within onMsg, keep no state between messages and have no side effects,
+     * so the rule chain may run them inline instead of through the mailbox of their own actor.
+     */
+    boolean fusible() default false;
+
     // TODO: voba - merge comment
     //RuleChainType[] ruleChainTypes() default {RuleChainType.CORE, RuleChainType.EDGE};
 
@@ -16,6 +16,7 @@
 package org.thingsboard.rule.engine.api;
 
 import io.netty.channel.EventLoopGroup;
+import org.thingsboard.common.util.BlockingCallExecutor;
 import org.thingsboard.common.util.ListeningExecutor;
 import org.thingsboard.rule.engine.api.sms.SmsSenderFactory;
 import org.thingsboard.server.cluster.TbClusterService;
@@ -39,6 +40,7 @@ import org.thingsboard.server.common.data.rule.RuleNode;
 import org.thingsboard.server.common.data.rule.RuleNodeState;
 import org.thingsboard.server.common.msg.TbMsg;
 import org.thingsboard.server.common.msg.TbMsgMetaData;
+import org.thingsboard.server.common.stats.StatsFactory;
 import org.thingsboard.server.dao.asset.AssetService;
 import org.thingsboard.server.dao.attributes.AttributesService;
 import org.thingsboard.server.dao.cassandra.CassandraCluster;
@@ -235,6 +237,8 @@ public interface TbContext {
 
     RuleEngineDeviceProfileCache getDeviceProfileCache();
 
+    RuleEngineRecentTelemetryCache getRecentTelemetryCache();
+
     EdgeService getEdgeService();
 
     EdgeEventService getEdgeEventService();
@@ -251,6 +255,8 @@ public interface TbContext {
 
     ListeningExecutor getExternalCallExecutor();
 
+    BlockingCallExecutor getBlockingCallExecutor();
+
     MailService getMailService(boolean isSystem);
 
     SmsService getSmsService();
@@ -269,6 +275,8 @@ public interface TbContext {
 
     EventLoopGroup getSharedEventLoop();
 
+    StatsFactory getStatsFactory();
+
     CassandraCluster getCassandraCluster();
 
     TbResultSetFuture submitCassandraReadTask(CassandraStatementTask task);
@@ -17,7 +17,6 @@ package org.thingsboard.rule.engine.action;
 
 import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
-import com.google.common.base.Function;
 import com.google.common.util.concurrent.Futures;
 import com.google.common.util.concurrent.ListenableFuture;
 import com.google.common.util.concurrent.MoreExecutors;
@@ -146,8 +145,8 @@ public class TbCreateAlarmNode extends TbAbstractAlarmNode<TbCreateAlarmNodeConf
             }
             return newAlarm;
         }, MoreExecutors.directExecutor());
-        ListenableFuture<Alarm> asyncCreated = Futures.transform(asyncAlarm,
-                alarm -> ctx.getAlarmService().createOrUpdateAlarm(alarm), ctx.getDbCallbackExecutor());
+        ListenableFuture<Alarm> asyncCreated = Futures.transformAsync(asyncAlarm,
+                alarm -> ctx.getAlarmService().createOrUpdateAlarmAsync(alarm), ctx.getDbCallbackExecutor());
         return Futures.transform(asyncCreated, alarm -> new TbAlarmResult(true, false, false, alarm), MoreExecutors.directExecutor());
     }
 
@@ -160,7 +159,7 @@ public class TbCreateAlarmNode extends TbAbstractAlarmNode<TbCreateAlarmNodeConf
         } else {
             asyncDetails = Futures.immediateFuture(null);
         }
-        ListenableFuture<Alarm> asyncUpdated = Futures.transform(asyncDetails, (Function<JsonNode, Alarm>) details -> {
+        ListenableFuture<Alarm> asyncUpdated = Futures.transformAsync(asyncDetails, details -> {
             if (buildDetails) {
                 ctx.logJsEvalResponse();
             }
@@ -184,7 +183,7 @@ public class TbCreateAlarmNode extends TbAbstractAlarmNode<TbCreateAlarmNodeConf
                 existingAlarm.setDetails(details);
             }
             existingAlarm.setEndTs(System.currentTimeMillis());
-            return ctx.getAlarmService().createOrUpdateAlarm(existingAlarm);
+            return ctx.getAlarmService().createOrUpdateAlarmAsync(existingAlarm);
         }, ctx.getDbCallbackExecutor());
 
         return Futures.transform(asyncUpdated, a -> new TbAlarmResult(false, true, false, a), MoreExecutors.directExecutor());
@@ -20,7 +20,12 @@ import com.amazonaws.auth.AWSStaticCredentialsProvider;
 import com.amazonaws.auth.BasicAWSCredentials;
 import com.amazonaws.services.sqs.AmazonSQS;
 import com.amazonaws.services.sqs.AmazonSQSClientBuilder;
+import com.amazonaws.services.sqs.model.BatchResultErrorEntry;
 import com.amazonaws.services.sqs.model.MessageAttributeValue;
+import com.amazonaws.services.sqs.model.SendMessageBatchRequest;
+import com.amazonaws.services.sqs.model.SendMessageBatchRequestEntry;
+import com.amazonaws.services.sqs.model.SendMessageBatchResult;
+import com.amazonaws.services.sqs.model.SendMessageBatchResultEntry;
 import com.amazonaws.services.sqs.model.SendMessageRequest;
 import com.amazonaws.services.sqs.model.SendMessageResult;
 import com.google.common.util.concurrent.ListenableFuture;
@@ -32,12 +37,19 @@ import org.thingsboard.rule.engine.api.TbNode;
 import org.thingsboard.rule.engine.api.TbNodeConfiguration;
 import org.thingsboard.rule.engine.api.TbNodeException;
 import org.thingsboard.rule.engine.api.util.TbNodeUtils;
+import org.thingsboard.rule.engine.util.TbMsgBatcher;
+import org.thingsboard.rule.engine.util.TbMsgBatcher.BatchedMsg;
 import org.thingsboard.server.common.data.plugin.ComponentType;
 import org.thingsboard.server.common.msg.TbMsg;
 import org.thingsboard.server.common.msg.TbMsgMetaData;
 
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.stream.Collectors;
 
 import static org.thingsboard.common.util.DonAsynchron.withCallback;
 
@@ -63,9 +75,14 @@ public class TbSqsNode implements TbNode {
     private static final String MESSAGE_ATTRIBUTES_MD5 = "messageAttributesMd5";
     private static final String SEQUENCE_NUMBER = "sequenceNumber";
     private static final String ERROR = "error";
+    private static final String BATCH_FLUSH_MSG_TYPE = "TbSqsNodeBatchFlushMsg";
+    private static final int MAX_ENTRIES_PER_BATCH_REQUEST = 10;
+    // SQS limits the sum of the bodies and attributes of all entries of a batch request to 256 KiB.
+    static final int MAX_BATCH_REQUEST_PAYLOAD_SIZE = 256 * 1024;
 
     private TbSqsNodeConfiguration config;
     private AmazonSQS sqsClient;
+    private TbMsgBatcher batcher;
 
     @Override
     public void init(TbContext ctx, TbNodeConfiguration configuration) throws TbNodeException {
@@ -80,10 +97,21 @@ public class TbSqsNode implements TbNode {
         } catch (Exception e) {
             throw new TbNodeException(e);
         }
+        if (this.config.getMaxBatchSize() > 1) {
+            this.batcher = new TbMsgBatcher(BATCH_FLUSH_MSG_TYPE, this.config.getMaxBatchSize(), this.config.getBatchLingerMs(), this::publishBatch);
+        }
     }
 
     @Override
     public void onMsg(TbContext ctx, TbMsg msg) {
+        if (batcher != null) {
+            if (batcher.isFlushMsg(msg)) {
+                batcher.flush();
+            } else {
+                batcher.add(ctx, msg);
+            }
+            return;
+        }
         withCallback(publishMessageAsync(ctx, msg),
                 ctx::tellSuccess,
                 t -> ctx.tellFailure(processException(ctx, msg, t), t));
@@ -98,13 +126,7 @@ public class TbSqsNode implements TbNode {
         SendMessageRequest sendMsgRequest =  new SendMessageRequest();
         sendMsgRequest.withQueueUrl(queueUrl);
         sendMsgRequest.withMessageBody(msg.getData());
-        Map<String, MessageAttributeValue> messageAttributes = new HashMap<>();
-        this.config.getMessageAttributes().forEach((k,v) -> {
-            String name = TbNodeUtils.processPattern(k, msg);
-            String val = TbNodeUtils.processPattern(v, msg);
-            messageAttributes.put(name, new MessageAttributeValue().withDataType("String").withStringValue(val));
-        });
-        sendMsgRequest.setMessageAttributes(messageAttributes);
+        sendMsgRequest.setMessageAttributes(toMessageAttributes(msg));
         if (this.config.getQueueType() == TbSqsNodeConfiguration.QueueType.STANDARD) {
             sendMsgRequest.withDelaySeconds(this.config.getDelaySeconds());
         } else {
@@ -115,18 +137,113 @@ public class TbSqsNode implements TbNode {
         return processSendMessageResult(ctx, msg, result);
     }
 
+    private Map<String, MessageAttributeValue> toMessageAttributes(TbMsg msg) {
+        Map<String, MessageAttributeValue> messageAttributes = new HashMap<>();
+        this.config.getMessageAttributes().forEach((k,v) -> {
+            String name = TbNodeUtils.processPattern(k, msg);
+            String val = TbNodeUtils.processPattern(v, msg);
+            messageAttributes.put(name, new MessageAttributeValue().withDataType("String").withStringValue(val));
+        });
+        return messageAttributes;
+    }
+
+    private void publishBatch(List<BatchedMsg> msgs) {
+        TbContext ctx = msgs.get(0).getCtx();
+        Map<String, List<BatchedMsg>> msgsByQueueUrl = msgs.stream().collect(Collectors.groupingBy(
+                batchedMsg -> TbNodeUtils.processPattern(this.config.getQueueUrlPattern(), batchedMsg.getMsg()), LinkedHashMap::new, Collectors.toList()));
+        msgsByQueueUrl.forEach((queueUrl, queueMsgs) -> {
+            for (List<BatchedMsg> entries : splitBatch(queueMsgs)) {
+                withCallback(ctx.getExternalCallExecutor().executeAsync(() -> publishMessageBatch(queueUrl, entries)),
+                        r -> {},
+                        t -> entries.forEach(batchedMsg -> batchedMsg.getCtx().tellFailure(processException(batchedMsg.getCtx(), batchedMsg.getMsg(), t), t)));
+            }
+        });
+    }
+
+    /**
+     * Splits the messages of a single queue into batch requests of at most {@link #MAX_ENTRIES_PER_BATCH_REQUEST} entries
+     * and {@link #MAX_BATCH_REQUEST_PAYLOAD_SIZE} bytes. A message that exceeds the payload limit on its own is sent alone,
+     * so that only this message fails.
+     */
+    List<List<BatchedMsg>> splitBatch(List<BatchedMsg> msgs) {
+        List<List<BatchedMsg>> batches = new ArrayList<>();
+        List<BatchedMsg> batch = new ArrayList<>();
+        int batchPayloadSize = 0;
+        for (BatchedMsg batchedMsg : msgs) {
+            int payloadSize = getPayloadSize(batchedMsg.getMsg());
+            if (!batch.isEmpty() && (batch.size() >= MAX_ENTRIES_PER_BATCH_REQUEST || batchPayloadSize + payloadSize > MAX_BATCH_REQUEST_PAYLOAD_SIZE)) {
+                batches.add(batch);
+                batch = new ArrayList<>();
+                batchPayloadSize = 0;
+            }
+            batch.add(batchedMsg);
+            batchPayloadSize += payloadSize;
+        }
+        if (!batch.isEmpty()) {
+            batches.add(batch);
+        }
+        return batches;
+    }
+
+    private int getPayloadSize(TbMsg msg) {
+        int size = utf8Length(msg.getData());
+        for (Map.Entry<String, MessageAttributeValue> attribute : toMessageAttributes(msg).entrySet()) {
+            size += utf8Length(attribute.getKey()) + utf8Length(attribute.getValue().getDataType()) + utf8Length(attribute.getValue().getStringValue());
+        }
+        return size;
+    }
+
+    private static int utf8Length(String value) {
+        return value != null ? value.getBytes(StandardCharsets.UTF_8).length : 0;
+    }
+
+    private Void publishMessageBatch(String queueUrl, List<BatchedMsg> msgs) {
+        List<SendMessageBatchRequestEntry> entries = new ArrayList<>(msgs.size());
+        for (int i = 0; i < msgs.size(); i++) {
+            TbMsg msg = msgs.get(i).getMsg();
+            SendMessageBatchRequestEntry entry = new SendMessageBatchRequestEntry(Integer.toString(i), msg.getData())
+                    .withMessageAttributes(toMessageAttributes(msg));
+            if (this.config.getQueueType() == TbSqsNodeConfiguration.QueueType.STANDARD) {
+                entry.withDelaySeconds(this.config.getDelaySeconds());
+            } else {
+                entry.withMessageDeduplicationId(msg.getId().toString());
+                entry.withMessageGroupId(msg.getOriginator().toString());
+            }
+            entries.add(entry);
+        }
+        SendMessageBatchResult result = this.sqsClient.sendMessageBatch(new SendMessageBatchRequest(queueUrl, entries));
+        String requestId = result.getSdkResponseMetadata().getRequestId();
+        for (SendMessageBatchResultEntry entry : result.getSuccessful()) {
+            BatchedMsg batchedMsg = msgs.get(Integer.parseInt(entry.getId()));
+            batchedMsg.getCtx().tellSuccess(processSendMessageResult(batchedMsg.getCtx(), batchedMsg.getMsg(), entry.getMessageId(), requestId,
+                    entry.getMD5OfMessageBody(), entry.getMD5OfMessageAttributes(), entry.getSequenceNumber()));
+        }
+        for (BatchResultErrorEntry entry : result.getFailed()) {
+            BatchedMsg batchedMsg = msgs.get(Integer.parseInt(entry.getId()));
+            RuntimeException e = new RuntimeException("Failed to send message to SQS queue: [" + entry.getCode() + "] " + entry.getMessage());
+            batchedMsg.getCtx().tellFailure(processException(batchedMsg.getCtx(), batchedMsg.getMsg(), e), e);
+        }
+        return null;
+    }
+
     private TbMsg processSendMessageResult(TbContext ctx, TbMsg origMsg, SendMessageResult result) {
+        return processSendMessageResult(ctx, origMsg, result.getMessageId(), result.getSdkResponseMetadata().getRequestId(),
+                result.getMD5OfMessageBody(), result.getMD5OfMessageAttributes(), result.getSequenceNumber());
+    }
+
+    private TbMsg processSendMessageResult(TbContext ctx, TbMsg origMsg, String messageId, String requestId,
+                                           String messageBodyMd5, String messageAttributesMd5, String sequenceNumber) {
         TbMsgMetaData metaData = origMsg.getMetaData().copy();
-        metaData.putValue(MESSAGE_ID, result.getMessageId());
-        metaData.putValue(REQUEST_ID, result.getSdkResponseMetadata().getRequestId());
-        if (!StringUtils.isEmpty(result.getMD5OfMessageBody())) {
-            metaData.putValue(MESSAGE_BODY_MD5, result.getMD5OfMessageBody());
+        metaData.putValue(MESSAGE_ID, messageId);
+        metaData.putValue(REQUEST_ID, requestId);
+        if (!StringUtils.isEmpty(messageBodyMd5)) {
+            metaData.putValue(MESSAGE_BODY_MD5, messageBodyMd5);
         }
-        if (!StringUtils.isEmpty(result.getMD5OfMessageAttributes())) {
-            metaData.putValue(MESSAGE_ATTRIBUTES_MD5, result.getMD5OfMessageAttributes());
+        if (!StringUtils.isEmpty(messageAttributesMd5)) {
+            metaData.putValue(MESSAGE_ATTRIBUTES_MD5, messageAttributesMd5);
         }
-        if (!StringUtils.isEmpty(result.getSequenceNumber())) {
-            metaData.putValue(SEQUENCE_NUMBER, result.getSequenceNumber());
+        if (!StringUtils.isEmpty(sequenceNumber)) {
+            metaData.putValue(SEQUENCE_NUMBER, sequenceNumber);
         }
         return ctx.transformMsg(origMsg, origMsg.getType(), origMsg.getOriginator(), metaData, origMsg.getData());
     }
@@ -139,6 +256,9 @@ public class TbSqsNode implements TbNode {
 
     @Override
     public void destroy() {
+        if (this.batcher != null) {
+            this.batcher.clear(new IllegalStateException("Node is stopped"));
+        }
         if (this.sqsClient != null) {
             try {
                 this.sqsClient.shutdown();
@@ -31,6 +31,8 @@ public class TbSqsNodeConfiguration implements NodeConfiguration<TbSqsNodeConfig
     private String accessKeyId;
     private String secretAccessKey;
     private String region;
+    private int maxBatchSize;
+    private int batchLingerMs;
 
     @Override
     public TbSqsNodeConfiguration defaultConfiguration() {
@@ -40,6 +42,8 @@ public class TbSqsNodeConfiguration implements NodeConfiguration<TbSqsNodeConfig
         configuration.setDelaySeconds(0);
         configuration.setMessageAttributes(Collections.emptyMap());
         configuration.setRegion("us-east-1");
+        configuration.setMaxBatchSize(0);
+        configuration.setBatchLingerMs(100);
         return configuration;
     }
 
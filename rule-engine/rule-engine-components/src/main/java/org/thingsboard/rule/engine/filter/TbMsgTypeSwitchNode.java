@@ -40,7 +40,8 @@ import org.thingsboard.server.common.msg.session.SessionMsgType;
         nodeDescription = "Route incoming messages by Message Type",
         nodeDetails = "Sends messages with message types <b>\"Post attributes\", \"Post telemetry\", \"RPC Request\"</b> etc. via corresponding chain, otherwise <b>Other</b> chain is used.",
         uiResources = {"static/rulenode/rulenode-core-config.js"},
-        configDirective = "tbNodeEmptyConfig")
+        configDirective = "tbNodeEmptyConfig",
+        fusible = true)
 public class TbMsgTypeSwitchNode implements TbNode {
 
     EmptyNodeConfiguration config;
@@ -35,7 +35,8 @@ import org.thingsboard.server.common.msg.TbMsg;
         nodeDescription = "Filter incoming messages by message Originator Type",
         nodeDetails = "If Originator Type of incoming message is expected - send Message via <b>True</b> chain, otherwise <b>False</b> chain is used.",
         uiResources = {"static/rulenode/rulenode-core-config.js"},
-        configDirective = "tbFilterNodeOriginatorTypeConfig")
+        configDirective = "tbFilterNodeOriginatorTypeConfig",
+        fusible = true)
 public class TbOriginatorTypeFilterNode implements TbNode {
 
     TbOriginatorTypeFilterNodeConfiguration config;
@@ -36,7 +36,8 @@ import org.thingsboard.server.common.msg.TbMsg;
         nodeDescription = "Route incoming messages by Message Originator Type",
         nodeDetails = "Routes messages to chain according to the originator type ('Device', 'Asset', etc.).",
         uiResources = {"static/rulenode/rulenode-core-config.js"},
-        configDirective = "tbNodeEmptyConfig")
+        configDirective = "tbNodeEmptyConfig",
+        fusible = true)
 public class TbOriginatorTypeSwitchNode implements TbNode {
 
     EmptyNodeConfiguration config;
@@ -36,6 +36,8 @@ import org.thingsboard.rule.engine.api.TbNodeConfiguration;
 import org.thingsboard.rule.engine.api.TbNodeException;
 import org.thingsboard.rule.engine.api.TbRelationTypes;
 import org.thingsboard.rule.engine.api.util.TbNodeUtils;
+import org.thingsboard.rule.engine.util.TbMsgBatcher;
+import org.thingsboard.rule.engine.util.TbMsgBatcher.BatchedMsg;
 import org.thingsboard.server.common.data.exception.ThingsboardKafkaClientError;
 import org.thingsboard.server.common.data.plugin.ComponentType;
 import org.thingsboard.server.common.msg.TbMsg;
@@ -44,7 +46,11 @@ import org.thingsboard.server.common.msg.TbMsgMetaData;
 import java.lang.reflect.Field;
 import java.nio.charset.Charset;
 import java.nio.charset.StandardCharsets;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
 import java.util.Properties;
+import java.util.stream.Collectors;
 
 @Slf4j
 @RuleNode(
@@ -66,6 +72,7 @@ public class TbKafkaNode implements TbNode {
     private static final String TOPIC = "topic";
     private static final String ERROR = "error";
     public static final String TB_MSG_MD_PREFIX = "tb_msg_md_";
+    private static final String BATCH_FLUSH_MSG_TYPE = "TbKafkaNodeBatchFlushMsg";
     private static final Field IO_THREAD_FIELD = ReflectionUtils.findField(KafkaProducer.class, "ioThread");
 
     static {
@@ -78,6 +85,7 @@ public class TbKafkaNode implements TbNode {
 
     private Producer<?, String> producer;
     private Throwable initError;
+    private TbMsgBatcher batcher;
 
     @Override
     public void init(TbContext ctx, TbNodeConfiguration configuration) throws TbNodeException {
@@ -98,6 +106,12 @@ public class TbKafkaNode implements TbNode {
         }
         addMetadataKeyValuesAsKafkaHeaders = BooleanUtils.toBooleanDefaultIfNull(config.isAddMetadataKeyValuesAsKafkaHeaders(), false);
         toBytesCharset = config.getKafkaHeadersCharset() != null ? Charset.forName(config.getKafkaHeadersCharset()) : StandardCharsets.UTF_8;
+        if (config.getMsgBatchSize() > 1) {
+            if (addMetadataKeyValuesAsKafkaHeaders) {
+                throw new TbNodeException("Message batching does not support metadata key values as Kafka headers!");
+            }
+            batcher = new TbMsgBatcher(BATCH_FLUSH_MSG_TYPE, config.getMsgBatchSize(), config.getMsgBatchLingerMs(), this::publishBatch);
+        }
         try {
             this.producer = new KafkaProducer<>(properties);
             Thread ioThread = (Thread) ReflectionUtils.getField(IO_THREAD_FIELD, producer);
@@ -114,10 +128,16 @@ public class TbKafkaNode implements TbNode {
 
     @Override
     public void onMsg(TbContext ctx, TbMsg msg) {
+        if (batcher != null && batcher.isFlushMsg(msg)) {
+            batcher.flush();
+            return;
+        }
         String topic = TbNodeUtils.processPattern(config.getTopicPattern(), msg);
         try {
             if (initError != null) {
                 ctx.tellFailure(msg, new RuntimeException("Failed to initialize Kafka rule node producer: " + initError.getMessage()));
+            } else if (batcher != null) {
+                batcher.add(ctx, msg);
             } else {
                 ctx.getExternalCallExecutor().executeAsync(() -> {
                     publish(ctx, msg, topic);
@@ -146,8 +166,30 @@ public class TbKafkaNode implements TbNode {
         }
     }
 
+    private void publishBatch(List<BatchedMsg> msgs) {
+        Map<String, List<BatchedMsg>> msgsByTopic = msgs.stream().collect(Collectors.groupingBy(
+                batchedMsg -> TbNodeUtils.processPattern(config.getTopicPattern(), batchedMsg.getMsg()), LinkedHashMap::new, Collectors.toList()));
+        msgs.get(0).getCtx().getExternalCallExecutor().executeAsync(() -> {
+            msgsByTopic.forEach(this::publish);
+            return null;
+        });
+    }
+
+    private void publish(String topic, List<BatchedMsg> msgs) {
+        try {
+            producer.send(new ProducerRecord<>(topic, TbMsgBatcher.toJsonArray(msgs)),
+                    (metadata, e) -> msgs.forEach(batchedMsg -> processRecord(batchedMsg.getCtx(), batchedMsg.getMsg(), metadata, e)));
+        } catch (Exception e) {
+            log.debug("[{}] Failed to publish batch of {} messages", msgs.get(0).getCtx().getSelfId(), msgs.size(), e);
+            msgs.forEach(batchedMsg -> processRecord(batchedMsg.getCtx(), batchedMsg.getMsg(), null, e));
+        }
+    }
+
     @Override
     public void destroy() {
+        if (this.batcher != null) {
+            this.batcher.clear(new IllegalStateException("Node is stopped"));
+        }
         if (this.producer != null) {
             try {
                 this.producer.close();
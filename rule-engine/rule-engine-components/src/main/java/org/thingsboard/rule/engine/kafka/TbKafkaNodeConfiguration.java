@@ -39,6 +39,9 @@ public class TbKafkaNodeConfiguration implements NodeConfiguration<TbKafkaNodeCo
     private boolean addMetadataKeyValuesAsKafkaHeaders;
     private String kafkaHeadersCharset;
 
+    private int msgBatchSize;
+    private int msgBatchLingerMs;
+
     @Override
     public TbKafkaNodeConfiguration defaultConfiguration() {
         TbKafkaNodeConfiguration configuration = new TbKafkaNodeConfiguration();
@@ -54,6 +57,8 @@ public class TbKafkaNodeConfiguration implements NodeConfiguration<TbKafkaNodeCo
         configuration.setOtherProperties(Collections.emptyMap());
         configuration.setAddMetadataKeyValuesAsKafkaHeaders(false);
         configuration.setKafkaHeadersCharset("UTF-8");
+        configuration.setMsgBatchSize(0);
+        configuration.setMsgBatchLingerMs(100);
         return configuration;
     }
 }
@@ -40,6 +40,7 @@ import java.math.BigDecimal;
 import java.math.RoundingMode;
 import java.util.Collections;
 import java.util.Map;
+import java.util.Optional;
 import java.util.concurrent.ConcurrentHashMap;
 
 @Slf4j
@@ -129,6 +130,15 @@ public class CalculateDeltaNode implements TbNode {
     }
 
     private ListenableFuture<ValueWithTs> fetchLatestValue(EntityId entityId) {
+        // Values saved recently are served from memory; the database is only read when the key is not buffered.
+        Optional<TsKvEntry> recent = ctx.getRecentTelemetryCache().findLatest(entityId, config.getInputValueKey());
+        if (recent.isPresent()) {
+            try {
+                return Futures.immediateFuture(extractValue(recent.get()));
+            } catch (IllegalArgumentException e) {
+                return Futures.immediateFailedFuture(e);
+            }
+        }
         return Futures.transform(timeseriesService.findLatest(ctx.getTenantId(), entityId, Collections.singletonList(config.getInputValueKey())),
                 list -> extractValue(list.get(0))
                 , ctx.getDbCallbackExecutor());
@@ -20,6 +20,7 @@ import com.fasterxml.jackson.core.json.JsonWriteFeature;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.databind.node.ArrayNode;
 import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.google.common.util.concurrent.Futures;
 import com.google.common.util.concurrent.ListenableFuture;
 import com.google.gson.JsonParseException;
 import lombok.Data;
@@ -114,7 +115,10 @@ public class TbGetTelemetryNode implements TbNode {
                     checkMetadataKeyPatterns(msg);
                 }
                 List<String> keys = TbNodeUtils.processPatterns(tsKeyNames, msg);
-                ListenableFuture<List<TsKvEntry>> list = ctx.getTimeseriesService().findAll(ctx.getTenantId(), msg.getOriginator(), buildQueries(msg, keys));
+                List<ReadTsKvQuery> queries = buildQueries(msg, keys);
+                ListenableFuture<List<TsKvEntry>> list = ctx.getRecentTelemetryCache().findAll(msg.getOriginator(), queries)
+                        .map(Futures::immediateFuture)
+                        .orElseGet(() -> ctx.getTimeseriesService().findAll(ctx.getTenantId(), msg.getOriginator(), queries));
                 DonAsynchron.withCallback(list, data -> {
                     process(data, msg, keys);
                     ctx.tellSuccess(ctx.transformMsg(msg, msg.getType(), msg.getOriginator(), msg.getMetaData(), msg.getData()));
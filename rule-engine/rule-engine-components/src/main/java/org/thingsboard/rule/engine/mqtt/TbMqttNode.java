@@ -108,6 +108,11 @@ public class TbMqttNode implements TbNode {
                     this.mqttNodeConfiguration.getClientId() + "_" + ctx.getServiceId() : this.mqttNodeConfiguration.getClientId());
         }
         config.setCleanSession(this.mqttNodeConfiguration.isCleanSession());
+        // Nodes saved before these settings existed keep publishing without a limit.
+        config.setMaxInFlightPublishes(this.mqttNodeConfiguration.getMaxInFlightPublishes());
+        if (this.mqttNodeConfiguration.getMaxWaitingPublishes() > 0) {
+            config.setMaxWaitingPublishes(this.mqttNodeConfiguration.getMaxWaitingPublishes());
+        }
 
         prepareMqttClientConfig(config);
         MqttClient client = MqttClient.create(config, null);
@@ -29,6 +29,8 @@ public class TbMqttNodeConfiguration implements NodeConfiguration<TbMqttNodeConf
     private int connectTimeoutSec;
     private String clientId;
     private boolean appendClientIdSuffix;
+    private int maxInFlightPublishes;
+    private int maxWaitingPublishes;
 
     private boolean cleanSession;
     private boolean ssl;
@@ -40,6 +42,8 @@ public class TbMqttNodeConfiguration implements NodeConfiguration<TbMqttNodeConf
         configuration.setTopicPattern("my-topic");
         configuration.setPort(1883);
         configuration.setConnectTimeoutSec(10);
+        configuration.setMaxInFlightPublishes(100);
+        configuration.setMaxWaitingPublishes(1000);
         configuration.setCleanSession(true);
         configuration.setSsl(false);
         configuration.setCredentials(new AnonymousCredentials());
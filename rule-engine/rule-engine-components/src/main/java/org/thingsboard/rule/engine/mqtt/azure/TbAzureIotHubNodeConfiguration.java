@@ -28,6 +28,8 @@ public class TbAzureIotHubNodeConfiguration extends TbMqttNodeConfiguration {
         configuration.setHost("<iot-hub-name>.azure-devices.net");
         configuration.setPort(8883);
         configuration.setConnectTimeoutSec(10);
+        configuration.setMaxInFlightPublishes(100);
+        configuration.setMaxWaitingPublishes(1000);
         configuration.setCleanSession(true);
         configuration.setSsl(true);
         configuration.setCredentials(new AzureIotHubSasCredentials());
@@ -231,6 +231,8 @@ class AlarmState {
         }
     }
 
+    // Saves the alarm synchronously: the device profile node evaluates the rules of a device message by message and
+    // the next evaluation needs the saved alarm (its id and start time), so the node waits for the save.
     private TbAlarmResult calculateAlarmResult(TbContext ctx, AlarmRuleState ruleState) {
         AlarmSeverity severity = ruleState.getSeverity();
         if (currentAlarm != null) {
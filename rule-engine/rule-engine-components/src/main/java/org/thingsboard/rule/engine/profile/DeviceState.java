@@ -15,6 +15,9 @@
  */
 package org.thingsboard.rule.engine.profile;
 
+import com.google.common.util.concurrent.Futures;
+import com.google.common.util.concurrent.ListenableFuture;
+import com.google.common.util.concurrent.MoreExecutors;
 import com.google.gson.JsonParser;
 import lombok.extern.slf4j.Slf4j;
 import org.thingsboard.server.common.data.StringUtils;
@@ -45,6 +48,7 @@ import org.thingsboard.server.dao.sql.query.EntityKeyMapping;
 import org.thingsboard.common.util.JacksonUtil;
 
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
@@ -64,6 +68,7 @@ class DeviceState {
     private RuleNodeState state;
     private PersistedDeviceState pds;
     private DataSnapshot latestValues;
+    private ListenableFuture<DataSnapshot> latestValuesFuture;
     private final ConcurrentMap<String, AlarmState> alarmStates = new ConcurrentHashMap<>();
     private final DynamicPredicateValueCtx dynamicPredicateValueCtx;
 
@@ -105,7 +110,7 @@ class DeviceState {
             Set<AlarmConditionFilterKey> keysToFetch = new HashSet<>(this.deviceProfile.getEntityKeys());
             keysToFetch.removeAll(oldKeys);
             if (!keysToFetch.isEmpty()) {
-                addEntityKeysToSnapshot(ctx, deviceId, keysToFetch, latestValues);
+                ctx.getBlockingCallExecutor().await("deviceProfile.updateProfile", addEntityKeysToSnapshot(ctx, deviceId, keysToFetch, latestValues));
             }
         }
         Set<String> newAlarmStateIds = this.deviceProfile.getAlarmSettings().stream().map(DeviceProfileAlarm::getId).collect(Collectors.toSet());
@@ -131,9 +136,26 @@ class DeviceState {
         }
     }
 
+    /**
+     * Starts fetching the latest values of the profile keys, if they are not loaded yet.
+     * Once the returned future is done, {@link #process} does not wait for the database.
+     */
+    public ListenableFuture<DataSnapshot> loadLatestValues(TbContext ctx) {
+        if (latestValues != null) {
+            return Futures.immediateFuture(latestValues);
+        }
+        if (latestValuesFuture == null) {
+            latestValuesFuture = fetchLatestValues(ctx, deviceId);
+        }
+        return latestValuesFuture;
+    }
+
     public void process(TbContext ctx, TbMsg msg) throws ExecutionException, InterruptedException {
         if (latestValues == null) {
-            latestValues = fetchLatestValues(ctx, deviceId);
+            ListenableFuture<DataSnapshot> future = loadLatestValues(ctx);
+            // a failed fetch is retried by the next message
+            latestValuesFuture = null;
+            latestValues = ctx.getBlockingCallExecutor().await("deviceProfile.fetchLatestValues", future);
         }
         boolean stateChanged = false;
         if (msg.getType().equals(SessionMsgType.POST_TELEMETRY_REQUEST.name())) {
@@ -317,18 +339,17 @@ class DeviceState {
         return EntityKeyType.ATTRIBUTE;
     }
 
-    private DataSnapshot fetchLatestValues(TbContext ctx, EntityId originator) throws ExecutionException, InterruptedException {
+    private ListenableFuture<DataSnapshot> fetchLatestValues(TbContext ctx, EntityId originator) {
         Set<AlarmConditionFilterKey> entityKeysToFetch = deviceProfile.getEntityKeys();
         DataSnapshot result = new DataSnapshot(entityKeysToFetch);
-        addEntityKeysToSnapshot(ctx, originator, entityKeysToFetch, result);
-        return result;
+        return addEntityKeysToSnapshot(ctx, originator, entityKeysToFetch, result);
     }
 
-    private void addEntityKeysToSnapshot(TbContext ctx, EntityId originator, Set<AlarmConditionFilterKey> entityKeysToFetch, DataSnapshot result) throws InterruptedException, ExecutionException {
+    private ListenableFuture<DataSnapshot> addEntityKeysToSnapshot(TbContext ctx, EntityId originator, Set<AlarmConditionFilterKey> entityKeysToFetch, DataSnapshot result) {
         Set<String> attributeKeys = new HashSet<>();
         Set<String> latestTsKeys = new HashSet<>();
+        Set<AlarmConditionFilterKey> entityFieldKeys = new HashSet<>();
 
-        Device device = null;
         for (AlarmConditionFilterKey entityKey : entityKeysToFetch) {
             String key = entityKey.getKey();
             switch (entityKey.getType()) {
@@ -339,42 +360,53 @@ class DeviceState {
                     latestTsKeys.add(key);
                     break;
                 case ENTITY_FIELD:
-                    if (device == null) {
-                        device = ctx.getDeviceService().findDeviceById(ctx.getTenantId(), new DeviceId(originator.getId()));
-                    }
-                    if (device != null) {
-                        switch (key) {
-                            case EntityKeyMapping.NAME:
-                                result.putValue(entityKey, device.getCreatedTime(), EntityKeyValue.fromString(device.getName()));
-                                break;
-                            case EntityKeyMapping.TYPE:
-                                result.putValue(entityKey, device.getCreatedTime(), EntityKeyValue.fromString(device.getType()));
-                                break;
-                            case EntityKeyMapping.CREATED_TIME:
-                                result.putValue(entityKey, device.getCreatedTime(), EntityKeyValue.fromLong(device.getCreatedTime()));
-                                break;
-                            case EntityKeyMapping.LABEL:
-                                result.putValue(entityKey, device.getCreatedTime(), EntityKeyValue.fromString(device.getLabel()));
-                                break;
-                        }
-                    }
+                    entityFieldKeys.add(entityKey);
                     break;
             }
         }
 
-        if (!latestTsKeys.isEmpty()) {
-            List<TsKvEntry> data = ctx.getTimeseriesService().findLatest(ctx.getTenantId(), originator, latestTsKeys).get();
-            for (TsKvEntry entry : data) {
+        // all queries are issued before any of them completes, so the snapshot is ready after the slowest query instead of their sum
+        ListenableFuture<Device> deviceFuture = entityFieldKeys.isEmpty() ? Futures.immediateFuture(null) :
+                ctx.getDeviceService().findDeviceByIdAsync(ctx.getTenantId(), new DeviceId(originator.getId()));
+        ListenableFuture<List<TsKvEntry>> tsFuture = latestTsKeys.isEmpty() ? Futures.immediateFuture(Collections.emptyList()) :
+                ctx.getTimeseriesService().findLatest(ctx.getTenantId(), originator, latestTsKeys);
+        List<ListenableFuture<List<AttributeKvEntry>>> attributeFutures = new ArrayList<>();
+        if (!attributeKeys.isEmpty()) {
+            attributeFutures.add(ctx.getAttributesService().find(ctx.getTenantId(), originator, DataConstants.CLIENT_SCOPE, attributeKeys));
+            attributeFutures.add(ctx.getAttributesService().find(ctx.getTenantId(), originator, DataConstants.SHARED_SCOPE, attributeKeys));
+            attributeFutures.add(ctx.getAttributesService().find(ctx.getTenantId(), originator, DataConstants.SERVER_SCOPE, attributeKeys));
+        }
+        ListenableFuture<List<List<AttributeKvEntry>>> attributesFuture = Futures.allAsList(attributeFutures);
+        return Futures.whenAllSucceed(deviceFuture, tsFuture, attributesFuture).call(() -> {
+            Device device = Futures.getDone(deviceFuture);
+            if (device != null) {
+                for (AlarmConditionFilterKey entityKey : entityFieldKeys) {
+                    switch (entityKey.getKey()) {
+                        case EntityKeyMapping.NAME:
+                            result.putValue(entityKey, device.getCreatedTime(), EntityKeyValue.fromString(device.getName()));
+                            break;
+                        case EntityKeyMapping.TYPE:
+                            result.putValue(entityKey, device.getCreatedTime(), EntityKeyValue.fromString(device.getType()));
+                            break;
+                        case EntityKeyMapping.CREATED_TIME:
+                            result.putValue(entityKey, device.getCreatedTime(), EntityKeyValue.fromLong(device.getCreatedTime()));
+                            break;
+                        case EntityKeyMapping.LABEL:
+                            result.putValue(entityKey, device.getCreatedTime(), EntityKeyValue.fromString(device.getLabel()));
+                            break;
+                    }
+                }
+            }
+            for (TsKvEntry entry : Futures.getDone(tsFuture)) {
                 if (entry.getValue() != null) {
                     result.putValue(new AlarmConditionFilterKey(AlarmConditionKeyType.TIME_SERIES, entry.getKey()), entry.getTs(), toEntityValue(entry));
                 }
             }
-        }
-        if (!attributeKeys.isEmpty()) {
-            addToSnapshot(result, ctx.getAttributesService().find(ctx.getTenantId(), originator, DataConstants.CLIENT_SCOPE, attributeKeys).get());
-            addToSnapshot(result, ctx.getAttributesService().find(ctx.getTenantId(), originator, DataConstants.SHARED_SCOPE, attributeKeys).get());
-            addToSnapshot(result, ctx.getAttributesService().find(ctx.getTenantId(), originator, DataConstants.SERVER_SCOPE, attributeKeys).get());
-        }
+            for (List<AttributeKvEntry> data : Futures.getDone(attributesFuture)) {
+                addToSnapshot(result, data);
+            }
+            return result;
+        }, MoreExecutors.directExecutor());
     }
 
     private void addToSnapshot(DataSnapshot snapshot, List<AttributeKvEntry> data) {
@@ -17,6 +17,8 @@ package org.thingsboard.rule.engine.profile;
 
 import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.google.common.util.concurrent.ListenableFuture;
+import com.google.common.util.concurrent.MoreExecutors;
 import lombok.extern.slf4j.Slf4j;
 import org.thingsboard.rule.engine.api.RuleEngineDeviceProfileCache;
 import org.thingsboard.rule.engine.api.RuleNode;
@@ -132,7 +134,13 @@ public class TbDeviceProfileNode implements TbNode {
                 } else {
                     DeviceState deviceState = getOrCreateDeviceState(ctx, deviceId, null);
                     if (deviceState != null) {
-                        deviceState.process(ctx, msg);
+                        ListenableFuture<?> latestValuesFuture = deviceState.loadLatestValues(ctx);
+                        if (latestValuesFuture.isDone()) {
+                            deviceState.process(ctx, msg);
+                        } else {
+                            // the node does not wait for the database; the message comes back once the latest values are fetched
+                            latestValuesFuture.addListener(() -> ctx.tellSelf(msg, 0), MoreExecutors.directExecutor());
+                        }
                     } else {
                         log.info("Device was not found! Most probably device [" + deviceId + "] has been removed from the database. Acknowledging msg.");
                         ctx.ack(msg);
@@ -28,7 +28,6 @@ import org.apache.http.conn.ssl.DefaultHostnameVerifier;
 import org.apache.http.impl.client.BasicCredentialsProvider;
 import org.apache.http.impl.nio.client.CloseableHttpAsyncClient;
 import org.apache.http.impl.nio.client.HttpAsyncClientBuilder;
-import org.apache.http.impl.nio.client.HttpAsyncClients;
 import org.springframework.http.HttpEntity;
 import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpMethod;
@@ -48,18 +47,23 @@ import org.thingsboard.rule.engine.api.util.TbNodeUtils;
 import org.thingsboard.rule.engine.credentials.BasicCredentials;
 import org.thingsboard.rule.engine.credentials.ClientCredentials;
 import org.thingsboard.rule.engine.credentials.CredentialsType;
+import org.thingsboard.rule.engine.util.TbMsgBatcher;
+import org.thingsboard.rule.engine.util.TbMsgBatcher.BatchedMsg;
 import org.thingsboard.server.common.msg.TbMsg;
 import org.thingsboard.server.common.msg.TbMsgMetaData;
 
 import javax.net.ssl.SSLContext;
 import javax.net.ssl.SSLException;
+import java.io.IOException;
 import java.net.Authenticator;
 import java.net.PasswordAuthentication;
 import java.net.URI;
 import java.nio.charset.StandardCharsets;
 import java.security.NoSuchAlgorithmException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
 import java.util.Deque;
-import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.List;
 import java.util.concurrent.TimeUnit;
 
 @Data
@@ -72,19 +76,32 @@ public class TbHttpClient {
     private static final String STATUS_REASON = "statusReason";
     private static final String ERROR = "error";
     private static final String ERROR_BODY = "error_body";
+    static final String BATCH_FLUSH_MSG_TYPE = "TbHttpClientBatchFlushMsg";
     private static final String ERROR_SYSTEM_PROPERTIES = "Didn't set any system proxy properties. Should be added next system proxy properties: \"http.proxyHost\" and \"http.proxyPort\" or  \"https.proxyHost\" and \"https.proxyPort\" or \"socksProxyHost\" and \"socksProxyPort\"";
 
     private final TbRestApiCallNodeConfiguration config;
 
+    private final TbHttpClientStats stats;
+
     private EventLoopGroup eventLoopGroup;
+    private CloseableHttpAsyncClient asyncClient;
     private AsyncRestTemplate httpClient;
-    private Deque<ListenableFuture<ResponseEntity<String>>> pendingFutures;
 
-    TbHttpClient(TbRestApiCallNodeConfiguration config, EventLoopGroup eventLoopGroupShared) throws TbNodeException {
+    // Requests waiting for one of the maxParallelRequestsCount slots. Their messages stay unacknowledged,
+    // so a slow endpoint holds back the rule engine pack instead of piling up sockets.
+    private final Deque<Request> waitingRequests = new ArrayDeque<>();
+    private int inFlightRequests;
+    private boolean sendingWaitingRequests;
+
+    private TbMsgBatcher batcher;
+
+    TbHttpClient(TbRestApiCallNodeConfiguration config, EventLoopGroup eventLoopGroupShared, TbHttpClientStats stats) throws TbNodeException {
         try {
             this.config = config;
-            if (config.getMaxParallelRequestsCount() > 0) {
-                pendingFutures = new ConcurrentLinkedDeque<>();
+            this.stats = stats;
+            if (config.getMaxBatchSize() > 1) {
+                validateBatchConfig();
+                batcher = new TbMsgBatcher(BATCH_FLUSH_MSG_TYPE, config.getMaxBatchSize(), config.getBatchLingerMs(), this::sendBatch);
             }
 
             if (config.isEnableProxy()) {
@@ -94,13 +111,12 @@ public class TbHttpClient {
                 String proxyUser;
                 String proxyPassword;
 
-                CloseableHttpAsyncClient asyncClient;
                 HttpComponentsAsyncClientHttpRequestFactory requestFactory = new HttpComponentsAsyncClientHttpRequestFactory();
 
                 if (config.isUseSystemProxyProperties()) {
                     checkSystemProxyProperties();
 
-                    asyncClient = HttpAsyncClients.createSystem();
+                    asyncClient = configureConnectionPool(HttpAsyncClientBuilder.create().useSystemProperties()).build();
 
                     proxyUser = System.getProperty("tb.proxy.user");
                     proxyPassword = System.getProperty("tb.proxy.password");
@@ -129,12 +145,22 @@ public class TbHttpClient {
                         );
                         httpAsyncClientBuilder.setDefaultCredentialsProvider(credsProvider);
                     }
-                    asyncClient = httpAsyncClientBuilder.build();
+                    asyncClient = configureConnectionPool(httpAsyncClientBuilder).build();
                 }
 
                 requestFactory.setAsyncClient(asyncClient);
                 requestFactory.setReadTimeout(config.getReadTimeoutMs());
                 httpClient = new AsyncRestTemplate(requestFactory);
+            } else if (config.getConnectionPoolSize() > 0) {
+                if (CredentialsType.CERT_PEM == config.getCredentials().getType()) {
+                    throw new TbNodeException("Pooled HTTP client does not support CERT PEM credentials!");
+                }
+                asyncClient = configureConnectionPool(HttpAsyncClientBuilder.create()
+                        .setSSLHostnameVerifier(new DefaultHostnameVerifier())
+                        .setSSLContext(SSLContext.getDefault())).build();
+                HttpComponentsAsyncClientHttpRequestFactory requestFactory = new HttpComponentsAsyncClientHttpRequestFactory(asyncClient);
+                requestFactory.setReadTimeout(config.getReadTimeoutMs());
+                httpClient = new AsyncRestTemplate(requestFactory);
             } else if (config.isUseSimpleClientHttpFactory()) {
                 if (CredentialsType.CERT_PEM == config.getCredentials().getType()) {
                     throw new TbNodeException("Simple HTTP Factory does not support CERT PEM credentials!");
@@ -151,6 +177,34 @@ public class TbHttpClient {
         }
     }
 
+    private HttpAsyncClientBuilder configureConnectionPool(HttpAsyncClientBuilder builder) {
+        if (config.getConnectionPoolSize() > 0) {
+            builder.setMaxConnTotal(config.getConnectionPoolSize())
+                    .setMaxConnPerRoute(config.getConnectionPoolSize());
+        }
+        return builder;
+    }
+
+    private void validateBatchConfig() throws TbNodeException {
+        if (!hasRequestBody(HttpMethod.valueOf(config.getRequestMethod()))) {
+            throw new TbNodeException("Request batching requires a request method with body!");
+        }
+        boolean hasPatterns = hasPattern(config.getRestEndpointUrlPattern()) || config.getHeaders().entrySet().stream()
+                .anyMatch(header -> hasPattern(header.getKey()) || hasPattern(header.getValue()));
+        if (hasPatterns) {
+            throw new TbNodeException("Request batching does not support message patterns in the endpoint URL and headers!");
+        }
+        try {
+            buildEncodedUri(config.getRestEndpointUrlPattern());
+        } catch (RuntimeException e) {
+            throw new TbNodeException(e);
+        }
+    }
+
+    private static boolean hasPattern(String value) {
+        return value != null && (value.contains("${") || value.contains("$["));
+    }
+
     EventLoopGroup getSharedOrCreateEventLoopGroup(EventLoopGroup eventLoopGroupShared) {
         if (eventLoopGroupShared != null) {
             return eventLoopGroupShared;
@@ -173,50 +227,170 @@ public class TbHttpClient {
     }
 
     void destroy() {
+        List<Request> requests;
+        synchronized (this) {
+            requests = new ArrayList<>(waitingRequests);
+            waitingRequests.clear();
+        }
+        IllegalStateException destroyed = new IllegalStateException("REST API call node is stopped");
+        requests.forEach(request -> request.getCallback().onFailure(destroyed));
+        if (batcher != null) {
+            batcher.clear(destroyed);
+        }
+        if (this.asyncClient != null) {
+            try {
+                this.asyncClient.close();
+            } catch (IOException e) {
+                log.warn("Failed to close HTTP client", e);
+            }
+        }
         if (this.eventLoopGroup != null) {
             this.eventLoopGroup.shutdownGracefully(0, 5, TimeUnit.SECONDS);
         }
+        log.debug("[{}] HTTP client stats: {}", config.getRestEndpointUrlPattern(), stats);
+        stats.destroy();
     }
 
     public void processMessage(TbContext ctx, TbMsg msg) {
+        if (batcher != null) {
+            if (batcher.isFlushMsg(msg)) {
+                batcher.flush();
+            } else {
+                batcher.add(ctx, msg);
+            }
+            return;
+        }
         String endpointUrl = TbNodeUtils.processPattern(config.getRestEndpointUrlPattern(), msg);
         HttpHeaders headers = prepareHeaders(msg);
         HttpMethod method = HttpMethod.valueOf(config.getRequestMethod());
         HttpEntity<String> entity;
-        if(HttpMethod.GET.equals(method) || HttpMethod.HEAD.equals(method) ||
-            HttpMethod.OPTIONS.equals(method) || HttpMethod.TRACE.equals(method) ||
-            config.isIgnoreRequestBody()) {
+        if (!hasRequestBody(method) || config.isIgnoreRequestBody()) {
             entity = new HttpEntity<>(headers);
         } else {
             entity = new HttpEntity<>(msg.getData(), headers);
         }
 
         URI uri = buildEncodedUri(endpointUrl);
-        ListenableFuture<ResponseEntity<String>> future = httpClient.exchange(
-                uri, method, entity, String.class);
-        future.addCallback(new ListenableFutureCallback<ResponseEntity<String>>() {
+        submit(new Request(uri, method, entity, new ListenableFutureCallback<>() {
             @Override
             public void onFailure(Throwable throwable) {
-                TbMsg next = processException(ctx, msg, throwable);
-                ctx.tellFailure(next, throwable);
+                onRequestFailure(ctx, msg, throwable);
             }
 
             @Override
             public void onSuccess(ResponseEntity<String> responseEntity) {
-                if (responseEntity.getStatusCode().is2xxSuccessful()) {
-                    TbMsg next = processResponse(ctx, msg, responseEntity);
-                    ctx.tellSuccess(next);
-                } else {
-                    TbMsg next = processFailureResponse(ctx, msg, responseEntity);
-                    ctx.tellNext(next, TbRelationTypes.FAILURE);
+                onResponse(ctx, msg, responseEntity);
+            }
+        }));
+    }
+
+    private void sendBatch(List<BatchedMsg> msgs) {
+        TbMsg first = msgs.get(0).getMsg();
+        URI uri = buildEncodedUri(TbNodeUtils.processPattern(config.getRestEndpointUrlPattern(), first));
+        HttpHeaders headers = prepareHeaders(first);
+        HttpMethod method = HttpMethod.valueOf(config.getRequestMethod());
+        HttpEntity<String> entity = new HttpEntity<>(TbMsgBatcher.toJsonArray(msgs), headers);
+        submit(new Request(uri, method, entity, new ListenableFutureCallback<>() {
+            @Override
+            public void onFailure(Throwable throwable) {
+                msgs.forEach(batchedMsg -> onRequestFailure(batchedMsg.getCtx(), batchedMsg.getMsg(), throwable));
+            }
+
+            @Override
+            public void onSuccess(ResponseEntity<String> responseEntity) {
+                msgs.forEach(batchedMsg -> onResponse(batchedMsg.getCtx(), batchedMsg.getMsg(), responseEntity));
+            }
+        }));
+    }
+
+    private void submit(Request request) {
+        if (config.getMaxParallelRequestsCount() > 0) {
+            synchronized (this) {
+                if (inFlightRequests >= config.getMaxParallelRequestsCount()) {
+                    waitingRequests.add(request);
+                    return;
+                }
+                inFlightRequests++;
+            }
+        }
+        sendRequest(request);
+    }
+
+    private void onRequestDone() {
+        if (config.getMaxParallelRequestsCount() <= 0) {
+            return;
+        }
+        synchronized (this) {
+            inFlightRequests--;
+            // Requests that complete synchronously end up here again; the outer call keeps sending instead of recursing.
+            if (sendingWaitingRequests) {
+                return;
+            }
+            sendingWaitingRequests = true;
+        }
+        while (true) {
+            Request next;
+            synchronized (this) {
+                next = inFlightRequests < config.getMaxParallelRequestsCount() ? waitingRequests.poll() : null;
+                if (next == null) {
+                    sendingWaitingRequests = false;
+                    return;
                 }
+                inFlightRequests++;
+            }
+            sendRequest(next);
+        }
+    }
+
+    private void sendRequest(Request request) {
+        ListenableFutureCallback<ResponseEntity<String>> callback = request.getCallback();
+        long startNs = System.nanoTime();
+        ListenableFuture<ResponseEntity<String>> future;
+        try {
+            future = httpClient.exchange(request.getUri(), request.getMethod(), request.getEntity(), String.class);
+        } catch (RuntimeException e) {
+            stats.onFailure(startNs);
+            onRequestDone();
+            callback.onFailure(e);
+            return;
+        }
+        future.addCallback(new ListenableFutureCallback<>() {
+            @Override
+            public void onFailure(Throwable throwable) {
+                stats.onFailure(startNs);
+                onRequestDone();
+                callback.onFailure(throwable);
+            }
+
+            @Override
+            public void onSuccess(ResponseEntity<String> responseEntity) {
+                stats.onResponse(startNs, responseEntity.getStatusCode().is2xxSuccessful());
+                onRequestDone();
+                callback.onSuccess(responseEntity);
             }
         });
-        if (pendingFutures != null) {
-            processParallelRequests(future);
+    }
+
+    private void onResponse(TbContext ctx, TbMsg msg, ResponseEntity<String> responseEntity) {
+        if (responseEntity.getStatusCode().is2xxSuccessful()) {
+            TbMsg next = processResponse(ctx, msg, responseEntity);
+            ctx.tellSuccess(next);
+        } else {
+            TbMsg next = processFailureResponse(ctx, msg, responseEntity);
+            ctx.tellNext(next, TbRelationTypes.FAILURE);
         }
     }
 
+    private void onRequestFailure(TbContext ctx, TbMsg msg, Throwable throwable) {
+        TbMsg next = processException(ctx, msg, throwable);
+        ctx.tellFailure(next, throwable);
+    }
+
+    private static boolean hasRequestBody(HttpMethod method) {
+        return !(HttpMethod.GET.equals(method) || HttpMethod.HEAD.equals(method) ||
+                HttpMethod.OPTIONS.equals(method) || HttpMethod.TRACE.equals(method));
+    }
+
     public URI buildEncodedUri(String endpointUrl) {
         if (endpointUrl == null) {
             throw new RuntimeException("Url string cannot be null!");
@@ -283,25 +457,6 @@ public class TbHttpClient {
         return headers;
     }
 
-    private void processParallelRequests(ListenableFuture<ResponseEntity<String>> future) {
-        pendingFutures.add(future);
-        if (pendingFutures.size() > config.getMaxParallelRequestsCount()) {
-            for (int i = 0; i < config.getMaxParallelRequestsCount(); i++) {
-                try {
-                    ListenableFuture<ResponseEntity<String>> pendingFuture = pendingFutures.removeFirst();
-                    try {
-                        pendingFuture.get(config.getReadTimeoutMs(), TimeUnit.MILLISECONDS);
-                    } catch (Exception e) {
-                        log.warn("Timeout during waiting for reply!", e);
-                        pendingFuture.cancel(true);
-                    }
-                } catch (Exception e) {
-                    log.warn("Failure during waiting for reply!", e);
-                }
-            }
-        }
-    }
-
     private static void checkProxyHost(String proxyHost) throws TbNodeException {
         if (StringUtils.isEmpty(proxyHost)) {
             throw new TbNodeException("Proxy host can't be empty");
@@ -314,4 +469,12 @@ public class TbHttpClient {
         }
     }
 
+    @Data
+    private static class Request {
+        private final URI uri;
+        private final HttpMethod method;
+        private final HttpEntity<String> entity;
+        private final ListenableFutureCallback<ResponseEntity<String>> callback;
+    }
+
 }
@@ -0,0 +1,94 @@
+/**
+ * Copyright © 2016-2022 The Thingsboard Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.thingsboard.rule.engine.rest;
+
+import io.micrometer.core.instrument.Timer;
+import org.thingsboard.server.common.stats.DefaultCounter;
+import org.thingsboard.server.common.stats.StatsFactory;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Request counters and latency of a single REST API call node, exported through the meter registry
+ * and removed from it when the HTTP client of the node is destroyed.
+ */
+class TbHttpClientStats {
+
+    static final String REQUESTS = "ruleNode.restApiCall.requests";
+    static final String ERRORS = "ruleNode.restApiCall.errors";
+    static final String LATENCY = "ruleNode.restApiCall.latency";
+
+    private static final String RULE_NODE_ID_TAG = "ruleNodeId";
+
+    private final StatsFactory statsFactory;
+    private final String ruleNodeId;
+    private final DefaultCounter requests;
+    private final DefaultCounter errors;
+    private final Timer latency;
+
+    TbHttpClientStats(StatsFactory statsFactory, String ruleNodeId) {
+        this.statsFactory = statsFactory;
+        this.ruleNodeId = ruleNodeId;
+        this.requests = statsFactory.createDefaultCounter(REQUESTS, RULE_NODE_ID_TAG, ruleNodeId);
+        this.errors = statsFactory.createDefaultCounter(ERRORS, RULE_NODE_ID_TAG, ruleNodeId);
+        this.latency = statsFactory.createTimer(LATENCY, RULE_NODE_ID_TAG, ruleNodeId);
+    }
+
+    void onResponse(long startNs, boolean success) {
+        record(startNs);
+        if (!success) {
+            errors.increment();
+        }
+    }
+
+    void onFailure(long startNs) {
+        record(startNs);
+        errors.increment();
+    }
+
+    long getRequests() {
+        return requests.get();
+    }
+
+    long getErrors() {
+        return errors.get();
+    }
+
+    long getAvgLatencyMs() {
+        return (long) latency.mean(TimeUnit.MILLISECONDS);
+    }
+
+    long getMaxLatencyMs() {
+        return (long) latency.max(TimeUnit.MILLISECONDS);
+    }
+
+    void destroy() {
+        for (String key : new String[]{REQUESTS, ERRORS, LATENCY}) {
+            statsFactory.removeMeters(key, RULE_NODE_ID_TAG, ruleNodeId);
+        }
+    }
+
+    private void record(long startNs) {
+        requests.increment();
+        latency.record(System.nanoTime() - startNs, TimeUnit.NANOSECONDS);
+    }
+
+    @Override
+    public String toString() {
+        return "[requests=" + getRequests() + ", errors=" + getErrors() +
+                ", avgLatencyMs=" + getAvgLatencyMs() + ", maxLatencyMs=" + getMaxLatencyMs() + "]";
+    }
+}
@@ -36,6 +36,9 @@ public class TbRestApiCallNodeConfiguration implements NodeConfiguration<TbRestA
     private boolean useSimpleClientHttpFactory;
     private int readTimeoutMs;
     private int maxParallelRequestsCount;
+    private int connectionPoolSize;
+    private int maxBatchSize;
+    private int batchLingerMs;
     private boolean useRedisQueueForMsgPersistence;
     private boolean trimQueue;
     private int maxQueueSize;
@@ -58,6 +61,9 @@ public class TbRestApiCallNodeConfiguration implements NodeConfiguration<TbRestA
         configuration.setUseSimpleClientHttpFactory(false);
         configuration.setReadTimeoutMs(0);
         configuration.setMaxParallelRequestsCount(0);
+        configuration.setConnectionPoolSize(0);
+        configuration.setMaxBatchSize(0);
+        configuration.setBatchLingerMs(100);
         configuration.setUseRedisQueueForMsgPersistence(false);
         configuration.setTrimQueue(false);
         configuration.setEnableProxy(false);
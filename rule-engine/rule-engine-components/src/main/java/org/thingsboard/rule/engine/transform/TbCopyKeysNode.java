@@ -46,7 +46,8 @@ import java.util.regex.Pattern;
                 "Returns transformed messages via <code>Success</code> chain",
         uiResources = {"static/rulenode/rulenode-core-config.js"},
         configDirective = "tbTransformationNodeCopyKeysConfig",
-        icon = "content_copy"
+        icon = "content_copy",
+        fusible = true
 )
 public class TbCopyKeysNode implements TbNode {
 
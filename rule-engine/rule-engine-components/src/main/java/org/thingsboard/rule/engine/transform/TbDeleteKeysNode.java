@@ -46,7 +46,8 @@ import java.util.regex.Pattern;
                 "or metadata fields it will be ignored. Returns transformed messages via <code>Success</code> chain",
         uiResources = {"static/rulenode/rulenode-core-config.js"},
         configDirective = "tbTransformationNodeDeleteKeysConfig",
-        icon = "remove_circle"
+        icon = "remove_circle",
+        fusible = true
 )
 public class TbDeleteKeysNode implements TbNode {
 
@@ -45,7 +45,8 @@ import java.util.concurrent.ExecutionException;
                 + "otherwise <code>Success</code> chain is used.",
         uiResources = {"static/rulenode/rulenode-core-config.js"},
         icon = "functions",
-        configDirective = "tbTransformationNodeJsonPathConfig"
+        configDirective = "tbTransformationNodeJsonPathConfig",
+        fusible = true
 )
 public class TbJsonPathNode implements TbNode {
 
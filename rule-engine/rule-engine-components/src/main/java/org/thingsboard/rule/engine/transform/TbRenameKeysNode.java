@@ -42,7 +42,8 @@ import java.util.concurrent.ExecutionException;
                 " Returns transformed messages via <code>Success</code> chain",
         uiResources = {"static/rulenode/rulenode-core-config.js"},
         configDirective = "tbTransformationNodeRenameKeysConfig",
-        icon = "find_replace"
+        icon = "find_replace",
+        fusible = true
 )
 public class TbRenameKeysNode implements TbNode {
 
@@ -0,0 +1,127 @@
+/**
+ * Copyright © 2016-2022 The Thingsboard Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.thingsboard.rule.engine.util;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.TextNode;
+import lombok.Data;
+import org.thingsboard.common.util.JacksonUtil;
+import org.thingsboard.rule.engine.api.TbContext;
+import org.thingsboard.server.common.msg.TbMsg;
+import org.thingsboard.server.common.msg.TbMsgMetaData;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * Collects the messages of a rule node into batches of up to maxBatchSize messages. A batch is handed to the sender
+ * once it is full or, at the latest, maxLingerMs after its first message by means of a self message of flushMsgType,
+ * which the node passes back to {@link #flush()}. The sender routes every message of the batch.
+ */
+public class TbMsgBatcher {
+
+    private final String flushMsgType;
+    private final int maxBatchSize;
+    private final long maxLingerMs;
+    private final Consumer<List<BatchedMsg>> sender;
+
+    private List<BatchedMsg> batch = new ArrayList<>();
+    private boolean flushScheduled;
+
+    public TbMsgBatcher(String flushMsgType, int maxBatchSize, long maxLingerMs, Consumer<List<BatchedMsg>> sender) {
+        this.flushMsgType = flushMsgType;
+        this.maxBatchSize = maxBatchSize;
+        this.maxLingerMs = maxLingerMs;
+        this.sender = sender;
+    }
+
+    public boolean isFlushMsg(TbMsg msg) {
+        return flushMsgType.equals(msg.getType());
+    }
+
+    public void add(TbContext ctx, TbMsg msg) {
+        List<BatchedMsg> msgs = null;
+        boolean scheduleFlush = false;
+        synchronized (this) {
+            batch.add(new BatchedMsg(ctx, msg));
+            if (batch.size() >= maxBatchSize) {
+                msgs = batch;
+                batch = new ArrayList<>();
+            } else if (!flushScheduled) {
+                flushScheduled = true;
+                scheduleFlush = true;
+            }
+        }
+        if (msgs != null) {
+            sender.accept(msgs);
+        } else if (scheduleFlush) {
+            TbMsg flushMsg = ctx.newMsg(null, flushMsgType, ctx.getSelfId(), msg.getCustomerId(), new TbMsgMetaData(), "");
+            ctx.tellSelf(flushMsg, maxLingerMs);
+        }
+    }
+
+    public void flush() {
+        List<BatchedMsg> msgs;
+        synchronized (this) {
+            flushScheduled = false;
+            if (batch.isEmpty()) {
+                return;
+            }
+            msgs = batch;
+            batch = new ArrayList<>();
+        }
+        sender.accept(msgs);
+    }
+
+    /**
+     * Drops the pending batch and routes its messages to failure with the given cause, so that they are not left
+     * unacknowledged when the node is stopped.
+     */
+    public void clear(Throwable cause) {
+        List<BatchedMsg> msgs;
+        synchronized (this) {
+            msgs = batch;
+            batch = new ArrayList<>();
+        }
+        msgs.forEach(batchedMsg -> batchedMsg.getCtx().tellFailure(batchedMsg.getMsg(), cause));
+    }
+
+    /**
+     * Joins the payloads of the messages into a JSON array. Payloads that are not valid JSON are added as strings.
+     */
+    public static String toJsonArray(List<BatchedMsg> msgs) {
+        ArrayNode array = JacksonUtil.OBJECT_MAPPER.createArrayNode();
+        msgs.forEach(batchedMsg -> array.add(toJsonValue(batchedMsg.getMsg().getData())));
+        return JacksonUtil.toString(array);
+    }
+
+    private static JsonNode toJsonValue(String data) {
+        try {
+            JsonNode node = JacksonUtil.toJsonNode(data);
+            return node != null ? node : TextNode.valueOf("");
+        } catch (IllegalArgumentException e) {
+            return TextNode.valueOf(data);
+        }
+    }
+
+    @Data
+    public static class BatchedMsg {
+        private final TbContext ctx;
+        private final TbMsg msg;
+    }
+}
@@ -28,7 +28,6 @@ import org.mockito.ArgumentCaptor;
 import org.mockito.Captor;
 import org.mockito.Mock;
 import org.mockito.junit.MockitoJUnitRunner;
-import org.mockito.stubbing.Answer;
 import org.thingsboard.common.util.ListeningExecutor;
 import org.thingsboard.rule.engine.api.RuleEngineAlarmService;
 import org.thingsboard.rule.engine.api.ScriptEngine;
@@ -130,7 +129,7 @@ public class TbAlarmNodeTest {
 
         when(detailsJs.executeJsonAsync(msg)).thenReturn(Futures.immediateFuture(null));
         when(alarmService.findLatestByOriginatorAndType(tenantId, originator, "SomeType")).thenReturn(Futures.immediateFuture(null));
-        doAnswer((Answer<Alarm>) invocationOnMock -> (Alarm) (invocationOnMock.getArguments())[0]).when(alarmService).createOrUpdateAlarm(any(Alarm.class));
+        doAnswer(invocationOnMock -> Futures.immediateFuture(invocationOnMock.getArgument(0))).when(alarmService).createOrUpdateAlarmAsync(any(Alarm.class));
         long ts = msg.getTs();
         node.onMsg(ctx, msg);
 
@@ -201,7 +200,7 @@ public class TbAlarmNodeTest {
         when(detailsJs.executeJsonAsync(msg)).thenReturn(Futures.immediateFuture(null));
         when(alarmService.findLatestByOriginatorAndType(tenantId, originator, "SomeType")).thenReturn(Futures.immediateFuture(clearedAlarm));
 
-        doAnswer((Answer<Alarm>) invocationOnMock -> (Alarm) (invocationOnMock.getArguments())[0]).when(alarmService).createOrUpdateAlarm(any(Alarm.class));
+        doAnswer(invocationOnMock -> Futures.immediateFuture(invocationOnMock.getArgument(0))).when(alarmService).createOrUpdateAlarmAsync(any(Alarm.class));
 
         node.onMsg(ctx, msg);
 
@@ -251,7 +250,7 @@ public class TbAlarmNodeTest {
         when(detailsJs.executeJsonAsync(msg)).thenReturn(Futures.immediateFuture(null));
         when(alarmService.findLatestByOriginatorAndType(tenantId, originator, "SomeType")).thenReturn(Futures.immediateFuture(activeAlarm));
 
-        doAnswer((Answer<Alarm>) invocationOnMock -> (Alarm) (invocationOnMock.getArguments())[0]).when(alarmService).createOrUpdateAlarm(activeAlarm);
+        doAnswer(invocationOnMock -> Futures.immediateFuture(invocationOnMock.getArgument(0))).when(alarmService).createOrUpdateAlarmAsync(activeAlarm);
 
         node.onMsg(ctx, msg);
 
@@ -415,7 +414,7 @@ public class TbAlarmNodeTest {
         long ts = msg.getTs();
         when(detailsJs.executeJsonAsync(msg)).thenReturn(Futures.immediateFuture(null));
         when(alarmService.findLatestByOriginatorAndType(tenantId, originator, "SomeType")).thenReturn(Futures.immediateFuture(null));
-        doAnswer((Answer<Alarm>) invocationOnMock -> (Alarm) (invocationOnMock.getArguments())[0]).when(alarmService).createOrUpdateAlarm(any(Alarm.class));
+        doAnswer(invocationOnMock -> Futures.immediateFuture(invocationOnMock.getArgument(0))).when(alarmService).createOrUpdateAlarmAsync(any(Alarm.class));
 
         node.onMsg(ctx, msg);
 
@@ -478,7 +477,7 @@ public class TbAlarmNodeTest {
 
         when(detailsJs.executeJsonAsync(msg)).thenReturn(Futures.immediateFuture(null));
         when(alarmService.findLatestByOriginatorAndType(tenantId, originator, "SomeType")).thenReturn(Futures.immediateFuture(null));
-        doAnswer((Answer<Alarm>) invocationOnMock -> (Alarm) (invocationOnMock.getArguments())[0]).when(alarmService).createOrUpdateAlarm(any(Alarm.class));
+        doAnswer(invocationOnMock -> Futures.immediateFuture(invocationOnMock.getArgument(0))).when(alarmService).createOrUpdateAlarmAsync(any(Alarm.class));
 
         node.onMsg(ctx, msg);
 
@@ -540,7 +539,7 @@ public class TbAlarmNodeTest {
 
             when(detailsJs.executeJsonAsync(msg)).thenReturn(Futures.immediateFuture(null));
             when(alarmService.findLatestByOriginatorAndType(tenantId, originator, "SomeType" + i)).thenReturn(Futures.immediateFuture(null));
-            doAnswer((Answer<Alarm>) invocationOnMock -> (Alarm) (invocationOnMock.getArguments())[0]).when(alarmService).createOrUpdateAlarm(any(Alarm.class));
+            doAnswer(invocationOnMock -> Futures.immediateFuture(invocationOnMock.getArgument(0))).when(alarmService).createOrUpdateAlarmAsync(any(Alarm.class));
             long ts = msg.getTs();
             node.onMsg(ctx, msg);
 
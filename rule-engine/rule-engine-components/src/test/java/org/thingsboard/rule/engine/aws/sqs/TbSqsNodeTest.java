@@ -0,0 +1,159 @@
+/**
+ * Copyright © 2016-2022 The Thingsboard Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.thingsboard.rule.engine.aws.sqs;
+
+import com.amazonaws.ResponseMetadata;
+import com.amazonaws.services.sqs.AmazonSQS;
+import com.amazonaws.services.sqs.model.SendMessageBatchRequest;
+import com.amazonaws.services.sqs.model.SendMessageBatchResult;
+import com.google.common.util.concurrent.Futures;
+import com.google.common.util.concurrent.ListenableFuture;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.thingsboard.common.util.JacksonUtil;
+import org.thingsboard.common.util.ListeningExecutor;
+import org.thingsboard.rule.engine.api.TbContext;
+import org.thingsboard.rule.engine.api.TbNodeConfiguration;
+import org.thingsboard.rule.engine.util.TbMsgBatcher.BatchedMsg;
+import org.thingsboard.server.common.data.id.DeviceId;
+import org.thingsboard.server.common.msg.TbMsg;
+import org.thingsboard.server.common.msg.TbMsgMetaData;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.Callable;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+public class TbSqsNodeTest {
+
+    TbContext ctx;
+    AmazonSQS sqsClient;
+    TbSqsNode node;
+
+    @Before
+    public void setUp() throws Exception {
+        ctx = mock(TbContext.class);
+        when(ctx.getExternalCallExecutor()).thenReturn(new ListeningExecutor() {
+            @Override
+            public <T> ListenableFuture<T> executeAsync(Callable<T> task) {
+                try {
+                    return Futures.immediateFuture(task.call());
+                } catch (Exception e) {
+                    return Futures.immediateFailedFuture(e);
+                }
+            }
+
+            @Override
+            public void execute(Runnable command) {
+                command.run();
+            }
+        });
+
+        TbSqsNodeConfiguration config = new TbSqsNodeConfiguration().defaultConfiguration();
+        config.setAccessKeyId("accessKeyId");
+        config.setSecretAccessKey("secretAccessKey");
+        config.setMaxBatchSize(30);
+        node = new TbSqsNode();
+        node.init(ctx, new TbNodeConfiguration(JacksonUtil.valueToTree(config)));
+        ((AmazonSQS) ReflectionTestUtils.getField(node, "sqsClient")).shutdown();
+
+        sqsClient = mock(AmazonSQS.class);
+        when(sqsClient.sendMessageBatch(any(SendMessageBatchRequest.class)))
+                .thenReturn(new SendMessageBatchResult().withSdkResponseMetadata(new ResponseMetadata(Collections.singletonMap(ResponseMetadata.AWS_REQUEST_ID, "requestId"))));
+        ReflectionTestUtils.setField(node, "sqsClient", sqsClient);
+    }
+
+    @After
+    public void tearDown() {
+        node.destroy();
+    }
+
+    @Test
+    public void givenMoreThanTenMessages_whenSplitBatch_thenSplitByEntryCount() {
+        List<List<BatchedMsg>> batches = node.splitBatch(newBatchedMsgs(25, "{}"));
+
+        Assert.assertEquals(3, batches.size());
+        Assert.assertEquals(10, batches.get(0).size());
+        Assert.assertEquals(10, batches.get(1).size());
+        Assert.assertEquals(5, batches.get(2).size());
+    }
+
+    @Test
+    public void givenLargeMessages_whenSplitBatch_thenSplitByPayloadSize() {
+        String data = "a".repeat(100 * 1024);
+        List<BatchedMsg> msgs = newBatchedMsgs(3, data);
+        msgs.addAll(newBatchedMsgs(1, "b".repeat(TbSqsNode.MAX_BATCH_REQUEST_PAYLOAD_SIZE + 1)));
+        msgs.addAll(newBatchedMsgs(1, "{}"));
+
+        List<List<BatchedMsg>> batches = node.splitBatch(msgs);
+
+        Assert.assertEquals(4, batches.size());
+        Assert.assertEquals(2, batches.get(0).size());
+        Assert.assertEquals(1, batches.get(1).size());
+        Assert.assertEquals(1, batches.get(2).size());
+        Assert.assertEquals(1, batches.get(3).size());
+    }
+
+    @Test
+    public void givenLargeMessages_whenFlush_thenEveryRequestWithinPayloadLimit() {
+        String data = "a".repeat(100 * 1024);
+        for (int i = 0; i < 5; i++) {
+            node.onMsg(ctx, newMsg(data));
+        }
+        node.onMsg(ctx, TbMsg.newMsg("TbSqsNodeBatchFlushMsg", new DeviceId(UUID.randomUUID()), new TbMsgMetaData(), ""));
+
+        ArgumentCaptor<SendMessageBatchRequest> requests = ArgumentCaptor.forClass(SendMessageBatchRequest.class);
+        verify(sqsClient, times(3)).sendMessageBatch(requests.capture());
+        for (SendMessageBatchRequest request : requests.getAllValues()) {
+            int payloadSize = request.getEntries().stream().mapToInt(entry -> entry.getMessageBody().length()).sum();
+            Assert.assertTrue(payloadSize <= TbSqsNode.MAX_BATCH_REQUEST_PAYLOAD_SIZE);
+        }
+    }
+
+    @Test
+    public void givenPendingBatch_whenDestroy_thenMessagesFailed() {
+        TbMsg msg = newMsg("{}");
+        node.onMsg(ctx, msg);
+
+        node.destroy();
+
+        verify(ctx, times(1)).tellFailure(any(TbMsg.class), any(IllegalStateException.class));
+        verify(sqsClient, times(0)).sendMessageBatch(any(SendMessageBatchRequest.class));
+    }
+
+    private List<BatchedMsg> newBatchedMsgs(int count, String data) {
+        List<BatchedMsg> msgs = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            msgs.add(new BatchedMsg(ctx, newMsg(data)));
+        }
+        return msgs;
+    }
+
+    private static TbMsg newMsg(String data) {
+        return TbMsg.newMsg("POST_TELEMETRY_REQUEST", new DeviceId(UUID.randomUUID()), new TbMsgMetaData(), data);
+    }
+}
@@ -0,0 +1,137 @@
+/**
+ * Copyright © 2016-2022 The Thingsboard Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.thingsboard.rule.engine.kafka;
+
+import com.google.common.util.concurrent.Futures;
+import com.google.common.util.concurrent.ListenableFuture;
+import org.apache.kafka.clients.producer.MockProducer;
+import org.apache.kafka.clients.producer.Producer;
+import org.apache.kafka.clients.producer.ProducerRecord;
+import org.apache.kafka.common.serialization.StringSerializer;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.thingsboard.common.util.JacksonUtil;
+import org.thingsboard.common.util.ListeningExecutor;
+import org.thingsboard.rule.engine.api.TbContext;
+import org.thingsboard.rule.engine.api.TbNodeConfiguration;
+import org.thingsboard.rule.engine.api.TbRelationTypes;
+import org.thingsboard.server.common.data.id.DeviceId;
+import org.thingsboard.server.common.data.id.RuleNodeId;
+import org.thingsboard.server.common.msg.TbMsg;
+import org.thingsboard.server.common.msg.TbMsgMetaData;
+
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.Callable;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+public class TbKafkaNodeTest {
+
+    private static final String FLUSH_MSG_TYPE = "TbKafkaNodeBatchFlushMsg";
+
+    TbContext ctx;
+    MockProducer<String, String> producer;
+    TbKafkaNode node;
+
+    @Before
+    public void setUp() throws Exception {
+        ctx = mock(TbContext.class);
+        when(ctx.getSelfId()).thenReturn(new RuleNodeId(UUID.randomUUID()));
+        when(ctx.getServiceId()).thenReturn("tb-rule-engine");
+        when(ctx.getExternalCallExecutor()).thenReturn(new ListeningExecutor() {
+            @Override
+            public <T> ListenableFuture<T> executeAsync(Callable<T> task) {
+                try {
+                    return Futures.immediateFuture(task.call());
+                } catch (Exception e) {
+                    return Futures.immediateFailedFuture(e);
+                }
+            }
+
+            @Override
+            public void execute(Runnable command) {
+                command.run();
+            }
+        });
+
+        TbKafkaNodeConfiguration config = new TbKafkaNodeConfiguration().defaultConfiguration();
+        config.setMsgBatchSize(3);
+        node = new TbKafkaNode();
+        node.init(ctx, new TbNodeConfiguration(JacksonUtil.valueToTree(config)));
+        ((Producer<?, ?>) ReflectionTestUtils.getField(node, "producer")).close();
+
+        producer = new MockProducer<>(true, new StringSerializer(), new StringSerializer());
+        ReflectionTestUtils.setField(node, "producer", producer);
+    }
+
+    @After
+    public void tearDown() {
+        node.destroy();
+    }
+
+    @Test
+    public void givenFullBatch_whenOnMsg_thenSingleRecordWithJsonArray() {
+        node.onMsg(ctx, newMsg("{\"temperature\":42}"));
+        node.onMsg(ctx, newMsg("{\"temperature\":43}"));
+        Assert.assertTrue(producer.history().isEmpty());
+        verify(ctx, times(1)).tellSelf(any(), eq(100L));
+
+        node.onMsg(ctx, newMsg("plain text"));
+
+        List<ProducerRecord<String, String>> records = producer.history();
+        Assert.assertEquals(1, records.size());
+        Assert.assertEquals("my-topic", records.get(0).topic());
+        Assert.assertEquals("[{\"temperature\":42},{\"temperature\":43},\"plain text\"]", records.get(0).value());
+        verify(ctx, times(3)).tellNext(any(), eq(TbRelationTypes.SUCCESS));
+    }
+
+    @Test
+    public void givenPartialBatch_whenFlushMsg_thenBatchSent() {
+        node.onMsg(ctx, newMsg("{}"));
+
+        node.onMsg(ctx, TbMsg.newMsg(FLUSH_MSG_TYPE, new DeviceId(UUID.randomUUID()), new TbMsgMetaData(), ""));
+
+        Assert.assertEquals(1, producer.history().size());
+        Assert.assertEquals("[{}]", producer.history().get(0).value());
+        verify(ctx, times(1)).tellNext(any(), eq(TbRelationTypes.SUCCESS));
+    }
+
+    @Test
+    public void givenPendingBatch_whenDestroy_thenMessagesFailed() {
+        TbMsg msg = newMsg("{}");
+        node.onMsg(ctx, msg);
+
+        node.destroy();
+
+        verify(ctx, times(1)).tellFailure(eq(msg), any(IllegalStateException.class));
+        verify(ctx, never()).tellNext(any(), any(String.class));
+        Assert.assertTrue(producer.history().isEmpty());
+    }
+
+    private static TbMsg newMsg(String data) {
+        return TbMsg.newMsg("POST_TELEMETRY_REQUEST", new DeviceId(UUID.randomUUID()), new TbMsgMetaData(), data);
+    }
+}
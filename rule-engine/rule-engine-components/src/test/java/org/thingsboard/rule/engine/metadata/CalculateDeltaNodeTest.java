@@ -0,0 +1,134 @@
+/**
+ * Copyright © 2016-2022 The Thingsboard Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.thingsboard.rule.engine.metadata;
+
+import com.datastax.oss.driver.api.core.uuid.Uuids;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.google.common.util.concurrent.Futures;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.MockitoJUnitRunner;
+import org.thingsboard.common.util.AbstractListeningExecutor;
+import org.thingsboard.common.util.JacksonUtil;
+import org.thingsboard.rule.engine.api.RuleEngineRecentTelemetryCache;
+import org.thingsboard.rule.engine.api.TbContext;
+import org.thingsboard.rule.engine.api.TbNodeConfiguration;
+import org.thingsboard.rule.engine.api.TbNodeException;
+import org.thingsboard.server.common.data.id.DeviceId;
+import org.thingsboard.server.common.data.id.EntityId;
+import org.thingsboard.server.common.data.id.TenantId;
+import org.thingsboard.server.common.data.kv.BasicTsKvEntry;
+import org.thingsboard.server.common.data.kv.LongDataEntry;
+import org.thingsboard.server.common.msg.TbMsg;
+import org.thingsboard.server.common.msg.TbMsgMetaData;
+import org.thingsboard.server.common.msg.session.SessionMsgType;
+import org.thingsboard.server.dao.timeseries.TimeseriesService;
+
+import java.util.Collections;
+import java.util.Optional;
+
+import static org.junit.Assert.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.lenient;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@RunWith(MockitoJUnitRunner.class)
+public class CalculateDeltaNodeTest {
+
+    private static final String INPUT_KEY = "pulseCounter";
+
+    private final EntityId originator = new DeviceId(Uuids.timeBased());
+    private final TenantId tenantId = TenantId.fromUUID(Uuids.timeBased());
+
+    @Mock
+    private TbContext ctx;
+    @Mock
+    private TimeseriesService tsService;
+    @Mock
+    private RuleEngineRecentTelemetryCache recentTelemetryCache;
+    private AbstractListeningExecutor dbExecutor;
+
+    private CalculateDeltaNode node;
+
+    @Before
+    public void before() throws TbNodeException {
+        dbExecutor = new AbstractListeningExecutor() {
+            @Override
+            protected int getThreadPollSize() {
+                return 1;
+            }
+        };
+        dbExecutor.init();
+
+        lenient().when(ctx.getTimeseriesService()).thenReturn(tsService);
+        lenient().when(ctx.getTenantId()).thenReturn(tenantId);
+        lenient().when(ctx.getDbCallbackExecutor()).thenReturn(dbExecutor);
+        lenient().when(ctx.getRecentTelemetryCache()).thenReturn(recentTelemetryCache);
+
+        CalculateDeltaNodeConfiguration config = new CalculateDeltaNodeConfiguration().defaultConfiguration();
+        config.setUseCache(false);
+        node = new CalculateDeltaNode();
+        node.init(ctx, new TbNodeConfiguration(JacksonUtil.valueToTree(config)));
+    }
+
+    @After
+    public void after() {
+        dbExecutor.destroy();
+    }
+
+    @Test
+    public void givenRecentValue_whenOnMsg_thenDeltaFromCacheWithoutDatabase() {
+        when(recentTelemetryCache.findLatest(originator, INPUT_KEY))
+                .thenReturn(Optional.of(new BasicTsKvEntry(1000L, new LongDataEntry(INPUT_KEY, 40L))));
+
+        node.onMsg(ctx, telemetryMsg(100));
+
+        assertEquals(60, successDelta());
+        verify(tsService, never()).findLatest(any(), any(), anyList());
+    }
+
+    @Test
+    public void givenNoRecentValue_whenOnMsg_thenDeltaFromDatabase() {
+        when(recentTelemetryCache.findLatest(originator, INPUT_KEY)).thenReturn(Optional.empty());
+        when(tsService.findLatest(tenantId, originator, Collections.singletonList(INPUT_KEY)))
+                .thenReturn(Futures.immediateFuture(Collections.singletonList(new BasicTsKvEntry(1000L, new LongDataEntry(INPUT_KEY, 70L)))));
+
+        node.onMsg(ctx, telemetryMsg(100));
+
+        assertEquals(30, successDelta());
+    }
+
+    private long successDelta() {
+        ArgumentCaptor<TbMsg> captor = ArgumentCaptor.forClass(TbMsg.class);
+        verify(ctx, timeout(5000)).tellSuccess(captor.capture());
+        JsonNode data = JacksonUtil.toJsonNode(captor.getValue().getData());
+        return data.get("delta").asLong();
+    }
+
+    private TbMsg telemetryMsg(long value) {
+        TbMsgMetaData metaData = new TbMsgMetaData();
+        metaData.putValue("ts", "2000");
+        return TbMsg.newMsg(SessionMsgType.POST_TELEMETRY_REQUEST.name(), originator, metaData, "{\"" + INPUT_KEY + "\":" + value + "}");
+    }
+}
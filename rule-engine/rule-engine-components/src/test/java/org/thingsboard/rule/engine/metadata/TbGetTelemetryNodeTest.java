@@ -15,15 +15,41 @@
  */
 package org.thingsboard.rule.engine.metadata;
 
+import com.datastax.oss.driver.api.core.uuid.Uuids;
+import com.google.common.util.concurrent.Futures;
 import org.junit.Before;
 import org.junit.Test;
+import org.thingsboard.common.util.AbstractListeningExecutor;
+import org.thingsboard.common.util.JacksonUtil;
+import org.thingsboard.rule.engine.api.RuleEngineRecentTelemetryCache;
+import org.thingsboard.rule.engine.api.TbContext;
+import org.thingsboard.rule.engine.api.TbNodeConfiguration;
+import org.thingsboard.server.common.data.id.DeviceId;
+import org.thingsboard.server.common.data.id.EntityId;
+import org.thingsboard.server.common.data.id.TenantId;
 import org.thingsboard.server.common.data.kv.Aggregation;
+import org.thingsboard.server.common.data.kv.BasicTsKvEntry;
+import org.thingsboard.server.common.data.kv.LongDataEntry;
+import org.thingsboard.server.common.data.kv.TsKvEntry;
+import org.thingsboard.server.common.msg.TbMsg;
+import org.thingsboard.server.common.msg.TbMsgMetaData;
+import org.thingsboard.server.dao.timeseries.TimeseriesService;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Optional;
 
 import static org.hamcrest.CoreMatchers.is;
 import static org.hamcrest.MatcherAssert.assertThat;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.BDDMockito.willCallRealMethod;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
 
 public class TbGetTelemetryNodeTest {
 
@@ -65,4 +91,65 @@ public class TbGetTelemetryNodeTest {
         node.parseAggregationConfig("TOP");
     }
 
+    @Test
+    public void givenRecentTelemetry_whenOnMsg_thenServedWithoutDatabase() throws Exception {
+        TbContext ctx = mock(TbContext.class);
+        TimeseriesService tsService = mock(TimeseriesService.class);
+        RuleEngineRecentTelemetryCache recentTelemetryCache = mock(RuleEngineRecentTelemetryCache.class);
+        EntityId originator = new DeviceId(Uuids.timeBased());
+        when(ctx.getRecentTelemetryCache()).thenReturn(recentTelemetryCache);
+        when(ctx.getTimeseriesService()).thenReturn(tsService);
+        when(recentTelemetryCache.findAll(eq(originator), anyList()))
+                .thenReturn(Optional.of(Collections.singletonList(new BasicTsKvEntry(1000L, new LongDataEntry("temperature", 42L)))));
+
+        TbMsg msg = onMsg(ctx, originator);
+
+        verify(tsService, never()).findAll(any(), any(), anyList());
+        assertThat(msg.getMetaData().getValue("temperature"), is("\"42\""));
+    }
+
+    @Test
+    public void givenNoRecentTelemetry_whenOnMsg_thenReadFromDatabase() throws Exception {
+        TbContext ctx = mock(TbContext.class);
+        TimeseriesService tsService = mock(TimeseriesService.class);
+        RuleEngineRecentTelemetryCache recentTelemetryCache = mock(RuleEngineRecentTelemetryCache.class);
+        EntityId originator = new DeviceId(Uuids.timeBased());
+        TenantId tenantId = TenantId.fromUUID(Uuids.timeBased());
+        when(ctx.getRecentTelemetryCache()).thenReturn(recentTelemetryCache);
+        when(ctx.getTimeseriesService()).thenReturn(tsService);
+        when(ctx.getTenantId()).thenReturn(tenantId);
+        when(recentTelemetryCache.findAll(eq(originator), anyList())).thenReturn(Optional.empty());
+        List<TsKvEntry> saved = Collections.singletonList(new BasicTsKvEntry(1000L, new LongDataEntry("temperature", 7L)));
+        when(tsService.findAll(eq(tenantId), eq(originator), anyList())).thenReturn(Futures.immediateFuture(saved));
+
+        TbMsg msg = onMsg(ctx, originator);
+
+        verify(tsService).findAll(eq(tenantId), eq(originator), anyList());
+        assertThat(msg.getMetaData().getValue("temperature"), is("\"7\""));
+    }
+
+    private TbMsg onMsg(TbContext ctx, EntityId originator) throws Exception {
+        AbstractListeningExecutor dbExecutor = new AbstractListeningExecutor() {
+            @Override
+            protected int getThreadPollSize() {
+                return 1;
+            }
+        };
+        dbExecutor.init();
+        try {
+            when(ctx.getDbCallbackExecutor()).thenReturn(dbExecutor);
+            TbGetTelemetryNodeConfiguration config = new TbGetTelemetryNodeConfiguration().defaultConfiguration();
+            config.setLatestTsKeyNames(Collections.singletonList("temperature"));
+            TbGetTelemetryNode telemetryNode = new TbGetTelemetryNode();
+            telemetryNode.init(ctx, new TbNodeConfiguration(JacksonUtil.valueToTree(config)));
+
+            TbMsg msg = TbMsg.newMsg("TEST", originator, new TbMsgMetaData(), "{}");
+            telemetryNode.onMsg(ctx, msg);
+            verify(ctx, timeout(5000)).tellSuccess(any());
+            return msg;
+        } finally {
+            dbExecutor.destroy();
+        }
+    }
+
 }
@@ -16,10 +16,13 @@
 package org.thingsboard.rule.engine.profile;
 
 import com.google.common.util.concurrent.Futures;
+import org.junit.After;
 import org.junit.Before;
 import org.junit.Test;
 import org.mockito.ArgumentCaptor;
+import org.thingsboard.common.util.BlockingCallExecutor;
 import org.thingsboard.common.util.JacksonUtil;
+import org.thingsboard.common.util.ThingsBoardExecutors;
 import org.thingsboard.rule.engine.api.RuleEngineAlarmService;
 import org.thingsboard.rule.engine.api.TbContext;
 import org.thingsboard.server.common.data.DataConstants;
@@ -65,12 +68,15 @@ import static org.mockito.Mockito.when;
 public class DeviceStateTest {
 
     private TbContext ctx;
+    private BlockingCallExecutor blockingCallExecutor;
 
     @Before
     public void beforeEach() {
         ctx = mock(TbContext.class);
+        blockingCallExecutor = ThingsBoardExecutors.newBlockingCallExecutor(1, 100, "test", false);
 
         when(ctx.getDeviceService()).thenReturn(mock(DeviceService.class));
+        when(ctx.getBlockingCallExecutor()).thenReturn(blockingCallExecutor);
 
         AttributesService attributesService = mock(AttributesService.class);
         when(attributesService.find(any(), any(), any(), anyCollection())).thenReturn(Futures.immediateFuture(Collections.emptyList()));
@@ -92,6 +98,11 @@ public class DeviceStateTest {
 
     }
 
+    @After
+    public void afterEach() {
+        blockingCallExecutor.shutdown();
+    }
+
     @Test
     public void whenAttributeIsDeleted_thenUnneededAlarmRulesAreNotReevaluated() throws Exception {
 
@@ -16,6 +16,8 @@
 package org.thingsboard.rule.engine.rest;
 
 
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Timer;
 import io.netty.channel.EventLoopGroup;
 import io.netty.channel.nio.NioEventLoopGroup;
 import org.awaitility.Awaitility;
@@ -26,24 +28,34 @@ import org.junit.Test;
 import org.mockito.ArgumentCaptor;
 import org.mockito.Mockito;
 import org.mockserver.integration.ClientAndServer;
+import org.springframework.http.HttpEntity;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.util.concurrent.SettableListenableFuture;
 import org.springframework.web.client.AsyncRestTemplate;
 import org.thingsboard.rule.engine.api.TbContext;
 import org.thingsboard.server.common.data.id.DeviceId;
 import org.thingsboard.server.common.data.id.EntityId;
 import org.thingsboard.server.common.msg.TbMsg;
 import org.thingsboard.server.common.msg.TbMsgMetaData;
+import org.thingsboard.server.common.stats.DefaultCounter;
+import org.thingsboard.server.common.stats.StatsFactory;
 
 import java.net.URI;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import static org.assertj.core.api.Assertions.assertThatThrownBy;
 import static org.hamcrest.MatcherAssert.assertThat;
 import static org.hamcrest.Matchers.instanceOf;
 import static org.hamcrest.Matchers.is;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
 import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.BDDMockito.willCallRealMethod;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
@@ -137,7 +149,7 @@ public class TbHttpClientTest {
 
         var asyncRestTemplate = new AsyncRestTemplate();
 
-        var httpClient = new TbHttpClient(config, eventLoop);
+        var httpClient = new TbHttpClient(config, eventLoop, newStats());
         httpClient.setHttpClient(asyncRestTemplate);
 
         var msg = TbMsg.newMsg("GET", new DeviceId(EntityId.NULL_UUID), TbMsgMetaData.EMPTY, "{}");
@@ -181,6 +193,144 @@ public class TbHttpClientTest {
         Assert.assertEquals(successResponseBody, capturedData.getValue());
     }
 
+    @Test
+    public void givenMaxParallelRequests_whenLimitReached_thenNextRequestSentOnCompletion() throws Exception {
+        var config = new TbRestApiCallNodeConfiguration().defaultConfiguration();
+        config.setUseSimpleClientHttpFactory(true);
+        config.setMaxParallelRequestsCount(1);
+
+        var firstResponse = new SettableListenableFuture<ResponseEntity<String>>();
+        var secondResponse = new SettableListenableFuture<ResponseEntity<String>>();
+        var asyncRestTemplate = mock(AsyncRestTemplate.class);
+        when(asyncRestTemplate.exchange(any(URI.class), any(HttpMethod.class), any(HttpEntity.class), eq(String.class)))
+                .thenReturn(firstResponse, secondResponse);
+
+        var httpClient = new TbHttpClient(config, eventLoop, newStats());
+        httpClient.setHttpClient(asyncRestTemplate);
+        var ctx = mock(TbContext.class);
+
+        httpClient.processMessage(ctx, TbMsg.newMsg("POST", new DeviceId(EntityId.NULL_UUID), TbMsgMetaData.EMPTY, "{}"));
+        httpClient.processMessage(ctx, TbMsg.newMsg("POST", new DeviceId(EntityId.NULL_UUID), TbMsgMetaData.EMPTY, "{}"));
+        verify(asyncRestTemplate, times(1)).exchange(any(URI.class), any(HttpMethod.class), any(HttpEntity.class), eq(String.class));
+
+        firstResponse.set(new ResponseEntity<>("OK", HttpStatus.OK));
+        verify(asyncRestTemplate, times(2)).exchange(any(URI.class), any(HttpMethod.class), any(HttpEntity.class), eq(String.class));
+        verify(ctx, times(1)).tellSuccess(any());
+
+        secondResponse.set(new ResponseEntity<>("OK", HttpStatus.OK));
+        verify(ctx, times(2)).tellSuccess(any());
+        Assert.assertEquals(2, httpClient.getStats().getRequests());
+        Assert.assertEquals(0, httpClient.getInFlightRequests());
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void givenMaxBatchSize_whenBatchFull_thenMessagesSentAsJsonArray() throws Exception {
+        var config = new TbRestApiCallNodeConfiguration().defaultConfiguration();
+        config.setUseSimpleClientHttpFactory(true);
+        config.setMaxBatchSize(2);
+
+        var response = new SettableListenableFuture<ResponseEntity<String>>();
+        var asyncRestTemplate = mock(AsyncRestTemplate.class);
+        var entity = ArgumentCaptor.forClass(HttpEntity.class);
+        when(asyncRestTemplate.exchange(any(URI.class), any(HttpMethod.class), entity.capture(), eq(String.class)))
+                .thenReturn(response);
+
+        var httpClient = new TbHttpClient(config, eventLoop, newStats());
+        httpClient.setHttpClient(asyncRestTemplate);
+        var ctx = mock(TbContext.class);
+
+        httpClient.processMessage(ctx, TbMsg.newMsg("POST", new DeviceId(EntityId.NULL_UUID), TbMsgMetaData.EMPTY, "{\"temperature\":42}"));
+        verify(asyncRestTemplate, never()).exchange(any(URI.class), any(HttpMethod.class), any(HttpEntity.class), eq(String.class));
+        verify(ctx, times(1)).tellSelf(any(), eq((long) config.getBatchLingerMs()));
+
+        httpClient.processMessage(ctx, TbMsg.newMsg("POST", new DeviceId(EntityId.NULL_UUID), TbMsgMetaData.EMPTY, "plain text"));
+        Assert.assertEquals("[{\"temperature\":42},\"plain text\"]", entity.getValue().getBody());
+
+        response.set(new ResponseEntity<>("OK", HttpStatus.OK));
+        verify(ctx, times(2)).tellSuccess(any());
+    }
+
+    @Test
+    public void givenWaitingRequest_whenDestroy_thenMessageFailed() throws Exception {
+        var config = new TbRestApiCallNodeConfiguration().defaultConfiguration();
+        config.setUseSimpleClientHttpFactory(true);
+        config.setMaxParallelRequestsCount(1);
+
+        var asyncRestTemplate = mock(AsyncRestTemplate.class);
+        when(asyncRestTemplate.exchange(any(URI.class), any(HttpMethod.class), any(HttpEntity.class), eq(String.class)))
+                .thenReturn(new SettableListenableFuture<>());
+
+        var httpClient = new TbHttpClient(config, eventLoop, newStats());
+        httpClient.setHttpClient(asyncRestTemplate);
+        var ctx = mock(TbContext.class);
+
+        httpClient.processMessage(ctx, TbMsg.newMsg("POST", new DeviceId(EntityId.NULL_UUID), TbMsgMetaData.EMPTY, "{}"));
+        httpClient.processMessage(ctx, TbMsg.newMsg("POST", new DeviceId(EntityId.NULL_UUID), TbMsgMetaData.EMPTY, "{}"));
+
+        httpClient.destroy();
+
+        verify(ctx, times(1)).tellFailure(any(), any(IllegalStateException.class));
+        verify(asyncRestTemplate, times(1)).exchange(any(URI.class), any(HttpMethod.class), any(HttpEntity.class), eq(String.class));
+    }
+
+    @Test
+    public void givenPendingBatch_whenDestroy_thenMessagesFailed() throws Exception {
+        var config = new TbRestApiCallNodeConfiguration().defaultConfiguration();
+        config.setUseSimpleClientHttpFactory(true);
+        config.setMaxBatchSize(10);
+
+        var asyncRestTemplate = mock(AsyncRestTemplate.class);
+        var httpClient = new TbHttpClient(config, eventLoop, newStats());
+        httpClient.setHttpClient(asyncRestTemplate);
+        var ctx = mock(TbContext.class);
+
+        var msg = TbMsg.newMsg("POST", new DeviceId(EntityId.NULL_UUID), TbMsgMetaData.EMPTY, "{}");
+        httpClient.processMessage(ctx, msg);
+
+        httpClient.destroy();
+
+        verify(ctx, times(1)).tellFailure(eq(msg), any(IllegalStateException.class));
+        verify(asyncRestTemplate, never()).exchange(any(URI.class), any(HttpMethod.class), any(HttpEntity.class), eq(String.class));
+    }
+
+    @Test
+    public void givenManyWaitingRequests_whenRequestsFailSynchronously_thenAllSentWithoutRecursion() throws Exception {
+        var config = new TbRestApiCallNodeConfiguration().defaultConfiguration();
+        config.setUseSimpleClientHttpFactory(true);
+        config.setMaxParallelRequestsCount(1);
+
+        var firstResponse = new SettableListenableFuture<ResponseEntity<String>>();
+        var asyncRestTemplate = mock(AsyncRestTemplate.class);
+        when(asyncRestTemplate.exchange(any(URI.class), any(HttpMethod.class), any(HttpEntity.class), eq(String.class)))
+                .thenReturn(firstResponse)
+                .thenThrow(new IllegalArgumentException("Connection refused"));
+
+        var httpClient = new TbHttpClient(config, eventLoop, newStats());
+        httpClient.setHttpClient(asyncRestTemplate);
+        var ctx = mock(TbContext.class);
+
+        int waitingCount = 20000;
+        for (int i = 0; i <= waitingCount; i++) {
+            httpClient.processMessage(ctx, TbMsg.newMsg("POST", new DeviceId(EntityId.NULL_UUID), TbMsgMetaData.EMPTY, "{}"));
+        }
+
+        firstResponse.set(new ResponseEntity<>("OK", HttpStatus.OK));
+
+        verify(ctx, times(1)).tellSuccess(any());
+        verify(ctx, times(waitingCount)).tellFailure(any(), any());
+        Assert.assertEquals(waitingCount + 1, httpClient.getStats().getRequests());
+        Assert.assertEquals(0, httpClient.getInFlightRequests());
+    }
+
+    private static TbHttpClientStats newStats() {
+        var statsFactory = mock(StatsFactory.class);
+        when(statsFactory.createDefaultCounter(anyString(), anyString(), anyString()))
+                .thenAnswer(invocation -> new DefaultCounter(new AtomicInteger(), mock(Counter.class)));
+        when(statsFactory.createTimer(anyString(), anyString(), anyString())).thenReturn(mock(Timer.class));
+        return new TbHttpClientStats(statsFactory, "ruleNodeId");
+    }
+
     private ClientAndServer setUpDummyServer(String host, String path, String paramKey, String paramVal, String successResponseBody) {
         var server = startClientAndServer(host, 1080);
         createGetMethodExpectations(server, path, paramKey, paramVal, successResponseBody);
@@ -16,13 +16,19 @@
 package org.thingsboard.rule.engine.rest;
 
 import static org.junit.Assert.*;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
 
 import java.io.IOException;
 import java.util.Collections;
 import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Timer;
 import org.apache.http.Header;
 import org.apache.http.HttpException;
 import org.apache.http.HttpRequest;
@@ -49,6 +55,8 @@ import org.thingsboard.server.common.data.id.RuleNodeId;
 import org.thingsboard.server.common.msg.TbMsg;
 import org.thingsboard.server.common.msg.TbMsgDataType;
 import org.thingsboard.server.common.msg.TbMsgMetaData;
+import org.thingsboard.server.common.stats.DefaultCounter;
+import org.thingsboard.server.common.stats.StatsFactory;
 
 import com.datastax.oss.driver.api.core.uuid.Uuids;
 import com.fasterxml.jackson.databind.ObjectMapper;
@@ -82,6 +90,12 @@ public class TbRestApiCallNodeTest {
         try {
             ObjectMapper mapper = new ObjectMapper();
             TbNodeConfiguration nodeConfiguration = new TbNodeConfiguration(mapper.valueToTree(config));
+            StatsFactory statsFactory = mock(StatsFactory.class);
+            when(statsFactory.createDefaultCounter(anyString(), anyString(), anyString()))
+                    .thenAnswer(invocation -> new DefaultCounter(new AtomicInteger(), mock(Counter.class)));
+            when(statsFactory.createTimer(anyString(), anyString(), anyString())).thenReturn(mock(Timer.class));
+            when(ctx.getStatsFactory()).thenReturn(statsFactory);
+            when(ctx.getSelfId()).thenReturn(ruleNodeId);
             restNode = new TbRestApiCallNode();
             restNode.init(ctx, nodeConfiguration);
         } catch (TbNodeException ex) {
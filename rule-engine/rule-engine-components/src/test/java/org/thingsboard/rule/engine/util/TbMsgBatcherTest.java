@@ -0,0 +1,99 @@
+/**
+ * Copyright © 2016-2022 The Thingsboard Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.thingsboard.rule.engine.util;
+
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.thingsboard.rule.engine.api.TbContext;
+import org.thingsboard.rule.engine.util.TbMsgBatcher.BatchedMsg;
+import org.thingsboard.server.common.data.id.DeviceId;
+import org.thingsboard.server.common.msg.TbMsg;
+import org.thingsboard.server.common.msg.TbMsgMetaData;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+public class TbMsgBatcherTest {
+
+    private static final String FLUSH_MSG_TYPE = "TestFlushMsg";
+
+    TbContext ctx;
+    List<List<BatchedMsg>> sentBatches;
+    TbMsgBatcher batcher;
+
+    @Before
+    public void setUp() {
+        ctx = mock(TbContext.class);
+        when(ctx.newMsg(any(), eq(FLUSH_MSG_TYPE), any(), any(), any(), any()))
+                .thenReturn(TbMsg.newMsg(FLUSH_MSG_TYPE, new DeviceId(UUID.randomUUID()), new TbMsgMetaData(), ""));
+        sentBatches = new ArrayList<>();
+        batcher = new TbMsgBatcher(FLUSH_MSG_TYPE, 3, 100, sentBatches::add);
+    }
+
+    @Test
+    public void givenFullBatch_whenAdd_thenBatchSent() {
+        batcher.add(ctx, newMsg("{\"a\":1}"));
+        batcher.add(ctx, newMsg("{\"a\":2}"));
+        Assert.assertTrue(sentBatches.isEmpty());
+        batcher.add(ctx, newMsg("3"));
+
+        Assert.assertEquals(1, sentBatches.size());
+        Assert.assertEquals("[{\"a\":1},{\"a\":2},3]", TbMsgBatcher.toJsonArray(sentBatches.get(0)));
+        verify(ctx, times(1)).tellSelf(any(), eq(100L));
+    }
+
+    @Test
+    public void givenPartialBatch_whenFlushMsg_thenBatchSentOnce() {
+        batcher.add(ctx, newMsg("not json"));
+        TbMsg flushMsg = ctx.newMsg(null, FLUSH_MSG_TYPE, null, null, null, null);
+        Assert.assertTrue(batcher.isFlushMsg(flushMsg));
+
+        batcher.flush();
+        batcher.flush();
+
+        Assert.assertEquals(1, sentBatches.size());
+        Assert.assertEquals("[\"not json\"]", TbMsgBatcher.toJsonArray(sentBatches.get(0)));
+
+        batcher.add(ctx, newMsg("{}"));
+        verify(ctx, times(2)).tellSelf(any(), eq(100L));
+    }
+
+    @Test
+    public void givenPartialBatch_whenClear_thenMessagesFailed() {
+        TbMsg msg = newMsg("{}");
+        batcher.add(ctx, msg);
+        IllegalStateException cause = new IllegalStateException("Node is stopped");
+
+        batcher.clear(cause);
+        batcher.flush();
+
+        verify(ctx, times(1)).tellFailure(msg, cause);
+        Assert.assertTrue(sentBatches.isEmpty());
+    }
+
+    private static TbMsg newMsg(String data) {
+        return TbMsg.newMsg("POST_TELEMETRY_REQUEST", new DeviceId(UUID.randomUUID()), new TbMsgMetaData(), data);
+    }
+}